@@ -0,0 +1,200 @@
+package at.ac.tuwien.dsg.scaledom.benchmark;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates synthetic XML documents of a given shape, encoding and size for the benchmarks.<br/>
+ * Every shape consists of records below the document element, each record carries an attribute
+ * <code>id="r&lt;index&gt;"</code>. Text and attribute values contain variable-width characters, which are replaced by
+ * '?' if the requested encoding is not able to represent them.
+ */
+public class DocumentGenerator {
+
+	/** Document shapes. */
+	public static enum Shape {
+		/** Records are chains of nested elements, DEEP_LEVELS levels deep. */
+		DEEP,
+		/** Many small records, each only containing a text node. */
+		WIDE,
+		/** Records consisting mostly of long text nodes. */
+		TEXT,
+		/** Records with many attributes and small children consisting of attributes only. */
+		ATTRIBUTES,
+		/** Records whose elements and attributes are spread over several namespaces. */
+		NAMESPACED
+	}
+
+	/** Depth of the records of DEEP documents. */
+	public final static int DEEP_LEVELS = 24;
+	/** Number of attributes of the records of ATTRIBUTES documents. */
+	public final static int ATTRIBUTES_PER_RECORD = 16;
+
+	/** Text fragments, containing 1- to 4-byte UTF-8 characters. */
+	private final static String[] FRAGMENTS = { "plain ascii text", "naïve café", "βέτα", "€uro 中文",
+			"A𐰀 old turkic", "דלת" };
+	/** Sizes of the form 512KB, 16MB or 1GB. */
+	private final static Pattern SIZE_PATTERN = Pattern.compile("(\\d+)\\s*(B|KB|MB|GB)");
+
+	private final Shape shape;
+	private final String encoding;
+	private final long targetSize;
+	private final String[] fragments;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param shape the shape of the document.
+	 * @param encoding the encoding of the document.
+	 * @param targetSize the approximate size of the document in bytes.
+	 */
+	public DocumentGenerator(final Shape shape, final String encoding, final long targetSize) {
+		checkArgument(targetSize > 0, "Expected targetSize to be positive, but %s is not.", targetSize);
+
+		this.shape = shape;
+		this.encoding = encoding;
+		this.targetSize = targetSize;
+
+		final CharsetEncoder encoder = Charset.forName(encoding).newEncoder();
+		this.fragments = new String[FRAGMENTS.length];
+		for (int i = 0; i < FRAGMENTS.length; ++i) {
+			fragments[i] = encoder.canEncode(FRAGMENTS[i]) ? FRAGMENTS[i] : FRAGMENTS[i].replaceAll("[^\\x00-\\x7f]",
+					"?");
+		}
+	}
+
+	/**
+	 * Parses a size of the form 512KB, 16MB or 1GB.
+	 *
+	 * @param size the size.
+	 * @return the size in bytes.
+	 */
+	public static long parseSize(final String size) {
+		final Matcher matcher = SIZE_PATTERN.matcher(size.trim().toUpperCase(Locale.ENGLISH));
+		checkArgument(matcher.matches(), "Expected size of the form 16MB, but %s is not.", size);
+
+		final long value = Long.parseLong(matcher.group(1));
+		final String unit = matcher.group(2);
+		if (unit.equals("KB")) {
+			return value << 10;
+		} else if (unit.equals("MB")) {
+			return value << 20;
+		} else if (unit.equals("GB")) {
+			return value << 30;
+		}
+		return value;
+	}
+
+	/**
+	 * Generates the document into the given directory, unless it has already been generated. The file name is derived
+	 * from shape, encoding and size.
+	 *
+	 * @param directory the directory.
+	 * @param shape the shape of the document.
+	 * @param encoding the encoding of the document.
+	 * @param size the approximate size of the document of the form 16MB.
+	 * @return the generated file.
+	 * @throws IOException If some I/O error occurs.
+	 */
+	public static File generate(final File directory, final Shape shape, final String encoding, final String size)
+			throws IOException {
+		final File file = new File(directory, shape.name().toLowerCase(Locale.ENGLISH) + "-"
+				+ encoding.toLowerCase(Locale.ENGLISH) + "-" + size.trim().toLowerCase(Locale.ENGLISH) + ".xml");
+		if (file.exists()) {
+			return file;
+		}
+
+		// Generate into a temporary file first, so that an aborted run does not leave a truncated document behind
+		directory.mkdirs();
+		final File tempFile = new File(directory, file.getName() + ".tmp");
+		System.out.println("INFO: Generating XML file, please be patient: " + file);
+		new DocumentGenerator(shape, encoding, parseSize(size)).write(tempFile);
+		if (!tempFile.renameTo(file)) {
+			throw new IOException("Could not rename " + tempFile + " to " + file + ".");
+		}
+		return file;
+	}
+
+	/**
+	 * Writes the document.
+	 *
+	 * @param file the file to be written.
+	 * @throws IOException If some I/O error occurs.
+	 */
+	public void write(final File file) throws IOException {
+		final FileOutputStream out = new FileOutputStream(file);
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(out, encoding), 1 << 16);
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"" + encoding + "\"?>\n");
+			if (shape == Shape.NAMESPACED) {
+				writer.write("<records xmlns=\"urn:scaledom:benchmark\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\""
+						+ " xmlns:x=\"urn:scaledom:benchmark:extension\">\n");
+			} else {
+				writer.write("<records>\n");
+			}
+			for (long i = 0; out.getChannel().position() < targetSize; ++i) {
+				writeRecord(writer, i, fragments[(int) (i % fragments.length)]);
+			}
+			writer.write("</records>\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	private void writeRecord(final Writer writer, final long index, final String fragment) throws IOException {
+		switch (shape) {
+		case DEEP:
+			writer.write("\t<record id=\"r" + index + "\">");
+			for (int level = 1; level <= DEEP_LEVELS; ++level) {
+				writer.write("<level n=\"" + level + "\">" + fragment);
+			}
+			for (int level = 1; level <= DEEP_LEVELS; ++level) {
+				writer.write("</level>");
+			}
+			writer.write("</record>\n");
+			break;
+		case WIDE:
+			writer.write("\t<record id=\"r" + index + "\">" + fragment + " " + index + "</record>\n");
+			break;
+		case TEXT:
+			writer.write("\t<record id=\"r" + index + "\">\n\t\t<title>" + fragment + " " + index + "</title>\n\t\t<body>");
+			for (int i = 0; i < 64; ++i) {
+				writer.write(fragment);
+				writer.write(i % 8 == 7 ? "\n" : " ");
+			}
+			writer.write("</body>\n\t</record>\n");
+			break;
+		case ATTRIBUTES:
+			writer.write("\t<record id=\"r" + index + "\"");
+			for (int i = 1; i < ATTRIBUTES_PER_RECORD; ++i) {
+				writer.write(" a" + i + "=\"" + (i % 2 == 0 ? fragment : Long.toString(index * i)) + "\"");
+			}
+			writer.write(">\n");
+			for (int i = 0; i < 3; ++i) {
+				writer.write("\t\t<field name=\"f" + i + "\" value=\"" + fragment + "\" unit=\"u" + i + "\"/>\n");
+			}
+			writer.write("\t</record>\n");
+			break;
+		case NAMESPACED:
+			writer.write("\t<record id=\"r" + index + "\" x:kind=\"k" + index % 7 + "\">\n");
+			writer.write("\t\t<dc:title>" + fragment + " " + index + "</dc:title>\n");
+			writer.write("\t\t<dc:creator xml:lang=\"en\">" + fragment + "</dc:creator>\n");
+			writer.write("\t\t<x:meta x:key=\"m" + index + "\"><value>" + index % 1000 + "</value></x:meta>\n");
+			writer.write("\t</record>\n");
+			break;
+		default:
+			throw new IllegalStateException("Unknown shape " + shape + ".");
+		}
+	}
+}
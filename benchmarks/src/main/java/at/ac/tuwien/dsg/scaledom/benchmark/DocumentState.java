@@ -0,0 +1,121 @@
+package at.ac.tuwien.dsg.scaledom.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.benchmark.DocumentGenerator.Shape;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+
+/**
+ * Benchmark state describing the benchmarked document by shape, encoding and size. The document is generated on first
+ * use into the directory given by the system property DIRECTORY_PROPERTY (default DEFAULT_DIRECTORY), and reused by
+ * later runs.<br/>
+ * Documents are parsed either by ScaleDOM or, as baseline, by plain Xerces.
+ */
+@State(Scope.Benchmark)
+public class DocumentState {
+
+	/** System property of the directory of the generated documents. */
+	public final static String DIRECTORY_PROPERTY = "scaledom.benchmark.directory";
+	/** Default directory of the generated documents. */
+	public final static String DEFAULT_DIRECTORY = "xml/big";
+
+	@Param({ "WIDE", "DEEP", "TEXT", "ATTRIBUTES", "NAMESPACED" })
+	public Shape shape;
+
+	@Param({ "UTF-8", "ISO-8859-1" })
+	public String encoding;
+
+	@Param({ "1MB", "16MB" })
+	public String size;
+
+	private File file;
+
+	/**
+	 * Returns the document, generates it if necessary.
+	 *
+	 * @return the document file.
+	 * @throws IOException If the document could not be generated.
+	 */
+	public File getFile() throws IOException {
+		if (file == null) {
+			final File directory = new File(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+			file = DocumentGenerator.generate(directory, shape, encoding, size);
+		}
+		return file;
+	}
+
+	/**
+	 * Creates a ScaleDOM document builder for the document's encoding.
+	 *
+	 * @param nodeCacheCapacity the number of nodes held by a <code>WindowTinyLfuNodeCacheManager</code>, or 0 if the
+	 *            loaded nodes are left to the garbage collector.
+	 * @return the document builder.
+	 * @throws ParserConfigurationException If the builder could not be created.
+	 */
+	public ScaleDomDocumentBuilder newScaleDomBuilder(final long nodeCacheCapacity)
+			throws ParserConfigurationException {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		if (Charset.forName(encoding).newEncoder().maxBytesPerChar() > 1) {
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		}
+		if (nodeCacheCapacity > 0) {
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, nodeCacheCapacity);
+		}
+		return (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+	}
+
+	/**
+	 * Creates a plain Xerces document builder, i.e. the baseline.
+	 *
+	 * @return the document builder.
+	 * @throws ParserConfigurationException If the builder could not be created.
+	 */
+	public DocumentBuilder newXercesBuilder() throws ParserConfigurationException {
+		final DocumentBuilderFactory dbf = new org.apache.xerces.jaxp.DocumentBuilderFactoryImpl();
+		dbf.setNamespaceAware(true);
+		return dbf.newDocumentBuilder();
+	}
+
+	/**
+	 * Parses the document by ScaleDOM.
+	 *
+	 * @param builder the ScaleDOM document builder.
+	 * @return the lazily loaded document.
+	 * @throws IOException If some I/O error occurs.
+	 * @throws SAXException If the document is not well-formed.
+	 */
+	public Document parseScaleDom(final ScaleDomDocumentBuilder builder) throws IOException, SAXException {
+		return builder.parse(new FileDocumentSource(getFile(), encoding));
+	}
+
+	/**
+	 * Parses the document by plain Xerces.
+	 *
+	 * @param builder the Xerces document builder.
+	 * @return the document.
+	 * @throws IOException If some I/O error occurs.
+	 * @throws SAXException If the document is not well-formed.
+	 */
+	public Document parseXerces(final DocumentBuilder builder) throws IOException, SAXException {
+		return builder.parse(getFile());
+	}
+}
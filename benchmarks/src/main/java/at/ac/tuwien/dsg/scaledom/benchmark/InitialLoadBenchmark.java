@@ -0,0 +1,55 @@
+package at.ac.tuwien.dsg.scaledom.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+
+/**
+ * Measures the initial load of a document, i.e. parsing it until the document is returned to the caller. ScaleDOM only
+ * loads the nodes selected by the lazy loading strategy, plain Xerces loads the whole document.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InitialLoadBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Input extends DocumentState {
+
+		private ScaleDomDocumentBuilder scaleDomBuilder;
+		private DocumentBuilder xercesBuilder;
+
+		@Setup
+		public void setup() throws Exception {
+			getFile();
+			scaleDomBuilder = newScaleDomBuilder(0);
+			xercesBuilder = newXercesBuilder();
+		}
+	}
+
+	@Benchmark
+	public Document scaleDom(final Input input) throws Exception {
+		return input.parseScaleDom(input.scaleDomBuilder);
+	}
+
+	@Benchmark
+	public Document xerces(final Input input) throws Exception {
+		return input.parseXerces(input.xercesBuilder);
+	}
+}
@@ -0,0 +1,100 @@
+package at.ac.tuwien.dsg.scaledom.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.benchmark.DocumentGenerator.Shape;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+
+/**
+ * Measures the heap retained per node of the document, once by ScaleDOM and once by plain Xerces, for every shape and
+ * encoding. Retained heap is measured after a full garbage collection, once after the initial load and once after a
+ * full deep traversal. ScaleDOM uses a node cache of NODE_CACHE_CAPACITY nodes, hence its footprint is bounded
+ * independently of the document size.<br/>
+ * Retained heap can not be measured by JMH, hence this is a plain program. Arguments are the document sizes, e.g.
+ * <code>16MB 256MB</code>.
+ */
+public class MemoryPerNode {
+
+	// <Configuration>
+	private final static String[] DEFAULT_SIZES = { "16MB" };
+	private final static String[] ENCODINGS = { "UTF-8", "ISO-8859-1" };
+	private final static long NODE_CACHE_CAPACITY = 10000;
+	// </Configuration>
+
+	private final static MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+	public static void main(final String[] args) {
+		try {
+			final String[] sizes = args.length > 0 ? args : DEFAULT_SIZES;
+			System.out.println(String.format("%-10s %-10s %-6s %-8s %12s %14s %14s", "shape", "encoding", "size",
+					"parser", "nodes", "bytes/node", "bytes/node"));
+			System.out.println(String.format("%-10s %-10s %-6s %-8s %12s %14s %14s", "", "", "", "", "",
+					"(initial)", "(traversed)"));
+			for (final String size : sizes) {
+				for (final Shape shape : Shape.values()) {
+					for (final String encoding : ENCODINGS) {
+						final DocumentState state = new DocumentState();
+						state.shape = shape;
+						state.encoding = encoding;
+						state.size = size;
+						state.getFile();
+
+						measure(state, true);
+						try {
+							measure(state, false);
+						} catch (final OutOfMemoryError err) {
+							System.out.println(String.format("%-10s %-10s %-6s %-8s %s", shape, encoding, size,
+									"xerces", "out of memory"));
+						}
+					}
+				}
+			}
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static void measure(final DocumentState state, final boolean scaleDom) throws Exception {
+		final long before = getRetainedHeap();
+		final Document doc = scaleDom ? state.parseScaleDom(state.newScaleDomBuilder(NODE_CACHE_CAPACITY)) : state
+				.parseXerces(state.newXercesBuilder());
+		final long initial = getRetainedHeap() - before;
+		final long nodes = countNodes(doc);
+		final long traversed = getRetainedHeap() - before;
+
+		System.out.println(String.format("%-10s %-10s %-6s %-8s %12d %14.1f %14.1f", state.shape, state.encoding,
+				state.size, scaleDom ? "scaledom" : "xerces", nodes, (double) initial / nodes, (double) traversed
+						/ nodes));
+		// Keep the document reachable until here
+		doc.getDocumentElement();
+	}
+
+	/**
+	 * Counts the nodes of the document by a full deep traversal.
+	 */
+	private static long countNodes(final Document doc) {
+		final long[] nodes = new long[1];
+		new DOMTraverser(new DOMTraverserCallback() {
+			@Override
+			public void nodeTraversed(final Document doc, final Node node, final int level) {
+				++nodes[0];
+			}
+		}).traverse(doc);
+		return nodes[0];
+	}
+
+	/**
+	 * Returns the used heap after full garbage collections.
+	 */
+	private static long getRetainedHeap() {
+		for (int i = 0; i < 3; ++i) {
+			System.gc();
+		}
+		return MEMORY.getHeapMemoryUsage().getUsed();
+	}
+}
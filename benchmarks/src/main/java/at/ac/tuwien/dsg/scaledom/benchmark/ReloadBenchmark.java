@@ -0,0 +1,101 @@
+package at.ac.tuwien.dsg.scaledom.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xerces.dom.ParentNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import at.ac.tuwien.dsg.scaledom.dom.ChildList;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+
+/**
+ * Measures the reload of the children of a single parent, i.e. the record in the middle of the document. The record's
+ * children are unloaded before every invocation (outside of the measured time) and accessed again by the invocation.
+ * As baseline, plain Xerces accesses the children of the same record, which are always in memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ReloadBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class ScaleDomInput extends DocumentState {
+
+		private ScaleDomDocument document;
+		private ParentNode record;
+
+		@Setup
+		public void setup() throws Exception {
+			document = (ScaleDomDocument) parseScaleDom(newScaleDomBuilder(0));
+			record = (ParentNode) getMiddleRecord(document);
+		}
+
+		@Setup(Level.Invocation)
+		public void unload() {
+			final ChildList children = record.peekLoadedChildNodes();
+			if (children != null) {
+				document.unload(record, children);
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class XercesInput extends DocumentState {
+
+		private Node record;
+
+		@Setup
+		public void setup() throws Exception {
+			record = getMiddleRecord(parseXerces(newXercesBuilder()));
+		}
+	}
+
+	@Benchmark
+	public long scaleDom(final ScaleDomInput input) {
+		return access(input.record);
+	}
+
+	@Benchmark
+	public long xerces(final XercesInput input) {
+		return access(input.record);
+	}
+
+	/**
+	 * Returns the record in the middle of the document, its children are accessed once.
+	 */
+	private static Node getMiddleRecord(final Document doc) {
+		final NodeList records = doc.getDocumentElement().getChildNodes();
+		Node record = records.item(records.getLength() / 2);
+		while (record.getNodeType() != Node.ELEMENT_NODE) {
+			record = record.getNextSibling();
+		}
+		access(record);
+		return record;
+	}
+
+	/**
+	 * Accesses the children of a record, returns the number of children plus the length of their names.
+	 */
+	private static long access(final Node record) {
+		long result = 0;
+		for (Node child = record.getFirstChild(); child != null; child = child.getNextSibling()) {
+			result += 1 + child.getNodeName().length();
+		}
+		return result;
+	}
+}
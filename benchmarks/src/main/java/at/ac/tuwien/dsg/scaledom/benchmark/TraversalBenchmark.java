@@ -0,0 +1,95 @@
+package at.ac.tuwien.dsg.scaledom.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+
+/**
+ * Measures a full deep traversal of an already parsed document, reading the name and value of every node. ScaleDOM
+ * reloads all children which are not loaded (anymore), depending on the node cache. The ScaleDOM document is parsed
+ * again before every iteration, so that every traversal starts from the initial load rather than from the nodes loaded
+ * by the previous one. The documents are parsed by separate states, so that ScaleDOM can be benchmarked with documents
+ * too large for plain Xerces.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TraversalBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class ScaleDomInput extends DocumentState {
+
+		/** Capacity of the node cache, 0 if the loaded nodes are left to the garbage collector. */
+		@Param({ "0", "10000" })
+		public long nodeCacheCapacity;
+
+		private ScaleDomDocumentBuilder builder;
+		private Document document;
+
+		@Setup
+		public void setup() throws Exception {
+			getFile();
+			builder = newScaleDomBuilder(nodeCacheCapacity);
+		}
+
+		@Setup(Level.Iteration)
+		public void open() throws Exception {
+			document = parseScaleDom(builder);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class XercesInput extends DocumentState {
+
+		private Document document;
+
+		@Setup
+		public void setup() throws Exception {
+			document = parseXerces(newXercesBuilder());
+		}
+	}
+
+	@Benchmark
+	public long scaleDom(final ScaleDomInput input) {
+		return traverse(input.document);
+	}
+
+	@Benchmark
+	public long xerces(final XercesInput input) {
+		return traverse(input.document);
+	}
+
+	/**
+	 * Traverses the document, returns the number of nodes plus the length of all names and values.
+	 */
+	private static long traverse(final Document doc) {
+		final long[] result = new long[1];
+		new DOMTraverser(new DOMTraverserCallback() {
+			@Override
+			public void nodeTraversed(final Document doc, final Node node, final int level) {
+				final String value = node.getNodeValue();
+				result[0] += 1 + node.getNodeName().length() + (value != null ? value.length() : 0);
+			}
+		}).traverse(doc);
+		return result[0];
+	}
+}
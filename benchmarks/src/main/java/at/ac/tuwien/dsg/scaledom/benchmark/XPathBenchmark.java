@@ -0,0 +1,88 @@
+package at.ac.tuwien.dsg.scaledom.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+
+/**
+ * Measures the execution of XPath queries (compilation and evaluation, as in XPathTest) on an already parsed document.
+ * The queries hold for all document shapes: a record selected by its id, the last record and the number of all
+ * elements, which visits the whole document. As in TraversalBenchmark, the ScaleDOM document is parsed again before
+ * every iteration.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class XPathBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Query {
+
+		@Param({ "/*/*[@id='r100']", "/*/*[last()]", "count(//*)" })
+		public String xPath;
+	}
+
+	@State(Scope.Benchmark)
+	public static class ScaleDomInput extends DocumentState {
+
+		private ScaleDomDocumentBuilder builder;
+		private Document document;
+
+		@Setup
+		public void setup() throws Exception {
+			getFile();
+			builder = newScaleDomBuilder(0);
+		}
+
+		@Setup(Level.Iteration)
+		public void open() throws Exception {
+			document = parseScaleDom(builder);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class XercesInput extends DocumentState {
+
+		private Document document;
+
+		@Setup
+		public void setup() throws Exception {
+			document = parseXerces(newXercesBuilder());
+		}
+	}
+
+	@Benchmark
+	public Object scaleDom(final ScaleDomInput input, final Query query) throws Exception {
+		return evaluate(input.document, query.xPath);
+	}
+
+	@Benchmark
+	public Object xerces(final XercesInput input, final Query query) throws Exception {
+		return evaluate(input.document, query.xPath);
+	}
+
+	private static Object evaluate(final Document doc, final String xPath) throws Exception {
+		final XPathExpression xpe = XPathFactory.newInstance().newXPath().compile(xPath);
+		return xpe.evaluate(doc, xPath.startsWith("count(") ? XPathConstants.NUMBER : XPathConstants.NODE);
+	}
+}
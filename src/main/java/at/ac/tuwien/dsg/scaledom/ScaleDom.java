@@ -1,7 +1,8 @@
 package at.ac.tuwien.dsg.scaledom;
 
-import java.nio.charset.StandardCharsets;
-
+import at.ac.tuwien.dsg.scaledom.cache.NodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.cache.impl.NoOpNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.io.BlockCache;
 import at.ac.tuwien.dsg.scaledom.io.ReaderFactory;
 import at.ac.tuwien.dsg.scaledom.io.impl.DelegatorReaderFactory;
 import at.ac.tuwien.dsg.scaledom.lazy.LazyLoadingStrategy;
@@ -9,6 +10,8 @@ import at.ac.tuwien.dsg.scaledom.lazy.impl.StepLazyLoadingStrategy;
 import at.ac.tuwien.dsg.scaledom.parser.XmlParser;
 import at.ac.tuwien.dsg.scaledom.parser.impl.StaxXmlParser;
 
+import com.google.common.base.Charsets;
+
 /**
  * General constants for ScaleDOM.
  * 
@@ -24,14 +27,16 @@ public final class ScaleDom {
 	// ScaleDOM configuration options
 
 	/**
-	 * <code>XmlParser</code> implementation.
+	 * <code>XmlParser</code> implementation.<br/>
+	 * Use <code>ByteOffsetStaxXmlParser</code> for documents with a variable-width encoding (e.g. UTF-8).
 	 */
 	public static final String ATTRIBUTE_XMLPARSER_IMPLEMENTATION = ATTRIBUTE_PREFIX + XmlParser.class.getName();
 
 	/**
 	 * <code>ReaderFactory</code> implementation.<br/>
 	 * Used by the parser to read from the underlying file. Implementations may hold the file open, returned
-	 * <code>Reader</code> are only requested one after the other.
+	 * <code>Reader</code> are only requested one after the other.<br/>
+	 * Use <code>MappedFileReaderFactory</code> to serve file reads from memory-mapped segments.
 	 */
 	public static final String ATTRIBUTE_READERFACTORY_IMPLEMENTATION = ATTRIBUTE_PREFIX
 			+ ReaderFactory.class.getName();
@@ -43,9 +48,128 @@ public final class ScaleDom {
 	public static final String ATTRIBUTE_LAZYLOADINGSTRATEGY_IMPLEMENTATION = ATTRIBUTE_PREFIX
 			+ LazyLoadingStrategy.class.getName();
 
+	/**
+	 * Union of location paths (<code>String</code> or <code>PathProjection</code>) needed by the queries of a known
+	 * workload, e.g. <code>/catalog/book[@id='b1']/title | /catalog/info</code>. An empty string disables the
+	 * projection.<br/>
+	 * If set, the <code>XPathLazyLoadingStrategy</code> is used instead of ATTRIBUTE_LAZYLOADINGSTRATEGY_IMPLEMENTATION:
+	 * the initial load materializes only the elements on paths which may match, other nodes are loaded on demand.
+	 * Paths with prefixes have to be compiled into a <code>PathProjection</code> with a <code>NamespaceContext</code>.
+	 */
+	public static final String ATTRIBUTE_LAZYLOADING_PROJECTION = ATTRIBUTE_PREFIX + "LazyLoadingProjection";
+
+	/**
+	 * <code>NodeCacheManager</code> implementation.<br/>
+	 * Decides which children lists are kept in memory, instead of leaving this to the <code>SoftReference</code> policy
+	 * of the Java GC. Use <code>WindowTinyLfuNodeCacheManager</code> to bound the number of held nodes or
+	 * <code>EstimatedSizeNodeCacheManager</code> to bound their estimated size in bytes.
+	 */
+	public static final String ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION = ATTRIBUTE_PREFIX
+			+ NodeCacheManager.class.getName();
+
+	/**
+	 * Capacity (<code>Long</code>) of the <code>NodeCacheManager</code>, the unit depends on the implementation.
+	 */
+	public static final String ATTRIBUTE_NODECACHE_CAPACITY = ATTRIBUTE_PREFIX + "NodeCacheCapacity";
+
 	/** Default encoding to be used if not specified in <code>InputSource</code>. */
 	public static final String ATTRIBUTE_DEFAULTENCODING = ATTRIBUTE_PREFIX + "DefaultEncoding";
 
+	/**
+	 * Whether a persistent offset index (<code>Boolean</code>) is used for file-based documents.<br/>
+	 * If enabled, the initially loaded nodes are stored into a sidecar file next to the document, reopening the
+	 * unchanged document restores them from there instead of parsing the whole document. See <code>OffsetIndex</code>.
+	 */
+	public static final String ATTRIBUTE_OFFSETINDEX = ATTRIBUTE_PREFIX + "OffsetIndex";
+
+	/**
+	 * Number of threads (<code>Integer</code>) used for the initial load of file-based documents.<br/>
+	 * If greater than 1, the document's structure is scanned in parallel and the children of the document element are
+	 * loaded concurrently, which requires a thread-safe <code>XmlParser</code> and a <code>LazyLoadingStrategy</code>
+	 * which decides on the depth of an event only. See <code>ParallelInitialLoad</code>.
+	 */
+	public static final String ATTRIBUTE_INITIALLOAD_THREADS = ATTRIBUTE_PREFIX + "InitialLoadThreads";
+
+	/**
+	 * Nominal number of children per page (<code>Integer</code>), 0 disables paging.<br/>
+	 * If enabled, the children of the document element and of every reloaded node are split into pages, if there are
+	 * more than that. Pages are loaded and unloaded independently of each other, only the ones being accessed have to
+	 * be in memory. See <code>ChildPageTable</code>.
+	 */
+	public static final String ATTRIBUTE_CHILDPAGE_SIZE = ATTRIBUTE_PREFIX + "ChildPageSize";
+
+	/**
+	 * Whether multiple threads may read a document at the same time (<code>Boolean</code>).<br/>
+	 * If enabled, concurrent loads use a <code>ReaderFactory</code> each and the loads of a parent node's children are
+	 * serialized, so that concurrent readers of not-loaded children share a single load. Requires a thread-safe
+	 * <code>XmlParser</code>. Modifying the document concurrently is not supported.
+	 */
+	public static final String ATTRIBUTE_CONCURRENT_READS = ATTRIBUTE_PREFIX + "ConcurrentReads";
+
+	/**
+	 * Maximum number of threads loading children in the background for each document (<code>Integer</code>), see
+	 * <code>ScaleDomDocumentInterface.loadChildrenAsync(Node)</code>. Threads are started on demand and terminate when
+	 * idle. Background loading requires concurrent reads to be enabled.
+	 */
+	public static final String ATTRIBUTE_ASYNCLOAD_THREADS = ATTRIBUTE_PREFIX + "AsyncLoadThreads";
+
+	/**
+	 * Maximum number of siblings whose children are loaded ahead in the background (<code>Integer</code>), when the
+	 * user accesses the children of siblings in document order. 0 disables reading ahead. Reading ahead requires
+	 * concurrent reads to be enabled and uses the threads of <code>ATTRIBUTE_ASYNCLOAD_THREADS</code>. See
+	 * <code>ReadAheadPrefetcher</code>.
+	 */
+	public static final String ATTRIBUTE_READAHEAD_WINDOW = ATTRIBUTE_PREFIX + "ReadAheadWindow";
+
+	/**
+	 * Capacity in bytes (<code>Long</code>) of the off-heap cache of blocks of each document source, 0 disables the
+	 * cache.<br/>
+	 * If enabled, reloads read the document source in aligned blocks through the cache, so that reloading a region
+	 * again reads from memory instead of the disk or the network. See <code>BlockCache</code>.
+	 */
+	public static final String ATTRIBUTE_BLOCKCACHE_CAPACITY = ATTRIBUTE_PREFIX + "BlockCacheCapacity";
+
+	/** Block size in bytes (<code>Integer</code>) of the block cache, see <code>ATTRIBUTE_BLOCKCACHE_CAPACITY</code>. */
+	public static final String ATTRIBUTE_BLOCKCACHE_BLOCKSIZE = ATTRIBUTE_PREFIX + "BlockCacheBlockSize";
+
+	/**
+	 * Whether the metrics of each document are registered as an MXBean of the platform MBean server
+	 * (<code>Boolean</code>), see <code>DocumentMetrics</code>. Registered MXBeans do not keep their documents in memory,
+	 * they stay registered until their documents have been garbage collected or <code>DocumentMetrics.unregister()</code>
+	 * is called.
+	 */
+	public static final String ATTRIBUTE_REGISTER_MXBEAN = ATTRIBUTE_PREFIX + "RegisterMXBean";
+
+	/**
+	 * Whether the names of all elements are indexed by the initial load (<code>Boolean</code>).<br/>
+	 * If enabled, <code>getElementsByTagName</code> and <code>getElementsByTagNameNS</code> return lists which know the
+	 * offsets of the matching elements and load only the requested ones, instead of traversing the whole DOM. The index
+	 * is dropped once the document is modified. See <code>ElementNameIndex</code>.
+	 */
+	public static final String ATTRIBUTE_ELEMENTNAME_INDEX = ATTRIBUTE_PREFIX + "ElementNameIndex";
+
+	/**
+	 * Whether the IDs of all elements are indexed by the initial load (<code>Boolean</code>).<br/>
+	 * If enabled, <code>getElementById</code> finds elements which have not been loaded yet, loading only the element
+	 * and its ancestors' children. IDs are the values of the attributes named by ATTRIBUTE_ID_ATTRIBUTES and of the
+	 * attributes declared as IDs by the DTD. The index is dropped once the document is modified. See
+	 * <code>IdIndex</code>.
+	 */
+	public static final String ATTRIBUTE_ID_INDEX = ATTRIBUTE_PREFIX + "IdIndex";
+
+	/**
+	 * Comma-separated local names of the attributes indexed as IDs (<code>String</code>), if IDs are indexed.
+	 */
+	public static final String ATTRIBUTE_ID_ATTRIBUTES = ATTRIBUTE_PREFIX + "IdAttributes";
+
+	/**
+	 * Whether text nodes are created without their data (<code>Boolean</code>, file-based document sources only).<br/>
+	 * If enabled, text nodes created by load processes hold the byte range of their text in the document source
+	 * instead, the text is read and decoded once it is accessed. Jobs which inspect the structure of a document only
+	 * hold much less memory per loaded subtree. See <code>LazyText</code>.
+	 */
+	public static final String ATTRIBUTE_LAZY_TEXT = ATTRIBUTE_PREFIX + "LazyText";
+
 	// ScaleDOM default configuration option values
 
 	/** Default XmlParser implementation. */
@@ -57,6 +181,54 @@ public final class ScaleDom {
 	/** Default LazyLoadingStrategy implementation. */
 	static final Class<? extends LazyLoadingStrategy> DEFAULT_LAZYLOADINGSTRATEGY_IMPLEMENTATION = StepLazyLoadingStrategy.class;
 
+	/** Default NodeCacheManager implementation. */
+	static final Class<? extends NodeCacheManager> DEFAULT_NODECACHEMANAGER_IMPLEMENTATION = NoOpNodeCacheManager.class;
+
+	/** Default NodeCacheCapacity. */
+	static final Long DEFAULT_NODECACHE_CAPACITY = 1000000L;
+
 	/** Default DefaultEncoding. */
-	static final String DEFAULT_DEFAULTENCODING = StandardCharsets.ISO_8859_1.name();
+	static final String DEFAULT_DEFAULTENCODING = Charsets.ISO_8859_1.name();
+
+	/** Default OffsetIndex. */
+	static final Boolean DEFAULT_OFFSETINDEX = Boolean.FALSE;
+
+	/** Default InitialLoadThreads. */
+	static final Integer DEFAULT_INITIALLOAD_THREADS = 1;
+
+	/** Default ChildPageSize. */
+	static final Integer DEFAULT_CHILDPAGE_SIZE = 0;
+
+	/** Default ConcurrentReads. */
+	static final Boolean DEFAULT_CONCURRENT_READS = Boolean.FALSE;
+
+	/** Default number of threads loading children in the background. */
+	static final Integer DEFAULT_ASYNCLOAD_THREADS = 2;
+
+	/** Default maximum number of siblings loaded ahead. */
+	static final Integer DEFAULT_READAHEAD_WINDOW = 0;
+
+	/** Default BlockCacheCapacity. */
+	static final Long DEFAULT_BLOCKCACHE_CAPACITY = 0L;
+
+	/** Default BlockCacheBlockSize. */
+	static final Integer DEFAULT_BLOCKCACHE_BLOCKSIZE = BlockCache.DEFAULT_BLOCK_SIZE;
+
+	/** Default RegisterMXBean. */
+	static final Boolean DEFAULT_REGISTER_MXBEAN = Boolean.FALSE;
+
+	/** Default ElementNameIndex. */
+	static final Boolean DEFAULT_ELEMENTNAME_INDEX = Boolean.FALSE;
+
+	/** Default IdIndex. */
+	static final Boolean DEFAULT_ID_INDEX = Boolean.FALSE;
+
+	/** Default IdAttributes. */
+	static final String DEFAULT_ID_ATTRIBUTES = "id";
+
+	/** Default LazyLoadingProjection. */
+	static final String DEFAULT_LAZYLOADING_PROJECTION = "";
+
+	/** Default LazyText. */
+	static final Boolean DEFAULT_LAZY_TEXT = Boolean.FALSE;
 }
@@ -4,7 +4,6 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
 
 import javax.xml.parsers.DocumentBuilder;
 
@@ -17,6 +16,7 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.BlockCache;
 import at.ac.tuwien.dsg.scaledom.parser.XmlParser;
 import at.ac.tuwien.dsg.scaledom.util.ComponentFactory;
 import at.ac.tuwien.dsg.scaledom.util.InputSourceUtils;
@@ -32,22 +32,27 @@ public class ScaleDomDocumentBuilder extends DocumentBuilder {
 
 	private final XmlParser parser;
 	private final ComponentFactory componentFactory;
-	private final String defaultEncoding;
+	private final ScaleDomSettings settings;
 
 	/**
 	 * Default constructor.
 	 * 
 	 * @param componentFactory a factory to obtain required sub components.
-	 * @param defaultEncoding the default encoding to be used.
+	 * @param settings the options of the documents, which must not be modified afterwards.
 	 */
-	ScaleDomDocumentBuilder(final ComponentFactory componentFactory, final String defaultEncoding) {
+	ScaleDomDocumentBuilder(final ComponentFactory componentFactory, final ScaleDomSettings settings) {
 		checkNotNull(componentFactory, "Argument componentFactory must not be null.");
-		checkNotNull(defaultEncoding, "Argument defaultEncoding must not be null.");
-		checkArgument(Charset.isSupported(defaultEncoding), "Default encoding '%s' is not supported.", defaultEncoding);
+		checkNotNull(settings, "Argument settings must not be null.");
+		checkArgument(settings.getReadAheadWindow() == 0 || settings.isConcurrentReadsEnabled(),
+				"Reading ahead requires concurrent reads.");
+		checkArgument(settings.getBlockCacheCapacity() == 0
+				|| settings.getBlockCacheCapacity() >= settings.getBlockCacheBlockSize(),
+				"Expected blockCacheCapacity to hold at least one block, but %s does not.",
+				settings.getBlockCacheCapacity());
 
 		this.parser = componentFactory.getInstance(XmlParser.class);
 		this.componentFactory = componentFactory;
-		this.defaultEncoding = defaultEncoding;
+		this.settings = settings;
 	}
 
 	@Override
@@ -59,8 +64,9 @@ public class ScaleDomDocumentBuilder extends DocumentBuilder {
 		}
 
 		try {
-			final ScaleDomDocumentSource source = InputSourceUtils.inputSourceToDocumentSource(is, defaultEncoding);
-			return new ScaleDomDocument(source, parser, componentFactory);
+			final ScaleDomDocumentSource source = InputSourceUtils.inputSourceToDocumentSource(is,
+					settings.getDefaultEncoding());
+			return newDocument(source);
 		} catch (final InstantiationException ex) {
 			throw new SAXException(ex);
 		}
@@ -79,12 +85,33 @@ public class ScaleDomDocumentBuilder extends DocumentBuilder {
 		checkNotNull(source, "Argument source must not be null.");
 
 		try {
-			return new ScaleDomDocument(source, parser, componentFactory);
+			return newDocument(source);
 		} catch (final InstantiationException ex) {
 			throw new SAXException(ex);
 		}
 	}
 
+	/**
+	 * Creates the document for a document source, which is loaded initially.
+	 */
+	private ScaleDomDocument newDocument(final ScaleDomDocumentSource source) throws InstantiationException {
+		attachBlockCache(source);
+		final ScaleDomDocument doc = new ScaleDomDocument(source, parser, componentFactory, settings);
+		if (settings.isRegisterMXBean()) {
+			doc.getMetrics().register();
+		}
+		return doc;
+	}
+
+	/**
+	 * Attaches a new block cache to a document source, if enabled and the source does not have one yet.
+	 */
+	private void attachBlockCache(final ScaleDomDocumentSource source) {
+		if (settings.getBlockCacheCapacity() > 0 && source.getBlockCache() == null) {
+			source.setBlockCache(new BlockCache(settings.getBlockCacheCapacity(), settings.getBlockCacheBlockSize()));
+		}
+	}
+
 	@Override
 	public DOMImplementation getDOMImplementation() {
 		// ScaleDOM is based upon Apache Xerces
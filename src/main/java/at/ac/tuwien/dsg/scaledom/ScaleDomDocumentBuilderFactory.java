@@ -5,16 +5,24 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPathExpressionException;
 
+import at.ac.tuwien.dsg.scaledom.cache.NodeCacheManager;
 import at.ac.tuwien.dsg.scaledom.io.ReaderFactory;
 import at.ac.tuwien.dsg.scaledom.lazy.LazyLoadingStrategy;
 import at.ac.tuwien.dsg.scaledom.parser.XmlParser;
 import at.ac.tuwien.dsg.scaledom.util.ComponentFactory;
+import at.ac.tuwien.dsg.scaledom.xpath.PathProjection;
+import at.ac.tuwien.dsg.scaledom.xpath.XPathLazyLoadingStrategy;
+
+import com.google.common.base.Splitter;
 
 /**
  * ScaleDOM implementation of the <code>DocumentBuilderFactory</code>. Utilizes the <code>attributes</code> map for
@@ -50,7 +58,24 @@ public class ScaleDomDocumentBuilderFactory extends DocumentBuilderFactory {
 		attributes.put(ScaleDom.ATTRIBUTE_READERFACTORY_IMPLEMENTATION, ScaleDom.DEFAULT_READERFACTORY_IMPLEMENTATION);
 		attributes.put(ScaleDom.ATTRIBUTE_LAZYLOADINGSTRATEGY_IMPLEMENTATION,
 				ScaleDom.DEFAULT_LAZYLOADINGSTRATEGY_IMPLEMENTATION);
+		attributes.put(ScaleDom.ATTRIBUTE_LAZYLOADING_PROJECTION, ScaleDom.DEFAULT_LAZYLOADING_PROJECTION);
+		attributes.put(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION,
+				ScaleDom.DEFAULT_NODECACHEMANAGER_IMPLEMENTATION);
+		attributes.put(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, ScaleDom.DEFAULT_NODECACHE_CAPACITY);
 		attributes.put(ScaleDom.ATTRIBUTE_DEFAULTENCODING, ScaleDom.DEFAULT_DEFAULTENCODING);
+		attributes.put(ScaleDom.ATTRIBUTE_OFFSETINDEX, ScaleDom.DEFAULT_OFFSETINDEX);
+		attributes.put(ScaleDom.ATTRIBUTE_INITIALLOAD_THREADS, ScaleDom.DEFAULT_INITIALLOAD_THREADS);
+		attributes.put(ScaleDom.ATTRIBUTE_CHILDPAGE_SIZE, ScaleDom.DEFAULT_CHILDPAGE_SIZE);
+		attributes.put(ScaleDom.ATTRIBUTE_CONCURRENT_READS, ScaleDom.DEFAULT_CONCURRENT_READS);
+		attributes.put(ScaleDom.ATTRIBUTE_ASYNCLOAD_THREADS, ScaleDom.DEFAULT_ASYNCLOAD_THREADS);
+		attributes.put(ScaleDom.ATTRIBUTE_READAHEAD_WINDOW, ScaleDom.DEFAULT_READAHEAD_WINDOW);
+		attributes.put(ScaleDom.ATTRIBUTE_BLOCKCACHE_CAPACITY, ScaleDom.DEFAULT_BLOCKCACHE_CAPACITY);
+		attributes.put(ScaleDom.ATTRIBUTE_BLOCKCACHE_BLOCKSIZE, ScaleDom.DEFAULT_BLOCKCACHE_BLOCKSIZE);
+		attributes.put(ScaleDom.ATTRIBUTE_REGISTER_MXBEAN, ScaleDom.DEFAULT_REGISTER_MXBEAN);
+		attributes.put(ScaleDom.ATTRIBUTE_ELEMENTNAME_INDEX, ScaleDom.DEFAULT_ELEMENTNAME_INDEX);
+		attributes.put(ScaleDom.ATTRIBUTE_ID_INDEX, ScaleDom.DEFAULT_ID_INDEX);
+		attributes.put(ScaleDom.ATTRIBUTE_ID_ATTRIBUTES, ScaleDom.DEFAULT_ID_ATTRIBUTES);
+		attributes.put(ScaleDom.ATTRIBUTE_LAZY_TEXT, ScaleDom.DEFAULT_LAZY_TEXT);
 	}
 
 	@Override
@@ -65,16 +90,72 @@ public class ScaleDomDocumentBuilderFactory extends DocumentBuilderFactory {
 			// Bind ReaderFactory implementation type
 			componentFactory.bind(ReaderFactory.class,
 					(Class<? extends ReaderFactory>) attributes.get(ScaleDom.ATTRIBUTE_READERFACTORY_IMPLEMENTATION));
-			// Bind LazyLoadingStrategy implementation type
-			componentFactory.bind(LazyLoadingStrategy.class, (Class<? extends LazyLoadingStrategy>) attributes
-					.get(ScaleDom.ATTRIBUTE_LAZYLOADINGSTRATEGY_IMPLEMENTATION));
-
-			final String defaultEncoding = (String) attributes.get(ScaleDom.ATTRIBUTE_DEFAULTENCODING);
-
-			return new ScaleDomDocumentBuilder(componentFactory, defaultEncoding);
+			// Bind LazyLoadingStrategy implementation type, or the projection's strategy along with the projection
+			final PathProjection projection = getProjection();
+			if (projection != null) {
+				componentFactory.bindWithArguments(LazyLoadingStrategy.class, XPathLazyLoadingStrategy.class,
+						projection);
+			} else {
+				componentFactory.bind(LazyLoadingStrategy.class, (Class<? extends LazyLoadingStrategy>) attributes
+						.get(ScaleDom.ATTRIBUTE_LAZYLOADINGSTRATEGY_IMPLEMENTATION));
+			}
+			// Bind NodeCacheManager implementation type
+			componentFactory.bind(NodeCacheManager.class, (Class<? extends NodeCacheManager>) attributes
+					.get(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION));
+
+			return new ScaleDomDocumentBuilder(componentFactory, getSettings());
 		} catch (final InstantiationException ex) {
 			throw new ParserConfigurationException("Component 'XmlParser' could not be instantiated.");
+		} catch (final XPathExpressionException ex) {
+			throw new ParserConfigurationException("Lazy loading projection could not be compiled: "
+					+ ex.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the configured document options.
+	 * 
+	 * @return new settings filled from the attributes.
+	 */
+	private ScaleDomSettings getSettings() {
+		final ScaleDomSettings settings = new ScaleDomSettings();
+		settings.setDefaultEncoding((String) attributes.get(ScaleDom.ATTRIBUTE_DEFAULTENCODING));
+		settings.setOffsetIndexEnabled((Boolean) attributes.get(ScaleDom.ATTRIBUTE_OFFSETINDEX));
+		settings.setInitialLoadThreads((Integer) attributes.get(ScaleDom.ATTRIBUTE_INITIALLOAD_THREADS));
+		settings.setNodeCacheCapacity(((Number) attributes.get(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY)).longValue());
+		settings.setChildPageSize((Integer) attributes.get(ScaleDom.ATTRIBUTE_CHILDPAGE_SIZE));
+		settings.setConcurrentReadsEnabled((Boolean) attributes.get(ScaleDom.ATTRIBUTE_CONCURRENT_READS));
+		settings.setAsyncLoadThreads((Integer) attributes.get(ScaleDom.ATTRIBUTE_ASYNCLOAD_THREADS));
+		settings.setReadAheadWindow((Integer) attributes.get(ScaleDom.ATTRIBUTE_READAHEAD_WINDOW));
+		settings.setBlockCacheCapacity(((Number) attributes.get(ScaleDom.ATTRIBUTE_BLOCKCACHE_CAPACITY)).longValue());
+		settings.setBlockCacheBlockSize((Integer) attributes.get(ScaleDom.ATTRIBUTE_BLOCKCACHE_BLOCKSIZE));
+		settings.setRegisterMXBean((Boolean) attributes.get(ScaleDom.ATTRIBUTE_REGISTER_MXBEAN));
+		settings.setElementNameIndexEnabled((Boolean) attributes.get(ScaleDom.ATTRIBUTE_ELEMENTNAME_INDEX));
+		if ((Boolean) attributes.get(ScaleDom.ATTRIBUTE_ID_INDEX)) {
+			final Set<String> idAttributeNames = new TreeSet<String>();
+			for (final String name : Splitter.on(',').trimResults().omitEmptyStrings()
+					.split((String) attributes.get(ScaleDom.ATTRIBUTE_ID_ATTRIBUTES))) {
+				idAttributeNames.add(name);
+			}
+			settings.setIdAttributeNames(idAttributeNames);
+		}
+		settings.setLazyTextEnabled((Boolean) attributes.get(ScaleDom.ATTRIBUTE_LAZY_TEXT));
+		return settings;
+	}
+
+	/**
+	 * Returns the configured lazy loading projection.
+	 * 
+	 * @return the projection, or null if none is configured.
+	 * @throws XPathExpressionException If the projection's expression is not valid.
+	 */
+	private PathProjection getProjection() throws XPathExpressionException {
+		final Object projection = attributes.get(ScaleDom.ATTRIBUTE_LAZYLOADING_PROJECTION);
+		if (projection instanceof PathProjection) {
+			return (PathProjection) projection;
 		}
+		final String expression = (String) projection;
+		return expression.trim().isEmpty() ? null : PathProjection.compile(expression);
 	}
 
 	@Override
@@ -1,5 +1,7 @@
 package at.ac.tuwien.dsg.scaledom;
 
+import at.ac.tuwien.dsg.scaledom.io.BlockCache;
+
 /**
  * Abstract concept of a document source.
  * 
@@ -7,4 +9,33 @@ package at.ac.tuwien.dsg.scaledom;
  */
 public abstract class ScaleDomDocumentSource {
 
+	/** Cache of blocks of the document source, null if none. */
+	private volatile BlockCache blockCache;
+
+	/**
+	 * Returns the character encoding of the document source.
+	 * 
+	 * @return the name of the document source's character encoding.
+	 */
+	public abstract String getEncoding();
+
+	/**
+	 * Returns the cache of blocks of the document source, which serves range reads of all <code>ReaderFactory</code>
+	 * objects reading from the source.
+	 * 
+	 * @return the block cache, or null if none is used.
+	 */
+	public BlockCache getBlockCache() {
+		return blockCache;
+	}
+
+	/**
+	 * Sets the cache of blocks of the document source, see <code>ScaleDom.ATTRIBUTE_BLOCKCACHE_CAPACITY</code>. The
+	 * cache has to be set before the source is parsed and must not be shared with other sources.
+	 * 
+	 * @param blockCache the block cache, null if none is to be used.
+	 */
+	public void setBlockCache(final BlockCache blockCache) {
+		this.blockCache = blockCache;
+	}
 }
@@ -0,0 +1,313 @@
+package at.ac.tuwien.dsg.scaledom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Options of ScaleDOM documents, which the <code>ScaleDomDocumentBuilderFactory</code> fills from its attributes and
+ * passes to each <code>ScaleDomDocumentBuilder</code> and <code>ScaleDomDocument</code>. A new instance holds the
+ * default values, see {@link ScaleDom} for the meaning of each option. The setters check the values on their own,
+ * combinations of values are checked by the builder and the document.
+ *
+ * @see ScaleDom
+ */
+public class ScaleDomSettings {
+
+	private String defaultEncoding = ScaleDom.DEFAULT_DEFAULTENCODING;
+	private boolean useOffsetIndex = ScaleDom.DEFAULT_OFFSETINDEX;
+	private int initialLoadThreads = ScaleDom.DEFAULT_INITIALLOAD_THREADS;
+	private long nodeCacheCapacity = ScaleDom.DEFAULT_NODECACHE_CAPACITY;
+	private int childPageSize = ScaleDom.DEFAULT_CHILDPAGE_SIZE;
+	private boolean concurrentReads = ScaleDom.DEFAULT_CONCURRENT_READS;
+	private int asyncLoadThreads = ScaleDom.DEFAULT_ASYNCLOAD_THREADS;
+	private int readAheadWindow = ScaleDom.DEFAULT_READAHEAD_WINDOW;
+	private long blockCacheCapacity = ScaleDom.DEFAULT_BLOCKCACHE_CAPACITY;
+	private int blockCacheBlockSize = ScaleDom.DEFAULT_BLOCKCACHE_BLOCKSIZE;
+	private boolean registerMXBean = ScaleDom.DEFAULT_REGISTER_MXBEAN;
+	private boolean useElementNameIndex = ScaleDom.DEFAULT_ELEMENTNAME_INDEX;
+	/** Local names of the attributes indexed as IDs, null if IDs are not indexed. */
+	private Set<String> idAttributeNames = null;
+	private boolean lazyText = ScaleDom.DEFAULT_LAZY_TEXT;
+
+	/**
+	 * Returns the default encoding to be used if not specified by the input source.
+	 *
+	 * @return the name of the default encoding.
+	 */
+	public String getDefaultEncoding() {
+		return defaultEncoding;
+	}
+
+	/**
+	 * Sets the default encoding to be used if not specified by the input source.
+	 *
+	 * @param defaultEncoding the name of a supported encoding.
+	 */
+	public void setDefaultEncoding(final String defaultEncoding) {
+		checkNotNull(defaultEncoding, "Argument defaultEncoding must not be null.");
+		checkArgument(Charset.isSupported(defaultEncoding), "Default encoding '%s' is not supported.", defaultEncoding);
+
+		this.defaultEncoding = defaultEncoding;
+	}
+
+	/**
+	 * Returns whether a persistent offset index is used (file-based document sources only).
+	 *
+	 * @return true if an offset index is used, false otherwise.
+	 */
+	public boolean isOffsetIndexEnabled() {
+		return useOffsetIndex;
+	}
+
+	/**
+	 * Sets whether a persistent offset index is used (file-based document sources only).
+	 *
+	 * @param useOffsetIndex true if an offset index is to be used, false otherwise.
+	 */
+	public void setOffsetIndexEnabled(final boolean useOffsetIndex) {
+		this.useOffsetIndex = useOffsetIndex;
+	}
+
+	/**
+	 * Returns the number of threads used for the initial load (file-based document sources only).
+	 *
+	 * @return the number of threads.
+	 */
+	public int getInitialLoadThreads() {
+		return initialLoadThreads;
+	}
+
+	/**
+	 * Sets the number of threads used for the initial load (file-based document sources only).
+	 *
+	 * @param initialLoadThreads the positive number of threads.
+	 */
+	public void setInitialLoadThreads(final int initialLoadThreads) {
+		checkArgument(initialLoadThreads > 0, "Expected initialLoadThreads to be positive, but %s is not.",
+				initialLoadThreads);
+
+		this.initialLoadThreads = initialLoadThreads;
+	}
+
+	/**
+	 * Returns the capacity of the node cache manager, if one is bound to the component factory.
+	 *
+	 * @return the capacity, the unit depends on the node cache manager.
+	 */
+	public long getNodeCacheCapacity() {
+		return nodeCacheCapacity;
+	}
+
+	/**
+	 * Sets the capacity of the node cache manager, if one is bound to the component factory.
+	 *
+	 * @param nodeCacheCapacity the capacity, the unit depends on the node cache manager.
+	 */
+	public void setNodeCacheCapacity(final long nodeCacheCapacity) {
+		this.nodeCacheCapacity = nodeCacheCapacity;
+	}
+
+	/**
+	 * Returns the nominal number of children per page.
+	 *
+	 * @return the number of children per page, 0 if children are not paged.
+	 */
+	public int getChildPageSize() {
+		return childPageSize;
+	}
+
+	/**
+	 * Sets the nominal number of children per page.
+	 *
+	 * @param childPageSize the number of children per page, 0 if children are not to be paged.
+	 */
+	public void setChildPageSize(final int childPageSize) {
+		checkArgument(childPageSize >= 0, "Expected childPageSize to be non-negative, but %s is not.", childPageSize);
+
+		this.childPageSize = childPageSize;
+	}
+
+	/**
+	 * Returns whether multiple threads may read a document at the same time.
+	 *
+	 * @return true if concurrent reads are enabled, false otherwise.
+	 */
+	public boolean isConcurrentReadsEnabled() {
+		return concurrentReads;
+	}
+
+	/**
+	 * Sets whether multiple threads may read a document at the same time.
+	 *
+	 * @param concurrentReads true if concurrent reads are to be enabled, false otherwise.
+	 */
+	public void setConcurrentReadsEnabled(final boolean concurrentReads) {
+		this.concurrentReads = concurrentReads;
+	}
+
+	/**
+	 * Returns the maximum number of threads loading children of a document in the background.
+	 *
+	 * @return the number of threads.
+	 */
+	public int getAsyncLoadThreads() {
+		return asyncLoadThreads;
+	}
+
+	/**
+	 * Sets the maximum number of threads loading children of a document in the background.
+	 *
+	 * @param asyncLoadThreads the positive number of threads.
+	 */
+	public void setAsyncLoadThreads(final int asyncLoadThreads) {
+		checkArgument(asyncLoadThreads > 0, "Expected asyncLoadThreads to be positive, but %s is not.",
+				asyncLoadThreads);
+
+		this.asyncLoadThreads = asyncLoadThreads;
+	}
+
+	/**
+	 * Returns the maximum number of siblings loaded ahead.
+	 *
+	 * @return the number of siblings, 0 if reading ahead is disabled.
+	 */
+	public int getReadAheadWindow() {
+		return readAheadWindow;
+	}
+
+	/**
+	 * Sets the maximum number of siblings loaded ahead, which requires concurrent reads if not 0.
+	 *
+	 * @param readAheadWindow the number of siblings, 0 if reading ahead is to be disabled.
+	 */
+	public void setReadAheadWindow(final int readAheadWindow) {
+		checkArgument(readAheadWindow >= 0, "Expected readAheadWindow to be non-negative, but %s is not.",
+				readAheadWindow);
+
+		this.readAheadWindow = readAheadWindow;
+	}
+
+	/**
+	 * Returns the capacity in bytes of each document source's block cache.
+	 *
+	 * @return the capacity, 0 if the block cache is disabled.
+	 */
+	public long getBlockCacheCapacity() {
+		return blockCacheCapacity;
+	}
+
+	/**
+	 * Sets the capacity in bytes of each document source's block cache, which has to hold at least one block if not 0.
+	 *
+	 * @param blockCacheCapacity the capacity, 0 if the block cache is to be disabled.
+	 */
+	public void setBlockCacheCapacity(final long blockCacheCapacity) {
+		checkArgument(blockCacheCapacity >= 0, "Expected blockCacheCapacity to be non-negative, but %s is not.",
+				blockCacheCapacity);
+
+		this.blockCacheCapacity = blockCacheCapacity;
+	}
+
+	/**
+	 * Returns the block size in bytes of each document source's block cache.
+	 *
+	 * @return the block size.
+	 */
+	public int getBlockCacheBlockSize() {
+		return blockCacheBlockSize;
+	}
+
+	/**
+	 * Sets the block size in bytes of each document source's block cache.
+	 *
+	 * @param blockCacheBlockSize the positive block size.
+	 */
+	public void setBlockCacheBlockSize(final int blockCacheBlockSize) {
+		checkArgument(blockCacheBlockSize > 0, "Expected blockCacheBlockSize to be positive, but %s is not.",
+				blockCacheBlockSize);
+
+		this.blockCacheBlockSize = blockCacheBlockSize;
+	}
+
+	/**
+	 * Returns whether the metrics of each document are registered as an MXBean.
+	 *
+	 * @return true if the metrics are registered, false otherwise.
+	 */
+	public boolean isRegisterMXBean() {
+		return registerMXBean;
+	}
+
+	/**
+	 * Sets whether the metrics of each document are registered as an MXBean.
+	 *
+	 * @param registerMXBean true if the metrics are to be registered, false otherwise.
+	 */
+	public void setRegisterMXBean(final boolean registerMXBean) {
+		this.registerMXBean = registerMXBean;
+	}
+
+	/**
+	 * Returns whether the names of all elements are indexed by the initial load.
+	 *
+	 * @return true if the element names are indexed, false otherwise.
+	 */
+	public boolean isElementNameIndexEnabled() {
+		return useElementNameIndex;
+	}
+
+	/**
+	 * Sets whether the names of all elements are indexed by the initial load.
+	 *
+	 * @param useElementNameIndex true if the element names are to be indexed, false otherwise.
+	 */
+	public void setElementNameIndexEnabled(final boolean useElementNameIndex) {
+		this.useElementNameIndex = useElementNameIndex;
+	}
+
+	/**
+	 * Returns the local names of the attributes indexed as IDs by the initial load, in addition to attributes declared
+	 * as IDs by the DTD.
+	 *
+	 * @return an unmodifiable set of the attribute names, null if IDs are not indexed.
+	 */
+	public Set<String> getIdAttributeNames() {
+		return idAttributeNames;
+	}
+
+	/**
+	 * Sets the local names of the attributes indexed as IDs by the initial load, in addition to attributes declared as
+	 * IDs by the DTD.
+	 *
+	 * @param idAttributeNames the attribute names, null if IDs are not to be indexed.
+	 */
+	public void setIdAttributeNames(final Set<String> idAttributeNames) {
+		this.idAttributeNames = idAttributeNames != null ? Collections.unmodifiableSet(new TreeSet<String>(
+				idAttributeNames)) : null;
+	}
+
+	/**
+	 * Returns whether text nodes read their data from the document source once it is accessed (file-based document
+	 * sources with UTF-8 or a fixed-width encoding only).
+	 *
+	 * @return true if lazy text is enabled, false otherwise.
+	 */
+	public boolean isLazyTextEnabled() {
+		return lazyText;
+	}
+
+	/**
+	 * Sets whether text nodes read their data from the document source once it is accessed (file-based document
+	 * sources with UTF-8 or a fixed-width encoding only).
+	 *
+	 * @param lazyText true if lazy text is to be enabled, false otherwise.
+	 */
+	public void setLazyTextEnabled(final boolean lazyText) {
+		this.lazyText = lazyText;
+	}
+}
@@ -1,5 +1,62 @@
 package at.ac.tuwien.dsg.scaledom.cache;
 
+import org.apache.xerces.dom.ParentNode;
+
+import at.ac.tuwien.dsg.scaledom.dom.ChildList;
+
+/**
+ * A <code>NodeCacheManager</code> decides which children lists stay in memory, by holding hard references to them.
+ * Without one, residency is left to the <code>SoftReference</code> policy of the Java GC. Implementations may unload
+ * children lists they no longer want to keep by calling
+ * <code>ScaleDomDocument.unload(ParentNode, int, ChildList)</code>. The pages of paged children (see
+ * <code>ChildPageTable</code>) are separate children lists.<br/>
+ * Implementations are instantiated once per document with the arguments (ScaleDomDocument doc, long capacity), the
+ * unit of the capacity is up to the implementation.
+ *
+ * @author Waldemar Hummer
+ */
 public interface NodeCacheManager {
 
+	/**
+	 * Called by the document whenever a children list is requested by the user.
+	 *
+	 * @param parent the parent node.
+	 * @param page the index of the accessed page, or -1 if the children of the parent node are not paged.
+	 * @param children the loaded children list of the parent node, or of the accessed page.
+	 * @param hit true if the children list was already loaded, false if it had to be (re)loaded.
+	 */
+	void accessed(ParentNode parent, int page, ChildList children, boolean hit);
+
+	/**
+	 * Releases all held children lists, without unloading them.
+	 */
+	void clear();
+
+	/**
+	 * Returns the number of accesses to already loaded children lists.
+	 *
+	 * @return the number of hits.
+	 */
+	long getHitCount();
+
+	/**
+	 * Returns the number of accesses to children lists which had to be (re)loaded.
+	 *
+	 * @return the number of misses.
+	 */
+	long getMissCount();
+
+	/**
+	 * Returns the number of children lists which have been evicted.
+	 *
+	 * @return the number of evictions.
+	 */
+	long getEvictionCount();
+
+	/**
+	 * Returns the current weight of all held children lists, in the unit of the capacity.
+	 *
+	 * @return the current weight.
+	 */
+	long getWeight();
 }
@@ -0,0 +1,77 @@
+package at.ac.tuwien.dsg.scaledom.cache.impl;
+
+import org.apache.xerces.dom.ChildNode;
+import org.w3c.dom.CharacterData;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+import at.ac.tuwien.dsg.scaledom.dom.ChildList;
+import at.ac.tuwien.dsg.scaledom.dom.LazyText;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+
+/**
+ * A <code>WindowTinyLfuNodeCacheManager</code> bounded by the estimated heap size of the held nodes in bytes, instead
+ * of their number. The estimate covers the node objects, their attributes and their character data, but not the
+ * (possibly unloaded) children of held nodes, nor the data of lazy text nodes which has not been read yet.
+ */
+public class EstimatedSizeNodeCacheManager extends WindowTinyLfuNodeCacheManager {
+
+	/** Estimated size of a node object (including its children list reference and location) in bytes. */
+	private final static long NODE_SIZE = 96;
+	/** Estimated size of an attribute node (without name and value) in bytes. */
+	private final static long ATTRIBUTE_SIZE = 64;
+	/** Estimated size of a string object (without its characters) in bytes. */
+	private final static long STRING_SIZE = 40;
+	/** Estimated size of a list entry, i.e. an array slot including spare capacity, in bytes. */
+	private final static long LIST_ENTRY_SIZE = 8;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param doc the document whose children lists are held.
+	 * @param capacity the maximum estimated size of all held children lists in bytes.
+	 */
+	public EstimatedSizeNodeCacheManager(final ScaleDomDocument doc, final long capacity) {
+		super(doc, capacity);
+	}
+
+	@Override
+	protected long weigh(final ChildList children) {
+		long weight = 0;
+		for (final ChildNode child : children) {
+			weight += LIST_ENTRY_SIZE + NODE_SIZE;
+
+			switch (child.getNodeType()) {
+			case Node.ELEMENT_NODE:
+				weight += sizeOf(child.getNodeName());
+				final NamedNodeMap attributes = ((Element) child).getAttributes();
+				for (int i = 0; i < attributes.getLength(); ++i) {
+					final Node attribute = attributes.item(i);
+					weight += ATTRIBUTE_SIZE + sizeOf(attribute.getNodeName()) + sizeOf(attribute.getNodeValue());
+				}
+				break;
+			case Node.TEXT_NODE:
+				// Weighing a lazy text node must not read its data
+				if (!(child instanceof LazyText) || ((LazyText) child).isDataLoaded()) {
+					weight += sizeOf(((CharacterData) child).getData());
+				}
+				break;
+			case Node.CDATA_SECTION_NODE:
+			case Node.COMMENT_NODE:
+				weight += sizeOf(((CharacterData) child).getData());
+				break;
+			case Node.PROCESSING_INSTRUCTION_NODE:
+				final ProcessingInstruction processingInstruction = (ProcessingInstruction) child;
+				weight += sizeOf(processingInstruction.getTarget()) + sizeOf(processingInstruction.getData());
+				break;
+			}
+		}
+		return weight;
+	}
+
+	private static long sizeOf(final String s) {
+		return s == null ? 0 : STRING_SIZE + 2L * s.length();
+	}
+}
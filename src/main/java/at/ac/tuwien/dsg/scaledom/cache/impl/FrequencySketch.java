@@ -0,0 +1,115 @@
+package at.ac.tuwien.dsg.scaledom.cache.impl;
+
+/**
+ * A count-min sketch estimating how often keys have been accessed recently, using four 4-bit counters per key. All
+ * counters are halved periodically, such that the estimates follow changes of the access pattern.
+ */
+class FrequencySketch {
+
+	/** Seeds of the four hash functions. */
+	private final static long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+	/** Mask clearing the most significant bit of each counter after shifting. */
+	private final static long RESET_MASK = 0x7777777777777777L;
+	/** Maximum value of a counter. */
+	private final static int MAX_COUNT = 15;
+
+	/** Counters, each long holds 16 counters. */
+	private long[] table;
+	private int tableMask;
+	/** Number of increments after which all counters are halved. */
+	private int sampleSize;
+	/** Number of increments since the last halving. */
+	private int size;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param expectedKeys the expected number of distinct keys.
+	 */
+	FrequencySketch(final int expectedKeys) {
+		ensureCapacity(expectedKeys);
+	}
+
+	/**
+	 * Grows the sketch if it is too small for the given number of distinct keys, which clears all counters.
+	 *
+	 * @param expectedKeys the expected number of distinct keys.
+	 */
+	void ensureCapacity(final int expectedKeys) {
+		final int length = Integer.highestOneBit(Math.max(expectedKeys, 16) - 1) << 1;
+		if (table != null && table.length >= length) {
+			return;
+		}
+
+		table = new long[length];
+		tableMask = length - 1;
+		sampleSize = 10 * length;
+		size = 0;
+	}
+
+	/**
+	 * Returns the estimated number of recent accesses of the given key.
+	 *
+	 * @param key the key.
+	 * @return the estimated frequency, between 0 and 15.
+	 */
+	int frequency(final Object key) {
+		final int hash = spread(key.hashCode());
+		final int start = (hash & 3) << 2;
+		int frequency = MAX_COUNT;
+		for (int i = 0; i < 4; ++i) {
+			final int index = indexOf(hash, i);
+			final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Records an access of the given key.
+	 *
+	 * @param key the key.
+	 */
+	void increment(final Object key) {
+		final int hash = spread(key.hashCode());
+		final int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; ++i) {
+			added |= incrementAt(indexOf(hash, i), start + i);
+		}
+
+		if (added && ++size == sampleSize) {
+			reset();
+		}
+	}
+
+	private boolean incrementAt(final int index, final int counter) {
+		final int offset = counter << 2;
+		final long mask = 0xfL << offset;
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+		return false;
+	}
+
+	private void reset() {
+		for (int i = 0; i < table.length; ++i) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		size /= 2;
+	}
+
+	private int indexOf(final int hash, final int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return ((int) h) & tableMask;
+	}
+
+	private static int spread(int x) {
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		x = ((x >>> 16) ^ x) * 0x45d9f3b;
+		return (x >>> 16) ^ x;
+	}
+}
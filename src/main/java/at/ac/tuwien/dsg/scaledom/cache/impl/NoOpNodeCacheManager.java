@@ -0,0 +1,63 @@
+package at.ac.tuwien.dsg.scaledom.cache.impl;
+
+import org.apache.xerces.dom.ParentNode;
+
+import at.ac.tuwien.dsg.scaledom.cache.NodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.ChildList;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+
+/**
+ * A <code>NodeCacheManager</code> which holds no children lists at all, residency is left to the Java GC. Hits and
+ * misses are counted nevertheless.
+ */
+public class NoOpNodeCacheManager implements NodeCacheManager {
+
+	private long hitCount;
+	private long missCount;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param doc the document (unused).
+	 * @param capacity the capacity (unused).
+	 */
+	public NoOpNodeCacheManager(final ScaleDomDocument doc, final long capacity) {
+		hitCount = 0;
+		missCount = 0;
+	}
+
+	@Override
+	public synchronized void accessed(final ParentNode parent, final int page, final ChildList children,
+			final boolean hit) {
+		if (hit) {
+			++hitCount;
+		} else {
+			++missCount;
+		}
+	}
+
+	@Override
+	public void clear() {
+		// Nothing to release
+	}
+
+	@Override
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	@Override
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	@Override
+	public long getEvictionCount() {
+		return 0;
+	}
+
+	@Override
+	public long getWeight() {
+		return 0;
+	}
+}
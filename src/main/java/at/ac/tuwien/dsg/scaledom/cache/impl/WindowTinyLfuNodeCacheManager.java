@@ -0,0 +1,373 @@
+package at.ac.tuwien.dsg.scaledom.cache.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import org.apache.xerces.dom.ChildNode;
+import org.apache.xerces.dom.ParentNode;
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.cache.NodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.ChildList;
+import at.ac.tuwien.dsg.scaledom.dom.ChildPageTable;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+
+/**
+ * A <code>NodeCacheManager</code> using the W-TinyLFU eviction policy, bounded by the number of held nodes.<br/>
+ * Children lists enter a small LRU window on their first access. Lists leaving the window are admitted to the main
+ * segmented LRU (probationary and protected segment) only if they have been accessed more frequently than the list
+ * they would replace, as estimated by a <code>FrequencySketch</code>. Therefore a single pass over many lists (e.g. a
+ * full DOM traversal) cannot flush the lists which are accessed repeatedly. Evicted lists are unloaded immediately
+ * instead of waiting for the Java GC. Lists are identified by their parent node, or by their parent node and page index
+ * for paged children.
+ */
+public class WindowTinyLfuNodeCacheManager implements NodeCacheManager {
+
+	/** Share of the capacity used for the window. */
+	private final static double WINDOW_SHARE = 0.01;
+	/** Share of the main capacity reserved for the protected segment. */
+	private final static double PROTECTED_SHARE = 0.8;
+
+	private final ScaleDomDocument doc;
+	private final long capacity;
+	private final long windowCapacity;
+	private final long protectedCapacity;
+	private final FrequencySketch sketch;
+
+	/** Segments, in access order (least recently used first). Keys are parent nodes or page keys. */
+	private final LinkedHashMap<Object, Entry> window;
+	private final LinkedHashMap<Object, Entry> probationary;
+	private final LinkedHashMap<Object, Entry> protectedSegment;
+	private long windowWeight;
+	private long probationaryWeight;
+	private long protectedWeight;
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param doc the document whose children lists are held.
+	 * @param capacity the maximum weight of all held children lists.
+	 */
+	public WindowTinyLfuNodeCacheManager(final ScaleDomDocument doc, final long capacity) {
+		checkNotNull(doc, "Argument doc must not be null.");
+		checkArgument(capacity > 0, "Expected capacity to be positive, but %s is not.", capacity);
+
+		this.doc = doc;
+		this.capacity = capacity;
+		this.windowCapacity = Math.max(1, (long) (capacity * WINDOW_SHARE));
+		this.protectedCapacity = (long) ((capacity - windowCapacity) * PROTECTED_SHARE);
+		this.sketch = new FrequencySketch(0);
+		this.window = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+		this.probationary = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+		this.protectedSegment = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+	}
+
+	@Override
+	public synchronized void accessed(final ParentNode parent, final int page, final ChildList children,
+			final boolean hit) {
+		if (hit) {
+			++hitCount;
+		} else {
+			++missCount;
+		}
+		final Object key = page < 0 ? parent : new PageKey(parent, page);
+		sketch.increment(key);
+		touchAncestors(parent);
+
+		Entry entry;
+		if ((entry = window.get(key)) != null) {
+			windowWeight += entry.update(children);
+		} else if ((entry = protectedSegment.get(key)) != null) {
+			protectedWeight += entry.update(children);
+		} else if ((entry = probationary.remove(key)) != null) {
+			// Second access within the main segments, promote to protected segment
+			probationaryWeight -= entry.weight;
+			entry.update(children);
+			protectedSegment.put(key, entry);
+			protectedWeight += entry.weight;
+		} else {
+			entry = new Entry(parent, page, children);
+			window.put(key, entry);
+			windowWeight += entry.weight;
+			sketch.ensureCapacity(window.size() + probationary.size() + protectedSegment.size());
+		}
+
+		demoteProtected();
+		final LinkedList<Object> candidates = moveWindowToProbationary(key);
+		evict(key, candidates);
+	}
+
+	@Override
+	public synchronized void clear() {
+		window.clear();
+		probationary.clear();
+		protectedSegment.clear();
+		windowWeight = 0;
+		probationaryWeight = 0;
+		protectedWeight = 0;
+	}
+
+	@Override
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	@Override
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	@Override
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	@Override
+	public synchronized long getWeight() {
+		return windowWeight + probationaryWeight + protectedWeight;
+	}
+
+	/**
+	 * Returns the weight of the given children list, i.e. the number of nodes. Override to use another unit for the
+	 * capacity.
+	 *
+	 * @param children the children list.
+	 * @return the weight of the children list.
+	 */
+	protected long weigh(final ChildList children) {
+		return children.size();
+	}
+
+	/**
+	 * Marks the held lists of all ancestors of the given parent node as recently used. Evicting an ancestor's list
+	 * replaces all its descendants upon reload, hence it must not be evicted before the lists of its descendants.
+	 */
+	private void touchAncestors(final ParentNode parent) {
+		Node child = parent;
+		for (Node ancestor = parent.getParentNode(); ancestor != null; ancestor = ancestor.getParentNode()) {
+			final Object key = keyOf((ParentNode) ancestor, (ChildNode) child);
+			if (window.get(key) == null && protectedSegment.get(key) == null) {
+				probationary.get(key);
+			}
+			child = ancestor;
+		}
+	}
+
+	/**
+	 * Returns the key of the children list of the given parent node which contains the given child.
+	 */
+	private static Object keyOf(final ParentNode parent, final ChildNode child) {
+		if (parent.getChildPageTable() == null) {
+			return parent;
+		}
+		return new PageKey(parent, parent.findChildPage(child));
+	}
+
+	/**
+	 * Moves least recently used lists from the protected segment back to the probationary segment, until the protected
+	 * segment fits into its share of the capacity.
+	 */
+	private void demoteProtected() {
+		final Iterator<Map.Entry<Object, Entry>> it = protectedSegment.entrySet().iterator();
+		while (protectedWeight > protectedCapacity && protectedSegment.size() > 1) {
+			final Map.Entry<Object, Entry> lru = it.next();
+			it.remove();
+			protectedWeight -= lru.getValue().weight;
+			probationary.put(lru.getKey(), lru.getValue());
+			probationaryWeight += lru.getValue().weight;
+		}
+	}
+
+	/**
+	 * Moves least recently used lists from the window to the probationary segment, until the window fits into its
+	 * share of the capacity. The current list is never moved.
+	 *
+	 * @return the moved lists, which are candidates for admission to the main segments.
+	 */
+	private LinkedList<Object> moveWindowToProbationary(final Object current) {
+		final LinkedList<Object> candidates = new LinkedList<Object>();
+		final Iterator<Map.Entry<Object, Entry>> it = window.entrySet().iterator();
+		while (windowWeight > windowCapacity && it.hasNext()) {
+			final Map.Entry<Object, Entry> lru = it.next();
+			if (lru.getKey().equals(current)) {
+				continue;
+			}
+
+			it.remove();
+			windowWeight -= lru.getValue().weight;
+			probationary.put(lru.getKey(), lru.getValue());
+			probationaryWeight += lru.getValue().weight;
+			candidates.add(lru.getKey());
+		}
+		return candidates;
+	}
+
+	/**
+	 * Evicts lists until all lists fit into the capacity. A candidate from the window is evicted instead of the least
+	 * recently used list of the probationary segment (the victim), unless it has been accessed more frequently. The
+	 * current list is never evicted.
+	 */
+	private void evict(final Object current, final LinkedList<Object> candidates) {
+		while (getWeight() > capacity) {
+			Object victim = null;
+			for (final Object key : probationary.keySet()) {
+				if (!key.equals(current) && !candidates.contains(key)) {
+					victim = key;
+					break;
+				}
+			}
+
+			// Candidates may have been released as descendants of an evicted list
+			while (!candidates.isEmpty() && !probationary.containsKey(candidates.peekFirst())) {
+				candidates.removeFirst();
+			}
+
+			final Object candidate = candidates.peekFirst();
+			if (candidate != null && (victim == null || sketch.frequency(candidate) <= sketch.frequency(victim))) {
+				candidates.removeFirst();
+				evict(probationary, candidate);
+			} else if (victim != null) {
+				evict(probationary, victim);
+			} else if (!evictLru(protectedSegment, current) && !evictLru(window, current)) {
+				// Only the current list is left
+				break;
+			}
+		}
+	}
+
+	private boolean evictLru(final LinkedHashMap<Object, Entry> segment, final Object current) {
+		for (final Object key : segment.keySet()) {
+			if (!key.equals(current)) {
+				evict(segment, key);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void evict(final LinkedHashMap<Object, Entry> segment, final Object key) {
+		final Entry entry = remove(segment, key);
+		++evictionCount;
+		if (doc.unload(entry.parent, entry.page, entry.children)) {
+			// Descendants will be replaced upon reload, holding them would be a waste
+			releaseDescendants(entry.children);
+		}
+	}
+
+	private void releaseDescendants(final ChildList children) {
+		for (final ChildNode child : children) {
+			if (!(child instanceof ParentNode)) {
+				continue;
+			}
+
+			final ChildPageTable pages = ((ParentNode) child).getChildPageTable();
+			if (pages == null) {
+				release(child);
+			} else {
+				for (int page = 0; page < pages.size(); ++page) {
+					release(new PageKey((ParentNode) child, page));
+				}
+			}
+		}
+	}
+
+	private void release(final Object key) {
+		Entry entry = null;
+		if (window.containsKey(key)) {
+			entry = remove(window, key);
+		} else if (probationary.containsKey(key)) {
+			entry = remove(probationary, key);
+		} else if (protectedSegment.containsKey(key)) {
+			entry = remove(protectedSegment, key);
+		}
+		if (entry != null) {
+			releaseDescendants(entry.children);
+		}
+	}
+
+	private Entry remove(final LinkedHashMap<Object, Entry> segment, final Object key) {
+		final Entry entry = segment.remove(key);
+		if (segment == window) {
+			windowWeight -= entry.weight;
+		} else if (segment == probationary) {
+			probationaryWeight -= entry.weight;
+		} else {
+			protectedWeight -= entry.weight;
+		}
+		return entry;
+	}
+
+	/**
+	 * Key of a page of paged children.
+	 */
+	private static final class PageKey {
+
+		private final ParentNode parent;
+		private final int page;
+
+		PageKey(final ParentNode parent, final int page) {
+			this.parent = parent;
+			this.page = page;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof PageKey)) {
+				return false;
+			}
+			final PageKey other = (PageKey) obj;
+			return parent == other.parent && page == other.page;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(parent) + page;
+		}
+	}
+
+	/**
+	 * A held children list and its weight.
+	 */
+	private class Entry {
+
+		private final ParentNode parent;
+		private final int page;
+		private ChildList children;
+		private int size;
+		private long weight;
+
+		Entry(final ParentNode parent, final int page, final ChildList children) {
+			this.parent = parent;
+			this.page = page;
+			this.children = children;
+			this.size = children.size();
+			this.weight = weigh(children);
+		}
+
+		/**
+		 * Replaces the held list (the parent may have been reloaded) and updates the weight if necessary.
+		 *
+		 * @return the weight difference.
+		 */
+		long update(final ChildList newChildren) {
+			if (newChildren == children && newChildren.size() == size) {
+				return 0;
+			}
+
+			final long oldWeight = weight;
+			children = newChildren;
+			size = newChildren.size();
+			weight = weigh(newChildren);
+			return weight - oldWeight;
+		}
+	}
+}
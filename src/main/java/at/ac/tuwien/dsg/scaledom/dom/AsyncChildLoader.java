@@ -0,0 +1,157 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Loads children of nodes of a <code>ScaleDomDocument</code> in the background, so that the I/O of the next nodes to
+ * be visited overlaps with processing the current ones. Requests for a node whose children are already being loaded
+ * share the pending load.<br/>
+ * A load simply reads the children on a worker thread, hence the document has to allow concurrent reads. The resulting
+ * <code>NodeList</code> holds the loaded children (the first page of paged children) strongly, as long as it is
+ * referenced.
+ */
+public class AsyncChildLoader {
+
+	/** Seconds after which idle worker threads terminate. */
+	private final static long KEEP_ALIVE_SECONDS = 60;
+
+	private final ThreadPoolExecutor executor;
+
+	/** Pending loads per node. */
+	private final ConcurrentMap<Node, ListenableFuture<NodeList>> pendingLoads;
+	/** Flag whether the current thread is a worker thread. */
+	private final ThreadLocal<Boolean> worker;
+
+	/**
+	 * Default constructor, worker threads are not started before the first load.
+	 *
+	 * @param numberOfThreads the maximum number of concurrent loads.
+	 */
+	public AsyncChildLoader(final int numberOfThreads) {
+		checkArgument(numberOfThreads > 0, "Expected numberOfThreads to be positive, but %s is not.", numberOfThreads);
+
+		executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder().setDaemon(true)
+						.setNameFormat("ScaleDOM-AsyncLoad-%d").build());
+		executor.allowCoreThreadTimeOut(true);
+		pendingLoads = new ConcurrentHashMap<Node, ListenableFuture<NodeList>>();
+		worker = new ThreadLocal<Boolean>();
+	}
+
+	/**
+	 * Loads the children of a node in the background.
+	 *
+	 * @param parent the node.
+	 * @return the future children of the node.
+	 */
+	public ListenableFuture<NodeList> loadChildren(final Node parent) {
+		checkNotNull(parent, "Argument parent must not be null.");
+
+		final ListenableFuture<NodeList> pendingLoad = pendingLoads.get(parent);
+		if (pendingLoad != null) {
+			return pendingLoad;
+		}
+
+		final ListenableFutureTask<NodeList> load = ListenableFutureTask.create(new Callable<NodeList>() {
+			@Override
+			public NodeList call() throws Exception {
+				return loadNow(parent);
+			}
+		});
+		final ListenableFuture<NodeList> concurrentLoad = pendingLoads.putIfAbsent(parent, load);
+		if (concurrentLoad != null) {
+			return concurrentLoad;
+		}
+
+		load.addListener(new Runnable() {
+			@Override
+			public void run() {
+				pendingLoads.remove(parent, load);
+			}
+		}, MoreExecutors.sameThreadExecutor());
+		execute(load);
+		return load;
+	}
+
+	/**
+	 * Loads the children of multiple nodes in the background, in the given order.
+	 *
+	 * @param parents the nodes.
+	 * @return the future children of the nodes, in the given order. Fails if loading the children of any node fails.
+	 */
+	public ListenableFuture<List<NodeList>> loadChildren(final Collection<? extends Node> parents) {
+		checkNotNull(parents, "Argument parents must not be null.");
+
+		final List<ListenableFuture<NodeList>> loads = new ArrayList<ListenableFuture<NodeList>>(parents.size());
+		for (final Node parent : parents) {
+			loads.add(loadChildren(parent));
+		}
+		return Futures.allAsList(loads);
+	}
+
+	/**
+	 * Runs a task on a worker thread, e.g. one which decides on its own which children to load.
+	 *
+	 * @param task the task.
+	 */
+	public void execute(final Runnable task) {
+		checkNotNull(task, "Argument task must not be null.");
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				worker.set(Boolean.TRUE);
+				try {
+					task.run();
+				} finally {
+					worker.remove();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns whether the current thread is a worker thread of this loader, i.e. whether children are accessed in the
+	 * background instead of by the user.
+	 *
+	 * @return true if the current thread is a worker thread, false otherwise.
+	 */
+	public boolean isWorkerThread() {
+		return worker.get() != null;
+	}
+
+	/**
+	 * Loads the children of a node on the current thread.
+	 *
+	 * @param parent the node.
+	 * @return the children of the node.
+	 */
+	static NodeList loadNow(final Node parent) {
+		final NodeList children = parent.getChildNodes();
+		if (children instanceof PagedChildNodeList) {
+			// Paged children are loaded by accessing them
+			children.item(0);
+		}
+		return children;
+	}
+}
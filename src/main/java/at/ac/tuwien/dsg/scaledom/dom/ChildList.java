@@ -0,0 +1,177 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import org.apache.xerces.dom.ChildNode;
+
+/**
+ * Array-backed list of a <code>ParentNode</code>'s children. Indexed access takes constant time regardless of the
+ * access pattern and appending (which is what the <code>LoadProcess</code> does) takes amortized constant time, while
+ * each child costs a single array slot instead of a linked list entry.<br/>
+ * Nodes are compared by identity, just as the DOM does.
+ */
+public class ChildList extends AbstractList<ChildNode> implements RandomAccess {
+
+	/** Capacity of the first allocated array. */
+	private final static int INITIAL_CAPACITY = 4;
+	/** Shared array of empty lists. */
+	private final static ChildNode[] EMPTY = new ChildNode[0];
+
+	/** The children, followed by spare capacity. */
+	private ChildNode[] elements;
+	/** Number of children. */
+	private int size;
+
+	/**
+	 * Default constructor, creates an empty list.
+	 */
+	public ChildList() {
+		elements = EMPTY;
+		size = 0;
+	}
+
+	/**
+	 * Creates an empty list with the given initial capacity.
+	 *
+	 * @param initialCapacity the number of children which can be added before the backing array grows.
+	 */
+	public ChildList(final int initialCapacity) {
+		checkArgument(initialCapacity >= 0, "Expected initialCapacity to be non-negative, but %s is not.",
+				initialCapacity);
+		elements = initialCapacity > 0 ? new ChildNode[initialCapacity] : EMPTY;
+		size = 0;
+	}
+
+	@Override
+	public ChildNode get(final int index) {
+		checkElementIndex(index, size);
+		return elements[index];
+	}
+
+	@Override
+	public ChildNode set(final int index, final ChildNode child) {
+		checkElementIndex(index, size);
+		final ChildNode previous = elements[index];
+		elements[index] = child;
+		return previous;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean add(final ChildNode child) {
+		ensureCapacity(size + 1);
+		elements[size++] = child;
+		++modCount;
+		return true;
+	}
+
+	@Override
+	public void add(final int index, final ChildNode child) {
+		checkPositionIndex(index, size);
+		ensureCapacity(size + 1);
+		System.arraycopy(elements, index, elements, index + 1, size - index);
+		elements[index] = child;
+		++size;
+		++modCount;
+	}
+
+	@Override
+	public ChildNode remove(final int index) {
+		checkElementIndex(index, size);
+		final ChildNode removed = elements[index];
+		System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+		elements[--size] = null;
+		++modCount;
+		return removed;
+	}
+
+	@Override
+	public boolean remove(final Object child) {
+		final int index = indexOf(child);
+		if (index == -1) {
+			return false;
+		}
+		remove(index);
+		return true;
+	}
+
+	@Override
+	public int indexOf(final Object child) {
+		for (int i = 0; i < size; ++i) {
+			if (elements[i] == child) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(final Object child) {
+		for (int i = size - 1; i >= 0; --i) {
+			if (elements[i] == child) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean contains(final Object child) {
+		return indexOf(child) != -1;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(elements, 0, size, null);
+		size = 0;
+		++modCount;
+	}
+
+	/**
+	 * Returns the first child.
+	 *
+	 * @return the first child.
+	 * @throws NoSuchElementException if the list is empty.
+	 */
+	public ChildNode getFirst() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return elements[0];
+	}
+
+	/**
+	 * Returns the last child.
+	 *
+	 * @return the last child.
+	 * @throws NoSuchElementException if the list is empty.
+	 */
+	public ChildNode getLast() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return elements[size - 1];
+	}
+
+	private void ensureCapacity(final int minCapacity) {
+		if (minCapacity > elements.length) {
+			// Grow by half of the current capacity, like ArrayList does
+			int newCapacity = Math.max(elements.length + (elements.length >> 1), INITIAL_CAPACITY);
+			if (newCapacity < minCapacity) {
+				newCapacity = minCapacity;
+			}
+			elements = Arrays.copyOf(elements, newCapacity);
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Arrays;
+
+import org.apache.xerces.dom.ParentNode;
+
+import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
+
+/**
+ * Pages of a <code>ParentNode</code>'s children, recorded by the <code>LoadProcess</code> which loaded the children
+ * for the first time. Each page covers a range of consecutive children and the range of the document source they are
+ * parsed from. Except for the first one, pages start with an Element node.<br/>
+ * Every page is held by its own <code>WeakChildNodeList</code>, hence pages are loaded and unloaded independently of
+ * each other and a parent node with a huge number of children never needs to hold all of them.
+ */
+public class ChildPageTable {
+
+	/** Initial capacity while recording. */
+	private final static int INITIAL_CAPACITY = 16;
+
+	/** Nominal number of children per page. */
+	private final int pageSize;
+	/** Index of the first child of each page. */
+	private int[] firstChildIndices;
+	/** Offset of the first child of each page. */
+	private long[] startOffsets;
+	/** Number of pages. */
+	private int size;
+	/** Number of children of all pages, -1 until recording has been finished. */
+	private int numberOfChildren;
+	/** Offset of the parent's end tag, i.e. the end of the last page. */
+	private long endOffset;
+
+	/** References to the loaded pages, null until recording has been finished. */
+	private WeakChildNodeList[] pages;
+	/** Index of the page which is currently loaded by the document, -1 if none. */
+	private int loadingPage;
+
+	/**
+	 * Default constructor, starts recording.
+	 *
+	 * @param pageSize the nominal number of children per page.
+	 */
+	ChildPageTable(final int pageSize) {
+		this.pageSize = pageSize;
+		firstChildIndices = new int[INITIAL_CAPACITY];
+		startOffsets = new long[INITIAL_CAPACITY];
+		size = 0;
+		numberOfChildren = -1;
+		pages = null;
+		loadingPage = -1;
+	}
+
+	/**
+	 * Records the next child of the parent node and decides whether it starts a new page.
+	 *
+	 * @param index the index of the child.
+	 * @param startOffset the offset of the child.
+	 * @param isElement whether the child is an Element node.
+	 * @return the index of the page the child belongs to.
+	 */
+	int add(final int index, final long startOffset, final boolean isElement) {
+		checkState(pages == null, "Recording has already been finished.");
+
+		if (size == 0 || (isElement && index - firstChildIndices[size - 1] >= pageSize)) {
+			if (size == firstChildIndices.length) {
+				firstChildIndices = Arrays.copyOf(firstChildIndices, size * 2);
+				startOffsets = Arrays.copyOf(startOffsets, size * 2);
+			}
+
+			firstChildIndices[size] = index;
+			startOffsets[size] = startOffset;
+			++size;
+		}
+		return size - 1;
+	}
+
+	/**
+	 * Finishes recording and releases the spare capacity.
+	 *
+	 * @param numberOfChildren the number of children of the parent node.
+	 * @param endOffset the offset of the parent's end tag.
+	 */
+	void finish(final int numberOfChildren, final long endOffset) {
+		checkState(pages == null, "Recording has already been finished.");
+
+		this.numberOfChildren = numberOfChildren;
+		this.endOffset = endOffset;
+		firstChildIndices = Arrays.copyOf(firstChildIndices, size);
+		startOffsets = Arrays.copyOf(startOffsets, size);
+		pages = new WeakChildNodeList[size];
+	}
+
+	/**
+	 * Returns the nominal number of children per page.
+	 *
+	 * @return the page size.
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Returns the number of pages.
+	 *
+	 * @return the number of pages.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the index of the first child of a page.
+	 *
+	 * @param page the page index.
+	 * @return the index of the page's first child.
+	 */
+	public int getFirstChildIndex(final int page) {
+		return firstChildIndices[page];
+	}
+
+	/**
+	 * Returns the number of children of a page.
+	 *
+	 * @param page the page index.
+	 * @return the page's number of children.
+	 */
+	public int getNumberOfChildren(final int page) {
+		checkState(pages != null, "Recording has not been finished yet.");
+		return (page + 1 < size ? firstChildIndices[page + 1] : numberOfChildren) - firstChildIndices[page];
+	}
+
+	/**
+	 * Returns the location of a page within the document source, reaching from its first child up to the first child
+	 * of the next page or the parent's end tag.
+	 *
+	 * @param page the page index.
+	 * @return the page's location.
+	 */
+	public NodeLocation getLocation(final int page) {
+		checkState(pages != null, "Recording has not been finished yet.");
+		checkElementIndex(page, size);
+		return new FileNodeLocation(startOffsets[page], page + 1 < size ? startOffsets[page + 1] : endOffset);
+	}
+
+	/**
+	 * Returns the page containing a child.
+	 *
+	 * @param index the index of the child.
+	 * @return the page index.
+	 */
+	public int findPage(final int index) {
+		// Find the last page starting at or before index
+		int low = 0;
+		int high = size - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (firstChildIndices[mid] <= index) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the page containing an Element node, see <code>ParentNode.findChildPage(ChildNode)</code> for other
+	 * nodes.
+	 *
+	 * @param element an Element node with a <code>FileNodeLocation</code>.
+	 * @return the page index.
+	 */
+	public int findPage(final ParentNode element) {
+		return findPageAt(((FileNodeLocation) element.getNodeLocation()).getStartOffset());
+	}
+
+	/**
+	 * Returns the page containing an offset.
+	 *
+	 * @param offset an offset within the parent node's content.
+	 * @return the page index.
+	 */
+	public int findPageAt(final long offset) {
+		// Find the last page starting at or before the offset
+		int low = 0;
+		int high = size - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (startOffsets[mid] <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the children of a page, if loaded.
+	 *
+	 * @param page the page index.
+	 * @return the page's children, or null if the page is not loaded.
+	 */
+	public ChildList getLoadedChildren(final int page) {
+		return pages[page] != null ? pages[page].get() : null;
+	}
+
+	/**
+	 * Returns the reference holding a page.
+	 *
+	 * @param page the page index.
+	 * @return the page's reference, or null if the page has never been loaded.
+	 */
+	public WeakChildNodeList getReference(final int page) {
+		return pages[page];
+	}
+
+	/**
+	 * Called by <code>ParentNode</code> to replace the reference holding a page, i.e. before the page is (re)loaded.
+	 *
+	 * @param page the page index.
+	 * @param reference the new reference.
+	 */
+	public void setReference(final int page, final WeakChildNodeList reference) {
+		pages[page] = reference;
+	}
+
+	/**
+	 * Returns the page which is currently loaded by the document, all children appended to the parent node are
+	 * appended to this page.
+	 *
+	 * @return the page index, or -1 if no page is currently loaded.
+	 */
+	public int getLoadingPage() {
+		return loadingPage;
+	}
+
+	/**
+	 * Called by <code>ScaleDomDocument</code> before and after loading a page.
+	 *
+	 * @param loadingPage the index of the page to be loaded, or -1 after loading.
+	 */
+	void setLoadingPage(final int loadingPage) {
+		this.loadingPage = loadingPage;
+	}
+}
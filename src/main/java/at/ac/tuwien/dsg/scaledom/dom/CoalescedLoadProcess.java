@@ -0,0 +1,99 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import at.ac.tuwien.dsg.scaledom.parser.XmlParserCursorListener;
+
+/**
+ * Reloads the children of multiple siblings from a single range of the document source, which reaches from the first
+ * sibling's start tag to the last sibling's end tag and is wrapped into a fake root element. Every sibling has its own
+ * <code>LoadProcess</code>, which skips nothing but the sibling's StartElement event. The events of each sibling are
+ * dispatched to its load process, all other events (e.g. of siblings in between, which are not reloaded) are dropped.
+ */
+public class CoalescedLoadProcess implements XmlParserCursorListener {
+
+	/** Depth of the reloaded siblings, the fake root element has a depth of 1. */
+	private final static int SIBLING_DEPTH = 2;
+
+	/** Load processes of the siblings, in document order. */
+	private final List<LoadProcess> processes;
+	/** Source offsets of the siblings' start tags, in document order. */
+	private final long[] startOffsets;
+
+	/** Current element depth. */
+	private int depth;
+	/** Index of the next sibling to be reloaded. */
+	private int next;
+	/** Load process of the sibling currently reloaded, null if none. */
+	private LoadProcess current;
+	/** Load process of the previous sibling, which still needs the event following its end tag. */
+	private LoadProcess finished;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param processes the load processes of the siblings, in document order.
+	 * @param startOffsets the source offsets of the siblings' start tags.
+	 */
+	public CoalescedLoadProcess(final List<LoadProcess> processes, final long[] startOffsets) {
+		checkNotNull(processes, "Argument processes must not be null.");
+		checkNotNull(startOffsets, "Argument startOffsets must not be null.");
+		checkArgument(processes.size() == startOffsets.length, "Expected a start offset per load process.");
+
+		this.processes = processes;
+		this.startOffsets = startOffsets;
+		depth = 0;
+		next = 0;
+		current = null;
+		finished = null;
+	}
+
+	@Override
+	public boolean process(final int eventType, final long startingOffset, final XMLStreamReader cursor) {
+		// The location of the event following an EndElement event, is the end location for the previous element node
+		if (finished != null) {
+			final boolean abort = finished.process(eventType, startingOffset, cursor);
+			finished = null;
+			if (abort) {
+				return ABORT_PARSING;
+			}
+		}
+
+		if (current != null) {
+			if (eventType == XMLStreamConstants.START_ELEMENT) {
+				++depth;
+			} else if (eventType == XMLStreamConstants.END_ELEMENT && --depth < SIBLING_DEPTH) {
+				finished = current;
+				current = null;
+				return finished.process(eventType, startingOffset, cursor);
+			}
+			return current.process(eventType, startingOffset, cursor);
+		}
+
+		if (eventType == XMLStreamConstants.START_ELEMENT) {
+			if (++depth == SIBLING_DEPTH && next < startOffsets.length
+					&& processes.get(next).getSourceOffset(startingOffset) == startOffsets[next]) {
+				current = processes.get(next++);
+				return current.process(eventType, startingOffset, cursor);
+			}
+		} else if (eventType == XMLStreamConstants.END_ELEMENT) {
+			--depth;
+		}
+		return CONTINUE_PARSING;
+	}
+
+	/**
+	 * Returns whether the events of all siblings have been dispatched.
+	 *
+	 * @return true if all siblings have been reloaded, false otherwise.
+	 */
+	public boolean isComplete() {
+		return next == startOffsets.length && current == null;
+	}
+}
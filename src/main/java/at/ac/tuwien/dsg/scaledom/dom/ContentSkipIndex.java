@@ -0,0 +1,118 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Arrays;
+
+import at.ac.tuwien.dsg.scaledom.io.SkippedRanges;
+
+/**
+ * Content ranges of the elements on the deepest level loaded by a reload of a parent node, i.e. the bytes between the
+ * end of an element's start tag and the beginning of its end tag, together with each element's number of children.<br/>
+ * Recorded by a <code>LoadProcess</code> whose <code>LazyLoadingStrategy</code> has a fixed load depth. The content of
+ * those elements is never loaded by the reload, hence subsequent reloads of the same parent node let the reader seek
+ * past the recorded ranges instead of parsing them.
+ */
+public class ContentSkipIndex {
+
+	/** Initial capacity while recording. */
+	private final static int INITIAL_CAPACITY = 16;
+
+	/** Load depth the index has been recorded with. */
+	private final int loadDepth;
+	/** Recorded ranges, null after recording has been finished. */
+	private long[] contentStarts;
+	private long[] contentEnds;
+	/** Number of children of each element. */
+	private int[] numbersOfChildren;
+	/** Number of elements. */
+	private int size;
+	/** Content ranges, null until recording has been finished. */
+	private SkippedRanges contentRanges;
+
+	/**
+	 * Default constructor, starts recording.
+	 *
+	 * @param loadDepth the load depth of the recording load process.
+	 */
+	ContentSkipIndex(final int loadDepth) {
+		this.loadDepth = loadDepth;
+		contentStarts = new long[INITIAL_CAPACITY];
+		contentEnds = new long[INITIAL_CAPACITY];
+		numbersOfChildren = new int[INITIAL_CAPACITY];
+		size = 0;
+		contentRanges = null;
+	}
+
+	/**
+	 * Records the next element.
+	 *
+	 * @param contentStart the offset of the first byte after the element's start tag.
+	 * @param contentEnd the offset of the first byte of the element's end tag.
+	 * @param numberOfChildren the element's number of children.
+	 */
+	void add(final long contentStart, final long contentEnd, final int numberOfChildren) {
+		checkState(contentRanges == null, "Recording has already been finished.");
+
+		if (size == contentStarts.length) {
+			contentStarts = Arrays.copyOf(contentStarts, size * 2);
+			contentEnds = Arrays.copyOf(contentEnds, size * 2);
+			numbersOfChildren = Arrays.copyOf(numbersOfChildren, size * 2);
+		}
+
+		contentStarts[size] = contentStart;
+		contentEnds[size] = contentEnd;
+		numbersOfChildren[size] = numberOfChildren;
+		++size;
+	}
+
+	/**
+	 * Finishes recording and releases the spare capacity.
+	 */
+	void finish() {
+		checkState(contentRanges == null, "Recording has already been finished.");
+
+		contentRanges = new SkippedRanges(contentStarts, contentEnds, size);
+		numbersOfChildren = Arrays.copyOf(numbersOfChildren, size);
+		contentStarts = null;
+		contentEnds = null;
+	}
+
+	/**
+	 * Returns the load depth the index has been recorded with, it is valid for reloads with the same depth only.
+	 *
+	 * @return the load depth.
+	 */
+	public int getLoadDepth() {
+		return loadDepth;
+	}
+
+	/**
+	 * Returns the number of elements.
+	 *
+	 * @return the number of elements.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of children of an element.
+	 *
+	 * @param index the index of the element (in document order).
+	 * @return the element's number of children.
+	 */
+	public int getNumberOfChildren(final int index) {
+		return numbersOfChildren[index];
+	}
+
+	/**
+	 * Returns the content ranges of all elements.
+	 *
+	 * @return the content ranges, to be skipped by the reader.
+	 */
+	public SkippedRanges getContentRanges() {
+		checkState(contentRanges != null, "Recording has not been finished yet.");
+		return contentRanges;
+	}
+}
@@ -0,0 +1,364 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentSource;
+import at.ac.tuwien.dsg.scaledom.cache.NodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.io.BlockCache;
+import at.ac.tuwien.dsg.scaledom.io.ReaderFactory;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.io.impl.HttpDocumentSource;
+
+/**
+ * Metrics of a single <code>ScaleDomDocument</code>: initial load and reloads (count, latency histogram, created
+ * nodes), bytes read per <code>ReaderFactory</code>, accesses to loaded and not-loaded children lists, unloads, pinned
+ * children lists and low-memory trips, plus the counters of the node cache manager and the block cache. Counters are
+ * always maintained, the metrics can be published by {@link #register()} as an MXBean of the platform MBean server,
+ * e.g. to graph residency and reload storms by a JMX console, see <code>ScaleDom.ATTRIBUTE_REGISTER_MXBEAN</code>.<br/>
+ * Only a weak reference to the document is held, hence a registered MXBean does not keep the document in memory. The
+ * MXBean is unregistered once the document has been garbage collected.
+ */
+public class DocumentMetrics implements DocumentMetricsMXBean {
+
+	/** Logger. */
+	private final static Logger log = LoggerFactory.getLogger(DocumentMetrics.class);
+
+	/** Domain of the object names of registered MXBeans. */
+	public final static String DOMAIN = "at.ac.tuwien.dsg.scaledom";
+
+	/** Upper bounds (inclusive) of the reload latency buckets in microseconds. */
+	private final static long[] RELOAD_LATENCY_BUCKET_BOUNDS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000,
+			25000, 50000, 100000, 250000, 500000, 1000000, 2500000, 5000000, 10000000 };
+
+	/** Sequence number of documents, distinguishes the object names of documents of the same source. */
+	private final static AtomicInteger nextId = new AtomicInteger();
+
+	private final WeakReference<ScaleDomDocument> doc;
+	private final String documentSource;
+	private final int id;
+
+	private final AtomicLong initialLoadNanos;
+	private final AtomicLong initialLoadNodeCount;
+	private final AtomicLong reloadCount;
+	private final AtomicLong reloadTotalNanos;
+	private final AtomicLong reloadMaxNanos;
+	private final AtomicLongArray reloadLatencyHistogram;
+	private final AtomicLong reloadNodeCount;
+	private final AtomicLong reloadMaxNodeCount;
+	private final AtomicLong childrenHitCount;
+	private final AtomicLong childrenMissCount;
+	private final AtomicLong unloadedChildrenListCount;
+	private final AtomicLong lowMemoryTripCount;
+
+	/** Object name of the registered MXBean, null if not registered. */
+	private ObjectName objectName;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param doc the document.
+	 * @param source the underlying document source.
+	 */
+	DocumentMetrics(final ScaleDomDocument doc, final ScaleDomDocumentSource source) {
+		this.doc = new WeakReference<ScaleDomDocument>(doc);
+		this.documentSource = describe(source);
+		this.id = nextId.getAndIncrement();
+
+		initialLoadNanos = new AtomicLong();
+		initialLoadNodeCount = new AtomicLong();
+		reloadCount = new AtomicLong();
+		reloadTotalNanos = new AtomicLong();
+		reloadMaxNanos = new AtomicLong();
+		reloadLatencyHistogram = new AtomicLongArray(RELOAD_LATENCY_BUCKET_BOUNDS.length + 1);
+		reloadNodeCount = new AtomicLong();
+		reloadMaxNodeCount = new AtomicLong();
+		childrenHitCount = new AtomicLong();
+		childrenMissCount = new AtomicLong();
+		unloadedChildrenListCount = new AtomicLong();
+		lowMemoryTripCount = new AtomicLong();
+	}
+
+	private static String describe(final ScaleDomDocumentSource source) {
+		if (source instanceof FileDocumentSource) {
+			return ((FileDocumentSource) source).getFile().getPath();
+		} else if (source instanceof HttpDocumentSource) {
+			return ((HttpDocumentSource) source).getUrl().toExternalForm();
+		}
+		return source.getClass().getSimpleName();
+	}
+
+	/**
+	 * Registers these metrics as an MXBean of the platform MBean server, named
+	 * <code>at.ac.tuwien.dsg.scaledom:type=Document,id=&lt;sequence number&gt;,source=&lt;quoted source&gt;</code>.
+	 *
+	 * @return true if the MXBean is registered, false if registration failed (a warning is logged).
+	 */
+	public synchronized boolean register() {
+		if (objectName != null) {
+			return true;
+		}
+
+		try {
+			final ObjectName name = new ObjectName(DOMAIN + ":type=Document,id=" + id + ",source="
+					+ ObjectName.quote(documentSource));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+			objectName = name;
+			return true;
+		} catch (final JMException ex) {
+			log.warn("Could not register the metrics of document '" + documentSource + "'.", ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Unregisters the MXBean, if registered.
+	 */
+	public synchronized void unregister() {
+		if (objectName == null) {
+			return;
+		}
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (final JMException ex) {
+			log.warn("Could not unregister the metrics of document '" + documentSource + "'.", ex);
+		}
+		objectName = null;
+	}
+
+	/**
+	 * Returns a task which unregisters the MXBean. Unlike an anonymous class of the document, the task does not
+	 * reference the document, hence it can be run once the document has been garbage collected.
+	 *
+	 * @return the task.
+	 */
+	Runnable newUnregisterTask() {
+		return new Runnable() {
+			@Override
+			public void run() {
+				unregister();
+			}
+		};
+	}
+
+	/**
+	 * Returns the object name of the registered MXBean.
+	 *
+	 * @return the object name, or null if not registered.
+	 */
+	public synchronized ObjectName getObjectName() {
+		return objectName;
+	}
+
+	// Recording, called by the document and its load processes
+
+	void initialLoadFinished(final long nanos) {
+		initialLoadNanos.set(nanos);
+	}
+
+	void initialLoadCreatedNodes(final long numberOfCreatedNodes) {
+		initialLoadNodeCount.addAndGet(numberOfCreatedNodes);
+	}
+
+	void reloadFinished(final long nanos, final long numberOfCreatedNodes) {
+		reloadCount.incrementAndGet();
+		reloadTotalNanos.addAndGet(nanos);
+		updateMax(reloadMaxNanos, nanos);
+		reloadLatencyHistogram.incrementAndGet(getBucket(nanos / 1000));
+		reloadNodeCount.addAndGet(numberOfCreatedNodes);
+		updateMax(reloadMaxNodeCount, numberOfCreatedNodes);
+	}
+
+	void childrenAccessed(final boolean hit) {
+		(hit ? childrenHitCount : childrenMissCount).incrementAndGet();
+	}
+
+	void childrenUnloaded() {
+		unloadedChildrenListCount.incrementAndGet();
+	}
+
+	void lowMemoryTripped() {
+		lowMemoryTripCount.incrementAndGet();
+	}
+
+	private static void updateMax(final AtomicLong max, final long value) {
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	private static int getBucket(final long micros) {
+		for (int i = 0; i < RELOAD_LATENCY_BUCKET_BOUNDS.length; ++i) {
+			if (micros <= RELOAD_LATENCY_BUCKET_BOUNDS[i]) {
+				return i;
+			}
+		}
+		return RELOAD_LATENCY_BUCKET_BOUNDS.length;
+	}
+
+	// DocumentMetricsMXBean
+
+	@Override
+	public String getDocumentSource() {
+		return documentSource;
+	}
+
+	@Override
+	public boolean isConsistent() {
+		final ScaleDomDocument doc = this.doc.get();
+		return doc != null && doc.isConsistent();
+	}
+
+	@Override
+	public long getInitialLoadMicros() {
+		return initialLoadNanos.get() / 1000;
+	}
+
+	@Override
+	public long getInitialLoadNodeCount() {
+		return initialLoadNodeCount.get();
+	}
+
+	@Override
+	public long getReloadCount() {
+		return reloadCount.get();
+	}
+
+	@Override
+	public long getReloadTotalMicros() {
+		return reloadTotalNanos.get() / 1000;
+	}
+
+	@Override
+	public long getReloadMaxMicros() {
+		return reloadMaxNanos.get() / 1000;
+	}
+
+	@Override
+	public long[] getReloadLatencyBucketBounds() {
+		return RELOAD_LATENCY_BUCKET_BOUNDS.clone();
+	}
+
+	@Override
+	public long[] getReloadLatencyHistogram() {
+		final long[] histogram = new long[reloadLatencyHistogram.length()];
+		for (int i = 0; i < histogram.length; ++i) {
+			histogram[i] = reloadLatencyHistogram.get(i);
+		}
+		return histogram;
+	}
+
+	@Override
+	public long getReloadNodeCount() {
+		return reloadNodeCount.get();
+	}
+
+	@Override
+	public long getReloadMaxNodeCount() {
+		return reloadMaxNodeCount.get();
+	}
+
+	@Override
+	public long getBytesRead() {
+		long bytesRead = 0;
+		for (final ReaderFactory readerFactory : getReaderFactories()) {
+			bytesRead += readerFactory.getBytesRead();
+		}
+		return bytesRead;
+	}
+
+	@Override
+	public Map<String, Long> getBytesReadByReaderFactory() {
+		final Map<String, Long> bytesRead = new LinkedHashMap<String, Long>();
+		int i = 0;
+		for (final ReaderFactory readerFactory : getReaderFactories()) {
+			bytesRead.put(readerFactory.getClass().getSimpleName() + "-" + i++, readerFactory.getBytesRead());
+		}
+		return bytesRead;
+	}
+
+	private Iterable<ReaderFactory> getReaderFactories() {
+		final ScaleDomDocument doc = this.doc.get();
+		return doc != null ? doc.getReaderFactories() : Collections.<ReaderFactory> emptyList();
+	}
+
+	@Override
+	public long getChildrenHitCount() {
+		return childrenHitCount.get();
+	}
+
+	@Override
+	public long getChildrenMissCount() {
+		return childrenMissCount.get();
+	}
+
+	@Override
+	public long getCollectedChildrenListCount() {
+		final ScaleDomDocument doc = this.doc.get();
+		return doc != null ? doc.getNumberOfCollectedChildrenLists() : 0;
+	}
+
+	@Override
+	public long getUnloadedChildrenListCount() {
+		return unloadedChildrenListCount.get();
+	}
+
+	@Override
+	public int getPinnedChildrenListCount() {
+		final ScaleDomDocument doc = this.doc.get();
+		return doc != null ? doc.getNumberOfPersistentChildrenLists() : 0;
+	}
+
+	@Override
+	public long getNodeCacheWeight() {
+		final NodeCacheManager nodeCacheManager = getNodeCacheManager();
+		return nodeCacheManager != null ? nodeCacheManager.getWeight() : 0;
+	}
+
+	@Override
+	public long getNodeCacheEvictionCount() {
+		final NodeCacheManager nodeCacheManager = getNodeCacheManager();
+		return nodeCacheManager != null ? nodeCacheManager.getEvictionCount() : 0;
+	}
+
+	private NodeCacheManager getNodeCacheManager() {
+		final ScaleDomDocument doc = this.doc.get();
+		return doc != null ? doc.getNodeCacheManager() : null;
+	}
+
+	@Override
+	public long getBlockCacheHitCount() {
+		final BlockCache blockCache = getBlockCache();
+		return blockCache != null ? blockCache.getHitCount() : 0;
+	}
+
+	@Override
+	public long getBlockCacheMissCount() {
+		final BlockCache blockCache = getBlockCache();
+		return blockCache != null ? blockCache.getMissCount() : 0;
+	}
+
+	private BlockCache getBlockCache() {
+		final ScaleDomDocument doc = this.doc.get();
+		return doc != null ? doc.getDocumentSource().getBlockCache() : null;
+	}
+
+	@Override
+	public long getLowMemoryTripCount() {
+		return lowMemoryTripCount.get();
+	}
+}
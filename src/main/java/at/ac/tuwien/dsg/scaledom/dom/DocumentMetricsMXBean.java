@@ -0,0 +1,176 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import java.util.Map;
+
+/**
+ * Management interface of the metrics of a single <code>ScaleDomDocument</code>, see <code>DocumentMetrics</code>. All
+ * counters are cumulative since the document has been created, durations are given in microseconds.
+ */
+public interface DocumentMetricsMXBean {
+
+	/**
+	 * Returns the underlying document source, i.e. its file or URL.
+	 *
+	 * @return the document source.
+	 */
+	String getDocumentSource();
+
+	/**
+	 * Returns whether the document is still consistent, see <code>ScaleDomDocumentInterface.isConsistent()</code>.
+	 *
+	 * @return true if the document is consistent, false if it is not or has been garbage collected.
+	 */
+	boolean isConsistent();
+
+	/**
+	 * Returns the duration of the initial load (or its restore from the offset index).
+	 *
+	 * @return the duration in microseconds.
+	 */
+	long getInitialLoadMicros();
+
+	/**
+	 * Returns the number of nodes created by the initial load.
+	 *
+	 * @return the number of nodes.
+	 */
+	long getInitialLoadNodeCount();
+
+	/**
+	 * Returns the number of reloads, i.e. of reads of the document source after the initial load. Reloading the
+	 * children of multiple siblings by a single read counts once.
+	 *
+	 * @return the number of reloads.
+	 */
+	long getReloadCount();
+
+	/**
+	 * Returns the total duration of all reloads.
+	 *
+	 * @return the duration in microseconds.
+	 */
+	long getReloadTotalMicros();
+
+	/**
+	 * Returns the duration of the longest reload.
+	 *
+	 * @return the duration in microseconds.
+	 */
+	long getReloadMaxMicros();
+
+	/**
+	 * Returns the upper bounds (inclusive) of the buckets of the reload latency histogram, the last bucket of the
+	 * histogram has no upper bound.
+	 *
+	 * @return the upper bounds in microseconds.
+	 */
+	long[] getReloadLatencyBucketBounds();
+
+	/**
+	 * Returns the reload latency histogram, i.e. the number of reloads per bucket.
+	 *
+	 * @return the number of reloads per bucket, one more than there are bucket bounds.
+	 */
+	long[] getReloadLatencyHistogram();
+
+	/**
+	 * Returns the number of nodes created by all reloads.
+	 *
+	 * @return the number of nodes.
+	 */
+	long getReloadNodeCount();
+
+	/**
+	 * Returns the maximum number of nodes created by a single reload.
+	 *
+	 * @return the number of nodes.
+	 */
+	long getReloadMaxNodeCount();
+
+	/**
+	 * Returns the number of bytes of the document source read by all reader factories of the document.
+	 *
+	 * @return the number of bytes.
+	 */
+	long getBytesRead();
+
+	/**
+	 * Returns the number of bytes of the document source read per reader factory. Concurrent loads use reader factories
+	 * of their own.
+	 *
+	 * @return the number of bytes by reader factory, named by its class and a sequence number.
+	 */
+	Map<String, Long> getBytesReadByReaderFactory();
+
+	/**
+	 * Returns the number of accesses by the user to children lists which were loaded.
+	 *
+	 * @return the number of hits.
+	 */
+	long getChildrenHitCount();
+
+	/**
+	 * Returns the number of accesses by the user to children lists which had to be (re)loaded.
+	 *
+	 * @return the number of misses.
+	 */
+	long getChildrenMissCount();
+
+	/**
+	 * Returns the number of children lists which have been unloaded by the garbage collector, as reported by the unload
+	 * queue.
+	 *
+	 * @return the number of collected children lists.
+	 */
+	long getCollectedChildrenListCount();
+
+	/**
+	 * Returns the number of children lists which have been unloaded explicitly, e.g. by the node cache manager.
+	 *
+	 * @return the number of unloaded children lists.
+	 */
+	long getUnloadedChildrenListCount();
+
+	/**
+	 * Returns the number of children lists which are never unloaded, i.e. the root level and modified levels.
+	 *
+	 * @return the number of pinned children lists.
+	 */
+	int getPinnedChildrenListCount();
+
+	/**
+	 * Returns the current weight of the children lists held by the node cache manager, in the unit of its capacity.
+	 *
+	 * @return the weight, 0 if no node cache manager is used.
+	 */
+	long getNodeCacheWeight();
+
+	/**
+	 * Returns the number of children lists evicted by the node cache manager.
+	 *
+	 * @return the number of evictions, 0 if no node cache manager is used.
+	 */
+	long getNodeCacheEvictionCount();
+
+	/**
+	 * Returns the number of block reads served by the block cache of the document source.
+	 *
+	 * @return the number of hits, 0 if no block cache is used.
+	 */
+	long getBlockCacheHitCount();
+
+	/**
+	 * Returns the number of block reads not served by the block cache of the document source.
+	 *
+	 * @return the number of misses, 0 if no block cache is used.
+	 */
+	long getBlockCacheMissCount();
+
+	/**
+	 * Returns the number of load processes which have run into the memory threshold of their
+	 * <code>LowMemoryDetector</code>.
+	 *
+	 * @return the number of low-memory trips.
+	 */
+	long getLowMemoryTripCount();
+}
@@ -0,0 +1,94 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import org.apache.xerces.dom.ParentNode;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
+
+/**
+ * Resolves elements by their start offsets within the document source, as recorded by the initial load process.<br/>
+ * An element is found by descending from a root node, at each level the children (or the page of children) containing
+ * the offset are loaded, and the child element containing it is found by binary search over the children's offsets.
+ * Hence only the element and its ancestors' children have to be loaded.
+ */
+final class ElementLocator {
+
+	private ElementLocator() {
+	}
+
+	/**
+	 * Descends from a node to its descendant element starting at the given offset.
+	 *
+	 * @param root the node, the document or an element with a <code>FileNodeLocation</code>.
+	 * @param offset the element's start offset within the document source.
+	 * @return the element, or null if it could not be found (most probably due to an error while loading).
+	 */
+	static Node getElementAt(final ParentNode root, final long offset) {
+		ParentNode parent = root;
+		while (true) {
+			NodeList children = parent.getChildNodes();
+			final ChildPageTable pages = parent.getChildPageTable();
+			if (pages != null) {
+				children = new ChildNodeList(parent.getChildPage(pages.findPageAt(offset)));
+			}
+
+			final Node child = findElement(children, offset);
+			if (child == null) {
+				return null;
+			}
+			final FileNodeLocation location = (FileNodeLocation) ((ParentNode) child).getNodeLocation();
+			if (location.getStartOffset() == offset) {
+				return child;
+			}
+			if (location.getEndOffset() <= offset) {
+				return null;
+			}
+			parent = (ParentNode) child;
+		}
+	}
+
+	/**
+	 * Returns the last child element starting at or before the given offset. Only elements know their offsets, other
+	 * children are skipped.
+	 */
+	private static Node findElement(final NodeList children, final long offset) {
+		Node found = null;
+		int low = 0;
+		int high = children.getLength() - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+
+			// The first element at or after mid
+			int elementIndex = mid;
+			Node element = children.item(elementIndex);
+			while (element != null && !isElement(element) && elementIndex < high) {
+				element = children.item(++elementIndex);
+			}
+			if (element == null || !isElement(element)) {
+				high = mid - 1;
+				continue;
+			}
+
+			final long startOffset = ((FileNodeLocation) ((ParentNode) element).getNodeLocation()).getStartOffset();
+			if (startOffset == offset) {
+				return element;
+			} else if (startOffset < offset) {
+				found = element;
+				low = elementIndex + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return found;
+	}
+
+	private static boolean isElement(final Node node) {
+		if (node.getNodeType() != Node.ELEMENT_NODE) {
+			return false;
+		}
+		final NodeLocation location = ((ParentNode) node).getNodeLocation();
+		return location instanceof FileNodeLocation;
+	}
+}
@@ -0,0 +1,241 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Start offsets of all elements of a document by their names, recorded by the initial load process.<br/>
+ * The index answers <code>getElementsByTagName</code> and <code>getElementsByTagNameNS</code> queries by the offsets of
+ * the matching elements in document order, see <code>ElementNameNodeList</code>, hence only the matching elements and
+ * their ancestors have to be loaded instead of the whole document. Names are matched exactly like
+ * <code>DeepNodeListImpl</code> matches the elements created by <code>LoadProcess</code>, i.e. an element without a
+ * namespace has the namespace URI "" and a tag name formatted like <code>QName.toString()</code>.
+ */
+public class ElementNameIndex {
+
+	/** Wildcard matching all names or namespaces. */
+	private final static String WILDCARD = "*";
+
+	/** Offsets of the elements by namespace URI ("" for none) and local name. */
+	private final Map<String, Map<String, PostingList>> postings;
+	/** Number of elements. */
+	private final int size;
+	/** Offsets of all elements, null until requested. */
+	private volatile PostingList allElements;
+
+	private ElementNameIndex(final Map<String, Map<String, PostingList>> postings) {
+		this.postings = postings;
+		int size = 0;
+		for (final Map<String, PostingList> names : postings.values()) {
+			for (final PostingList list : names.values()) {
+				size += list.size();
+			}
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Returns the number of elements.
+	 *
+	 * @return the number of elements.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the offsets of the elements matched by <code>getElementsByTagName(tagname)</code>.
+	 *
+	 * @param tagname the tag name, or "*" for all elements.
+	 * @return the offsets of the matching elements in document order.
+	 */
+	public PostingList getElementsByTagName(final String tagname) {
+		checkNotNull(tagname, "Argument tagname must not be null.");
+
+		if (tagname.equals(WILDCARD)) {
+			return getAllElements();
+		}
+
+		// Elements with a namespace have a tag name like "{namespaceURI}localName"
+		final int namespaceEnd = tagname.startsWith("{") ? tagname.indexOf('}') : -1;
+		if (namespaceEnd == -1) {
+			return get("", tagname);
+		}
+		return get(tagname.substring(1, namespaceEnd), tagname.substring(namespaceEnd + 1));
+	}
+
+	/**
+	 * Returns the offsets of the elements matched by <code>getElementsByTagNameNS(namespaceURI, localName)</code>.
+	 * Like <code>DeepNodeListImpl</code>, a namespace URI which is null or empty does not match any element.
+	 *
+	 * @param namespaceURI the namespace URI, or "*" for all namespaces.
+	 * @param localName the local name, or "*" for all local names.
+	 * @return the offsets of the matching elements in document order.
+	 */
+	public PostingList getElementsByTagNameNS(final String namespaceURI, final String localName) {
+		checkNotNull(localName, "Argument localName must not be null.");
+
+		if (namespaceURI == null || namespaceURI.isEmpty()) {
+			return new PostingList();
+		}
+
+		if (namespaceURI.equals(WILDCARD)) {
+			if (localName.equals(WILDCARD)) {
+				return getAllElements();
+			}
+			final List<PostingList> lists = new ArrayList<PostingList>();
+			for (final Map<String, PostingList> names : postings.values()) {
+				final PostingList list = names.get(localName);
+				if (list != null) {
+					lists.add(list);
+				}
+			}
+			return merge(lists);
+		}
+
+		if (localName.equals(WILDCARD)) {
+			final Map<String, PostingList> names = postings.get(namespaceURI);
+			return names != null ? merge(new ArrayList<PostingList>(names.values())) : new PostingList();
+		}
+		return get(namespaceURI, localName);
+	}
+
+	private PostingList get(final String namespaceURI, final String localName) {
+		final Map<String, PostingList> names = postings.get(namespaceURI);
+		final PostingList list = names != null ? names.get(localName) : null;
+		return list != null ? list : new PostingList();
+	}
+
+	private PostingList getAllElements() {
+		PostingList allElements = this.allElements;
+		if (allElements == null) {
+			final List<PostingList> lists = new ArrayList<PostingList>();
+			for (final Map<String, PostingList> names : postings.values()) {
+				lists.addAll(names.values());
+			}
+			allElements = merge(lists);
+			this.allElements = allElements;
+		}
+		return allElements;
+	}
+
+	private static PostingList merge(final List<PostingList> lists) {
+		return lists.size() == 1 ? lists.get(0) : PostingList.merge(lists);
+	}
+
+	/**
+	 * Writes the index, see <code>read(ByteBuffer)</code>.
+	 *
+	 * @param out the output stream.
+	 * @throws IOException If the index could not be written.
+	 */
+	void write(final DataOutputStream out) throws IOException {
+		out.writeInt(postings.size());
+		for (final Map.Entry<String, Map<String, PostingList>> namespace : postings.entrySet()) {
+			OffsetIndex.writeString(out, namespace.getKey());
+			out.writeInt(namespace.getValue().size());
+			for (final Map.Entry<String, PostingList> name : namespace.getValue().entrySet()) {
+				OffsetIndex.writeString(out, name.getKey());
+				name.getValue().write(out);
+			}
+		}
+	}
+
+	/**
+	 * Reads an index written by <code>write(DataOutputStream)</code>.
+	 *
+	 * @param buffer the buffer, positioned at the beginning of the index.
+	 * @return the index.
+	 */
+	static ElementNameIndex read(final ByteBuffer buffer) {
+		final int numberOfNamespaces = buffer.getInt();
+		final Map<String, Map<String, PostingList>> postings = new HashMap<String, Map<String, PostingList>>();
+		for (int i = 0; i < numberOfNamespaces; ++i) {
+			final String namespaceURI = OffsetIndex.readString(buffer);
+			final int numberOfNames = buffer.getInt();
+			final Map<String, PostingList> names = new HashMap<String, PostingList>();
+			for (int j = 0; j < numberOfNames; ++j) {
+				final String localName = OffsetIndex.readString(buffer);
+				names.put(localName, PostingList.read(buffer));
+			}
+			postings.put(namespaceURI, Collections.unmodifiableMap(names));
+		}
+		return new ElementNameIndex(Collections.unmodifiableMap(postings));
+	}
+
+	/**
+	 * Records the elements of a document in document order, a builder is used by a single thread only.
+	 */
+	static class Builder {
+
+		private final Map<String, Map<String, PostingList>> postings;
+
+		/**
+		 * Default constructor.
+		 */
+		Builder() {
+			postings = new HashMap<String, Map<String, PostingList>>();
+		}
+
+		/**
+		 * Records the next element.
+		 *
+		 * @param namespaceURI the element's namespace URI, "" if none.
+		 * @param localName the element's local name.
+		 * @param offset the element's start offset, greater than the offsets of all elements recorded before.
+		 */
+		void add(final String namespaceURI, final String localName, final long offset) {
+			getList(namespaceURI, localName).add(offset);
+		}
+
+		/**
+		 * Records the elements of another builder, which follow all elements recorded before.
+		 *
+		 * @param other the other builder.
+		 */
+		void addAll(final Builder other) {
+			for (final Map.Entry<String, Map<String, PostingList>> namespace : other.postings.entrySet()) {
+				for (final Map.Entry<String, PostingList> name : namespace.getValue().entrySet()) {
+					getList(namespace.getKey(), name.getKey()).addAll(name.getValue());
+				}
+			}
+		}
+
+		private PostingList getList(final String namespaceURI, final String localName) {
+			Map<String, PostingList> names = postings.get(namespaceURI);
+			if (names == null) {
+				names = new HashMap<String, PostingList>();
+				postings.put(namespaceURI, names);
+			}
+			PostingList list = names.get(localName);
+			if (list == null) {
+				list = new PostingList();
+				names.put(localName, list);
+			}
+			return list;
+		}
+
+		/**
+		 * Finishes recording, the builder must not be used afterwards.
+		 *
+		 * @return the index.
+		 */
+		ElementNameIndex build() {
+			for (final Map.Entry<String, Map<String, PostingList>> namespace : postings.entrySet()) {
+				for (final PostingList list : namespace.getValue().values()) {
+					list.trim();
+				}
+				namespace.setValue(Collections.unmodifiableMap(namespace.getValue()));
+			}
+			return new ElementNameIndex(Collections.unmodifiableMap(postings));
+		}
+	}
+}
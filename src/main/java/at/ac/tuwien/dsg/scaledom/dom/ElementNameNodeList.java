@@ -0,0 +1,111 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.apache.xerces.dom.DeepNodeListImpl;
+import org.apache.xerces.dom.ParentNode;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
+
+/**
+ * List of the descendant elements of a node with a given name, backed by the offsets of an <code>ElementNameIndex</code>.
+ * <br/>
+ * An item is resolved by its offset by an <code>ElementLocator</code>, hence only the requested elements and their
+ * ancestors' children have to be loaded, and the list's length is known without loading anything. Once the document
+ * has been modified, the list falls back to a <code>DeepNodeListImpl</code>, which traverses the DOM.
+ */
+public class ElementNameNodeList implements NodeList {
+
+	/** The document. */
+	private final ScaleDomDocument doc;
+	/** The root node, whose descendants are listed. */
+	private final ParentNode root;
+	/** The index the offsets have been taken from. */
+	private final ElementNameIndex index;
+	/** Offsets of the matching elements within the whole document. */
+	private final PostingList offsets;
+	/** Index of the first offset within the root node. */
+	private final int first;
+	/** Number of offsets within the root node. */
+	private final int length;
+
+	/** Names to be matched by the fallback list. */
+	private final String namespaceURI;
+	private final String name;
+	private final boolean namespaceAware;
+	/** List traversing the DOM, null until the document has been modified. */
+	private NodeList fallback;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param doc the document.
+	 * @param root the root node, the document or an element with a <code>FileNodeLocation</code>.
+	 * @param index the document's element name index.
+	 * @param offsets the offsets of the matching elements within the whole document.
+	 * @param namespaceURI the namespace URI to be matched, if namespace aware.
+	 * @param name the tag name (or local name, if namespace aware) to be matched.
+	 * @param namespaceAware whether the list is the result of <code>getElementsByTagNameNS</code>.
+	 */
+	ElementNameNodeList(final ScaleDomDocument doc, final ParentNode root, final ElementNameIndex index,
+			final PostingList offsets, final String namespaceURI, final String name, final boolean namespaceAware) {
+		checkNotNull(doc, "Argument doc must not be null.");
+		checkNotNull(root, "Argument root must not be null.");
+		checkNotNull(offsets, "Argument offsets must not be null.");
+		this.doc = doc;
+		this.root = root;
+		this.index = index;
+		this.offsets = offsets;
+		this.namespaceURI = namespaceURI;
+		this.name = name;
+		this.namespaceAware = namespaceAware;
+
+		if (root == doc) {
+			first = 0;
+			length = offsets.size();
+		} else {
+			// Descendants start after the root's start offset and before its end offset
+			final FileNodeLocation location = (FileNodeLocation) root.getNodeLocation();
+			first = offsets.lowerBound(location.getStartOffset() + 1);
+			length = offsets.lowerBound(location.getEndOffset()) - first;
+		}
+	}
+
+	@Override
+	public Node item(final int index) {
+		if (!isValid()) {
+			return getFallback().item(index);
+		}
+
+		// Invalid indices must return null
+		if (index < 0 || index >= length) {
+			return null;
+		}
+		return ElementLocator.getElementAt(root, offsets.get(first + index));
+	}
+
+	@Override
+	public int getLength() {
+		if (!isValid()) {
+			return getFallback().getLength();
+		}
+		return length;
+	}
+
+	/**
+	 * Returns whether the offsets are still valid, i.e. the document has not been modified since the list was created.
+	 */
+	private boolean isValid() {
+		return doc.getElementNameIndex() == index;
+	}
+
+	private NodeList getFallback() {
+		if (fallback == null) {
+			fallback = namespaceAware ? new DeepNodeListImpl(root, namespaceURI, name) : new DeepNodeListImpl(root,
+					name);
+		}
+		return fallback;
+	}
+}
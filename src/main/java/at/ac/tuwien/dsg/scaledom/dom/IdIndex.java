@@ -0,0 +1,261 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Start offsets of the elements of a document by the values of their ID attributes, recorded by the initial load
+ * process.<br/>
+ * The index is an open addressing hash table with linear probing, stored in a direct buffer outside of the heap. Each
+ * slot holds a 64 bit hash of an ID and the start offset of the element, the IDs themselves are not stored. Hence
+ * the offsets returned for an ID are candidates, whose elements have to be loaded to compare their attributes, see
+ * <code>ScaleDomDocument.getElementById</code>. The table holds at most 2^26 slots (1 GiB), elements beyond its
+ * capacity are not recorded and the index is marked as full.<br/>
+ * Attributes declared as IDs by a document type declaration are recorded by their element's name, since the DTD is
+ * known to the initial load only and candidates have to be compared by their ID attributes only.
+ */
+public class IdIndex {
+
+	/** Bytes per slot: hash and offset. */
+	private final static int SLOT_SIZE = 16;
+	/** Initial number of slots, as a power of two. */
+	private final static int INITIAL_CAPACITY = 1 << 10;
+	/** Maximum number of slots, as a power of two. */
+	private final static int MAXIMUM_CAPACITY = 1 << 26;
+	/** Offset of empty slots. */
+	private final static long EMPTY = -1;
+
+	/** The slots. */
+	private ByteBuffer table;
+	/** Number of slots, a power of two. */
+	private int capacity;
+	/** Number of used slots. */
+	private int size;
+	/** Flag whether elements have been dropped because the table could not grow any further. */
+	private boolean full;
+	/** Attributes declared as IDs by the DTD, as element name and attribute name separated by a space. */
+	private final Set<String> declaredAttributes;
+
+	/**
+	 * Default constructor, creates an empty index.
+	 */
+	IdIndex() {
+		this(INITIAL_CAPACITY);
+	}
+
+	private IdIndex(final int capacity) {
+		this.table = allocate(capacity);
+		this.capacity = capacity;
+		this.size = 0;
+		this.full = false;
+		this.declaredAttributes = new HashSet<String>();
+	}
+
+	/**
+	 * Returns the number of recorded IDs.
+	 *
+	 * @return the number of recorded IDs.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether IDs have been dropped because the index could not grow any further, i.e. whether the index is
+	 * incomplete.
+	 *
+	 * @return true if the index is incomplete.
+	 */
+	public boolean isFull() {
+		return full;
+	}
+
+	/**
+	 * Returns the start offsets of all elements which may have the given ID, i.e. whose ID's hash equals the given ID's
+	 * hash.
+	 *
+	 * @param id the ID.
+	 * @return the offsets in ascending order, empty if no element has the given ID.
+	 */
+	public long[] getOffsets(final String id) {
+		checkNotNull(id, "Argument id must not be null.");
+
+		final long hash = hash(id);
+		long[] offsets = new long[0];
+		for (int slot = (int) hash & (capacity - 1);; slot = (slot + 1) & (capacity - 1)) {
+			final long offset = table.getLong(slot * SLOT_SIZE + 8);
+			if (offset == EMPTY) {
+				break;
+			}
+			if (table.getLong(slot * SLOT_SIZE) == hash) {
+				offsets = Arrays.copyOf(offsets, offsets.length + 1);
+				offsets[offsets.length - 1] = offset;
+			}
+		}
+		// Slots wrap around the end of the table, hence the probe sequence is not necessarily in document order
+		Arrays.sort(offsets);
+		return offsets;
+	}
+
+	/**
+	 * Records an element's ID.
+	 *
+	 * @param id the ID.
+	 * @param offset the element's start offset.
+	 */
+	void add(final String id, final long offset) {
+		checkNotNull(id, "Argument id must not be null.");
+		checkArgument(offset >= 0, "Argument offset must not be negative.");
+		put(hash(id), offset);
+	}
+
+	/**
+	 * Records an attribute declared as ID by the DTD.
+	 *
+	 * @param elementName the node name of the element, i.e. its qualified name formatted like QName.toString().
+	 * @param attributeName the name of the attribute.
+	 */
+	void addDeclaredAttribute(final String elementName, final String attributeName) {
+		declaredAttributes.add(elementName + " " + attributeName);
+	}
+
+	/**
+	 * Returns whether an attribute has been declared as ID by the DTD.
+	 *
+	 * @param elementName the node name of the element, i.e. its qualified name formatted like QName.toString().
+	 * @param attributeName the name of the attribute.
+	 * @return true if the attribute has been declared as ID, false otherwise.
+	 */
+	public boolean isDeclaredAttribute(final String elementName, final String attributeName) {
+		return !declaredAttributes.isEmpty() && declaredAttributes.contains(elementName + " " + attributeName);
+	}
+
+	/**
+	 * Records the IDs of another index.
+	 *
+	 * @param other the other index.
+	 */
+	void addAll(final IdIndex other) {
+		full |= other.full;
+		declaredAttributes.addAll(other.declaredAttributes);
+		for (int slot = 0; slot < other.capacity; ++slot) {
+			final long offset = other.table.getLong(slot * SLOT_SIZE + 8);
+			if (offset != EMPTY) {
+				put(other.table.getLong(slot * SLOT_SIZE), offset);
+			}
+		}
+	}
+
+	private void put(final long hash, final long offset) {
+		// Grow at a load factor of 0.75
+		if ((long) (size + 1) * 4 > (long) capacity * 3) {
+			if (capacity == MAXIMUM_CAPACITY) {
+				full = true;
+				return;
+			}
+			resize(capacity * 2);
+		}
+
+		int slot = (int) hash & (capacity - 1);
+		while (table.getLong(slot * SLOT_SIZE + 8) != EMPTY) {
+			slot = (slot + 1) & (capacity - 1);
+		}
+		table.putLong(slot * SLOT_SIZE, hash);
+		table.putLong(slot * SLOT_SIZE + 8, offset);
+		++size;
+	}
+
+	private void resize(final int newCapacity) {
+		final ByteBuffer oldTable = table;
+		final int oldCapacity = capacity;
+		table = allocate(newCapacity);
+		capacity = newCapacity;
+		size = 0;
+		for (int slot = 0; slot < oldCapacity; ++slot) {
+			final long offset = oldTable.getLong(slot * SLOT_SIZE + 8);
+			if (offset != EMPTY) {
+				put(oldTable.getLong(slot * SLOT_SIZE), offset);
+			}
+		}
+	}
+
+	/**
+	 * Writes the index, see <code>read(ByteBuffer)</code>.
+	 *
+	 * @param out the output stream.
+	 * @throws IOException If the index could not be written.
+	 */
+	void write(final DataOutputStream out) throws IOException {
+		out.writeInt(capacity);
+		out.writeInt(size);
+		out.writeBoolean(full);
+		final byte[] slots = new byte[SLOT_SIZE * 1024];
+		final ByteBuffer view = table.duplicate();
+		view.clear();
+		while (view.hasRemaining()) {
+			final int length = Math.min(slots.length, view.remaining());
+			view.get(slots, 0, length);
+			out.write(slots, 0, length);
+		}
+		out.writeInt(declaredAttributes.size());
+		for (final String attribute : declaredAttributes) {
+			OffsetIndex.writeString(out, attribute);
+		}
+	}
+
+	/**
+	 * Reads an index written by <code>write(DataOutputStream)</code>.
+	 *
+	 * @param buffer the buffer, positioned at the beginning of the index.
+	 * @return the index.
+	 */
+	static IdIndex read(final ByteBuffer buffer) {
+		final int capacity = buffer.getInt();
+		final int size = buffer.getInt();
+		final boolean full = buffer.get() != 0;
+		final IdIndex index = new IdIndex(capacity);
+		final ByteBuffer slots = buffer.slice();
+		slots.limit(capacity * SLOT_SIZE);
+		index.table.put(slots);
+		index.table.clear();
+		buffer.position(buffer.position() + capacity * SLOT_SIZE);
+		index.size = size;
+		index.full = full;
+		for (int i = buffer.getInt(); i > 0; --i) {
+			index.declaredAttributes.add(OffsetIndex.readString(buffer));
+		}
+		return index;
+	}
+
+	private static ByteBuffer allocate(final int capacity) {
+		final ByteBuffer table = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+		for (int slot = 0; slot < capacity; ++slot) {
+			table.putLong(slot * SLOT_SIZE + 8, EMPTY);
+		}
+		return table;
+	}
+
+	/**
+	 * FNV-1a over the ID's characters, followed by the finalizer of MurmurHash3 to spread the bits over the table.
+	 */
+	private static long hash(final String id) {
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < id.length(); ++i) {
+			hash ^= id.charAt(i);
+			hash *= 0x100000001B3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB93FD7558CCDL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,275 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import java.io.IOException;
+
+import org.apache.xerces.dom.TextImpl;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Text;
+
+/**
+ * Text node which holds the byte range of its text in the document source instead of its data. The data is read and
+ * decoded from the document source on first access and held from then on, hence text nodes which are never accessed
+ * (e.g. by jobs which inspect the structure of a document only) cost a few bytes each instead of their data.<br/>
+ * The node is created by a load process with its data, which it drops once the load process has parsed the end of the
+ * text (i.e. the next event). The data is only dropped if it can be restored from the source range: either the range
+ * is the encoded data, or its references have to be resolved and its line breaks normalized. Entities declared by a
+ * document type declaration are not resolved, texts of documents with a document type declaration (and texts
+ * containing markup, e.g. coalesced CDATA sections) keep their data. Attribute values are not lazy, since the parser
+ * does not report their locations.
+ */
+public class LazyText extends TextImpl {
+
+	/** Serialization version. */
+	private final static long serialVersionUID = 4620358719520764231L;
+
+	/** Document whose source holds the text, null once the data is held. */
+	private volatile ScaleDomDocument source;
+	/** Start offset of the text in the document source. */
+	private final long startOffset;
+	/** Length of the text in the document source in bytes. */
+	private int length;
+	/** Flag whether references have to be resolved and line breaks normalized after reading the text. */
+	private boolean resolving;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param doc the owner document.
+	 * @param data the data, held until the end of the text has been parsed.
+	 * @param startOffset the start offset of the text in the document source.
+	 */
+	LazyText(final ScaleDomDocument doc, final String data, final long startOffset) {
+		super(doc, data);
+		this.startOffset = startOffset;
+	}
+
+	/**
+	 * Called by the load process with the end offset of the text in the document source, i.e. the start offset of the
+	 * following event. Drops the data if it can be restored from the source range.
+	 *
+	 * @param endOffset the end offset of the text in the document source.
+	 */
+	void parsedEndOffset(final long endOffset) {
+		final ScaleDomDocument doc = (ScaleDomDocument) getOwnerDocument();
+		final long sourceLength = endOffset - startOffset;
+		final long encodedLength = getEncodedLength(data, doc.getTextBytesPerCharacter());
+		if (sourceLength == encodedLength) {
+			// References and CRLF line breaks are longer than their replacement, CR line breaks are normalized only
+			resolving = data.indexOf('\n') >= 0;
+		} else if (sourceLength > encodedLength && sourceLength <= Integer.MAX_VALUE && doc.isLazyTextResolvable()) {
+			resolving = true;
+		} else {
+			return;
+		}
+
+		length = (int) sourceLength;
+		data = null;
+		source = doc;
+	}
+
+	/**
+	 * Returns whether the data is held, i.e. whether it has been read from the document source (or has never been
+	 * dropped). Does not read the data.
+	 *
+	 * @return true if the data is held, false otherwise.
+	 */
+	public boolean isDataLoaded() {
+		return source == null;
+	}
+
+	/**
+	 * Returns the data without holding it, e.g. to store it elsewhere.
+	 *
+	 * @return the data.
+	 */
+	String peekData() {
+		final ScaleDomDocument doc = source;
+		return doc != null ? read(doc) : data;
+	}
+
+	/**
+	 * Reads the data from the document source, if not held yet.
+	 */
+	private void load() {
+		if (source == null) {
+			return;
+		}
+		synchronized (this) {
+			final ScaleDomDocument doc = source;
+			if (doc != null) {
+				data = read(doc);
+				source = null;
+			}
+		}
+	}
+
+	private String read(final ScaleDomDocument doc) {
+		try {
+			final String text = doc.readSource(startOffset, startOffset + length);
+			return resolving ? resolve(text) : text;
+		} catch (final IOException ex) {
+			throw new DOMException(DOMException.INVALID_STATE_ERR, "Could not read text at offset " + startOffset
+					+ ": " + ex.getMessage());
+		} catch (final InstantiationException ex) {
+			throw new DOMException(DOMException.INVALID_STATE_ERR, "Could not read text at offset " + startOffset
+					+ ": " + ex.getMessage());
+		}
+	}
+
+	@Override
+	public String getNodeValue() {
+		load();
+		return super.getNodeValue();
+	}
+
+	@Override
+	protected void setNodeValueInternal(final String value, final boolean replace) {
+		load();
+		super.setNodeValueInternal(value, replace);
+	}
+
+	@Override
+	public String getData() {
+		load();
+		return super.getData();
+	}
+
+	@Override
+	public int getLength() {
+		load();
+		return super.getLength();
+	}
+
+	@Override
+	public void appendData(final String data) {
+		load();
+		super.appendData(data);
+	}
+
+	@Override
+	public String substringData(final int offset, final int count) {
+		load();
+		return super.substringData(offset, count);
+	}
+
+	@Override
+	public void insertData(final int offset, final String data) {
+		load();
+		super.insertData(offset, data);
+	}
+
+	@Override
+	public void deleteData(final int offset, final int count) {
+		load();
+		super.deleteData(offset, count);
+	}
+
+	@Override
+	public void replaceData(final int offset, final int count, final String data) {
+		load();
+		super.replaceData(offset, count, data);
+	}
+
+	@Override
+	public Text splitText(final int offset) {
+		load();
+		return super.splitText(offset);
+	}
+
+	@Override
+	public String getWholeText() {
+		load();
+		return super.getWholeText();
+	}
+
+	@Override
+	public void replaceData(final String value) {
+		load();
+		super.replaceData(value);
+	}
+
+	@Override
+	public String removeData() {
+		load();
+		return super.removeData();
+	}
+
+	/**
+	 * Returns the number of bytes of a string in the document encoding.
+	 */
+	private static long getEncodedLength(final String s, final int bytesPerCharacter) {
+		if (bytesPerCharacter > 0) {
+			return (long) s.length() * bytesPerCharacter;
+		}
+
+		// UTF-8, a surrogate pair takes 4 bytes
+		long length = 0;
+		for (int i = 0; i < s.length(); ++i) {
+			final char c = s.charAt(i);
+			if (c < 0x80) {
+				length += 1;
+			} else if (c < 0x800 || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)) {
+				length += 2;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Resolves the character references and predefined entity references of a text and normalizes its line breaks.
+	 */
+	private static String resolve(final String text) {
+		final StringBuilder resolved = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); ++i) {
+			final char c = text.charAt(i);
+			if (c == '\r') {
+				resolved.append('\n');
+				if (i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+					++i;
+				}
+			} else if (c == '&') {
+				final int end = text.indexOf(';', i);
+				if (end < 0) {
+					throw unresolvable(text.substring(i));
+				}
+				resolveReference(text.substring(i + 1, end), resolved);
+				i = end;
+			} else if (c == '<') {
+				throw unresolvable(text.substring(i));
+			} else {
+				resolved.append(c);
+			}
+		}
+		return resolved.toString();
+	}
+
+	private static void resolveReference(final String name, final StringBuilder resolved) {
+		if (name.equals("lt")) {
+			resolved.append('<');
+		} else if (name.equals("gt")) {
+			resolved.append('>');
+		} else if (name.equals("amp")) {
+			resolved.append('&');
+		} else if (name.equals("apos")) {
+			resolved.append('\'');
+		} else if (name.equals("quot")) {
+			resolved.append('"');
+		} else if (name.startsWith("#")) {
+			try {
+				final boolean hexadecimal = name.startsWith("#x");
+				resolved.appendCodePoint(Integer.parseInt(name.substring(hexadecimal ? 2 : 1), hexadecimal ? 16 : 10));
+			} catch (final IllegalArgumentException ex) {
+				throw unresolvable("&" + name + ";");
+			}
+		} else {
+			throw unresolvable("&" + name + ";");
+		}
+	}
+
+	private static DOMException unresolvable(final String markup) {
+		return new DOMException(DOMException.INVALID_STATE_ERR, "Text contains markup which cannot be resolved: '"
+				+ markup + "'.");
+	}
+}
@@ -2,19 +2,11 @@ package at.ac.tuwien.dsg.scaledom.dom;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.Set;
 
-import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
 import javax.xml.stream.XMLStreamConstants;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.Characters;
-import javax.xml.stream.events.Comment;
-import javax.xml.stream.events.EndElement;
-import javax.xml.stream.events.Namespace;
-import javax.xml.stream.events.ProcessingInstruction;
-import javax.xml.stream.events.StartDocument;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.xerces.dom.ParentNode;
 import org.slf4j.Logger;
@@ -27,27 +19,77 @@ import org.w3c.dom.Text;
 
 import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
 import at.ac.tuwien.dsg.scaledom.io.NodeLocationFactory;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
 import at.ac.tuwien.dsg.scaledom.lazy.LazyLoadingStrategy;
-import at.ac.tuwien.dsg.scaledom.parser.XmlEventLocation;
-import at.ac.tuwien.dsg.scaledom.parser.XmlParserEventListener;
+import at.ac.tuwien.dsg.scaledom.parser.XmlEventByteLocation;
+import at.ac.tuwien.dsg.scaledom.parser.XmlEventCharLocation;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParserCursorListener;
 import at.ac.tuwien.dsg.scaledom.util.LowMemoryDetector;
+import at.ac.tuwien.dsg.scaledom.util.jfr.FlightRecorderEvents;
 
-public class LoadProcess implements XmlParserEventListener, Closeable {
+/**
+ * Creates the nodes of a document (initial load) or of a parent node's subtree (reload) from the events of an
+ * <code>XmlParser</code> in cursor mode. Names, attributes and text are read straight from the parser's cursor, and
+ * event locations are only converted into <code>NodeLocation</code>s where they are stored, hence no objects apart from
+ * the nodes themselves are created per event.
+ */
+public class LoadProcess implements XmlParserCursorListener, Closeable {
 
 	/** Logger. */
 	private final static Logger log = LoggerFactory.getLogger(LoadProcess.class);
 
 	private final ScaleDomDocument doc;
+	private final ParentNode parent;
 	private final LoadType loadType;
 	private final LazyLoadingStrategy strategy;
 	private final NodeLocationFactory nodeLocationFactory;
 	private final long additionalOffset;
+	/** Whether the parser's locations are byte offsets rather than character offsets. */
+	private final boolean byteLocations;
 
 	/** Current state, outsourced to own class. */
 	private final LoadProcessState state;
 
 	/** Low memory detector. */
 	private final LowMemoryDetector lowMemoryDetector;
+	/** Flag whether running low on memory has been reported to the document metrics. */
+	private boolean lowMemoryReported;
+	/** Flight Recorder event, ended when the load process is closed. */
+	private final FlightRecorderEvents.LoadProcess event;
+
+	/** Content ranges of the deepest loaded elements which are skipped by the reader, null if none are skipped. */
+	private ContentSkipIndex skippedContent;
+	/** Index of the next element within skippedContent. */
+	private int nextSkippedElement;
+	/** Content ranges of the deepest loaded elements recorded by this load process, null if not recording. */
+	private ContentSkipIndex recordedContent;
+	/** Content start offset of the current deepest loaded element. */
+	private long contentStart;
+	/** Flag whether the location of the next event is the content start of the current deepest loaded element. */
+	private boolean awaitingContentStart;
+
+	/** Pages of the children of the parent node on pagedDepth recorded by this load process, null if not recording. */
+	private ChildPageTable recordedPages;
+	/** Depth of the parent node whose children are paged. */
+	private int pagedDepth;
+	/** Number of recorded children of the parent node on pagedDepth. */
+	private int numberOfPagedChildren;
+	/** Element depth within the currently not loaded child (i.e. not on the first page), 0 if none. */
+	private int notLoadedDepth;
+	/** Flag whether this load process loads a single page, of the children of the root node. */
+	private boolean loadingPage;
+	/** Number of children of the root node counted by a reload, -1 if the root node counts its children itself. */
+	private int numberOfReloadedChildren = -1;
+	/** Records the names of all elements parsed by this load process, null if not recording. */
+	private ElementNameIndex.Builder recordedElementNames;
+	/** Records the IDs of all elements parsed by this load process, null if not recording. */
+	private IdIndex recordedIds;
+	/** Names of the attributes recorded as IDs, in addition to attributes declared as IDs by the DTD. */
+	private Set<String> idAttributeNames;
+	/** Whether lazy text nodes are created, see <code>LazyText</code>. */
+	private final boolean lazyText;
+	/** Lazy text node created by the previous event, whose source range ends at the location of the current event. */
+	private LazyText pendingText;
 
 	public LoadProcess(final ScaleDomDocument doc, final ParentNode parent, final LoadType loadType,
 			final LazyLoadingStrategy strategy, final NodeLocationFactory nodeLocationFactory) {
@@ -58,15 +100,105 @@ public class LoadProcess implements XmlParserEventListener, Closeable {
 			final LazyLoadingStrategy strategy, final NodeLocationFactory nodeLocationFactory, final int eventsToSkip,
 			final long additionalOffset) {
 		this.doc = doc;
+		this.parent = parent;
 		this.loadType = loadType;
 		this.nodeLocationFactory = nodeLocationFactory;
 		this.strategy = strategy;
 		this.additionalOffset = additionalOffset;
+		this.byteLocations = doc.getXmlParser().isProvidingByteLocations();
+		this.lazyText = doc.isLazyTextEnabled();
 
 		state = new LoadProcessState(parent, eventsToSkip);
 
 		// Use a low memory detector during load process
 		lowMemoryDetector = new LowMemoryDetector(0.99);
+		event = FlightRecorderEvents.beginLoadProcess();
+	}
+
+	/**
+	 * Informs the load process that the reader skips the content of all elements on the deepest loaded level, as
+	 * recorded by a previous load process with the same load depth. The elements' numbers of children are taken from
+	 * the index instead.
+	 * 
+	 * @param contentSkipIndex the content ranges skipped by the reader.
+	 */
+	public void skipContent(final ContentSkipIndex contentSkipIndex) {
+		skippedContent = contentSkipIndex;
+		nextSkippedElement = 0;
+	}
+
+	/**
+	 * Lets the load process record the content ranges of all elements on the deepest loaded level. Requires
+	 * <code>FileNodeLocation</code>s and a <code>LazyLoadingStrategy</code> with a fixed load depth.
+	 */
+	public void recordContentSkipIndex() {
+		recordedContent = new ContentSkipIndex(strategy.getLoadDepth());
+		awaitingContentStart = false;
+	}
+
+	/**
+	 * Finishes recording and returns the recorded content ranges of the elements on the deepest loaded level.
+	 * 
+	 * @return the recorded content skip index, or null if the load process has not been recording.
+	 */
+	public ContentSkipIndex getRecordedContentSkipIndex() {
+		if (recordedContent != null) {
+			recordedContent.finish();
+		}
+		return recordedContent;
+	}
+
+	/**
+	 * Lets the load process split the children of the parent node on the given depth into pages, if there are more
+	 * than pageSize. Only the first page is loaded, the children on the following pages are counted and the ranges of
+	 * all pages are recorded in the parent's <code>ChildPageTable</code>. Requires <code>FileNodeLocation</code>s.
+	 * 
+	 * @param pageSize the nominal number of children per page.
+	 * @param depth the depth of the parent node, the root node has a depth of 1.
+	 */
+	public void pageChildren(final int pageSize, final int depth) {
+		recordedPages = new ChildPageTable(pageSize);
+		pagedDepth = depth;
+		numberOfPagedChildren = 0;
+		notLoadedDepth = 0;
+	}
+
+	/**
+	 * Lets the load process record the names and start offsets of all elements it parses, whether they are loaded or
+	 * not. Requires <code>FileNodeLocation</code>s.
+	 * 
+	 * @param elementNames the builder recording the elements.
+	 */
+	void recordElementNames(final ElementNameIndex.Builder elementNames) {
+		recordedElementNames = elementNames;
+	}
+
+	/**
+	 * Lets the load process record the IDs and start offsets of all elements it parses, whether they are loaded or not.
+	 * Requires <code>FileNodeLocation</code>s.
+	 * 
+	 * @param ids the index recording the IDs.
+	 * @param attributeNames the local names of the attributes recorded as IDs, in addition to attributes of type ID.
+	 */
+	void recordIds(final IdIndex ids, final Set<String> attributeNames) {
+		recordedIds = ids;
+		idAttributeNames = attributeNames;
+	}
+
+	/**
+	 * Informs the load process that it loads a single page of the root node's children, as recorded in the root node's
+	 * <code>ChildPageTable</code>. The root node's number of children is already known.
+	 */
+	public void loadPage() {
+		loadingPage = true;
+	}
+
+	/**
+	 * Informs the load process that it reloads all children of the root node. The children are counted by the load
+	 * process, the root node's previous number of children is replaced once the root node's end tag has been parsed.
+	 */
+	public void reloadChildren() {
+		numberOfReloadedChildren = 0;
 	}
 
 	/**
@@ -82,10 +214,19 @@ public class LoadProcess implements XmlParserEventListener, Closeable {
 	public void close() throws IOException {
 		// Remove low memory detector after loading is done
 		lowMemoryDetector.close();
+
+		final NodeLocation location = parent.getNodeLocation();
+		if (location instanceof FileNodeLocation) {
+			final FileNodeLocation fileLocation = (FileNodeLocation) location;
+			event.end(parent.getNodeName(), fileLocation.getStartOffset(), fileLocation.getEndOffset(),
+					getNumberOfCreatedNodes());
+		} else {
+			event.end(parent.getNodeName(), -1, -1, getNumberOfCreatedNodes());
+		}
 	}
 
 	@Override
-	public boolean process(final XMLEvent event, final XmlEventLocation eventLocation) {
+	public boolean process(final int eventType, final long startingOffset, final XMLStreamReader cursor) {
 		// The parser input may include additional nodes in the beginning (e.g. the parent node of the children to be
 		// loaded, a root node with namespace declarations, etc.), skip those
 		if (state.shouldSkipEvent()) {
@@ -93,48 +234,102 @@ public class LoadProcess implements XmlParserEventListener, Closeable {
 			return CONTINUE_PARSING;
 		}
 
-		// Convert the parser's outputted location into a node location
-		final NodeLocation location = nodeLocationFactory.eventLocationToNodeLocation(eventLocation, additionalOffset);
+		// The location of the event following a Characters event, is the end of the previous text node's source range
+		if (pendingText != null) {
+			pendingText.parsedEndOffset(toSourceOffset(startingOffset));
+			pendingText = null;
+		}
 
 		// The location of the event following an EndElement event, is the end location for the previous element node
 		if (state.getLastEventType() == XMLStreamConstants.END_ELEMENT) {
 			final ParentNode node = state.getPreviousParentNode();
-			node.getNodeLocation().setEndLocation(location);
+			node.getNodeLocation().setEndLocation(toNodeLocation(startingOffset));
+		}
+
+		// The location of the event following a StartElement event, is the start of the element's content
+		if (awaitingContentStart) {
+			contentStart = toSourceOffset(startingOffset);
+			awaitingContentStart = false;
+		}
+
+		// Entities declared by the DTD may be referenced by texts, which lazy text nodes do not resolve
+		if (lazyText && eventType == XMLStreamConstants.DTD) {
+			doc.parsedDocumentType();
+		}
+
+		// Filter uninteresting events, as well as events following the end of the root node (e.g. whitespace between
+		// the document element and a trailing comment, which is part of the document element's location)
+		if (filter(eventType) || state.getCurrentParentNode() == null) {
+			return CONTINUE_PARSING;
+		}
+
+		// Elements are recorded regardless of whether they are loaded or on a page which is not loaded
+		if (recordedElementNames != null && eventType == XMLStreamConstants.START_ELEMENT) {
+			final String namespaceURI = cursor.getNamespaceURI();
+			recordedElementNames.add(namespaceURI != null ? namespaceURI : "", cursor.getLocalName(),
+					toSourceOffset(startingOffset));
+		}
+		if (recordedIds != null && eventType == XMLStreamConstants.START_ELEMENT) {
+			recordIdAttributes(cursor, toSourceOffset(startingOffset));
 		}
 
-		// Filter uninteresting events
-		if (filter(event)) {
+		// Events within a child which is not on the first page are not processed at all, the strategy sees them anyway
+		if (notLoadedDepth > 0) {
+			strategy.shouldLoad(eventType, cursor);
+			if (eventType == XMLStreamConstants.START_ELEMENT) {
+				++notLoadedDepth;
+			} else if (eventType == XMLStreamConstants.END_ELEMENT) {
+				--notLoadedDepth;
+			}
 			return CONTINUE_PARSING;
 		}
 
 		// Inform the parent node of existing children - regardless of whether the child is loaded in the end or not
-		if (isNodeCreatingEvent(event)) {
-			state.getCurrentParentNode().parsedChild();
+		// (the number of children of the root node is already known when loading a page)
+		if (isNodeCreatingEvent(eventType) && !(loadingPage && state.getDepth() == 1)) {
+			if (numberOfReloadedChildren >= 0 && state.getDepth() == 1) {
+				++numberOfReloadedChildren;
+			} else {
+				state.getCurrentParentNode().parsedChild();
+			}
 		}
 
 		// Let the LazyLoadingStrategy decide whether event should be processed (and may result in a node)
-		if (!strategy.shouldLoad(event, eventLocation)) {
+		if (!strategy.shouldLoad(eventType, cursor)) {
 			return CONTINUE_PARSING;
 		}
 
-		state.setLastEventType(event.getEventType());
+		// Children which are not on the first page of their parent are recorded only
+		if (recordedPages != null && state.getDepth() == pagedDepth && isNodeCreatingEvent(eventType)
+				&& recordChildPage(eventType, startingOffset) > 0) {
+			if (eventType == XMLStreamConstants.START_ELEMENT) {
+				notLoadedDepth = 1;
+			}
+			return CONTINUE_PARSING;
+		}
+
+		state.setLastEventType(eventType);
 
 		// Process events which do not result in a node
-		if (event.getEventType() == XMLStreamConstants.START_DOCUMENT) {
-			processStartDocument((StartDocument) event);
+		if (eventType == XMLStreamConstants.START_DOCUMENT) {
+			processStartDocument(cursor);
 			return CONTINUE_PARSING;
-		} else if (event.getEventType() == XMLStreamConstants.END_ELEMENT) {
-			processEndElement(event.asEndElement());
+		} else if (eventType == XMLStreamConstants.END_ELEMENT) {
+			processEndElement(startingOffset);
 			return CONTINUE_PARSING;
 		}
 
 		// Check the load type, whether a node should be created
-		if (loadType == LoadType.RELOAD_ELEMENTS_ONLY && event.getEventType() != XMLStreamConstants.START_ELEMENT) {
+		if (loadType == LoadType.RELOAD_ELEMENTS_ONLY && eventType != XMLStreamConstants.START_ELEMENT) {
 			return CONTINUE_PARSING;
 		}
 
 		// Check if we have enough memory to create more nodes
 		if (lowMemoryDetector.isLowMemory()) {
+			if (!lowMemoryReported) {
+				lowMemoryReported = true;
+				doc.getMetrics().lowMemoryTripped();
+			}
 			final Node node = state.getCurrentParentNode();
 			if (node != null) {
 				// log.error("Reached memory threshold, stopped loading children of '"
@@ -148,123 +343,225 @@ public class LoadProcess implements XmlParserEventListener, Closeable {
 		}
 
 		// Process events which result in a node
-		switch (event.getEventType()) {
+		switch (eventType) {
 		case XMLStreamConstants.START_ELEMENT:
-			processStartElement(event.asStartElement(), location);
+			processStartElement(cursor, startingOffset);
 			break;
 		case XMLStreamConstants.CHARACTERS:
-			final Characters text = event.asCharacters();
-			processText(text, location);
+			processText(cursor, startingOffset);
 			break;
 		case XMLStreamConstants.CDATA:
-			final Characters cdata = event.asCharacters();
-			processCData(cdata, location);
+			processCData(cursor);
 			break;
 		case XMLStreamConstants.COMMENT:
-			final Comment comment = (Comment) event;
-			processComment(comment, location);
+			processComment(cursor);
 			break;
 		case XMLStreamConstants.PROCESSING_INSTRUCTION:
-			final ProcessingInstruction processingInstruction = (ProcessingInstruction) event;
-			processProcessingInstruction(processingInstruction, location);
+			processProcessingInstruction(cursor);
 			break;
 		default:
-			log.error("An XMLEvent of unknown type '" + event.getEventType() + "' did occur.");
+			log.error("An event of unknown type '" + eventType + "' did occur.");
 			break;
 		}
 
 		return CONTINUE_PARSING;
 	}
 
-	private void processStartDocument(final StartDocument event) {
-		doc.setDocumentURI(event.getSystemId());
-		doc.setXmlStandalone(event.isStandalone());
-		doc.setXmlVersion(event.getVersion());
+	private void recordIdAttributes(final XMLStreamReader cursor, final long offset) {
+		final int numberOfAttributes = cursor.getAttributeCount();
+		for (int i = 0; i < numberOfAttributes; ++i) {
+			final String name = cursor.getAttributeLocalName(i);
+			if (idAttributeNames.contains(name)) {
+				recordedIds.add(cursor.getAttributeValue(i), offset);
+			} else if ("ID".equals(cursor.getAttributeType(i))) {
+				recordedIds.add(cursor.getAttributeValue(i), offset);
+				// Keyed like the node name of the element, i.e. its namespace URI and local name
+				final String namespaceURI = cursor.getNamespaceURI();
+				recordedIds.addDeclaredAttribute(doc.getNamePool().getElementName(namespaceURI != null ? namespaceURI
+						: "", cursor.getLocalName()).getQualifiedName(), name);
+			}
+		}
+	}
+
+	private void processStartDocument(final XMLStreamReader cursor) {
+		// Same defaults as a StartDocument event
+		final Location location = cursor.getLocation();
+		final String version = cursor.getVersion();
+		doc.setDocumentURI(location != null ? location.getSystemId() : "");
+		doc.setXmlStandalone(cursor.isStandalone());
+		doc.setXmlVersion(version != null && !version.isEmpty() ? version : "1.0");
 	}
 
-	private void processStartElement(final StartElement startElement, final NodeLocation location) {
-		final QName name = startElement.getName();
-		final Iterator<?> attributes = startElement.getAttributes();
+	private void processStartElement(final XMLStreamReader cursor, final long startingOffset) {
+		final String namespaceURI = cursor.getNamespaceURI() != null ? cursor.getNamespaceURI() : "";
+		final NamePool namePool = doc.getNamePool();
+		final NamePool.ElementName name = namePool.getElementName(namespaceURI, cursor.getLocalName());
 
-		// Create Element node
+		// Create Element node, the qualified name is formatted like QName.toString()
 		// TODO: Use createElement() if no namespace is present?
-		final Element elementNode = doc.createElementNS(name.getNamespaceURI(), name.toString(), name.getLocalPart());
+		final Element elementNode = doc.createElementNS(name.getNamespaceURI(), name.getQualifiedName(),
+				name.getLocalName());
 		final ParentNode asParentNode = (ParentNode) elementNode;
-		asParentNode.setNodeLocation(location);
+		asParentNode.setNodeLocation(toNodeLocation(startingOffset));
 
 		// Add attributes
-		while (attributes.hasNext()) {
-			final Attribute attribute = (Attribute) attributes.next();
-
+		final int numberOfAttributes = cursor.getAttributeCount();
+		for (int i = 0; i < numberOfAttributes; ++i) {
 			// Create Attr node
 			// TODO: Use createAttributeNS() if namespace is present?
-			final Attr attrNode = doc.createAttribute(attribute.getName().getLocalPart());
-			attrNode.setValue(attribute.getValue());
+			final Attr attrNode = doc.createAttribute(namePool.getName(cursor.getAttributeLocalName(i)));
+			attrNode.setValue(cursor.getAttributeValue(i));
 
 			elementNode.setAttributeNode(attrNode);
 		}
 
 		// Cache namespaces
-		final Iterator<?> namespaces = startElement.getNamespaces();
-		while (namespaces.hasNext()) {
-			final Namespace namespace = (Namespace) namespaces.next();
-			asParentNode.parsedNamespace(namespace);
+		final int numberOfNamespaces = cursor.getNamespaceCount();
+		for (int i = 0; i < numberOfNamespaces; ++i) {
+			asParentNode.parsedNamespace(namePool.getNamespace(cursor.getNamespacePrefix(i),
+					cursor.getNamespaceURI(i)));
 		}
 
 		// Update current hierarchy
 		state.getCurrentParentNode().appendChild(elementNode);
 		state.addParentNodeAtBottom(asParentNode);
 		state.createdNode();
+
+		if (isOnDeepestLevel()) {
+			if (skippedContent != null && nextSkippedElement < skippedContent.size()) {
+				// The parser does not see the element's content
+				asParentNode.parsedChildren(skippedContent.getNumberOfChildren(nextSkippedElement++));
+			}
+			if (recordedContent != null) {
+				awaitingContentStart = true;
+			}
+		}
 	}
 
-	private void processEndElement(final EndElement endElement) {
+	private void processEndElement(final long startingOffset) {
+		if (numberOfReloadedChildren >= 0 && state.getDepth() == 1) {
+			state.getCurrentParentNode().reparsedChildren(numberOfReloadedChildren);
+		}
+		if (recordedContent != null && isOnDeepestLevel()) {
+			final ParentNode element = state.getCurrentParentNode();
+			recordedContent.add(contentStart, toSourceOffset(startingOffset), element.getLength());
+		}
+		if (recordedPages != null && state.getDepth() == pagedDepth) {
+			finishChildPages(toSourceOffset(startingOffset));
+		}
+
 		// Update current hierarchy
 		state.removeCurrentParentNode();
 	}
 
-	private void processText(final Characters text, final NodeLocation location) {
-		// Create and append Text node
-		final Text textNode = doc.createTextNode(text.getData());
+	private void processText(final XMLStreamReader cursor, final long startingOffset) {
+		// Create and append Text node, a lazy text node drops its data once the end of its source range is known
+		final Text textNode;
+		if (lazyText) {
+			pendingText = new LazyText(doc, cursor.getText(), toSourceOffset(startingOffset));
+			textNode = pendingText;
+		} else {
+			textNode = doc.createTextNode(cursor.getText());
+		}
 		state.getCurrentParentNode().appendChild(textNode);
 		state.createdNode();
 	}
 
-	private void processCData(final Characters cdata, final NodeLocation location) {
+	private void processCData(final XMLStreamReader cursor) {
 		// Create and append CDATASection node
-		final CDATASection cdataSectionNode = doc.createCDATASection(cdata.getData());
+		final CDATASection cdataSectionNode = doc.createCDATASection(cursor.getText());
 		state.getCurrentParentNode().appendChild(cdataSectionNode);
 		state.createdNode();
 	}
 
-	private void processComment(final Comment comment, final NodeLocation location) {
+	private void processComment(final XMLStreamReader cursor) {
 		// Create and append Comment node
-		final org.w3c.dom.Comment commentNode = doc.createComment(comment.getText());
+		final org.w3c.dom.Comment commentNode = doc.createComment(cursor.getText());
 		state.getCurrentParentNode().appendChild(commentNode);
 		state.createdNode();
 	}
 
-	private void processProcessingInstruction(final ProcessingInstruction processingInstruction,
-			final NodeLocation location) {
+	private void processProcessingInstruction(final XMLStreamReader cursor) {
 		// Create and append ProcessingInstruction node
 		final org.w3c.dom.ProcessingInstruction processingInstructionNode = doc.createProcessingInstruction(
-				processingInstruction.getTarget(), processingInstruction.getData());
+				cursor.getPITarget(), cursor.getPIData());
 		state.getCurrentParentNode().appendChild(processingInstructionNode);
 		state.createdNode();
 	}
 
-	private boolean filter(final XMLEvent event) {
-		switch (event.getEventType()) {
+	/**
+	 * Records the current child of the parent node on pagedDepth.
+	 * 
+	 * @return the index of the page the child belongs to.
+	 */
+	private int recordChildPage(final int eventType, final long startingOffset) {
+		final boolean isElement = eventType == XMLStreamConstants.START_ELEMENT;
+		return recordedPages.add(numberOfPagedChildren++, toSourceOffset(startingOffset), isElement);
+	}
+
+	/**
+	 * Finishes recording at the end tag of the parent node on pagedDepth, whose children are paged if there is more
+	 * than one page. Only a single parent node is paged.
+	 */
+	private void finishChildPages(final long endOffset) {
+		final ParentNode parent = state.getCurrentParentNode();
+		if (recordedPages.size() > 1) {
+			recordedPages.finish(parent.getLength(), endOffset);
+			parent.setChildPageTable(recordedPages);
+			log.debug("Children of '" + parent.getNodeName() + "' have been split into " + recordedPages.size()
+					+ " pages.");
+		}
+		recordedPages = null;
+	}
+
+	/**
+	 * Returns whether the current parent node is on the deepest level loaded by the strategy.
+	 */
+	private boolean isOnDeepestLevel() {
+		// The root node is on depth 1 and is not counted by the strategy
+		return state.getDepth() == strategy.getLoadDepth() + 1;
+	}
+
+	/**
+	 * Converts the parser's relative event offset into a node location.
+	 */
+	private NodeLocation toNodeLocation(final long startingOffset) {
+		return nodeLocationFactory.eventLocationToNodeLocation(byteLocations ? new XmlEventByteLocation(
+				startingOffset) : new XmlEventCharLocation(startingOffset), additionalOffset);
+	}
+
+	/**
+	 * Converts the parser's relative event offset into an offset within the document source. Requires
+	 * <code>FileNodeLocation</code>s.
+	 */
+	private long toSourceOffset(final long startingOffset) {
+		return ((FileNodeLocation) toNodeLocation(startingOffset)).getStartOffset();
+	}
+
+	/**
+	 * Converts the parser's relative event offset into an offset within the document source, e.g. for a
+	 * <code>CoalescedLoadProcess</code> to find the events of its siblings. Requires <code>FileNodeLocation</code>s.
+	 * 
+	 * @param startingOffset the event offset reported by the parser.
+	 * @return the offset within the document source.
+	 */
+	long getSourceOffset(final long startingOffset) {
+		return toSourceOffset(startingOffset);
+	}
+
+	private boolean filter(final int eventType) {
+		switch (eventType) {
 		// The following event types are not interesting for ScaleDOM:
 		case XMLStreamConstants.END_DOCUMENT:
 			return true;
 
 			// The following event types are not supported by ScaleDOM:
 		case XMLStreamConstants.DTD:
-			log.debug("An XMLEvent of type 'DTD' has been ignored.");
+			log.debug("An event of type 'DTD' has been ignored.");
 			return true;
 
 		case XMLStreamConstants.ENTITY_REFERENCE:
-			log.warn("An XMLEvent of type 'ENTITY_REFERENCE' has been ignored, please instruct the parser to expand entity references.");
+			log.warn("An event of type 'ENTITY_REFERENCE' has been ignored, please instruct the parser to expand entity references.");
 			return true;
 
 			// The following event types do not occur as first-order events when parsing a document source:
@@ -272,21 +569,20 @@ public class LoadProcess implements XmlParserEventListener, Closeable {
 		case XMLStreamConstants.ENTITY_DECLARATION:
 		case XMLStreamConstants.NAMESPACE:
 		case XMLStreamConstants.NOTATION_DECLARATION:
-			log.error("An XMLEvent of type '" + event.getEventType() + "' did occur as first-order event.");
+			log.error("An event of type '" + eventType + "' did occur as first-order event.");
 			return true;
 
 			// The following event types do not occur at all
 			// TODO: Check http://stackoverflow.com/questions/15010864/
 		case XMLStreamConstants.SPACE:
-			log.error("An XMLEvent of type 'SPACE' did occur.");
+			log.error("An event of type 'SPACE' did occur.");
 			return true;
 		}
 
 		return false;
 	}
 
-	private boolean isNodeCreatingEvent(final XMLEvent event) {
-		final int eventType = event.getEventType();
+	private boolean isNodeCreatingEvent(final int eventType) {
 		return eventType == XMLStreamConstants.START_ELEMENT || eventType == XMLStreamConstants.CHARACTERS
 				|| eventType == XMLStreamConstants.CDATA || eventType == XMLStreamConstants.COMMENT
 				|| eventType == XMLStreamConstants.PROCESSING_INSTRUCTION;
@@ -56,6 +56,15 @@ public class LoadProcessState {
 		return hierarchy.getLast();
 	}
 
+	/**
+	 * Returns the depth of the current parent node, the root node has a depth of 1.
+	 * 
+	 * @return the depth of the current parent node, or 0 if all parent nodes have been removed.
+	 */
+	public int getDepth() {
+		return hierarchy.size();
+	}
+
 	public void addParentNodeAtBottom(final ParentNode parent) {
 		hierarchy.addLast(parent);
 	}
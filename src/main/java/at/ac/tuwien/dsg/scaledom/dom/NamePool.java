@@ -0,0 +1,171 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.events.Namespace;
+
+/**
+ * Document-wide symbol table of the names of elements, attributes and namespace declarations. Every load of the same
+ * name would otherwise allocate new strings (and format the qualified name of each element anew), the pool hands out
+ * a canonical instance instead: nodes share their names, which are compared by identity first.<br/>
+ * Lookups are thread-safe and do not allocate for known names. Since the names of a document are usually few, the
+ * pool is bounded by <code>MAXIMUM_SIZE</code> names, further names are not pooled.
+ */
+final class NamePool {
+
+	/** Maximum number of pooled names. */
+	final static int MAXIMUM_SIZE = 1 << 16;
+
+	/** Canonical element names by namespace URI and local name. */
+	private final ConcurrentMap<String, ConcurrentMap<String, ElementName>> elementNames;
+	/** Canonical attribute names and namespace URIs. */
+	private final ConcurrentMap<String, String> names;
+	/** Canonical namespace declarations by prefix ("" for the default namespace) and namespace URI. */
+	private final ConcurrentMap<String, ConcurrentMap<String, Namespace>> namespaces;
+	/** Number of pooled names. */
+	private final AtomicInteger size;
+	private final XMLEventFactory eventFactory;
+
+	/**
+	 * Default constructor.
+	 */
+	NamePool() {
+		elementNames = new ConcurrentHashMap<String, ConcurrentMap<String, ElementName>>();
+		names = new ConcurrentHashMap<String, String>();
+		namespaces = new ConcurrentHashMap<String, ConcurrentMap<String, Namespace>>();
+		size = new AtomicInteger();
+		eventFactory = XMLEventFactory.newInstance();
+	}
+
+	/**
+	 * Returns the canonical name of an element.
+	 *
+	 * @param namespaceURI the element's namespace URI, "" if none.
+	 * @param localName the element's local name.
+	 * @return the element name.
+	 */
+	ElementName getElementName(final String namespaceURI, final String localName) {
+		final ConcurrentMap<String, ElementName> localNames = getInner(elementNames, namespaceURI);
+		ElementName name = localNames != null ? localNames.get(localName) : null;
+		if (name == null) {
+			name = new ElementName(getName(namespaceURI), getName(localName));
+			if (localNames != null && hasCapacity()) {
+				final ElementName existing = localNames.putIfAbsent(localName, name);
+				if (existing != null) {
+					return existing;
+				}
+				size.incrementAndGet();
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * Returns the canonical instance of a name, e.g. of an attribute's local name or of a namespace URI.
+	 *
+	 * @param name the name.
+	 * @return the canonical instance of the name.
+	 */
+	String getName(final String name) {
+		final String existing = names.get(name);
+		if (existing != null) {
+			return existing;
+		}
+		if (hasCapacity()) {
+			final String raced = names.putIfAbsent(name, name);
+			if (raced != null) {
+				return raced;
+			}
+			size.incrementAndGet();
+		}
+		return name;
+	}
+
+	/**
+	 * Returns the canonical namespace declaration.
+	 *
+	 * @param prefix the declared prefix, null or "" for the default namespace.
+	 * @param namespaceURI the declared namespace URI.
+	 * @return the namespace declaration.
+	 */
+	Namespace getNamespace(final String prefix, final String namespaceURI) {
+		final String key = prefix != null ? prefix : "";
+		final ConcurrentMap<String, Namespace> declarations = getInner(namespaces, key);
+		Namespace namespace = declarations != null ? declarations.get(namespaceURI) : null;
+		if (namespace == null) {
+			namespace = key.isEmpty() ? eventFactory.createNamespace(namespaceURI) : eventFactory.createNamespace(
+					key, namespaceURI);
+			if (declarations != null && hasCapacity()) {
+				final Namespace existing = declarations.putIfAbsent(namespaceURI, namespace);
+				if (existing != null) {
+					return existing;
+				}
+				size.incrementAndGet();
+			}
+		}
+		return namespace;
+	}
+
+	/**
+	 * Returns the number of pooled names.
+	 *
+	 * @return the number of pooled names.
+	 */
+	int size() {
+		return size.get();
+	}
+
+	/**
+	 * Returns the inner map of a key, creating it if the pool may grow.
+	 */
+	private <V> ConcurrentMap<String, V> getInner(final ConcurrentMap<String, ConcurrentMap<String, V>> outer,
+			final String key) {
+		ConcurrentMap<String, V> inner = outer.get(key);
+		if (inner == null && hasCapacity()) {
+			inner = new ConcurrentHashMap<String, V>();
+			final ConcurrentMap<String, V> existing = outer.putIfAbsent(key, inner);
+			if (existing != null) {
+				inner = existing;
+			}
+		}
+		return inner;
+	}
+
+	/**
+	 * Returns whether new names are pooled. Concurrent additions may exceed the maximum size slightly.
+	 */
+	private boolean hasCapacity() {
+		return size.get() < MAXIMUM_SIZE;
+	}
+
+	/**
+	 * Name of an element: its namespace URI, local name and qualified name (formatted like QName.toString()).
+	 */
+	static final class ElementName {
+
+		private final String namespaceURI;
+		private final String localName;
+		private final String qualifiedName;
+
+		ElementName(final String namespaceURI, final String localName) {
+			this.namespaceURI = namespaceURI;
+			this.localName = localName;
+			this.qualifiedName = namespaceURI.isEmpty() ? localName : "{" + namespaceURI + "}" + localName;
+		}
+
+		String getNamespaceURI() {
+			return namespaceURI;
+		}
+
+		String getLocalName() {
+			return localName;
+		}
+
+		String getQualifiedName() {
+			return qualifiedName;
+		}
+	}
+}
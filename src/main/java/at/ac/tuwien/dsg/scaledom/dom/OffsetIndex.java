@@ -0,0 +1,421 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import javax.xml.stream.events.Namespace;
+
+import org.apache.xerces.dom.ChildNode;
+import org.apache.xerces.dom.ParentNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Persistent sidecar index of the initially loaded part of a file-based document.<br/>
+ * The index stores all nodes created by the initial load process, including the structural information required for
+ * reloading (<code>FileNodeLocation</code> offsets, number of children and namespace declarations of each
+ * <code>ParentNode</code>). Reopening the document restores its initial state from the memory-mapped index, without
+ * parsing the document source at all.<br/>
+ * The index file is stored next to the document and is keyed by the document's size, modification time and a checksum
+ * of its first and last bytes, as well as by a configuration string describing the components which determine the
+ * initial load (e.g. the <code>LazyLoadingStrategy</code> implementation). Stale index files are ignored and rebuilt.
+ * <br/>
+ * If element names or IDs are indexed, the <code>ElementNameIndex</code> and the <code>IdIndex</code> are stored along
+ * with the nodes.
+ */
+public class OffsetIndex {
+
+	/** Logger. */
+	private final static Logger log = LoggerFactory.getLogger(OffsetIndex.class);
+
+	/** File extension of index files, appended to the document's file name. */
+	public final static String FILE_EXTENSION = ".sdidx";
+
+	/** Magic number ("SDIX"), written at the beginning and at the end of an index file. */
+	private final static int MAGIC = 0x53444958;
+	/** Index format version, has to be increased on every format change. */
+	private final static int VERSION = 5;
+	/** Number of bytes at the beginning and at the end of the document which are included in the checksum. */
+	private final static int CHECKSUM_BLOCK_SIZE = 64 * 1024;
+	/** Marker for a children list which is not loaded. */
+	private final static int CHILDREN_NOT_LOADED = -1;
+	/** Marker for a null string. */
+	private final static int NULL_STRING = -1;
+	/** Charset of all strings within an index file. */
+	private final static Charset CHARSET = Charsets.UTF_8;
+
+	/** Index file. */
+	private final File indexFile;
+	/** Configuration string. */
+	private final String configuration;
+	/** Size of the document file. */
+	private final long documentSize;
+	/** Modification time of the document file. */
+	private final long documentLastModified;
+	/** Checksum of the document file. */
+	private final long documentChecksum;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param source the underlying document source.
+	 * @param configuration a string describing all components which determine the initial load.
+	 * @throws IOException If the document file could not be read.
+	 */
+	public OffsetIndex(final FileDocumentSource source, final String configuration) throws IOException {
+		checkNotNull(source, "Argument source must not be null.");
+		checkNotNull(configuration, "Argument configuration must not be null.");
+
+		final File documentFile = source.getFile();
+		this.indexFile = new File(documentFile.getPath() + FILE_EXTENSION);
+		this.configuration = configuration;
+		this.documentSize = documentFile.length();
+		this.documentLastModified = documentFile.lastModified();
+		this.documentChecksum = computeChecksum(documentFile);
+	}
+
+	/**
+	 * Returns the index file.
+	 *
+	 * @return the index file.
+	 */
+	public File getIndexFile() {
+		return indexFile;
+	}
+
+	/**
+	 * Restores the initially loaded nodes of the document from the index file. The document is not modified unless the
+	 * index has been read completely.
+	 *
+	 * @param doc the document to be restored.
+	 * @return true if the document has been restored, false if no valid index file exists.
+	 * @throws IOException If the index file could not be read or is corrupt.
+	 */
+	public boolean restore(final ScaleDomDocument doc) throws IOException {
+		checkNotNull(doc, "Argument doc must not be null.");
+
+		if (!indexFile.isFile()) {
+			log.debug("Offset index '" + indexFile + "' does not exist.");
+			return false;
+		}
+
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(indexFile, "r");
+		try {
+			final long indexSize = randomAccessFile.length();
+			if (indexSize > Integer.MAX_VALUE) {
+				log.warn("Offset index '" + indexFile + "' exceeds 2 GB and can not be mapped.");
+				return false;
+			}
+
+			final ByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, indexSize);
+			if (!readHeader(buffer)) {
+				log.info("Offset index '" + indexFile + "' is stale and will be rebuilt.");
+				return false;
+			}
+			if (buffer.getInt((int) indexSize - 4) != MAGIC) {
+				log.warn("Offset index '" + indexFile + "' is incomplete and will be rebuilt.");
+				return false;
+			}
+
+			readDocument(doc, buffer);
+			return true;
+		} catch (final BufferUnderflowException ex) {
+			throw new IOException("Offset index '" + indexFile + "' is corrupt.", ex);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Stores the currently loaded nodes of the document into the index file, an existing index file is replaced.
+	 *
+	 * @param doc the document to be stored.
+	 * @throws IOException If the index file could not be written.
+	 */
+	public void store(final ScaleDomDocument doc) throws IOException {
+		checkNotNull(doc, "Argument doc must not be null.");
+
+		// Write a temporary file first, so that an interrupted write never leaves a seemingly valid index behind
+		final File tempFile = new File(indexFile.getPath() + ".tmp");
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile),
+				1 << 16));
+		boolean written = false;
+		try {
+			writeHeader(out);
+			writeDocument(doc, out);
+			out.writeInt(MAGIC);
+			written = true;
+		} finally {
+			out.close();
+			if (!written) {
+				tempFile.delete();
+			}
+		}
+
+		if ((indexFile.exists() && !indexFile.delete()) || !tempFile.renameTo(indexFile)) {
+			tempFile.delete();
+			throw new IOException("Offset index '" + indexFile + "' could not be replaced.");
+		}
+
+		log.debug("Stored offset index '" + indexFile + "' (" + indexFile.length() + " bytes).");
+	}
+
+	private void writeHeader(final DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(documentSize);
+		out.writeLong(documentLastModified);
+		out.writeLong(documentChecksum);
+		writeString(out, configuration);
+	}
+
+	private boolean readHeader(final ByteBuffer buffer) {
+		return buffer.getInt() == MAGIC && buffer.getInt() == VERSION && buffer.getLong() == documentSize
+				&& buffer.getLong() == documentLastModified && buffer.getLong() == documentChecksum
+				&& configuration.equals(readString(buffer));
+	}
+
+	private void writeDocument(final ScaleDomDocument doc, final DataOutputStream out) throws IOException {
+		writeString(out, doc.getXmlVersion());
+		out.writeBoolean(doc.getXmlStandalone());
+		writeString(out, doc.getDocumentURI());
+		out.writeInt(doc.getLength());
+		writeChildren(doc, out);
+
+		final ElementNameIndex elementNameIndex = doc.getElementNameIndex();
+		out.writeBoolean(elementNameIndex != null);
+		if (elementNameIndex != null) {
+			elementNameIndex.write(out);
+		}
+		final IdIndex idIndex = doc.getIdIndex();
+		out.writeBoolean(idIndex != null);
+		if (idIndex != null) {
+			idIndex.write(out);
+		}
+	}
+
+	private void readDocument(final ScaleDomDocument doc, final ByteBuffer buffer) throws IOException {
+		final String xmlVersion = readString(buffer);
+		final boolean xmlStandalone = buffer.get() != 0;
+		final String documentURI = readString(buffer);
+		final int numberOfChildren = buffer.getInt();
+		final int numberOfLoadedChildren = buffer.getInt();
+
+		// Children of the document are appended only after the whole index has been read
+		final List<ChildNode> children = new ArrayList<ChildNode>(Math.max(numberOfLoadedChildren, 0));
+		for (int i = 0; i < numberOfLoadedChildren; ++i) {
+			children.add(readNode(doc, buffer));
+		}
+		final ElementNameIndex elementNameIndex = buffer.get() != 0 ? ElementNameIndex.read(buffer) : null;
+		final IdIndex idIndex = buffer.get() != 0 ? IdIndex.read(buffer) : null;
+
+		doc.setDocumentURI(documentURI);
+		doc.setXmlStandalone(xmlStandalone);
+		if (xmlVersion != null) {
+			doc.setXmlVersion(xmlVersion);
+		}
+		for (final ChildNode child : children) {
+			doc.appendChild(child);
+		}
+		doc.parsedChildren(numberOfChildren);
+		doc.setElementNameIndex(elementNameIndex);
+		doc.setIdIndex(idIndex);
+	}
+
+	private void writeChildren(final ParentNode parent, final DataOutputStream out) throws IOException {
+		// Holds a strong reference to the children while they are written
+		final ChildList children = parent.peekLoadedChildNodes();
+		if (children == null) {
+			out.writeInt(CHILDREN_NOT_LOADED);
+			return;
+		}
+
+		out.writeInt(children.size());
+		for (final ChildNode child : children) {
+			writeNode(child, out);
+		}
+	}
+
+	private void writeNode(final Node node, final DataOutputStream out) throws IOException {
+		final short nodeType = node.getNodeType();
+		out.writeByte(nodeType);
+
+		switch (nodeType) {
+		case Node.ELEMENT_NODE:
+			writeElement((Element) node, out);
+			break;
+		case Node.TEXT_NODE:
+		case Node.CDATA_SECTION_NODE:
+		case Node.COMMENT_NODE:
+			// Lazy text nodes are not loaded by storing them
+			writeString(out, node instanceof LazyText ? ((LazyText) node).peekData() : node.getNodeValue());
+			break;
+		case Node.PROCESSING_INSTRUCTION_NODE:
+			final ProcessingInstruction processingInstruction = (ProcessingInstruction) node;
+			writeString(out, processingInstruction.getTarget());
+			writeString(out, processingInstruction.getData());
+			break;
+		default:
+			throw new IOException("Node type '" + nodeType + "' is not supported by the offset index.");
+		}
+	}
+
+	private ChildNode readNode(final ScaleDomDocument doc, final ByteBuffer buffer) throws IOException {
+		final short nodeType = buffer.get();
+
+		switch (nodeType) {
+		case Node.ELEMENT_NODE:
+			return readElement(doc, buffer);
+		case Node.TEXT_NODE:
+			return (ChildNode) doc.createTextNode(readString(buffer));
+		case Node.CDATA_SECTION_NODE:
+			return (ChildNode) doc.createCDATASection(readString(buffer));
+		case Node.COMMENT_NODE:
+			return (ChildNode) doc.createComment(readString(buffer));
+		case Node.PROCESSING_INSTRUCTION_NODE:
+			final String target = readString(buffer);
+			return (ChildNode) doc.createProcessingInstruction(target, readString(buffer));
+		default:
+			throw new IOException("Offset index '" + indexFile + "' contains unknown node type '" + nodeType + "'.");
+		}
+	}
+
+	private void writeElement(final Element element, final DataOutputStream out) throws IOException {
+		final ParentNode asParentNode = (ParentNode) element;
+		final NodeLocation location = asParentNode.getNodeLocation();
+		if (!(location instanceof FileNodeLocation)) {
+			throw new IOException("Element '" + element.getNodeName() + "' has no FileNodeLocation.");
+		}
+
+		writeString(out, element.getNamespaceURI());
+		writeString(out, element.getNodeName());
+		writeString(out, element.getLocalName());
+
+		final NamedNodeMap attributes = element.getAttributes();
+		out.writeInt(attributes.getLength());
+		for (int i = 0; i < attributes.getLength(); ++i) {
+			final Attr attribute = (Attr) attributes.item(i);
+			writeString(out, attribute.getName());
+			writeString(out, attribute.getValue());
+		}
+
+		final List<Namespace> namespaces = asParentNode.getDeclaredNamespaces();
+		out.writeInt(namespaces.size());
+		for (final Namespace namespace : namespaces) {
+			writeString(out, namespace.getPrefix());
+			writeString(out, namespace.getNamespaceURI());
+		}
+
+		final FileNodeLocation fileLocation = (FileNodeLocation) location;
+		out.writeLong(fileLocation.getStartOffset());
+		out.writeLong(fileLocation.getEndOffset());
+
+		out.writeInt(asParentNode.getLength());
+		writeChildren(asParentNode, out);
+	}
+
+	private ChildNode readElement(final ScaleDomDocument doc, final ByteBuffer buffer) throws IOException {
+		final NamePool namePool = doc.getNamePool();
+		final String namespaceURI = readString(buffer);
+		// Initially loaded elements are not renamed, their qualified names are derived from the other names
+		readString(buffer);
+		final NamePool.ElementName name = namePool.getElementName(namespaceURI, readString(buffer));
+		final Element element = doc.createElementNS(name.getNamespaceURI(), name.getQualifiedName(),
+				name.getLocalName());
+		final ParentNode asParentNode = (ParentNode) element;
+
+		final int numberOfAttributes = buffer.getInt();
+		for (int i = 0; i < numberOfAttributes; ++i) {
+			final Attr attribute = doc.createAttribute(namePool.getName(readString(buffer)));
+			attribute.setValue(readString(buffer));
+			element.setAttributeNode(attribute);
+		}
+
+		final int numberOfNamespaces = buffer.getInt();
+		for (int i = 0; i < numberOfNamespaces; ++i) {
+			final String prefix = readString(buffer);
+			asParentNode.parsedNamespace(namePool.getNamespace(prefix, readString(buffer)));
+		}
+
+		final long startOffset = buffer.getLong();
+		final long endOffset = buffer.getLong();
+		asParentNode.setNodeLocation(new FileNodeLocation(startOffset, endOffset));
+
+		asParentNode.parsedChildren(buffer.getInt());
+		final int numberOfLoadedChildren = buffer.getInt();
+		for (int i = 0; i < numberOfLoadedChildren; ++i) {
+			element.appendChild(readNode(doc, buffer));
+		}
+
+		return (ChildNode) element;
+	}
+
+	static void writeString(final DataOutputStream out, final String value) throws IOException {
+		if (value == null) {
+			out.writeInt(NULL_STRING);
+			return;
+		}
+
+		final byte[] bytes = value.getBytes(CHARSET);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(final ByteBuffer buffer) {
+		final int length = buffer.getInt();
+		if (length == NULL_STRING) {
+			return null;
+		}
+
+		final byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, CHARSET);
+	}
+
+	/**
+	 * Computes a checksum over the first and last bytes of a file. A checksum over the whole file would take about as
+	 * long as the initial load the index is meant to avoid, size and modification time are part of the key anyway.
+	 */
+	private static long computeChecksum(final File file) throws IOException {
+		final CRC32 crc = new CRC32();
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			final long size = randomAccessFile.length();
+			final byte[] block = new byte[(int) Math.min(size, CHECKSUM_BLOCK_SIZE)];
+
+			randomAccessFile.readFully(block);
+			crc.update(block);
+			randomAccessFile.seek(size - block.length);
+			randomAccessFile.readFully(block);
+			crc.update(block);
+		} finally {
+			randomAccessFile.close();
+		}
+
+		return crc.getValue();
+	}
+}
@@ -0,0 +1,65 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.apache.xerces.dom.ParentNode;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * List of the children of a <code>ParentNode</code> with paged children. Only the page containing the requested item
+ * is loaded, the list holds the most recently requested page.
+ */
+public class PagedChildNodeList implements NodeList {
+
+	/** The parent node. */
+	private final ParentNode parent;
+	/** The parent node's pages. */
+	private final ChildPageTable pages;
+
+	/** Index of the current page, -1 if none. */
+	private int currentPage;
+	/** Children of the current page. */
+	private ChildNodeList currentChildren;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param parent the parent node.
+	 * @param pages the parent node's pages.
+	 */
+	public PagedChildNodeList(final ParentNode parent, final ChildPageTable pages) {
+		checkNotNull(parent, "Argument parent must not be null.");
+		checkNotNull(pages, "Argument pages must not be null.");
+		this.parent = parent;
+		this.pages = pages;
+		this.currentPage = -1;
+		this.currentChildren = null;
+	}
+
+	@Override
+	public Node item(final int index) {
+		// Invalid indices must return null
+		if (index < 0 || index >= getLength()) {
+			return null;
+		}
+
+		if (currentPage == -1 || index < pages.getFirstChildIndex(currentPage)
+				|| index - pages.getFirstChildIndex(currentPage) >= pages.getNumberOfChildren(currentPage)) {
+			currentPage = pages.findPage(index);
+			currentChildren = new ChildNodeList(parent.getChildPage(currentPage));
+		}
+
+		final int indexOnPage = index - pages.getFirstChildIndex(currentPage);
+		if (indexOnPage >= currentChildren.getLength()) {
+			// Some error occurred (most probably while loading the page)
+			return null;
+		}
+		return currentChildren.item(indexOnPage);
+	}
+
+	@Override
+	public int getLength() {
+		return parent.getLength();
+	}
+}
@@ -0,0 +1,442 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.XMLEvent;
+
+import org.apache.xerces.dom.ChildNode;
+import org.apache.xerces.dom.ParentNode;
+import org.codehaus.stax2.ri.evt.Stax2EventAllocatorImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
+import at.ac.tuwien.dsg.scaledom.io.NodeLocationFactory;
+import at.ac.tuwien.dsg.scaledom.io.ReaderFactory;
+import at.ac.tuwien.dsg.scaledom.io.ReaderWithSystemID;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
+import at.ac.tuwien.dsg.scaledom.lazy.LazyLoadingStrategy;
+import at.ac.tuwien.dsg.scaledom.parser.XmlEventCursor;
+import at.ac.tuwien.dsg.scaledom.parser.XmlEventLocation;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParser;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParserCursorListener;
+import at.ac.tuwien.dsg.scaledom.util.ComponentFactory;
+import at.ac.tuwien.dsg.scaledom.util.CompositeReader;
+import at.ac.tuwien.dsg.scaledom.util.StructureScanner;
+
+import com.google.common.base.Charsets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Initial load process, which uses multiple threads for file-based documents.<br/>
+ * First, the file's structure is scanned in parallel by a <code>StructureScanner</code>, which determines the content
+ * range of the document element and offsets of its direct children. Second, the document is loaded without the
+ * content of the document element (the "skeleton"). Third, the content is split into ranges at the offsets of direct
+ * children, each range is loaded concurrently into a temporary container (using a fake root element, just like
+ * reloading does). Finally, the loaded children and their counts are moved to the document element in order. The
+ * result is the same DOM as loaded by a single-threaded initial load process.<br/>
+ * Restrictions: the <code>XmlParser</code> must be thread-safe, the <code>LazyLoadingStrategy</code> must base its
+ * decision on the depth of an event only, the document encoding must be ASCII-compatible (single-byte or UTF-8) and the
+ * document must not contain a document type declaration with internal subset. Documents violating the latter two
+ * restrictions are loaded by the single-threaded initial load process.
+ */
+public class ParallelInitialLoad {
+
+	/** Logger. */
+	private final static Logger log = LoggerFactory.getLogger(ParallelInitialLoad.class);
+
+	/** Minimum size of a chunk in bytes, smaller documents are split into fewer chunks. */
+	private final static long MIN_CHUNK_SIZE = 8 * 1024 * 1024;
+	/** Maximum size of a chunk in bytes. */
+	private final static long MAX_CHUNK_SIZE = 1024 * 1024 * 1024;
+	/** Number of chunks per thread, more chunks result in a better load balancing. */
+	private final static int CHUNKS_PER_THREAD = 4;
+	/** Characters which must be encoded as their ASCII byte in order to scan the encoded document. */
+	private final static String MARKUP_CHARACTERS = "<>/!?-[]\"'= \t\r\nazAZ09";
+
+	private final ScaleDomDocument doc;
+	private final FileDocumentSource source;
+	private final XmlParser parser;
+	private final ComponentFactory componentFactory;
+	private final int numberOfThreads;
+
+	/** Scanned document structure. */
+	private StructureScanner.Structure structure;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param doc the document to be loaded.
+	 * @param source the underlying document source.
+	 * @param parser a reusable, thread-safe XmlParser.
+	 * @param componentFactory a factory for creating required components.
+	 * @param numberOfThreads the number of threads to be used.
+	 */
+	public ParallelInitialLoad(final ScaleDomDocument doc, final FileDocumentSource source, final XmlParser parser,
+			final ComponentFactory componentFactory, final int numberOfThreads) {
+		checkNotNull(doc, "Argument doc must not be null.");
+		checkNotNull(source, "Argument source must not be null.");
+		checkNotNull(parser, "Argument parser must not be null.");
+		checkNotNull(componentFactory, "Argument componentFactory must not be null.");
+		checkArgument(numberOfThreads > 0, "Expected numberOfThreads to be positive, but %s is not.", numberOfThreads);
+
+		this.doc = doc;
+		this.source = source;
+		this.parser = parser;
+		this.componentFactory = componentFactory;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * Scans the document's structure. The document is not modified.
+	 *
+	 * @return true if the document can be loaded in parallel, false if the single-threaded initial load process has to
+	 *         be used.
+	 * @throws IOException If some I/O error occurs.
+	 */
+	public boolean scan() throws IOException {
+		if (!isScannable(source.getEncoding())) {
+			log.debug("Encoding " + source.getEncoding() + " is not supported by the structure scanner.");
+			return false;
+		}
+
+		final long fileSize = source.getFile().length();
+		final long numberOfChunks = Math.max(Math.min((long) numberOfThreads * CHUNKS_PER_THREAD, fileSize
+				/ MIN_CHUNK_SIZE), (fileSize + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+		if (numberOfChunks < 2) {
+			log.debug("Document is too small to be loaded in parallel.");
+			return false;
+		}
+
+		final ExecutorService executor = newExecutor();
+		try {
+			structure = StructureScanner.scan(source.getFile(), executor, (int) numberOfChunks);
+		} finally {
+			executor.shutdown();
+		}
+
+		if (structure == null || structure.getSplitOffsets().length == 0) {
+			log.debug("Document structure does not allow loading in parallel.");
+			return false;
+		}
+
+		log.debug("Scanned document structure, content of the document element is split into "
+				+ (structure.getSplitOffsets().length + 1) + " ranges.");
+		return true;
+	}
+
+	/**
+	 * Loads the document, {@link #scan()} has to be called before.
+	 *
+	 * @return true if loading succeeded, false if it has been aborted.
+	 * @throws IOException If some I/O error occurs.
+	 * @throws SAXException If some parse error occurs.
+	 * @throws InstantiationException If the component factory failed to instantiate necessary components.
+	 */
+	public boolean load() throws IOException, SAXException, InstantiationException {
+		checkArgument(structure != null, "Document structure has not been scanned.");
+
+		// Load skeleton, i.e. everything except the content of the document element
+		final SkeletonListener skeleton = loadSkeleton();
+		if (!skeleton.ok || skeleton.rootStartElement == null) {
+			return skeleton.ok;
+		}
+
+		final ParentNode documentElement = (ParentNode) doc.getDocumentElement();
+		final ParentNode target = documentElement != null ? documentElement : doc;
+		final String fakeElementStart = "<ScaleDOM " + doc.buildNamespaceDeclarations(documentElement) + ">";
+
+		// Load content ranges concurrently
+		final long[] boundaries = getRangeBoundaries();
+		final List<Future<RangeResult>> futures = new ArrayList<Future<RangeResult>>();
+		final ExecutorService executor = newExecutor();
+		try {
+			for (int i = 0; i + 1 < boundaries.length; ++i) {
+				final long rangeStart = boundaries[i];
+				final long rangeEnd = boundaries[i + 1];
+				futures.add(executor.submit(new Callable<RangeResult>() {
+					@Override
+					public RangeResult call() throws Exception {
+						doc.setLoading(true);
+						try {
+							return loadRange(rangeStart, rangeEnd, fakeElementStart, skeleton);
+						} finally {
+							doc.setLoading(false);
+						}
+					}
+				}));
+			}
+
+			final List<RangeResult> results = new ArrayList<RangeResult>();
+			for (final Future<RangeResult> future : futures) {
+				results.add(getResult(future));
+			}
+
+			// Move loaded children to the document element, in document order
+			final ChildList targetChildren = target.getInitialChildNodes();
+			boolean ok = true;
+			long numberOfCreatedNodes = skeleton.process.getNumberOfCreatedNodes();
+			for (final RangeResult result : results) {
+				target.parsedChildren(result.container.getLength());
+				for (final ChildNode child : new ArrayList<ChildNode>(result.children)) {
+					target.appendChild(child);
+				}
+				if (skeleton.elementNames != null) {
+					skeleton.elementNames.addAll(result.elementNames);
+				}
+				if (skeleton.ids != null) {
+					skeleton.ids.addAll(result.ids);
+				}
+				ok &= result.ok;
+				numberOfCreatedNodes += result.numberOfCreatedNodes;
+			}
+			if (ok && skeleton.elementNames != null) {
+				doc.setElementNameIndex(skeleton.elementNames.build());
+			}
+			if (ok && skeleton.ids != null) {
+				doc.setIdIndex(skeleton.ids);
+			}
+
+			doc.getMetrics().initialLoadCreatedNodes(numberOfCreatedNodes);
+			log.debug("Finished parallel initial loading of " + results.size() + " ranges, created "
+					+ numberOfCreatedNodes + " nodes, " + targetChildren.size() + " children of the document element.");
+			return ok;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Loads the document without the content of the document element. The resulting gap within the parser's input
+	 * has to be added to all locations following it.
+	 */
+	private SkeletonListener loadSkeleton() throws IOException, SAXException, InstantiationException {
+		final long gapStart = structure.getRootContentStart();
+		final long gapLength = structure.getRootEndTagStart() - gapStart;
+		final long fileSize = source.getFile().length();
+
+		final ReaderFactory headFactory = doc.newReaderFactory();
+		final ReaderFactory tailFactory = doc.newReaderFactory();
+		Reader reader = null;
+		LoadProcess process = null;
+		try {
+			final Reader head = headFactory.newReaderForLocation(new FileNodeLocation(0, gapStart));
+			final Reader tail = tailFactory.newReaderForLocation(new FileNodeLocation(gapStart + gapLength, fileSize));
+			reader = new ReaderWithSystemID(source.getFile().toURI().toString(), new CompositeReader(head, tail),
+					source.getEncoding());
+
+			// The head reader starts at offset 0, therefore headFactory converts all locations
+			final NodeLocationFactory nodeLocationFactory = new NodeLocationFactory() {
+				@Override
+				public NodeLocation eventLocationToNodeLocation(final XmlEventLocation location,
+						final long additionalOffset) {
+					final boolean afterGap = location.getStartingOffset() >= gapStart;
+					return headFactory.eventLocationToNodeLocation(location, afterGap ? additionalOffset - gapLength
+							: additionalOffset);
+				}
+			};
+
+			final LazyLoadingStrategy strategy = componentFactory.getNewInstance(LazyLoadingStrategy.class, 0);
+			process = new LoadProcess(doc, doc, LoadType.INITIAL, strategy, nodeLocationFactory);
+			final SkeletonListener listener = new SkeletonListener(process);
+			if (doc.isElementNameIndexEnabled()) {
+				// The elements of all ranges are added to the skeleton's, which contain the document element only
+				listener.elementNames = new ElementNameIndex.Builder();
+				process.recordElementNames(listener.elementNames);
+			}
+			if (doc.getIdAttributeNames() != null) {
+				listener.ids = new IdIndex();
+				process.recordIds(listener.ids, doc.getIdAttributeNames());
+			}
+			listener.ok = parser.parse(reader, listener);
+			return listener;
+		} finally {
+			if (process != null) {
+				process.close();
+			}
+			if (reader != null) {
+				reader.close();
+			}
+			headFactory.close();
+			tailFactory.close();
+		}
+	}
+
+	/**
+	 * Loads the given range of the document element's content into a temporary container.
+	 */
+	private RangeResult loadRange(final long rangeStart, final long rangeEnd, final String fakeElementStart,
+			final SkeletonListener skeleton) throws IOException, SAXException, InstantiationException {
+		final String fakeElementEnd = "</ScaleDOM>";
+		final String encoding = source.getEncoding();
+		final long additionalOffset = parser.isProvidingByteLocations() ? fakeElementStart.getBytes(encoding).length
+				: fakeElementStart.length();
+
+		// Bring the strategy into the same state as if it had processed the document from the beginning
+		final LazyLoadingStrategy strategy = componentFactory.getNewInstance(LazyLoadingStrategy.class, 0);
+		if (skeleton.startDocument != null) {
+			strategy.shouldLoad(XMLStreamConstants.START_DOCUMENT, new XmlEventCursor(skeleton.startDocument));
+		}
+		strategy.shouldLoad(XMLStreamConstants.START_ELEMENT, new XmlEventCursor(skeleton.rootStartElement));
+
+		final RangeResult result = new RangeResult();
+		result.container = (ParentNode) doc.createDocumentFragment();
+		result.container.setNodeLocation(new FileNodeLocation(rangeStart, rangeEnd));
+		result.children = result.container.getInitialChildNodes();
+
+		final ReaderFactory readerFactory = doc.newReaderFactory();
+		Reader reader = null;
+		LoadProcess process = null;
+		try {
+			final Reader readerForRange = readerFactory.newReaderForLocation(new FileNodeLocation(rangeStart,
+					rangeEnd));
+			reader = new ReaderWithSystemID(source.getFile().toURI().toString(), new CompositeReader(new StringReader(
+					fakeElementStart), readerForRange, new StringReader(fakeElementEnd)), encoding);
+
+			final int elementsToSkip = 2; // StartDocument, StartElement for fakeElementStart
+			process = new LoadProcess(doc, result.container, LoadType.INITIAL, strategy, readerFactory,
+					elementsToSkip, additionalOffset);
+			if (skeleton.elementNames != null) {
+				result.elementNames = new ElementNameIndex.Builder();
+				process.recordElementNames(result.elementNames);
+			}
+			if (skeleton.ids != null) {
+				result.ids = new IdIndex();
+				process.recordIds(result.ids, doc.getIdAttributeNames());
+			}
+			result.ok = parser.parse(reader, process);
+			result.numberOfCreatedNodes = process.getNumberOfCreatedNodes();
+			return result;
+		} finally {
+			if (process != null) {
+				process.close();
+			}
+			if (reader != null) {
+				reader.close();
+			}
+			readerFactory.close();
+		}
+	}
+
+	private long[] getRangeBoundaries() {
+		final long[] splitOffsets = structure.getSplitOffsets();
+		final long[] boundaries = new long[splitOffsets.length + 2];
+		boundaries[0] = structure.getRootContentStart();
+		System.arraycopy(splitOffsets, 0, boundaries, 1, splitOffsets.length);
+		boundaries[boundaries.length - 1] = structure.getRootEndTagStart();
+		return boundaries;
+	}
+
+	private ExecutorService newExecutor() {
+		return Executors.newFixedThreadPool(numberOfThreads, new ThreadFactoryBuilder().setDaemon(true)
+				.setNameFormat("ScaleDOM-InitialLoad-%d").build());
+	}
+
+	private boolean isScannable(final String encoding) {
+		final Charset charset = Charset.forName(encoding);
+		if (charset.equals(Charsets.UTF_8)) {
+			// Character offsets of a UTF-8 document do not equal byte offsets
+			return parser.isProvidingByteLocations();
+		}
+
+		// Character offsets equal byte offsets only for single-byte encodings
+		final CharsetEncoder encoder = charset.newEncoder();
+		if (encoder.maxBytesPerChar() != 1.0f || !encoder.canEncode(MARKUP_CHARACTERS)) {
+			return false;
+		}
+		return Arrays.equals(MARKUP_CHARACTERS.getBytes(charset), MARKUP_CHARACTERS.getBytes(Charsets.US_ASCII));
+	}
+
+	private static <T> T getResult(final Future<T> future) throws IOException, SAXException, InstantiationException {
+		try {
+			return future.get();
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading.", ex);
+		} catch (final ExecutionException ex) {
+			final Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof SAXException) {
+				throw (SAXException) cause;
+			} else if (cause instanceof InstantiationException) {
+				throw (InstantiationException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException("Loading failed.", cause);
+		}
+	}
+
+	/**
+	 * Forwards events to the skeleton's load process, remembers the events required to initialize the strategies of
+	 * all range load processes. These are the only events materialized as objects.
+	 */
+	private static class SkeletonListener implements XmlParserCursorListener {
+
+		private final LoadProcess process;
+		private boolean ok;
+		private XMLEvent startDocument;
+		private XMLEvent rootStartElement;
+		/** Recorded element names, null if element names are not indexed. */
+		private ElementNameIndex.Builder elementNames;
+		/** Recorded IDs, null if IDs are not indexed. */
+		private IdIndex ids;
+
+		SkeletonListener(final LoadProcess process) {
+			this.process = process;
+		}
+
+		@Override
+		public boolean process(final int eventType, final long startingOffset, final XMLStreamReader cursor) {
+			try {
+				if (eventType == XMLStreamConstants.START_DOCUMENT && startDocument == null) {
+					startDocument = new Stax2EventAllocatorImpl().allocate(cursor);
+				} else if (eventType == XMLStreamConstants.START_ELEMENT && rootStartElement == null) {
+					rootStartElement = new Stax2EventAllocatorImpl().allocate(cursor);
+				}
+			} catch (final XMLStreamException ex) {
+				log.error("Failed to record an event of type '" + eventType + "'.", ex);
+				return ABORT_PARSING;
+			}
+
+			return process.process(eventType, startingOffset, cursor);
+		}
+	}
+
+	/**
+	 * Result of a range load process.
+	 */
+	private static class RangeResult {
+
+		private ParentNode container;
+		/** Strong reference to the loaded children of the container. */
+		private ChildList children;
+		private boolean ok;
+		private long numberOfCreatedNodes;
+		/** Recorded element names, null if element names are not indexed. */
+		private ElementNameIndex.Builder elementNames;
+		/** Recorded IDs, null if IDs are not indexed. */
+		private IdIndex ids;
+	}
+}
@@ -0,0 +1,301 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ascending list of offsets within a document source, e.g. of the start offsets of all elements with the same name.<br/>
+ * Offsets are stored as variable-length deltas, the first offset of every block of 64 entries is stored as it is, such
+ * that an entry is decoded by skipping at most 63 deltas. The deltas between the offsets of nearby elements mostly take
+ * one or two bytes.
+ */
+public class PostingList {
+
+	/** Number of entries per block, as a power of two. */
+	private final static int BLOCK_SHIFT = 6;
+	private final static int BLOCK_MASK = (1 << BLOCK_SHIFT) - 1;
+	/** Initial capacity of the deltas while recording. */
+	private final static int INITIAL_CAPACITY = 64;
+
+	/** Variable-length deltas of all entries which do not start a block. */
+	private byte[] deltas;
+	/** Number of used bytes of deltas. */
+	private int deltasLength;
+	/** First offset of each block. */
+	private long[] blockOffsets;
+	/** Position within deltas of the second entry of each block. */
+	private int[] blockPositions;
+	/** Number of entries. */
+	private int size;
+	/** Last added offset. */
+	private long lastOffset;
+
+	/**
+	 * Default constructor, creates an empty list.
+	 */
+	PostingList() {
+		deltas = new byte[INITIAL_CAPACITY];
+		deltasLength = 0;
+		blockOffsets = new long[1];
+		blockPositions = new int[1];
+		size = 0;
+		lastOffset = -1;
+	}
+
+	/**
+	 * Appends an offset.
+	 *
+	 * @param offset the offset, greater than all offsets added before.
+	 */
+	void add(final long offset) {
+		checkArgument(offset > lastOffset, "Expected offsets in ascending order, but %s follows %s.", offset,
+				lastOffset);
+
+		if ((size & BLOCK_MASK) == 0) {
+			final int block = size >>> BLOCK_SHIFT;
+			if (block == blockOffsets.length) {
+				blockOffsets = Arrays.copyOf(blockOffsets, Math.max(block * 2, 1));
+				blockPositions = Arrays.copyOf(blockPositions, Math.max(block * 2, 1));
+			}
+			blockOffsets[block] = offset;
+			blockPositions[block] = deltasLength;
+		} else {
+			writeDelta(offset - lastOffset);
+		}
+
+		lastOffset = offset;
+		++size;
+	}
+
+	/**
+	 * Appends all offsets of another list.
+	 *
+	 * @param other the list, its first offset has to be greater than the last offset of this list.
+	 */
+	void addAll(final PostingList other) {
+		final Cursor cursor = other.new Cursor();
+		while (cursor.hasNext()) {
+			add(cursor.next());
+		}
+	}
+
+	/**
+	 * Releases the spare capacity, once all offsets have been added.
+	 */
+	void trim() {
+		final int numberOfBlocks = (size + BLOCK_MASK) >>> BLOCK_SHIFT;
+		deltas = Arrays.copyOf(deltas, deltasLength);
+		blockOffsets = Arrays.copyOf(blockOffsets, numberOfBlocks);
+		blockPositions = Arrays.copyOf(blockPositions, numberOfBlocks);
+	}
+
+	/**
+	 * Returns the number of offsets.
+	 *
+	 * @return the number of offsets.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns an offset.
+	 *
+	 * @param index the index of the offset.
+	 * @return the offset.
+	 */
+	public long get(final int index) {
+		checkElementIndex(index, size);
+
+		final int block = index >>> BLOCK_SHIFT;
+		long offset = blockOffsets[block];
+		int position = blockPositions[block];
+		for (int i = index & BLOCK_MASK; i > 0; --i) {
+			long delta = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = deltas[position++];
+				delta |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			offset += delta;
+		}
+		return offset;
+	}
+
+	/**
+	 * Returns the index of the first offset which is greater than or equal to the given offset.
+	 *
+	 * @param offset the offset.
+	 * @return the index, size() if all offsets are less than the given offset.
+	 */
+	public int lowerBound(final long offset) {
+		final int numberOfBlocks = (size + BLOCK_MASK) >>> BLOCK_SHIFT;
+		if (numberOfBlocks == 0 || blockOffsets[0] >= offset) {
+			return 0;
+		}
+
+		// Find the last block starting before offset, the searched index is within that block or starts the next one
+		int low = 0;
+		int high = numberOfBlocks - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (blockOffsets[mid] < offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		final Cursor cursor = new Cursor(low);
+		int index = low << BLOCK_SHIFT;
+		while (cursor.hasNext() && cursor.next() < offset) {
+			++index;
+		}
+		return index;
+	}
+
+	/**
+	 * Merges lists into a new list.
+	 *
+	 * @param lists the lists, which must not share any offsets.
+	 * @return the merged list.
+	 */
+	static PostingList merge(final List<PostingList> lists) {
+		final Cursor[] cursors = new Cursor[lists.size()];
+		final long[] heads = new long[cursors.length];
+		for (int i = 0; i < cursors.length; ++i) {
+			cursors[i] = lists.get(i).new Cursor();
+			heads[i] = cursors[i].hasNext() ? cursors[i].next() : Long.MAX_VALUE;
+		}
+
+		// Lists are merged by a linear scan over their heads, queries match only few names apart from wildcards
+		final PostingList merged = new PostingList();
+		while (true) {
+			int min = -1;
+			for (int i = 0; i < heads.length; ++i) {
+				if (heads[i] != Long.MAX_VALUE && (min == -1 || heads[i] < heads[min])) {
+					min = i;
+				}
+			}
+			if (min == -1) {
+				break;
+			}
+			merged.add(heads[min]);
+			heads[min] = cursors[min].hasNext() ? cursors[min].next() : Long.MAX_VALUE;
+		}
+		merged.trim();
+		return merged;
+	}
+
+	/**
+	 * Writes the list, see <code>read(ByteBuffer)</code>.
+	 *
+	 * @param out the output stream.
+	 * @throws IOException If the list could not be written.
+	 */
+	void write(final DataOutputStream out) throws IOException {
+		final int numberOfBlocks = (size + BLOCK_MASK) >>> BLOCK_SHIFT;
+		out.writeInt(size);
+		out.writeLong(lastOffset);
+		out.writeInt(deltasLength);
+		out.write(deltas, 0, deltasLength);
+		for (int i = 0; i < numberOfBlocks; ++i) {
+			out.writeLong(blockOffsets[i]);
+			out.writeInt(blockPositions[i]);
+		}
+	}
+
+	/**
+	 * Reads a list written by <code>write(DataOutputStream)</code>.
+	 *
+	 * @param buffer the buffer, positioned at the beginning of the list.
+	 * @return the list.
+	 */
+	static PostingList read(final ByteBuffer buffer) {
+		final PostingList list = new PostingList();
+		list.size = buffer.getInt();
+		list.lastOffset = buffer.getLong();
+		list.deltasLength = buffer.getInt();
+		list.deltas = new byte[list.deltasLength];
+		buffer.get(list.deltas);
+
+		final int numberOfBlocks = (list.size + BLOCK_MASK) >>> BLOCK_SHIFT;
+		list.blockOffsets = new long[numberOfBlocks];
+		list.blockPositions = new int[numberOfBlocks];
+		for (int i = 0; i < numberOfBlocks; ++i) {
+			list.blockOffsets[i] = buffer.getLong();
+			list.blockPositions[i] = buffer.getInt();
+		}
+		return list;
+	}
+
+	private void writeDelta(long delta) {
+		if (deltasLength + 10 > deltas.length) {
+			deltas = Arrays.copyOf(deltas, Math.max(deltas.length * 2, deltasLength + 10));
+		}
+		while ((delta & ~0x7FL) != 0) {
+			deltas[deltasLength++] = (byte) ((delta & 0x7F) | 0x80);
+			delta >>>= 7;
+		}
+		deltas[deltasLength++] = (byte) delta;
+	}
+
+	/**
+	 * Decodes the offsets of the list sequentially.
+	 */
+	class Cursor {
+
+		/** Index of the next entry. */
+		private int index;
+		/** Position within deltas of the next entry's delta. */
+		private int position;
+		/** Offset of the previous entry. */
+		private long offset;
+
+		/**
+		 * Creates a cursor at the beginning of the list.
+		 */
+		Cursor() {
+			this(0);
+		}
+
+		/**
+		 * Creates a cursor at the beginning of a block.
+		 */
+		Cursor(final int block) {
+			this.index = block << BLOCK_SHIFT;
+		}
+
+		boolean hasNext() {
+			return index < size;
+		}
+
+		long next() {
+			if ((index & BLOCK_MASK) == 0) {
+				final int block = index >>> BLOCK_SHIFT;
+				offset = blockOffsets[block];
+				position = blockPositions[block];
+			} else {
+				long delta = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = deltas[position++];
+					delta |= (long) (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				offset += delta;
+			}
+			++index;
+			return offset;
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package at.ac.tuwien.dsg.scaledom.dom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.xerces.dom.ParentNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
+
+/**
+ * Loads the children of the next siblings of a node in the background, when the user accesses the children of
+ * siblings in document order (e.g. a <code>DOMTraverser</code> walking records). Accesses are grouped into streams by
+ * the parent of the accessed nodes, so that a depth-first traversal still forms one stream per level.<br/>
+ * Each stream reads ahead a window of siblings. The window grows by one whenever the user accesses a node whose
+ * children have been loaded ahead (a hit) and is halved whenever loaded children are not used, or not in time (a
+ * waste).
+ */
+public class ReadAheadPrefetcher {
+
+	/** Logger. */
+	private final static Logger log = LoggerFactory.getLogger(ReadAheadPrefetcher.class);
+
+	/** Number of consecutive accesses in document order which start reading ahead. */
+	private final static int SEQUENTIAL_ACCESSES = 2;
+	/** Maximum number of tracked streams, the least recently accessed one is dropped. */
+	private final static int MAX_STREAMS = 16;
+
+	private final AsyncChildLoader loader;
+	private final int maxWindow;
+
+	/** Streams by the parent of the accessed nodes, in access order. */
+	private final Map<Node, Stream> streams;
+
+	private long prefetchCount;
+	private long hitCount;
+	private long wasteCount;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param loader the loader whose worker threads load children ahead.
+	 * @param maxWindow the maximum number of siblings loaded ahead per stream.
+	 */
+	public ReadAheadPrefetcher(final AsyncChildLoader loader, final int maxWindow) {
+		checkNotNull(loader, "Argument loader must not be null.");
+		checkArgument(maxWindow > 0, "Expected maxWindow to be positive, but %s is not.", maxWindow);
+
+		this.loader = loader;
+		this.maxWindow = maxWindow;
+		this.streams = new LinkedHashMap<Node, Stream>(MAX_STREAMS, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Node, Stream> eldest) {
+				if (size() > MAX_STREAMS) {
+					eldest.getValue().restart();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Called by the document whenever the user accesses the children of a node.
+	 *
+	 * @param node the node.
+	 * @param hit true if the children were already loaded, false if they had to be (re)loaded.
+	 */
+	public synchronized void accessed(final ParentNode node, final boolean hit) {
+		final Node parent = node.getParentNode();
+		final long offset = getStartOffset(node);
+		if (parent == null || offset == -1) {
+			return;
+		}
+
+		Stream stream = streams.get(parent);
+		if (stream == null) {
+			stream = new Stream();
+			streams.put(parent, stream);
+		}
+		if (node == stream.last) {
+			// Accessed again, e.g. getFirstChild() after hasChildNodes()
+			return;
+		}
+
+		if (stream.last != null && offset > stream.lastOffset) {
+			++stream.sequentialAccesses;
+		} else {
+			stream.restart();
+		}
+		stream.last = node;
+		stream.lastOffset = offset;
+
+		// Account for the siblings loaded ahead up to the accessed node
+		while (!stream.loadedAhead.isEmpty() && getStartOffset(stream.loadedAhead.peekFirst()) <= offset) {
+			if (stream.loadedAhead.pollFirst() == node && hit) {
+				++hitCount;
+				stream.window = Math.min(stream.window + 1, maxWindow);
+			} else {
+				++wasteCount;
+				stream.window = Math.max(stream.window / 2, 1);
+			}
+		}
+
+		if (stream.sequentialAccesses >= SEQUENTIAL_ACCESSES && !stream.reading
+				&& stream.loadedAhead.size() < stream.window) {
+			final ParentNode start = stream.loadedAhead.isEmpty() ? node : stream.loadedAhead.peekLast();
+			readAhead(stream, start, stream.window - stream.loadedAhead.size());
+		}
+	}
+
+	/**
+	 * Loads the children of the next siblings of a node on a worker thread.
+	 */
+	private void readAhead(final Stream stream, final ParentNode start, final int count) {
+		stream.reading = true;
+		final int generation = stream.generation;
+
+		loader.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					int loaded = 0;
+					Node sibling = start.getNextSibling();
+					while (sibling != null && loaded < count) {
+						if (sibling instanceof ParentNode && sibling.hasChildNodes()) {
+							synchronized (ReadAheadPrefetcher.this) {
+								if (stream.generation != generation) {
+									// The user left the stream meanwhile
+									return;
+								}
+								stream.loadedAhead.addLast((ParentNode) sibling);
+								++prefetchCount;
+							}
+							AsyncChildLoader.loadNow(sibling);
+							++loaded;
+						}
+						sibling = sibling.getNextSibling();
+					}
+				} catch (final RuntimeException ex) {
+					log.warn("Reading ahead failed.", ex);
+				} finally {
+					synchronized (ReadAheadPrefetcher.this) {
+						stream.reading = false;
+					}
+				}
+			}
+		});
+	}
+
+	private long getStartOffset(final ParentNode node) {
+		final NodeLocation location = node.getNodeLocation();
+		return location instanceof FileNodeLocation ? ((FileNodeLocation) location).getStartOffset() : -1;
+	}
+
+	/**
+	 * Returns the number of nodes whose children have been loaded ahead.
+	 *
+	 * @return the number of prefetches.
+	 */
+	public synchronized long getPrefetchCount() {
+		return prefetchCount;
+	}
+
+	/**
+	 * Returns the number of accesses to children which have been loaded ahead in time.
+	 *
+	 * @return the number of hits.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of nodes whose children have been loaded ahead, but have not been used or had to be loaded
+	 * again by the user.
+	 *
+	 * @return the number of wasted prefetches.
+	 */
+	public synchronized long getWasteCount() {
+		return wasteCount;
+	}
+
+	/**
+	 * Accesses to the children of siblings sharing a parent.
+	 */
+	private class Stream {
+
+		/** The last accessed sibling. */
+		private ParentNode last;
+		/** Offset of the last accessed sibling. */
+		private long lastOffset;
+		/** Number of consecutive accesses in document order. */
+		private int sequentialAccesses;
+		/** Number of siblings to be loaded ahead. */
+		private int window = 1;
+		/** Siblings which have been loaded ahead and not been accessed yet, in document order. */
+		private final Deque<ParentNode> loadedAhead = new ArrayDeque<ParentNode>();
+		/** Flag whether a worker thread is currently reading ahead. */
+		private boolean reading;
+		/** Incremented on restart, stops a worker thread reading ahead for the previous generation. */
+		private int generation;
+
+		/**
+		 * Restarts the stream after an access out of document order, siblings loaded ahead are wasted.
+		 */
+		private void restart() {
+			wasteCount += loadedAhead.size();
+			if (!loadedAhead.isEmpty()) {
+				window = Math.max(window / 2, 1);
+			}
+			loadedAhead.clear();
+			sequentialAccesses = 0;
+			++generation;
+		}
+	}
+}
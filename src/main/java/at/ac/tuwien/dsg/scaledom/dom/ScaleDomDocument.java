@@ -2,38 +2,69 @@ package at.ac.tuwien.dsg.scaledom.dom;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.lang.ref.ReferenceQueue;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
 
 import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Namespace;
 
-import org.apache.xerces.dom.ChildNode;
+import org.apache.xerces.dom.DeepNodeListImpl;
 import org.apache.xerces.dom.DocumentImpl;
 import org.apache.xerces.dom.ParentNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentSource;
+import at.ac.tuwien.dsg.scaledom.ScaleDomSettings;
+import at.ac.tuwien.dsg.scaledom.cache.NodeCacheManager;
 import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
 import at.ac.tuwien.dsg.scaledom.io.ReaderFactory;
+import at.ac.tuwien.dsg.scaledom.io.ReaderWithSystemID;
+import at.ac.tuwien.dsg.scaledom.io.SkippedRanges;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
 import at.ac.tuwien.dsg.scaledom.lazy.LazyLoadingStrategy;
+import at.ac.tuwien.dsg.scaledom.parser.XmlEventByteLocation;
+import at.ac.tuwien.dsg.scaledom.parser.XmlEventCharLocation;
 import at.ac.tuwien.dsg.scaledom.parser.XmlParser;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParserCursorListener;
 import at.ac.tuwien.dsg.scaledom.util.ComponentFactory;
 import at.ac.tuwien.dsg.scaledom.util.CompositeReader;
 import at.ac.tuwien.dsg.scaledom.util.DOMUtils;
 import at.ac.tuwien.dsg.scaledom.util.ReferenceQueueLogThread;
+import at.ac.tuwien.dsg.scaledom.util.Utils;
+import at.ac.tuwien.dsg.scaledom.util.jfr.FlightRecorderEvents;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Striped;
 
 /**
  * TODO: Class documentation.
@@ -51,36 +82,97 @@ public class ScaleDomDocument extends DocumentImpl implements ScaleDomDocumentIn
 	/** Log message template for unloaded objects. */
 	private final static String UNLOAD_LOG_MESSAGE = "Children of '%s' have been unloaded.";
 
+	/** Name of the fake root element wrapping parts of the document source. */
+	private final static String FAKE_ELEMENT_NAME = "ScaleDOM";
+
+	/** Number of load locks shared by all parent nodes, if concurrent reads are enabled. */
+	private final static int LOAD_LOCK_STRIPES = 256;
+	/** Maximum number of bytes between siblings whose children are reloaded by a single read. */
+	private final static long MAX_COALESCED_GAP = 64 * 1024;
+
 	/** Underlying source. */
 	private final ScaleDomDocumentSource source;
 	/** Reusable XmlParser. */
 	private final XmlParser parser;
 	/** Reusable ComponentFactory. */
 	private final ComponentFactory componentFactory;
-	/** Reusable ReaderFactory. */
-	private final ReaderFactory readerFactory;
+	/** Idle ReaderFactories, every load borrows one of its own, as a ReaderFactory serves one reader at a time. */
+	private final Queue<ReaderFactory> readerFactories;
+	/** All ReaderFactories created for this document, idle or borrowed. */
+	private final List<ReaderFactory> allReaderFactories;
+	/** Persistent offset index, null if not used. */
+	private final OffsetIndex offsetIndex;
+	/** Number of threads used for the initial load. */
+	private final int initialLoadThreads;
+	/** Cache manager deciding which children lists are kept in memory. */
+	private final NodeCacheManager nodeCacheManager;
+	/** Nominal number of children per page, 0 if children are not paged. */
+	private final int childPageSize;
+	/** Locks serializing the loads of each parent node's children, null if concurrent reads are disabled. */
+	private final Striped<Lock> loadLocks;
+	/** Loader of children in the background. */
+	private final AsyncChildLoader asyncChildLoader;
+	/** Loader of children ahead of sequential accesses, null if reading ahead is disabled. */
+	private final ReadAheadPrefetcher readAheadPrefetcher;
+	/** Whether the element names are indexed by the initial load. */
+	private final boolean useElementNameIndex;
+	/** Element names recorded by the initial load, null if not indexed or if the document has been modified. */
+	private volatile ElementNameIndex elementNameIndex;
+	/** Local names of the attributes indexed as IDs by the initial load, null if IDs are not indexed. */
+	private final Set<String> idAttributeNames;
+	/** IDs recorded by the initial load, null if not indexed or if the document has been modified. */
+	private volatile IdIndex idIndex;
+	/** Flag whether the document has been modified by the user since the initial load. */
+	private volatile boolean modified;
+	/** Canonical names of the loaded nodes. */
+	private final NamePool namePool;
+	/** Whether load processes create text nodes which read their data from the document source, see LazyText. */
+	private final boolean lazyText;
+	/** Number of bytes per character of the document encoding, 0 for UTF-8, -1 if lazy text is not supported. */
+	private final int textBytesPerCharacter;
+	/**
+	 * Flag whether the source ranges of lazy text nodes may contain references and line breaks to be resolved. Not the
+	 * case if the parser coalesces CDATA sections or drops comments (the ranges would contain markup) and once a
+	 * document type declaration has been parsed (the ranges may reference entities declared by it).
+	 */
+	private volatile boolean lazyTextResolvable;
 
 	/**
 	 * Strong references to children lists which should never be unloaded:
 	 * <ul>
-	 * <li>Root level: the level of the XML's document element.</li>
+	 * <li>Root level: the level of the XML's document element (not its children, which may be paged).</li>
 	 * <li>All levels with modified nodes.</li>
 	 * </ul>
+	 * Compared by identity, as <code>List.equals</code> compares the contained nodes.
 	 */
-	private final List<LinkedList<ChildNode>> persistentChildrenLists;
+	private final Set<ChildList> persistentChildrenLists;
 	/** Reference queue for logging unloaded children. */
-	private final ReferenceQueue<LinkedList<ChildNode>> unloadQueue;
+	private final ReferenceQueue<Object> unloadQueue;
+	/** Thread logging and counting the unloaded children of the unload queue. */
+	private final ReferenceQueueLogThread unloadQueueLogThread;
+	/** Metrics of this document. */
+	private final DocumentMetrics metrics;
 
 	/**
 	 * Flag whether the document is consistent, if not, some requested children have not been loaded (e.g. due to memory
 	 * shortage) and the DOM is incomplete.
 	 */
-	private boolean consistent;
+	private volatile boolean consistent;
 
 	/** Current load type. */
-	private LoadType loadType;
-	/** Flag whether the document is currently loading nodes. */
-	private boolean isLoading;
+	private volatile LoadType loadType;
+	/** Flag whether the current thread is loading nodes. */
+	private final ThreadLocal<Boolean> loading;
+
+	/**
+	 * Calls this(source, parser, componentFactory, new ScaleDomSettings()).
+	 * 
+	 * @see #ScaleDomDocument(ScaleDomDocumentSource, XmlParser, ComponentFactory, ScaleDomSettings)
+	 */
+	public ScaleDomDocument(final ScaleDomDocumentSource source, final XmlParser parser,
+			final ComponentFactory componentFactory) throws InstantiationException {
+		this(source, parser, componentFactory, new ScaleDomSettings());
+	}
 
 	/**
 	 * Default constructor.
@@ -88,32 +180,164 @@ public class ScaleDomDocument extends DocumentImpl implements ScaleDomDocumentIn
 	 * @param source the underlying document source.
 	 * @param parser a reusable XmlParser.
 	 * @param componentFactory a factory for creating required components.
+	 * @param settings the options of the document, the default encoding, block cache and MXBean options are not used.
 	 * @throws InstantiationException If the component factory failed to instantiate necessary components.
 	 */
 	public ScaleDomDocument(final ScaleDomDocumentSource source, final XmlParser parser,
-			final ComponentFactory componentFactory) throws InstantiationException {
+			final ComponentFactory componentFactory, final ScaleDomSettings settings) throws InstantiationException {
+		checkNotNull(settings, "Argument settings must not be null.");
+		checkArgument(settings.getReadAheadWindow() == 0 || settings.isConcurrentReadsEnabled(),
+				"Reading ahead requires concurrent reads.");
+
 		this.source = source;
 		this.parser = parser;
 		this.componentFactory = componentFactory;
-		this.readerFactory = componentFactory.getNewInstance(ReaderFactory.class, source);
-		this.persistentChildrenLists = new ArrayList<LinkedList<ChildNode>>();
-		this.unloadQueue = new ReferenceQueue<LinkedList<ChildNode>>();
+		this.metrics = new DocumentMetrics(this, source);
+		this.namePool = new NamePool();
+		this.readerFactories = new ConcurrentLinkedQueue<ReaderFactory>();
+		this.allReaderFactories = new CopyOnWriteArrayList<ReaderFactory>();
+		this.readerFactories.add(newReaderFactory());
+		this.loading = new ThreadLocal<Boolean>() {
+			@Override
+			protected Boolean initialValue() {
+				return Boolean.FALSE;
+			}
+		};
+		this.useElementNameIndex = settings.isElementNameIndexEnabled();
+		this.idAttributeNames = settings.getIdAttributeNames();
+		this.textBytesPerCharacter = settings.isLazyTextEnabled() ? computeTextBytesPerCharacter() : -1;
+		this.lazyText = textBytesPerCharacter >= 0;
+		this.lazyTextResolvable = this.lazyText && !parser.isCoalescing() && !parser.isIgnoringComments();
+		this.offsetIndex = settings.isOffsetIndexEnabled() ? newOffsetIndex() : null;
+		this.initialLoadThreads = settings.getInitialLoadThreads();
+		this.nodeCacheManager = componentFactory.isBound(NodeCacheManager.class) ? componentFactory.getNewInstance(
+				NodeCacheManager.class, this, settings.getNodeCacheCapacity()) : null;
+		this.childPageSize = settings.getChildPageSize();
+		this.loadLocks = settings.isConcurrentReadsEnabled() ? Striped.<Lock> lock(LOAD_LOCK_STRIPES) : null;
+		this.asyncChildLoader = new AsyncChildLoader(settings.getAsyncLoadThreads());
+		this.readAheadPrefetcher = settings.getReadAheadWindow() > 0 ? new ReadAheadPrefetcher(asyncChildLoader,
+				settings.getReadAheadWindow()) : null;
+		this.persistentChildrenLists = Collections.synchronizedSet(Collections
+				.newSetFromMap(new IdentityHashMap<ChildList, Boolean>()));
+		this.unloadQueue = new ReferenceQueue<Object>();
 		consistent = true;
 
-		// Start reference queue log thread
-		final Thread unloadQueueLogThread = new ReferenceQueueLogThread(unloadQueue, UNLOAD_LOG_MESSAGE);
-		// TODO: Exit thread when ScaleDomDocumentImpl is garbage collected instead of at the end of the application
+		// Start reference queue log thread, which exits and unregisters the metrics once this document is collected
+		unloadQueueLogThread = new ReferenceQueueLogThread(unloadQueue, UNLOAD_LOG_MESSAGE, this,
+				metrics.newUnregisterTask());
 		unloadQueueLogThread.setDaemon(true);
 		unloadQueueLogThread.start();
 
 		// Do initial loading
 		loadType = LoadType.INITIAL;
-		isLoading = true;
-		initialLoad();
-		isLoading = false;
+		setLoading(true);
+		final long startTime = System.nanoTime();
+		final FlightRecorderEvents.InitialLoad initialLoadEvent = FlightRecorderEvents.beginInitialLoad();
+		try {
+			if (!restoreInitialLoad()) {
+				initialLoad();
+				storeInitialLoad();
+			}
+		} finally {
+			metrics.initialLoadFinished(System.nanoTime() - startTime);
+			initialLoadEvent.end(metrics.getInitialLoadNodeCount(), metrics.getBytesRead());
+			setLoading(false);
+		}
 		loadType = LoadType.RELOAD;
 	}
 
+	/**
+	 * Creates the offset index for the document source.
+	 * 
+	 * @return the offset index, or null if the document source does not support an offset index.
+	 * @throws InstantiationException If the component factory failed to instantiate necessary components.
+	 */
+	private OffsetIndex newOffsetIndex() throws InstantiationException {
+		if (!(source instanceof FileDocumentSource)) {
+			log.warn("Offset index is supported for file-based document sources only, it will not be used.");
+			return null;
+		}
+
+		// All components which determine the result of the initial load are part of the index key
+		final LazyLoadingStrategy strategy = componentFactory.getNewInstance(LazyLoadingStrategy.class, 0);
+		final String configuration = parser.getClass().getName() + ";" + strategy.getConfiguration() + ";"
+				+ source.getEncoding() + (useElementNameIndex ? ";elementNameIndex" : "")
+				+ (idAttributeNames != null ? ";idAttributes=" + idAttributeNames : "");
+		try {
+			return new OffsetIndex((FileDocumentSource) source, configuration);
+		} catch (final IOException ex) {
+			log.warn("Could not create offset index, it will not be used.", ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes per character of the document encoding, which the source ranges of lazy text nodes
+	 * are measured with.
+	 * 
+	 * @return the number of bytes per character, 0 for UTF-8, or -1 if lazy text is not supported.
+	 */
+	private int computeTextBytesPerCharacter() {
+		if (!(source instanceof FileDocumentSource)) {
+			log.warn("Lazy text is supported for file-based document sources only, it will not be used.");
+			return -1;
+		}
+
+		final String encoding = source.getEncoding();
+		if (Charsets.UTF_8.equals(Charset.forName(encoding))) {
+			return 0;
+		}
+		final int numberOfBytesPerCharacter = Utils.getNumberOfBytesPerCharacter(encoding);
+		if (numberOfBytesPerCharacter <= 0) {
+			log.warn("Lazy text is not supported for encoding " + encoding + ", it will not be used.");
+			return -1;
+		}
+		return numberOfBytesPerCharacter;
+	}
+
+	/**
+	 * Restores the initially loaded part of the DOM from the offset index, if available and up to date.
+	 * 
+	 * @return true if the DOM has been restored, false if the initial loading has to be done.
+	 */
+	private boolean restoreInitialLoad() {
+		if (offsetIndex == null) {
+			return false;
+		}
+
+		// See initialLoad()
+		final ChildList preventReferenceRemoval = this.getInitialChildNodes();
+		try {
+			if (offsetIndex.restore(this)) {
+				// Whether the document has a document type declaration is unknown without parsing it
+				lazyTextResolvable = false;
+				persistentChildrenLists.add(preventReferenceRemoval);
+				log.debug("Restored initial loading from offset index, " + preventReferenceRemoval.size()
+						+ " nodes have been flagged as persistent.");
+				return true;
+			}
+		} catch (final IOException ex) {
+			log.warn("Could not restore from offset index, falling back to initial loading.", ex);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Stores the initially loaded part of the DOM into the offset index, if used and the DOM is consistent.
+	 */
+	private void storeInitialLoad() {
+		if (offsetIndex == null || !consistent) {
+			return;
+		}
+
+		try {
+			offsetIndex.store(this);
+		} catch (final IOException ex) {
+			log.warn("Could not store offset index.", ex);
+		}
+	}
+
 	/**
 	 * Loads an initial part of the DOM into memory. The configured LazyLoadingStrategy decides how many nodes are
 	 * loaded, however, it is guaranteed that at least everything on the level of the XML's document element or above is
@@ -126,20 +350,46 @@ public class ScaleDomDocument extends DocumentImpl implements ScaleDomDocumentIn
 
 		// Without holding a strong reference to the direct children, they could be removed immediately, before they
 		// are flagged as persistent.
-		final LinkedList<ChildNode> preventReferenceRemoval = this.getLoadedChildNodes();
+		final ChildList preventReferenceRemoval = this.getInitialChildNodes();
 
+		ReaderFactory readerFactory = null;
 		Reader reader = null;
 		try {
+			if (parallelInitialLoad()) {
+				return;
+			}
+
+			readerFactory = borrowReaderFactory();
 			reader = readerFactory.newReader();
 			final LazyLoadingStrategy strategy = componentFactory.getNewInstance(LazyLoadingStrategy.class, 0);
+			final ElementNameIndex.Builder elementNames = useElementNameIndex ? new ElementNameIndex.Builder() : null;
+			final IdIndex ids = idAttributeNames != null ? new IdIndex() : null;
 			LoadProcess process = null;
 			try {
 				process = new LoadProcess(this, this, loadType, strategy, readerFactory);
+				if (childPageSize > 0) {
+					// The children of the document element are paged, it is on depth 2 below this document
+					process.pageChildren(childPageSize, 2);
+				}
+				if (elementNames != null) {
+					process.recordElementNames(elementNames);
+				}
+				if (ids != null) {
+					process.recordIds(ids, idAttributeNames);
+				}
 				final boolean ok = parser.parse(reader, process);
 				if (!ok) {
 					setInconsistent();
+				} else {
+					if (elementNames != null) {
+						setElementNameIndex(elementNames.build());
+					}
+					if (ids != null) {
+						setIdIndex(ids);
+					}
 				}
 
+				metrics.initialLoadCreatedNodes(process.getNumberOfCreatedNodes());
 				log.debug("Finished initial loading, created " + process.getNumberOfCreatedNodes() + " nodes.");
 			} catch (final SAXException ex) {
 				log.error("Could not load nodes due to parser exception.", ex);
@@ -163,11 +413,62 @@ public class ScaleDomDocument extends DocumentImpl implements ScaleDomDocumentIn
 					reader.close();
 				} catch (IOException e) { }
 			}
+			if (readerFactory != null) {
+				returnReaderFactory(readerFactory);
+			}
 
 			log.debug(preventReferenceRemoval.size() + " nodes have been flagged as persistent.");
 		}
 	}
 
+	/**
+	 * Loads the initial part of the DOM using multiple threads, if configured and supported by the document source.
+	 * 
+	 * @return true if the initial load has been done (successfully or not), false if the single-threaded initial load
+	 *         has to be used.
+	 * @throws InstantiationException If the component factory failed to instantiate necessary components.
+	 */
+	private boolean parallelInitialLoad() throws InstantiationException {
+		if (initialLoadThreads <= 1 || !(source instanceof FileDocumentSource)) {
+			return false;
+		}
+		if (childPageSize > 0) {
+			log.debug("Paged children are not supported by parallel initial loading, using single-threaded initial "
+					+ "loading.");
+			return false;
+		}
+		if (componentFactory.getNewInstance(LazyLoadingStrategy.class, 0).getLoadDepth() < 0) {
+			log.debug("Strategies which do not decide on the level alone are not supported by parallel initial "
+					+ "loading, using single-threaded initial loading.");
+			return false;
+		}
+
+		final ParallelInitialLoad parallelLoad = new ParallelInitialLoad(this, (FileDocumentSource) source, parser,
+				componentFactory, initialLoadThreads);
+		try {
+			if (!parallelLoad.scan()) {
+				log.debug("Document cannot be loaded in parallel, falling back to single-threaded initial loading.");
+				return false;
+			}
+		} catch (final IOException ex) {
+			log.warn("Could not scan document structure, falling back to single-threaded initial loading.", ex);
+			return false;
+		}
+
+		try {
+			if (!parallelLoad.load()) {
+				setInconsistent();
+			}
+		} catch (final SAXException ex) {
+			log.error("Could not load nodes due to parser exception.", ex);
+			setInconsistent();
+		} catch (final IOException ex) {
+			log.error("Could not load nodes due to I/O exception.", ex);
+			setInconsistent();
+		}
+		return true;
+	}
+
 	/**
 	 * Loads more child nodes, starting at the given parent node. Again, the configured LazyLoadingStrategy decides how
 	 * many nodes are actually loaded, however, it is guaranteed that at least the direct children of parent node are
@@ -180,44 +481,162 @@ public class ScaleDomDocument extends DocumentImpl implements ScaleDomDocumentIn
 	public void load(final ParentNode parent) {
 		log.debug("Node '" + parent.getNodeName() + "' requested a reload of its child nodes...");
 
+		// The load type may be changed by another thread meanwhile
+		final LoadType loadType = this.loadType;
 		if (loadType == LoadType.RELOAD_NOTHING) {
 			log.debug("Current state ReloadState.RELOAD_NOTHING prevented reloading.");
 			return;
 		}
 
-		isLoading = true;
+		setLoading(true);
+		final long startTime = System.nanoTime();
+		final FlightRecorderEvents.Load event = FlightRecorderEvents.beginLoad();
+		long numberOfCreatedNodes = 0;
+		long bytesRead = 0;
 
 		/**
 		 * Hint: A strong reference to the direct children of parent is not required here, it is hold by the caller of
 		 * {@link #load(ParentNode)} - see {@link ParentNode#getChildren(boolean)}.
 		 */
 		final NodeLocation location = parent.getNodeLocation();
+		ReaderFactory readerFactory = null;
 		Reader readerForLocation = null;
 		try {
-			readerForLocation = readerFactory.newReaderForLocation(location);
+			readerFactory = borrowReaderFactory();
+			bytesRead = -readerFactory.getBytesRead();
+			final LazyLoadingStrategy strategy = componentFactory.getNewInstance(LazyLoadingStrategy.class,
+					DOMUtils.getAbsoluteLevel(parent));
+
+			// The content of the deepest loaded elements can be skipped, once its ranges have been recorded
+			final boolean skippable = strategy.getLoadDepth() > 0 && readerFactory.isSkippingSupported();
+			ContentSkipIndex contentSkipIndex = skippable ? parent.getContentSkipIndex() : null;
+			if (contentSkipIndex != null && contentSkipIndex.getLoadDepth() != strategy.getLoadDepth()) {
+				contentSkipIndex = null;
+			}
+			if (contentSkipIndex != null) {
+				log.debug("Skipping the content of " + contentSkipIndex.size() + " elements.");
+				readerForLocation = readerFactory.newReaderForLocation(location, contentSkipIndex.getContentRanges());
+			} else {
+				readerForLocation = readerFactory.newReaderForLocation(location);
+			}
 
 			// Build fake root element containing all required namespace declarations
-			final String fakeElementStart = "<ScaleDOM " + buildNamespaceDeclarations(parent) + ">";
-			final String fakeElementEnd = "</ScaleDOM>";
-			final long additionalOffset = fakeElementStart.length();
+			final String fakeElementStart = buildFakeElementStart((ParentNode) parent.getParentNode());
+			final int elementsToSkip = 3; // StartDocument, StartElement for fakeElementStart, StartElement for parent
+
+			LoadProcess process = null;
+			try {
+				process = new LoadProcess(this, parent, loadType, strategy, readerFactory, elementsToSkip,
+						getAdditionalOffset(fakeElementStart));
+				process.reloadChildren();
+				if (contentSkipIndex != null) {
+					process.skipContent(contentSkipIndex);
+				} else {
+					if (skippable) {
+						process.recordContentSkipIndex();
+					}
+					if (childPageSize > 0) {
+						process.pageChildren(childPageSize, 1);
+					}
+				}
+
+				final boolean ok = parse(readerForLocation, fakeElementStart, process);
+				if (!ok) {
+					setInconsistent();
+				} else if (skippable && contentSkipIndex == null && parent.getChildPageTable() == null) {
+					// The content of children on other than the first page has not been recorded
+					parent.setContentSkipIndex(process.getRecordedContentSkipIndex());
+				}
+
+				numberOfCreatedNodes = process.getNumberOfCreatedNodes();
+				log.debug("Finished loading, created " + numberOfCreatedNodes + " nodes.");
+			} catch (final SAXException ex) {
+				log.error("Could not load nodes due to parser exception.", ex);
+				setInconsistent();
+			} finally {
+				if(process != null) {
+					process.close();
+				}
+			}
+		} catch (final IOException ex) {
+			log.error("Could not load nodes due to I/O exception.", ex);
+			setInconsistent();
+		} catch (final InstantiationException ex) {
+			log.error("Could not instantiate required components for the load process.", ex);
+			setInconsistent();
+		} finally {
+			if(readerForLocation != null) {
+				try {
+					readerForLocation.close();
+				} catch (IOException e) { }
+			}
+			if (readerFactory != null) {
+				bytesRead += readerFactory.getBytesRead();
+				returnReaderFactory(readerFactory);
+			}
+			metrics.reloadFinished(System.nanoTime() - startTime, numberOfCreatedNodes);
+			endLoadEvent(event, parent, location, numberOfCreatedNodes, bytesRead);
+			setLoading(false);
+		}
+	}
 
+	/**
+	 * Loads a page of the given parent node's children, see {@link ChildPageTable}. Just like
+	 * {@link #load(ParentNode)}, the configured LazyLoadingStrategy decides how many descendants of the page's children
+	 * are loaded.
+	 * 
+	 * If loading fails (e.g. due to memory restrictions), an error is logged and the DOM remains incomplete.
+	 * 
+	 * @param parent the parent node with paged children.
+	 * @param page the index of the page to be loaded.
+	 */
+	public void loadPage(final ParentNode parent, final int page) {
+		log.debug("Node '" + parent.getNodeName() + "' requested a reload of page " + page + " of its child nodes...");
+
+		// The load type may be changed by another thread meanwhile
+		final LoadType loadType = this.loadType;
+		if (loadType == LoadType.RELOAD_NOTHING) {
+			log.debug("Current state ReloadState.RELOAD_NOTHING prevented reloading.");
+			return;
+		}
+
+		final ChildPageTable childPages = parent.getChildPageTable();
+		checkState(childPages != null, "Children of '%s' are not paged.", parent.getNodeName());
+
+		setLoading(true);
+		childPages.setLoadingPage(page);
+		final long startTime = System.nanoTime();
+		final FlightRecorderEvents.Load event = FlightRecorderEvents.beginLoad();
+		long numberOfCreatedNodes = 0;
+		long bytesRead = 0;
+
+		// Hint: The caller holds a strong reference to the children of the page - see ParentNode#getChildPage(int).
+		ReaderFactory readerFactory = null;
+		Reader readerForLocation = null;
+		try {
+			readerFactory = borrowReaderFactory();
+			bytesRead = -readerFactory.getBytesRead();
 			final LazyLoadingStrategy strategy = componentFactory.getNewInstance(LazyLoadingStrategy.class,
 					DOMUtils.getAbsoluteLevel(parent));
-			final int elementsToSkip = 3; // StartDocument, StartElement for fakeElementStart, StartElement for parent
-			
+			readerForLocation = readerFactory.newReaderForLocation(childPages.getLocation(page));
+
+			// The page does not include the parent's start tag, hence the fake root element declares its namespaces too
+			final String fakeElementStart = buildFakeElementStart(parent);
+			final int elementsToSkip = 2; // StartDocument, StartElement for fakeElementStart
+
 			LoadProcess process = null;
 			try {
-				process = new LoadProcess(this, parent, loadType, strategy, 
-						readerFactory, elementsToSkip, additionalOffset);
+				process = new LoadProcess(this, parent, loadType, strategy, readerFactory, elementsToSkip,
+						getAdditionalOffset(fakeElementStart));
+				process.loadPage();
 
-				final Reader reader = new CompositeReader(new StringReader(fakeElementStart), readerForLocation,
-						new StringReader(fakeElementEnd));
-				final boolean ok = parser.parse(reader, process);
+				final boolean ok = parse(readerForLocation, fakeElementStart, process);
 				if (!ok) {
 					setInconsistent();
 				}
 
-				log.debug("Finished loading, created " + process.getNumberOfCreatedNodes() + " nodes.");
+				numberOfCreatedNodes = process.getNumberOfCreatedNodes();
+				log.debug("Finished loading, created " + numberOfCreatedNodes + " nodes.");
 			} catch (final SAXException ex) {
 				log.error("Could not load nodes due to parser exception.", ex);
 				setInconsistent();
@@ -238,24 +657,420 @@ public class ScaleDomDocument extends DocumentImpl implements ScaleDomDocumentIn
 					readerForLocation.close();
 				} catch (IOException e) { }
 			}
+			if (readerFactory != null) {
+				bytesRead += readerFactory.getBytesRead();
+				returnReaderFactory(readerFactory);
+			}
+			childPages.setLoadingPage(-1);
+			metrics.reloadFinished(System.nanoTime() - startTime, numberOfCreatedNodes);
+			endLoadEvent(event, parent, childPages.getLocation(page), numberOfCreatedNodes, bytesRead);
+			setLoading(false);
+		}
+	}
+
+	@Override
+	public void loadChildren(final Collection<? extends Node> parents) {
+		checkNotNull(parents, "Argument parents must not be null.");
+		checkState(!isLoading(), "Children cannot be loaded by a load process.");
+
+		// Group the siblings to be reloaded by their parent
+		final Map<Node, List<ParentNode>> siblingsByParent = new LinkedHashMap<Node, List<ParentNode>>();
+		for (final Node parent : parents) {
+			checkArgument(parent.getOwnerDocument() == this, "Node '%s' belongs to another document.",
+					parent.getNodeName());
+
+			if (!(parent instanceof ParentNode) || !isCoalescable((ParentNode) parent)) {
+				AsyncChildLoader.loadNow(parent);
+				continue;
+			}
+			final ParentNode node = (ParentNode) parent;
+			List<ParentNode> siblings = siblingsByParent.get(node.getParentNode());
+			if (siblings == null) {
+				siblings = new ArrayList<ParentNode>();
+				siblingsByParent.put(node.getParentNode(), siblings);
+			}
+			siblings.add(node);
+		}
+
+		// Reload runs of siblings which are at most MAX_COALESCED_GAP bytes apart
+		for (final Entry<Node, List<ParentNode>> entry : siblingsByParent.entrySet()) {
+			final List<ParentNode> siblings = entry.getValue();
+			Collections.sort(siblings, new Comparator<ParentNode>() {
+				@Override
+				public int compare(final ParentNode o1, final ParentNode o2) {
+					final long start1 = getStartOffset(o1);
+					final long start2 = getStartOffset(o2);
+					return start1 < start2 ? -1 : (start1 == start2 ? 0 : 1);
+				}
+			});
+
+			int runStart = 0;
+			for (int i = 1; i <= siblings.size(); ++i) {
+				if (i == siblings.size()
+						|| getStartOffset(siblings.get(i)) - getEndOffset(siblings.get(i - 1)) > MAX_COALESCED_GAP) {
+					loadRun((ParentNode) entry.getKey(), siblings.subList(runStart, i));
+					runStart = i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the children of a node may be reloaded together with its siblings.
+	 */
+	private boolean isCoalescable(final ParentNode node) {
+		return node != this && node.getParentNode() instanceof ParentNode
+				&& node.getNodeLocation() instanceof FileNodeLocation && node.getChildPageTable() == null
+				&& node.peekLoadedChildNodes() == null && node.hasChildNodes();
+	}
+
+	private long getStartOffset(final ParentNode node) {
+		return ((FileNodeLocation) node.getNodeLocation()).getStartOffset();
+	}
+
+	private long getEndOffset(final ParentNode node) {
+		return ((FileNodeLocation) node.getNodeLocation()).getEndOffset();
+	}
+
+	/**
+	 * Reloads the children of a run of siblings, which are sorted in document order.
+	 */
+	private void loadRun(final ParentNode parent, final List<ParentNode> run) {
+		// Concurrent readers wait for the whole run, the locks are acquired in a fixed order which prevents deadlocks
+		final List<Lock> locks = new ArrayList<Lock>();
+		if (loadLocks != null) {
+			for (final Lock lock : loadLocks.bulkGet(run)) {
+				lock.lock();
+				locks.add(lock);
+			}
+		}
+
+		try {
+			// Siblings whose children have been loaded meanwhile are left out, the new children lists are strongly
+			// referenced until they have been passed to the node cache manager
+			final List<ParentNode> siblings = new ArrayList<ParentNode>(run.size());
+			final List<ChildList> childrenLists = new ArrayList<ChildList>(run.size());
+			for (final ParentNode sibling : run) {
+				final ChildList children = sibling.prepareReload();
+				if (children != null) {
+					siblings.add(sibling);
+					childrenLists.add(children);
+				}
+			}
+
+			if (siblings.size() == 1) {
+				load(siblings.get(0));
+			} else if (siblings.size() > 1) {
+				loadCoalesced(parent, siblings);
+			}
+
+			for (int i = 0; i < siblings.size(); ++i) {
+				// A reload may have split the children into pages, the loaded ones are the first page
+				final ParentNode sibling = siblings.get(i);
+				childrenAccessed(sibling, sibling.getChildPageTable() == null ? -1 : 0, childrenLists.get(i), false);
+			}
+		} finally {
+			for (int i = locks.size() - 1; i >= 0; --i) {
+				locks.get(i).unlock();
+			}
 		}
+	}
+
+	/**
+	 * Reloads the children of multiple siblings by a single read, see {@link CoalescedLoadProcess}. Just like
+	 * {@link #load(ParentNode)}, the configured LazyLoadingStrategy decides how many descendants of the children are
+	 * loaded.
+	 * 
+	 * @param parent the parent of the siblings.
+	 * @param siblings the siblings, in document order, with prepared children lists.
+	 */
+	private void loadCoalesced(final ParentNode parent, final List<ParentNode> siblings) {
+		log.debug("Reloading the child nodes of " + siblings.size() + " siblings of '" + parent.getNodeName()
+				+ "' at once...");
+
+		// The load type may be changed by another thread meanwhile
+		final LoadType loadType = this.loadType;
+		if (loadType == LoadType.RELOAD_NOTHING) {
+			log.debug("Current state ReloadState.RELOAD_NOTHING prevented reloading.");
+			return;
+		}
+
+		setLoading(true);
+		final long startTime = System.nanoTime();
+		final FlightRecorderEvents.Load event = FlightRecorderEvents.beginLoad();
+		long numberOfCreatedNodes = 0;
+		long bytesRead = 0;
+
+		final NodeLocation location = new FileNodeLocation(getStartOffset(siblings.get(0)),
+				getEndOffset(siblings.get(siblings.size() - 1)));
+		final long[] startOffsets = new long[siblings.size()];
+		for (int i = 0; i < siblings.size(); ++i) {
+			startOffsets[i] = getStartOffset(siblings.get(i));
+		}
+
+		ReaderFactory readerFactory = null;
+		Reader readerForLocation = null;
+		final List<LoadProcess> processes = new ArrayList<LoadProcess>(siblings.size());
+		try {
+			readerFactory = borrowReaderFactory();
+			bytesRead = -readerFactory.getBytesRead();
+			final int level = DOMUtils.getAbsoluteLevel(siblings.get(0));
+			final List<LazyLoadingStrategy> strategies = new ArrayList<LazyLoadingStrategy>(siblings.size());
+			for (int i = 0; i < siblings.size(); ++i) {
+				strategies.add(componentFactory.getNewInstance(LazyLoadingStrategy.class, level));
+			}
+
+			// The content of the deepest loaded elements can be skipped if it has been recorded for all siblings
+			final int loadDepth = strategies.get(0).getLoadDepth();
+			final boolean skippable = loadDepth > 0 && readerFactory.isSkippingSupported();
+			boolean skipContent = skippable;
+			for (final ParentNode sibling : siblings) {
+				final ContentSkipIndex contentSkipIndex = sibling.getContentSkipIndex();
+				skipContent &= contentSkipIndex != null && contentSkipIndex.getLoadDepth() == loadDepth;
+			}
+			if (skipContent) {
+				readerForLocation = readerFactory.newReaderForLocation(location, getContentRanges(siblings));
+			} else {
+				readerForLocation = readerFactory.newReaderForLocation(location);
+			}
+
+			// Build fake root element containing all required namespace declarations, each load process skips the
+			// StartElement of its sibling only
+			final String fakeElementStart = buildFakeElementStart(parent);
+			final long additionalOffset = getAdditionalOffset(fakeElementStart);
+			for (int i = 0; i < siblings.size(); ++i) {
+				final ParentNode sibling = siblings.get(i);
+				final LoadProcess process = new LoadProcess(this, sibling, loadType, strategies.get(i),
+						readerFactory, 1, additionalOffset);
+				processes.add(process);
+				process.reloadChildren();
+				if (skipContent) {
+					process.skipContent(sibling.getContentSkipIndex());
+				} else {
+					if (skippable) {
+						process.recordContentSkipIndex();
+					}
+					if (childPageSize > 0) {
+						process.pageChildren(childPageSize, 1);
+					}
+				}
+			}
+
+			try {
+				final CoalescedLoadProcess coalescedProcess = new CoalescedLoadProcess(processes, startOffsets);
+				final boolean ok = parse(readerForLocation, fakeElementStart, coalescedProcess)
+						&& coalescedProcess.isComplete();
+				if (!ok) {
+					setInconsistent();
+				} else if (skippable && !skipContent) {
+					for (int i = 0; i < siblings.size(); ++i) {
+						if (siblings.get(i).getChildPageTable() == null) {
+							// The content of children on other than the first page has not been recorded
+							siblings.get(i).setContentSkipIndex(processes.get(i).getRecordedContentSkipIndex());
+						}
+					}
+				}
+
+				for (final LoadProcess process : processes) {
+					numberOfCreatedNodes += process.getNumberOfCreatedNodes();
+				}
+				log.debug("Finished loading, created " + numberOfCreatedNodes + " nodes.");
+			} catch (final SAXException ex) {
+				log.error("Could not load nodes due to parser exception.", ex);
+				setInconsistent();
+			} finally {
+				for (final LoadProcess process : processes) {
+					process.close();
+				}
+			}
+		} catch (final IOException ex) {
+			log.error("Could not load nodes due to I/O exception.", ex);
+			setInconsistent();
+		} catch (final InstantiationException ex) {
+			log.error("Could not instantiate required components for the load process.", ex);
+			setInconsistent();
+		} finally {
+			if(readerForLocation != null) {
+				try {
+					readerForLocation.close();
+				} catch (IOException e) { }
+			}
+			if (readerFactory != null) {
+				bytesRead += readerFactory.getBytesRead();
+				returnReaderFactory(readerFactory);
+			}
+			metrics.reloadFinished(System.nanoTime() - startTime, numberOfCreatedNodes);
+			endLoadEvent(event, parent, location, numberOfCreatedNodes, bytesRead);
+			setLoading(false);
+		}
+	}
+
+	/**
+	 * Ends the Flight Recorder event of a reload.
+	 */
+	private static void endLoadEvent(final FlightRecorderEvents.Load event, final Node parent,
+			final NodeLocation location, final long numberOfCreatedNodes, final long bytesRead) {
+		if (location instanceof FileNodeLocation) {
+			final FileNodeLocation fileLocation = (FileNodeLocation) location;
+			event.end(parent.getNodeName(), fileLocation.getStartOffset(), fileLocation.getEndOffset(),
+					numberOfCreatedNodes, bytesRead);
+		} else {
+			event.end(parent.getNodeName(), -1, -1, numberOfCreatedNodes, bytesRead);
+		}
+	}
+
+	/**
+	 * Returns the recorded content ranges of all siblings, in document order.
+	 */
+	private SkippedRanges getContentRanges(final List<ParentNode> siblings) {
+		int size = 0;
+		for (final ParentNode sibling : siblings) {
+			size += sibling.getContentSkipIndex().getContentRanges().size();
+		}
+
+		final long[] starts = new long[size];
+		final long[] ends = new long[size];
+		int i = 0;
+		for (final ParentNode sibling : siblings) {
+			final SkippedRanges contentRanges = sibling.getContentSkipIndex().getContentRanges();
+			for (int j = 0; j < contentRanges.size(); ++j, ++i) {
+				starts[i] = contentRanges.getStart(j);
+				ends[i] = contentRanges.getEnd(j);
+			}
+		}
+		return new SkippedRanges(starts, ends, size);
+	}
+
+	/**
+	 * Returns an idle ReaderFactory, creates a new one if all are in use by concurrent loads.
+	 */
+	private ReaderFactory borrowReaderFactory() throws InstantiationException {
+		final ReaderFactory readerFactory = readerFactories.poll();
+		return readerFactory != null ? readerFactory : newReaderFactory();
+	}
+
+	/**
+	 * Creates a new ReaderFactory, whose read bytes are part of the metrics.
+	 */
+	ReaderFactory newReaderFactory() throws InstantiationException {
+		final ReaderFactory readerFactory = componentFactory.getNewInstance(ReaderFactory.class, source);
+		allReaderFactories.add(readerFactory);
+		return readerFactory;
+	}
+
+	/**
+	 * Returns all ReaderFactories created for this document, idle or borrowed.
+	 * 
+	 * @return the reader factories.
+	 */
+	List<ReaderFactory> getReaderFactories() {
+		return allReaderFactories;
+	}
+
+	/**
+	 * Returns a ReaderFactory after its reader has been closed, to be reused by following loads.
+	 */
+	private void returnReaderFactory(final ReaderFactory readerFactory) {
+		readerFactories.add(readerFactory);
+	}
 
-		isLoading = false;
+	/**
+	 * Builds the start tag of a fake root element, which wraps the part of the document source to be parsed and declares
+	 * all namespaces in scope of the given node.
+	 * 
+	 * @param parent the innermost node, may be null.
+	 * @return the start tag of the fake root element.
+	 */
+	private String buildFakeElementStart(final ParentNode parent) {
+		return "<" + FAKE_ELEMENT_NAME + " " + buildNamespaceDeclarations(parent) + ">";
+	}
+
+	/**
+	 * Returns the length of the fake root element's start tag, in the unit of the parser's locations.
+	 */
+	private long getAdditionalOffset(final String fakeElementStart) throws IOException {
+		return parser.isProvidingByteLocations() ? fakeElementStart.getBytes(source.getEncoding()).length
+				: fakeElementStart.length();
+	}
+
+	/**
+	 * Parses the given part of the document source, wrapped into a fake root element.
+	 * 
+	 * @return true if parsing succeeded, false otherwise.
+	 */
+	private boolean parse(final Reader readerForLocation, final String fakeElementStart,
+			final XmlParserCursorListener process)
+			throws IOException, SAXException {
+		final String fakeElementEnd = "</" + FAKE_ELEMENT_NAME + ">";
+		final String encoding = source.getEncoding();
+
+		String systemId = null;
+		if (readerForLocation instanceof ReaderWithSystemID) {
+			systemId = ((ReaderWithSystemID) readerForLocation).getSystemID();
+		}
+		final Reader reader = new ReaderWithSystemID(systemId, new CompositeReader(new StringReader(fakeElementStart),
+				readerForLocation, new StringReader(fakeElementEnd)), encoding);
+		return parser.parse(reader, process);
 	}
 
 	/**
-	 * Returns whether the document is currently loading nodes.
+	 * Returns whether the current thread is loading nodes of this document.
 	 * 
-	 * @return true if the document is currently loading nodes, false otherwise.
+	 * @return true if the current thread is loading nodes, false otherwise.
 	 */
 	public boolean isLoading() {
-		return isLoading;
+		return loading.get();
+	}
+
+	/**
+	 * Called before and after the current thread loads nodes of this document, e.g. by the worker threads of a
+	 * <code>ParallelInitialLoad</code>.
+	 * 
+	 * @param loading true before loading, false after loading.
+	 */
+	void setLoading(final boolean loading) {
+		if (loading) {
+			this.loading.set(Boolean.TRUE);
+		} else {
+			this.loading.remove();
+		}
+	}
+
+	/**
+	 * Returns whether multiple threads may read this document at the same time.
+	 * 
+	 * @return true if concurrent reads are enabled, false otherwise.
+	 */
+	public boolean isConcurrentReadsEnabled() {
+		return loadLocks != null;
+	}
+
+	/**
+	 * Returns the lock which <code>ParentNode</code> holds while it checks whether its children (or one of its pages)
+	 * are loaded and loads them if not. Hence concurrent readers of not-loaded children wait for the first one to load
+	 * them and share the result, instead of loading them again. Parent nodes may share a lock.
+	 * 
+	 * @param parent the parent node.
+	 * @return the parent's load lock, or null if concurrent reads are disabled or the current thread is loading nodes.
+	 */
+	public Lock getLoadLock(final ParentNode parent) {
+		if (loadLocks == null || isLoading()) {
+			return null;
+		}
+		return loadLocks.get(parent);
 	}
 
-	private String buildNamespaceDeclarations(ParentNode parent) {
+	/**
+	 * Builds the declarations of all namespaces in scope of the given node (including the ones declared on the node
+	 * itself), to be used on a fake root element.
+	 * 
+	 * @param parent the innermost node, may be null.
+	 * @return the namespace declarations.
+	 */
+	String buildNamespaceDeclarations(ParentNode parent) {
 		final Map<String, String> namespaces = new HashMap<String, String>();
 
-		for (parent = (ParentNode) parent.getParentNode(); parent != null; parent = (ParentNode) parent.getParentNode()) {
+		for (; parent != null; parent = (ParentNode) parent.getParentNode()) {
 			// Only Element nodes may have namespace declarations on them
 			if (!(parent instanceof Element)) {
 				continue;
@@ -317,25 +1132,468 @@ public class ScaleDomDocument extends DocumentImpl implements ScaleDomDocumentIn
 		this.loadType = loadType;
 	}
 
+	@Override
+	public ListenableFuture<NodeList> loadChildrenAsync(final Node parent) {
+		checkNotNull(parent, "Argument parent must not be null.");
+		checkArgument(parent == this || parent.getOwnerDocument() == this, "Node '%s' belongs to another document.",
+				parent.getNodeName());
+		checkState(isConcurrentReadsEnabled(), "Loading children in the background requires concurrent reads.");
+
+		return asyncChildLoader.loadChildren(parent);
+	}
+
+	@Override
+	public ListenableFuture<List<NodeList>> prefetch(final Collection<? extends Node> parents) {
+		checkNotNull(parents, "Argument parents must not be null.");
+		for (final Node parent : parents) {
+			checkArgument(parent == this || parent.getOwnerDocument() == this,
+					"Node '%s' belongs to another document.", parent.getNodeName());
+		}
+		checkState(isConcurrentReadsEnabled(), "Loading children in the background requires concurrent reads.");
+
+		return asyncChildLoader.loadChildren(parents);
+	}
+
+	@Override
+	public DocumentMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the number of children lists which have been unloaded by the garbage collector so far.
+	 * 
+	 * @return the number of children lists removed from the unload queue.
+	 */
+	long getNumberOfCollectedChildrenLists() {
+		return unloadQueueLogThread.getNumberOfRemovedReferences();
+	}
+
+	/**
+	 * Returns the number of children lists which are never unloaded.
+	 * 
+	 * @return the number of persistent children lists.
+	 */
+	int getNumberOfPersistentChildrenLists() {
+		return persistentChildrenLists.size();
+	}
+
 	/**
 	 * Returns the unload queue, such that the <code>WeakChildNodeList</code>-<code>SoftReference</code> can register to
 	 * it.
 	 * 
 	 * @return returns the unload queue.
 	 */
-	public ReferenceQueue<LinkedList<ChildNode>> getUnloadQueue() {
+	public ReferenceQueue<Object> getUnloadQueue() {
 		return unloadQueue;
 	}
 
+	/**
+	 * Returns the parser used to load nodes.
+	 * 
+	 * @return the XML parser.
+	 */
+	public XmlParser getXmlParser() {
+		return parser;
+	}
+
+	/**
+	 * Returns the read-ahead prefetcher, e.g. to obtain its hit and waste counters.
+	 * 
+	 * @return the read-ahead prefetcher, or null if reading ahead is disabled.
+	 */
+	public ReadAheadPrefetcher getReadAheadPrefetcher() {
+		return readAheadPrefetcher;
+	}
+
+	/**
+	 * Returns the node cache manager.
+	 * 
+	 * @return the node cache manager, or null if none is used.
+	 */
+	public NodeCacheManager getNodeCacheManager() {
+		return nodeCacheManager;
+	}
+
+	/**
+	 * <code>ParentNode</code> notifies us of children lists requested by the user, which are passed on to the
+	 * read-ahead prefetcher and the node cache manager. Accesses by load processes and to children lists which are
+	 * never unloaded are ignored by the node cache manager, the prefetcher ignores accesses by its own threads.
+	 * 
+	 * @param parent the parent node.
+	 * @param page the index of the accessed page, or -1 if the children are not paged.
+	 * @param children the loaded children list.
+	 * @param hit true if the children list was already loaded, false if it had to be (re)loaded.
+	 */
+	public void childrenAccessed(final ParentNode parent, final int page, final ChildList children,
+			final boolean hit) {
+		if (readAheadPrefetcher != null && !isLoading() && !asyncChildLoader.isWorkerThread()) {
+			readAheadPrefetcher.accessed(parent, hit);
+		}
+		if (!isLoading()) {
+			metrics.childrenAccessed(hit);
+		}
+
+		if (nodeCacheManager == null || isLoading() || children.isEmpty() || persistentChildrenLists.contains(children)) {
+			return;
+		}
+
+		nodeCacheManager.accessed(parent, page, children, hit);
+	}
+
+	/**
+	 * Calls unload(parent, -1, children), for children which are not paged.
+	 * 
+	 * @see #unload(ParentNode, int, ChildList)
+	 */
+	public boolean unload(final ParentNode parent, final ChildList children) {
+		return unload(parent, -1, children);
+	}
+
+	/**
+	 * Unloads the given children list immediately, called by the node cache manager on eviction. Children lists which
+	 * must never be unloaded are kept.
+	 * 
+	 * @param parent the parent node.
+	 * @param page the index of the page to be unloaded, or -1 if the children are not paged.
+	 * @param children the loaded children list.
+	 * @return true if the children list has been unloaded, false otherwise.
+	 */
+	public boolean unload(final ParentNode parent, final int page, final ChildList children) {
+		if (isLoading() || persistentChildrenLists.contains(children)) {
+			return false;
+		}
+
+		// Do not wait for another thread loading the parent's children (or of another parent sharing the lock)
+		final Lock loadLock = getLoadLock(parent);
+		if (loadLock != null && !loadLock.tryLock()) {
+			return false;
+		}
+		try {
+			if (!parent.unloadChildNodes(page, children)) {
+				return false;
+			}
+		} finally {
+			if (loadLock != null) {
+				loadLock.unlock();
+			}
+		}
+
+		metrics.childrenUnloaded();
+		if (log.isDebugEnabled()) {
+			log.debug(String.format(UNLOAD_LOG_MESSAGE, parent.getNodeName()));
+		}
+		return true;
+	}
+
 	/**
 	 * <code>ParentNode</code> notifies us of modified children lists.
 	 * 
 	 * @param children the modified children list.
 	 */
-	public void modified(final LinkedList<ChildNode> children) {
-		if (!isLoading) {
+	public void modified(final ChildList children) {
+		if (!isLoading()) {
 			// Unreloadable DOM modification by user -> persist children list
 			persistentChildrenLists.add(children);
 		}
 	}
+
+	/**
+	 * Returns the index of the element names recorded by the initial load.
+	 * 
+	 * @return the element name index, or null if element names are not indexed, the initial load did not succeed or
+	 *         the document has been modified since.
+	 */
+	public ElementNameIndex getElementNameIndex() {
+		return elementNameIndex;
+	}
+
+	/**
+	 * Returns the pool of the canonical names of the nodes created by load processes.
+	 * 
+	 * @return the name pool.
+	 */
+	NamePool getNamePool() {
+		return namePool;
+	}
+
+	/**
+	 * Called by the initial load (or the offset index restoring it) with the recorded element names.
+	 * 
+	 * @param elementNameIndex the element name index.
+	 */
+	void setElementNameIndex(final ElementNameIndex elementNameIndex) {
+		this.elementNameIndex = elementNameIndex;
+	}
+
+	/**
+	 * Returns whether the names of all elements are indexed by the initial load.
+	 * 
+	 * @return true if element names are indexed, false otherwise.
+	 */
+	boolean isElementNameIndexEnabled() {
+		return useElementNameIndex;
+	}
+
+	/**
+	 * Returns the index of the IDs recorded by the initial load.
+	 * 
+	 * @return the ID index, or null if IDs are not indexed, the initial load did not succeed or the document has been
+	 *         modified since.
+	 */
+	public IdIndex getIdIndex() {
+		return idIndex;
+	}
+
+	/**
+	 * Called by the initial load (or the offset index restoring it) with the recorded IDs. An index which is full is
+	 * incomplete and therefore not used.
+	 * 
+	 * @param idIndex the ID index.
+	 */
+	void setIdIndex(final IdIndex idIndex) {
+		if (idIndex != null && idIndex.isFull()) {
+			log.warn("Too many IDs to be indexed, getElementById will not find elements which have not been loaded.");
+			this.idIndex = null;
+			return;
+		}
+		this.idIndex = idIndex;
+	}
+
+	/**
+	 * Returns the local names of the attributes indexed as IDs by the initial load.
+	 * 
+	 * @return the attribute names, or null if IDs are not indexed.
+	 */
+	Set<String> getIdAttributeNames() {
+		return idAttributeNames;
+	}
+
+	/**
+	 * Returns whether load processes create lazy text nodes.
+	 * 
+	 * @return true if text nodes are created by their source ranges, false otherwise.
+	 */
+	boolean isLazyTextEnabled() {
+		return lazyText;
+	}
+
+	/**
+	 * Returns the number of bytes per character of the document encoding, see {@link #isLazyTextEnabled()}.
+	 * 
+	 * @return the number of bytes per character, 0 for UTF-8.
+	 */
+	int getTextBytesPerCharacter() {
+		return textBytesPerCharacter;
+	}
+
+	/**
+	 * Returns whether the source ranges of lazy text nodes may contain references and line breaks to be resolved.
+	 * Otherwise, only text nodes whose source range is their encoded data drop their data.
+	 * 
+	 * @return true if references are resolvable, false otherwise.
+	 */
+	boolean isLazyTextResolvable() {
+		return lazyTextResolvable;
+	}
+
+	/**
+	 * Called by load processes once the document type declaration has been parsed. The entities it declares may be
+	 * referenced by texts, which lazy text nodes do not resolve.
+	 */
+	void parsedDocumentType() {
+		lazyTextResolvable = false;
+	}
+
+	/**
+	 * Reads a range of the document source, e.g. the text of a lazy text node.
+	 * 
+	 * @param startOffset the start offset of the range.
+	 * @param endOffset the end offset of the range.
+	 * @return the characters of the range.
+	 * @throws IOException If any I/O error occurs.
+	 * @throws InstantiationException If the component factory failed to instantiate necessary components.
+	 */
+	String readSource(final long startOffset, final long endOffset) throws IOException, InstantiationException {
+		final ReaderFactory readerFactory = borrowReaderFactory();
+		Reader reader = null;
+		try {
+			reader = readerFactory.newReaderForLocation(new FileNodeLocation(startOffset, endOffset));
+			return CharStreams.toString(reader);
+		} finally {
+			if (reader != null) {
+				reader.close();
+			}
+			returnReaderFactory(readerFactory);
+		}
+	}
+
+	@Override
+	protected void changed() {
+		super.changed();
+
+		// Nodes created by load processes are already part of the indexes, modifications by the user invalidate them
+		if (!isLoading()) {
+			modified = true;
+			elementNameIndex = null;
+			idIndex = null;
+		}
+	}
+
+	@Override
+	public Node renameNode(final Node n, final String namespaceURI, final String name) {
+		final Node renamed = super.renameNode(n, namespaceURI, name);
+		modified = true;
+		elementNameIndex = null;
+		idIndex = null;
+		return renamed;
+	}
+
+	/**
+	 * Returns whether the document has been modified since the initial load, i.e. whether the DOM may differ from the
+	 * document source.
+	 * 
+	 * @return true if the document has been modified, false otherwise.
+	 */
+	public boolean isModified() {
+		return modified;
+	}
+
+	/**
+	 * Returns the element with the given ID. Elements registered by <code>putIdentifier</code> are found first, other
+	 * elements are found by the ID index, if available, which loads only the element and its ancestors' children.
+	 */
+	@Override
+	public Element getElementById(final String elementId) {
+		final Element registered = super.getElementById(elementId);
+		final IdIndex index = idIndex;
+		if (registered != null || index == null || elementId == null) {
+			return registered;
+		}
+
+		// Offsets are candidates only, as the index stores hashes of the IDs, which are compared to ID attributes only
+		for (final long offset : index.getOffsets(elementId)) {
+			final Node node = ElementLocator.getElementAt(this, offset);
+			if (node == null) {
+				continue;
+			}
+			final NamedNodeMap attributes = node.getAttributes();
+			for (int i = 0; i < attributes.getLength(); ++i) {
+				final Node attribute = attributes.item(i);
+				if (elementId.equals(attribute.getNodeValue()) && (idAttributeNames.contains(attribute.getNodeName())
+						|| index.isDeclaredAttribute(node.getNodeName(), attribute.getNodeName()))) {
+					return (Element) node;
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public NodeList getElementsByTagName(final String tagname) {
+		return getElementsByTagName(this, tagname);
+	}
+
+	@Override
+	public NodeList getElementsByTagNameNS(final String namespaceURI, final String localName) {
+		return getElementsByTagNameNS(this, namespaceURI, localName);
+	}
+
+	/**
+	 * Returns the descendant elements of a node with the given tag name, called by the node's
+	 * <code>getElementsByTagName(String)</code>. The elements are found by the element name index, if available, the
+	 * returned list loads the elements only as they are requested.
+	 * 
+	 * @param root this document or an element of this document.
+	 * @param tagname the tag name, or "*" for all elements.
+	 * @return the list of elements.
+	 */
+	public NodeList getElementsByTagName(final ParentNode root, final String tagname) {
+		final ElementNameIndex index = elementNameIndex;
+		if (index == null || !isIndexedRoot(root)) {
+			return new DeepNodeListImpl(root, tagname);
+		}
+		return new ElementNameNodeList(this, root, index, index.getElementsByTagName(tagname), null, tagname, false);
+	}
+
+	/**
+	 * Returns the descendant elements of a node with the given namespace URI and local name, called by the node's
+	 * <code>getElementsByTagNameNS(String, String)</code>. The elements are found by the element name index, if
+	 * available, the returned list loads the elements only as they are requested.
+	 * 
+	 * @param root this document or an element of this document.
+	 * @param namespaceURI the namespace URI, or "*" for all namespaces.
+	 * @param localName the local name, or "*" for all local names.
+	 * @return the list of elements.
+	 */
+	public NodeList getElementsByTagNameNS(final ParentNode root, final String namespaceURI, final String localName) {
+		final ElementNameIndex index = elementNameIndex;
+		if (index == null || !isIndexedRoot(root)) {
+			return new DeepNodeListImpl(root, namespaceURI, localName);
+		}
+		return new ElementNameNodeList(this, root, index, index.getElementsByTagNameNS(namespaceURI, localName),
+				namespaceURI, localName, true);
+	}
+
+	/**
+	 * Returns whether the descendants of a node are covered by the element name index, i.e. whether it is this
+	 * document or an element with known start and end offsets.
+	 */
+	private boolean isIndexedRoot(final ParentNode root) {
+		if (root == this) {
+			return true;
+		}
+		final NodeLocation location = root.getNodeLocation();
+		return root.getOwnerDocument() == this && location instanceof FileNodeLocation
+				&& ((FileNodeLocation) location).getEndOffset() != FileNodeLocation.OFFSET_UNKNOWN;
+	}
+
+	/**
+	 * Returns the element starting at the given offset within the document source, loading only the element and its
+	 * ancestors' children. Offsets refer to the document source, hence they are meaningless once the document has been
+	 * modified.
+	 * 
+	 * @param offset the start offset of the element's <code>FileNodeLocation</code>.
+	 * @return the element, or null if there is no element starting at the offset.
+	 */
+	public Element getElementAt(final long offset) {
+		final Node node = ElementLocator.getElementAt(this, offset);
+		return node != null && node.getNodeType() == Node.ELEMENT_NODE ? (Element) node : null;
+	}
+
+	/**
+	 * Parses the whole document source in cursor mode without creating any nodes, e.g. to evaluate a query in a single
+	 * forward pass. The listener is called with offsets within the document source, i.e. the start offset of an
+	 * element's event equals the start offset of the element's <code>FileNodeLocation</code>.
+	 * 
+	 * @param listener the listener, called for each event.
+	 * @return true if the listener processed all events, false if it demanded an abortion.
+	 * @throws IOException If any I/O error occurs.
+	 * @throws SAXException If any parse error occurs.
+	 * @throws InstantiationException If the component factory failed to instantiate necessary components.
+	 */
+	public boolean scanSource(final XmlParserCursorListener listener) throws IOException, SAXException,
+			InstantiationException {
+		checkNotNull(listener, "Argument listener must not be null.");
+
+		final ReaderFactory readerFactory = borrowReaderFactory();
+		final boolean byteLocations = parser.isProvidingByteLocations();
+		Reader reader = null;
+		try {
+			reader = readerFactory.newReader();
+			return parser.parse(reader, new XmlParserCursorListener() {
+				@Override
+				public boolean process(final int eventType, final long startingOffset, final XMLStreamReader cursor) {
+					final NodeLocation location = readerFactory.eventLocationToNodeLocation(
+							byteLocations ? new XmlEventByteLocation(startingOffset) : new XmlEventCharLocation(
+									startingOffset), 0);
+					return listener.process(eventType, ((FileNodeLocation) location).getStartOffset(), cursor);
+				}
+			});
+		} finally {
+			if (reader != null) {
+				reader.close();
+			}
+			returnReaderFactory(readerFactory);
+		}
+	}
 }
@@ -1,9 +1,16 @@
 package at.ac.tuwien.dsg.scaledom.dom;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
 import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentSource;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 public interface ScaleDomDocumentInterface extends Document {
 
 	/**
@@ -35,4 +42,45 @@ public interface ScaleDomDocumentInterface extends Document {
 	 * @throws IllegalArgumentException If loadType is LoadType.INITIAL.
 	 */
 	void setLoadType(final LoadType loadType);
+
+	/**
+	 * Loads the children of a node in the background, see <code>ScaleDom.ATTRIBUTE_ASYNCLOAD_THREADS</code>. Requests
+	 * for a node whose children are already being loaded share the pending load. The resulting <code>NodeList</code>
+	 * keeps the loaded children (the first page of paged children) in memory as long as it is referenced.
+	 * 
+	 * @param parent a node of this document.
+	 * @return the future children of the node.
+	 * @throws IllegalStateException If concurrent reads are disabled.
+	 */
+	ListenableFuture<NodeList> loadChildrenAsync(final Node parent);
+
+	/**
+	 * Loads the children of multiple nodes in the background, e.g. the next records to be processed while processing
+	 * the current one. See {@link #loadChildrenAsync(Node)}.
+	 * 
+	 * @param parents nodes of this document, loaded in the given order.
+	 * @return the future children of the nodes, in the given order.
+	 * @throws IllegalStateException If concurrent reads are disabled.
+	 */
+	ListenableFuture<List<NodeList>> prefetch(final Collection<? extends Node> parents);
+
+	/**
+	 * Loads the children of multiple nodes on the current thread, e.g. of the next records to be processed. Siblings
+	 * whose children are not loaded and which lie close to each other within the document source are reloaded by a
+	 * single read and parse of the range spanning them (see {@link CoalescedLoadProcess}), instead of one per sibling.
+	 * The children of all other nodes are loaded one by one, just as on access.<br/>
+	 * The loaded children are passed to the node cache manager like accessed ones, which decides how long they stay
+	 * loaded.
+	 * 
+	 * @param parents nodes of this document.
+	 */
+	void loadChildren(final Collection<? extends Node> parents);
+
+	/**
+	 * Returns the metrics of this document, e.g. reloads, read bytes and unloads. The metrics are published by JMX if
+	 * <code>ScaleDom.ATTRIBUTE_REGISTER_MXBEAN</code> is enabled, or by <code>DocumentMetrics.register()</code>.
+	 * 
+	 * @return the document metrics.
+	 */
+	DocumentMetrics getMetrics();
 }
@@ -1,9 +1,7 @@
 package at.ac.tuwien.dsg.scaledom.dom;
 
 import java.lang.ref.SoftReference;
-import java.util.LinkedList;
 
-import org.apache.xerces.dom.ChildNode;
 import org.apache.xerces.dom.ParentNode;
 
 /**
@@ -12,11 +10,11 @@ import org.apache.xerces.dom.ParentNode;
  * 
  * @author Dominik Rauch
  */
-public class WeakChildNodeList extends SoftReference<LinkedList<ChildNode>> {
+public class WeakChildNodeList extends SoftReference<ChildList> {
 
 	private final ParentNode parent;
 
-	public WeakChildNodeList(final ScaleDomDocument doc, final ParentNode parent, final LinkedList<ChildNode> children) {
+	public WeakChildNodeList(final ScaleDomDocument doc, final ParentNode parent, final ChildList children) {
 		super(children, doc != null ? doc.getUnloadQueue() : null);
 		this.parent = parent;
 	}
@@ -0,0 +1,282 @@
+package at.ac.tuwien.dsg.scaledom.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of fixed-size blocks of a document source, shared by all <code>ReaderFactory</code> objects reading from the
+ * source (see {@link at.ac.tuwien.dsg.scaledom.ScaleDomDocumentSource#setBlockCache(BlockCache)}). Block n holds the
+ * bytes [n * blockSize, (n + 1) * blockSize) of the source, the last block of the source may be shorter.<br/>
+ * Blocks are stored off-heap, in direct buffers allocated up front. If all slots are occupied, the clock algorithm
+ * evicts a block which has not been read since the clock hand passed it the last time.<br/>
+ * This class is thread-safe.
+ */
+public class BlockCache {
+
+	/** Default block size in bytes. */
+	public final static int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+	/** Maximum size of a single direct buffer holding blocks. */
+	private final static int MAX_SLAB_SIZE = 1 << 30;
+
+	/** Marks an empty slot. */
+	private final static long NO_BLOCK = -1;
+
+	private final int blockSize;
+	private final int numberOfSlots;
+	private final int slotsPerSlab;
+
+	/** Direct buffers holding the slots. */
+	private final ByteBuffer[] slabs;
+	/** Block held by each slot, NO_BLOCK if empty. */
+	private final long[] slotBlocks;
+	/** Number of valid bytes of each slot. */
+	private final int[] slotLengths;
+	/** Reference bit of each slot, set on read and cleared by the clock hand. */
+	private final boolean[] referenced;
+	/** Slots by the blocks they hold. */
+	private final Map<Long, Integer> slotsByBlock;
+	/** Position of the clock hand. */
+	private int hand;
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+	private long bytesSaved;
+
+	/**
+	 * Calls this(capacity, DEFAULT_BLOCK_SIZE).
+	 *
+	 * @see #BlockCache(long, int)
+	 */
+	public BlockCache(final long capacity) {
+		this(capacity, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param capacity the capacity in bytes, rounded down to whole blocks.
+	 * @param blockSize the block size in bytes.
+	 */
+	public BlockCache(final long capacity, final int blockSize) {
+		checkArgument(blockSize > 0 && blockSize <= MAX_SLAB_SIZE,
+				"Expected blockSize to be a valid buffer size, but %s is not.", blockSize);
+		checkArgument(capacity >= blockSize, "Expected capacity to hold at least one block, but %s does not.",
+				capacity);
+		checkArgument(capacity / blockSize <= Integer.MAX_VALUE, "Capacity %s holds too many blocks.", capacity);
+
+		this.blockSize = blockSize;
+		this.numberOfSlots = (int) (capacity / blockSize);
+		this.slotsPerSlab = MAX_SLAB_SIZE / blockSize;
+
+		slabs = new ByteBuffer[(numberOfSlots + slotsPerSlab - 1) / slotsPerSlab];
+		for (int i = 0; i < slabs.length; ++i) {
+			final int slots = Math.min(slotsPerSlab, numberOfSlots - i * slotsPerSlab);
+			slabs[i] = ByteBuffer.allocateDirect(slots * blockSize);
+		}
+		slotBlocks = new long[numberOfSlots];
+		Arrays.fill(slotBlocks, NO_BLOCK);
+		slotLengths = new int[numberOfSlots];
+		referenced = new boolean[numberOfSlots];
+		slotsByBlock = new HashMap<Long, Integer>(numberOfSlots * 4 / 3 + 1);
+		hand = 0;
+	}
+
+	/**
+	 * Copies bytes of a cached block.
+	 *
+	 * @param block the block index.
+	 * @param offset the offset within the block.
+	 * @param b the destination array.
+	 * @param off the offset within the destination array.
+	 * @param len the maximum number of bytes to copy.
+	 * @return the number of copied bytes, or -1 if the block is not cached.
+	 */
+	public synchronized int read(final long block, final int offset, final byte[] b, final int off, final int len) {
+		final Integer slot = slotsByBlock.get(block);
+		if (slot == null) {
+			++missCount;
+			return -1;
+		}
+
+		final int length = Math.min(len, slotLengths[slot] - offset);
+		if (length <= 0) {
+			return 0;
+		}
+		final ByteBuffer slab = slabs[slot / slotsPerSlab];
+		slab.position((slot % slotsPerSlab) * blockSize + offset);
+		slab.get(b, off, length);
+
+		referenced[slot] = true;
+		++hitCount;
+		bytesSaved += length;
+		return length;
+	}
+
+	/**
+	 * Returns whether a block is cached, without counting a hit or miss.
+	 *
+	 * @param block the block index.
+	 * @return true if the block is cached, false otherwise.
+	 */
+	public synchronized boolean contains(final long block) {
+		return slotsByBlock.containsKey(block);
+	}
+
+	/**
+	 * Caches a block, evicts another block if required.
+	 *
+	 * @param block the block index.
+	 * @param b the array holding the block.
+	 * @param off the offset of the block within the array.
+	 * @param len the length of the block, only the last block of a source may be shorter than the block size.
+	 */
+	public synchronized void write(final long block, final byte[] b, final int off, final int len) {
+		checkArgument(len > 0 && len <= blockSize, "Expected len to be a valid block length, but %s is not.", len);
+		if (slotsByBlock.containsKey(block)) {
+			return;
+		}
+
+		final int slot = nextFreeSlot();
+		final ByteBuffer slab = slabs[slot / slotsPerSlab];
+		slab.position((slot % slotsPerSlab) * blockSize);
+		slab.put(b, off, len);
+
+		slotBlocks[slot] = block;
+		slotLengths[slot] = len;
+		referenced[slot] = false;
+		slotsByBlock.put(block, slot);
+	}
+
+	/**
+	 * Advances the clock hand to a slot which is empty or has not been referenced, evicts its block.
+	 */
+	private int nextFreeSlot() {
+		while (true) {
+			final int slot = hand;
+			hand = (hand + 1) % numberOfSlots;
+
+			if (slotBlocks[slot] == NO_BLOCK) {
+				return slot;
+			}
+			if (referenced[slot]) {
+				// Second chance
+				referenced[slot] = false;
+			} else {
+				slotsByBlock.remove(slotBlocks[slot]);
+				slotBlocks[slot] = NO_BLOCK;
+				++evictionCount;
+				return slot;
+			}
+		}
+	}
+
+	/**
+	 * Drops all cached blocks, counters are kept.
+	 */
+	public synchronized void invalidateAll() {
+		Arrays.fill(slotBlocks, NO_BLOCK);
+		Arrays.fill(referenced, false);
+		slotsByBlock.clear();
+		hand = 0;
+	}
+
+	/**
+	 * Returns the block size in bytes.
+	 *
+	 * @return the block size in bytes.
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Returns the capacity in bytes, i.e. the number of slots times the block size.
+	 *
+	 * @return the capacity in bytes.
+	 */
+	public long getCapacity() {
+		return (long) numberOfSlots * blockSize;
+	}
+
+	/**
+	 * Returns whether reads of a range of the given length should be served by this cache. Ranges spanning a large
+	 * part of the capacity (e.g. of an initial load) would evict all blocks without being read again soon, hence are
+	 * read from the source directly.
+	 *
+	 * @param length the length of the range in bytes.
+	 * @return true if the range should be read through this cache, false otherwise.
+	 */
+	public boolean isCacheable(final long length) {
+		return length <= getCapacity() / 2;
+	}
+
+	/**
+	 * Returns the number of block reads served by this cache.
+	 *
+	 * @return the number of hits.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of block reads which had to be served by the source.
+	 *
+	 * @return the number of misses.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the ratio of block reads served by this cache.
+	 *
+	 * @return the hit rate, 1.0 if there have not been any reads.
+	 */
+	public synchronized double getHitRate() {
+		final long requestCount = hitCount + missCount;
+		return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+	}
+
+	/**
+	 * Returns the number of evicted blocks.
+	 *
+	 * @return the number of evictions.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Returns the number of bytes served by this cache, i.e. not read from the source.
+	 *
+	 * @return the number of saved bytes.
+	 */
+	public synchronized long getBytesSaved() {
+		return bytesSaved;
+	}
+
+	/**
+	 * Reads bytes of the document source on a cache miss.
+	 */
+	public interface Loader {
+
+		/**
+		 * Reads a range of the document source completely.
+		 *
+		 * @param offset the offset of the first byte.
+		 * @param b the destination array.
+		 * @param off the offset within the destination array.
+		 * @param len the number of bytes to read.
+		 * @throws IOException If some I/O error occurs, or the source ends before len bytes have been read.
+		 */
+		void load(final long offset, final byte[] b, final int off, final int len) throws IOException;
+	}
+}
@@ -3,10 +3,14 @@ package at.ac.tuwien.dsg.scaledom.io;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
+import java.util.concurrent.atomic.AtomicLong;
 
 import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentSource;
+import at.ac.tuwien.dsg.scaledom.util.jfr.FlightRecorderEvents;
 
 /**
  * Base class for all <code>ReaderFactory</code> implementations.<br/>
@@ -21,6 +25,8 @@ public abstract class ReaderFactory implements Closeable, NodeLocationFactory {
 
 	/** Underlying document source. */
 	private final ScaleDomDocumentSource documentSource;
+	/** Number of bytes read by the readers of this factory. */
+	private final AtomicLong bytesRead;
 
 	/**
 	 * Default constructor.
@@ -32,6 +38,7 @@ public abstract class ReaderFactory implements Closeable, NodeLocationFactory {
 		checkNotNull(documentSource, "Argument documentSource must not be null.");
 
 		this.documentSource = documentSource;
+		this.bytesRead = new AtomicLong();
 	}
 
 	/**
@@ -60,4 +67,80 @@ public abstract class ReaderFactory implements Closeable, NodeLocationFactory {
 	 * @throws IndexOutOfBoundsException If <code>location</code> is not a valid location for the document source.
 	 */
 	public abstract Reader newReaderForLocation(final NodeLocation location) throws IOException;
+
+	/**
+	 * Returns whether this factory supports {@link #newReaderForLocation(NodeLocation, SkippedRanges)}.
+	 * 
+	 * @return true if ranges can be skipped, false otherwise (default).
+	 */
+	public boolean isSkippingSupported() {
+		return false;
+	}
+
+	/**
+	 * Returns a new <code>Reader</code> for a range of bytes within the document source, which seeks past the given
+	 * ranges instead of reading them. The skipped ranges have to lie within the requested range and have to start and
+	 * end at character boundaries. Event locations of the reader's content are converted as if nothing had been
+	 * skipped.
+	 * 
+	 * @param location the range in the document source.
+	 * @param skippedRanges the ranges not to be read.
+	 * @return a Reader for the requested character sequence, without the skipped ranges.
+	 * @throws IOException If some I/O error occurs.
+	 * @throws UnsupportedOperationException If {@link #isSkippingSupported()} returns false.
+	 */
+	public Reader newReaderForLocation(final NodeLocation location, final SkippedRanges skippedRanges)
+			throws IOException {
+		throw new UnsupportedOperationException(getClass().getName() + " does not support skipping ranges.");
+	}
+
+	/**
+	 * Returns the number of bytes of the document source read by the readers of this factory so far. Bytes served by a
+	 * block cache are included, skipped ranges are not.
+	 * 
+	 * @return the number of read bytes.
+	 */
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	/**
+	 * Adds to the number of read bytes, for implementations which do not read through {@link #countBytes(InputStream)}.
+	 * 
+	 * @param numberOfBytes the number of bytes read.
+	 */
+	protected void addBytesRead(final long numberOfBytes) {
+		bytesRead.addAndGet(numberOfBytes);
+	}
+
+	/**
+	 * Wraps a stream of the document source, such that the bytes read from it are added to the number of read bytes.
+	 * Every read into a buffer is recorded as Flight Recorder event.
+	 * 
+	 * @param in the stream of the document source.
+	 * @return the counting stream.
+	 */
+	protected InputStream countBytes(final InputStream in) {
+		return new FilterInputStream(in) {
+			@Override
+			public int read() throws IOException {
+				final int b = super.read();
+				if (b != -1) {
+					bytesRead.incrementAndGet();
+				}
+				return b;
+			}
+
+			@Override
+			public int read(final byte[] b, final int off, final int len) throws IOException {
+				final FlightRecorderEvents.Read event = FlightRecorderEvents.beginRead();
+				final int read = super.read(b, off, len);
+				if (read > 0) {
+					bytesRead.addAndGet(read);
+				}
+				event.end(Math.max(read, 0));
+				return read;
+			}
+		};
+	}
 }
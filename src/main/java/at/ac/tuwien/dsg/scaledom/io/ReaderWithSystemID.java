@@ -4,7 +4,7 @@ import java.io.IOException;
 import java.io.Reader;
 
 /**
- * Wraps a Reader to hold the systemID string of the underlying document.
+ * Wraps a Reader to hold the systemID string and, if known, the character encoding of the underlying document.
  * 
  * @author Waldemar Hummer
  */
@@ -12,10 +12,16 @@ public class ReaderWithSystemID extends Reader {
 
 	private String systemID;
 	private Reader reader;
+	private String encoding;
 
 	public ReaderWithSystemID(String systemID, Reader reader) {
+		this(systemID, reader, null);
+	}
+
+	public ReaderWithSystemID(String systemID, Reader reader, String encoding) {
 		this.systemID = systemID;
 		this.reader = reader;
+		this.encoding = encoding;
 	}
 	
 	public void close() throws IOException {
@@ -34,4 +40,13 @@ public class ReaderWithSystemID extends Reader {
 	public Reader getReader() {
 		return reader;
 	}
+
+	/**
+	 * Returns the character encoding the underlying bytes have been decoded with.
+	 * 
+	 * @return the encoding name or null if unknown.
+	 */
+	public String getEncoding() {
+		return encoding;
+	}
 }
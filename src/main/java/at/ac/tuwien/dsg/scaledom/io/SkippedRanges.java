@@ -0,0 +1,108 @@
+package at.ac.tuwien.dsg.scaledom.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Sorted, non-overlapping ranges of bytes within the document source which a reader leaves out, see
+ * {@link ReaderFactory#newReaderForLocation(NodeLocation, SkippedRanges)}. Empty ranges are allowed.<br/>
+ * The parser does not know about the left out bytes, hence this class converts offsets within the shortened byte
+ * sequence back into offsets within the document source.
+ */
+public class SkippedRanges {
+
+	/** Start offsets (inclusive) of the ranges. */
+	private final long[] starts;
+	/** End offsets (exclusive) of the ranges. */
+	private final long[] ends;
+	/** Start offsets of the ranges within the shortened byte sequence. */
+	private final long[] shortenedStarts;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param starts the start offsets (inclusive) of the ranges, in ascending order.
+	 * @param ends the end offsets (exclusive) of the ranges.
+	 * @param size the number of ranges, i.e. the number of used array elements.
+	 */
+	public SkippedRanges(final long[] starts, final long[] ends, final int size) {
+		checkNotNull(starts, "Argument starts must not be null.");
+		checkNotNull(ends, "Argument ends must not be null.");
+		checkArgument(size >= 0 && size <= starts.length && size <= ends.length,
+				"Expected size to be a valid number of ranges, but %s is not.", size);
+
+		this.starts = new long[size];
+		this.ends = new long[size];
+		this.shortenedStarts = new long[size];
+
+		long skipped = 0;
+		for (int i = 0; i < size; ++i) {
+			checkArgument(starts[i] <= ends[i], "Expected range %s to be [start, end), but [%s, %s) is not.", i,
+					starts[i], ends[i]);
+			checkArgument(i == 0 || ends[i - 1] <= starts[i], "Expected range %s not to overlap its predecessor.", i);
+
+			this.starts[i] = starts[i];
+			this.ends[i] = ends[i];
+			this.shortenedStarts[i] = starts[i] - skipped;
+			skipped += ends[i] - starts[i];
+		}
+	}
+
+	/**
+	 * Returns the number of ranges.
+	 *
+	 * @return the number of ranges.
+	 */
+	public int size() {
+		return starts.length;
+	}
+
+	/**
+	 * Returns the start offset (inclusive) of a range.
+	 *
+	 * @param index the range index.
+	 * @return the start offset.
+	 */
+	public long getStart(final int index) {
+		return starts[index];
+	}
+
+	/**
+	 * Returns the end offset (exclusive) of a range.
+	 *
+	 * @param index the range index.
+	 * @return the end offset.
+	 */
+	public long getEnd(final int index) {
+		return ends[index];
+	}
+
+	/**
+	 * Converts an offset within the shortened byte sequence into an offset within the document source. Both are
+	 * counted from the same origin, i.e. the reader has to start before the first range. An offset at the position of
+	 * a left out range is converted into the end of that range.
+	 *
+	 * @param offset the offset within the shortened byte sequence.
+	 * @return the offset within the document source.
+	 */
+	public long toSourceOffset(final long offset) {
+		// Find the last range starting at or before offset
+		int low = 0;
+		int high = shortenedStarts.length - 1;
+		int found = -1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			if (shortenedStarts[mid] <= offset) {
+				found = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		if (found == -1) {
+			return offset;
+		}
+		return offset - shortenedStarts[found] + ends[found];
+	}
+}
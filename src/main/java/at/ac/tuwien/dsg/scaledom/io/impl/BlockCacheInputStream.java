@@ -0,0 +1,153 @@
+package at.ac.tuwien.dsg.scaledom.io.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import at.ac.tuwien.dsg.scaledom.io.BlockCache;
+import at.ac.tuwien.dsg.scaledom.io.SkippedRanges;
+
+/**
+ * <code>InputStream</code> implementation which reads a specific range of a document source through a
+ * <code>BlockCache</code>.<br/>
+ * Cached blocks are copied from the cache. On a miss, the missing block and the following ones up to the next cached
+ * block (at most MAX_LOADED_BLOCKS, and not beyond the range or the next skipped range) are read from the source at
+ * once and added to the cache, i.e. a single request serves a run of missing blocks.
+ */
+public class BlockCacheInputStream extends InputStream {
+
+	/** Maximum number of blocks read from the source at once. */
+	private final static int MAX_LOADED_BLOCKS = 16;
+
+	/** Underlying block cache */
+	private final BlockCache cache;
+	/** Reads from the source on a miss */
+	private final BlockCache.Loader loader;
+	/** Size of the source */
+	private final long sourceSize;
+	/** Current position */
+	private long position;
+	/** End of range */
+	private final long maxPosition;
+	/** Ranges to seek past, null if none */
+	private final SkippedRanges skippedRanges;
+	/** Index of the next range to seek past */
+	private int nextSkippedRange;
+	/** Buffer for blocks read from the source, allocated on the first miss */
+	private byte[] loadBuffer;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param cache the block cache.
+	 * @param loader reads from the source on a miss.
+	 * @param sourceSize the size of the source in bytes.
+	 * @param rangeStart the offset of the first byte of the first character.
+	 * @param rangeEnd the offset of the last byte of the last character.
+	 * @param skippedRanges ranges within the range which are seeked past instead of being read, may be null.
+	 */
+	public BlockCacheInputStream(final BlockCache cache, final BlockCache.Loader loader, final long sourceSize,
+			final long rangeStart, final long rangeEnd, final SkippedRanges skippedRanges) {
+		checkNotNull(cache, "Expected cache to be not null.");
+		checkNotNull(loader, "Expected loader to be not null.");
+		checkArgument(rangeStart >= 0 && rangeStart <= sourceSize,
+				"Expected rangeStart to be a valid index, but %s is not. Source size is %s.", rangeStart, sourceSize);
+		checkArgument(rangeEnd > 0 && rangeEnd <= sourceSize,
+				"Expected rangeEnd to be a valid index, but %s is not. Source size is %s.", rangeEnd, sourceSize);
+		checkArgument(rangeStart < rangeEnd, "Expected rangeStart to be smaller than rangeEnd, but %s >= %s is not.",
+				rangeStart, rangeEnd);
+
+		this.cache = cache;
+		this.loader = loader;
+		this.sourceSize = sourceSize;
+		this.position = rangeStart;
+		this.maxPosition = rangeEnd;
+		this.skippedRanges = skippedRanges;
+		this.nextSkippedRange = 0;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		seekPastSkippedRanges();
+		if (position >= maxPosition) {
+			return -1;
+		}
+
+		// Read either len bytes or until the end of the range, the next skipped range or the current block
+		final long readEnd = getReadEnd();
+		final int blockSize = cache.getBlockSize();
+		final long block = position / blockSize;
+		final int offsetInBlock = (int) (position % blockSize);
+		final int bytesToRead = (int) Math.min(Math.min(len, readEnd - position), blockSize - offsetInBlock);
+
+		int read = cache.read(block, offsetInBlock, b, off, bytesToRead);
+		if (read == -1) {
+			read = load(block, readEnd, offsetInBlock, b, off, bytesToRead);
+		}
+		position += read;
+		return read;
+	}
+
+	/**
+	 * Reads a missing block and the following missing blocks up to readEnd from the source and adds them to the cache.
+	 * Copies the requested bytes of the first block.
+	 */
+	private int load(final long firstBlock, final long readEnd, final int offsetInBlock, final byte[] b,
+			final int off, final int len) throws IOException {
+		final int blockSize = cache.getBlockSize();
+		final long lastBlock = Math.min((readEnd - 1) / blockSize, firstBlock + MAX_LOADED_BLOCKS - 1);
+		long endBlock = firstBlock + 1;
+		while (endBlock <= lastBlock && !cache.contains(endBlock)) {
+			++endBlock;
+		}
+
+		final long loadStart = firstBlock * blockSize;
+		final int loadLength = (int) (Math.min(endBlock * blockSize, sourceSize) - loadStart);
+		if (loadBuffer == null || loadBuffer.length < loadLength) {
+			loadBuffer = new byte[Math.max(loadLength, blockSize)];
+		}
+		loader.load(loadStart, loadBuffer, 0, loadLength);
+
+		for (int start = 0; start < loadLength; start += blockSize) {
+			cache.write(firstBlock + start / blockSize, loadBuffer, start, Math.min(blockSize, loadLength - start));
+		}
+
+		System.arraycopy(loadBuffer, offsetInBlock, b, off, len);
+		return len;
+	}
+
+	/**
+	 * Returns the end of the bytes which may be read from the current position, i.e. the end of the range or the start
+	 * of the next skipped range.
+	 */
+	private long getReadEnd() {
+		if (skippedRanges != null && nextSkippedRange < skippedRanges.size()) {
+			return Math.min(maxPosition, skippedRanges.getStart(nextSkippedRange));
+		}
+		return maxPosition;
+	}
+
+	/**
+	 * Moves the position past all skipped ranges starting at the current position.
+	 */
+	private void seekPastSkippedRanges() {
+		if (skippedRanges == null) {
+			return;
+		}
+
+		while (nextSkippedRange < skippedRanges.size() && skippedRanges.getStart(nextSkippedRange) <= position) {
+			final long end = skippedRanges.getEnd(nextSkippedRange++);
+			if (end > position) {
+				position = Math.min(end, maxPosition);
+			}
+		}
+	}
+}
@@ -5,6 +5,7 @@ import java.io.Reader;
 
 import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
 import at.ac.tuwien.dsg.scaledom.io.ReaderFactory;
+import at.ac.tuwien.dsg.scaledom.io.SkippedRanges;
 import at.ac.tuwien.dsg.scaledom.parser.XmlEventLocation;
 
 /**
@@ -22,7 +23,7 @@ public class DelegatorReaderFactory extends ReaderFactory {
 	 * Construct a reader factory for a FileDocumentSource.
 	 */
 	public DelegatorReaderFactory(final FileDocumentSource source) throws IOException {
-		super(null);
+		super(source);
 		actualFactory = new FileReaderFactory(source);
 	}
 
@@ -44,6 +45,22 @@ public class DelegatorReaderFactory extends ReaderFactory {
 		return actualFactory.newReaderForLocation(location);
 	}
 
+	@Override
+	public boolean isSkippingSupported() {
+		return actualFactory.isSkippingSupported();
+	}
+
+	@Override
+	public Reader newReaderForLocation(final NodeLocation location, final SkippedRanges skippedRanges)
+			throws IOException {
+		return actualFactory.newReaderForLocation(location, skippedRanges);
+	}
+
+	@Override
+	public long getBytesRead() {
+		return actualFactory.getBytesRead();
+	}
+
 	@Override
 	public void close() throws IOException {
 		actualFactory.close();
@@ -11,8 +11,12 @@ import java.nio.channels.FileChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.ac.tuwien.dsg.scaledom.io.SkippedRanges;
+
 /**
- * <code>InputStream</code> implementation which is based upon a specific range within a <code>FileChannel</code>.
+ * <code>InputStream</code> implementation which is based upon a specific range within a <code>FileChannel</code>.<br/>
+ * The stream keeps its own position and uses positional reads only, the channel's position is never changed. Hence
+ * multiple streams may read from the same channel at the same time.
  * 
  * @author Dominik Rauch
  */
@@ -23,8 +27,24 @@ public class FileChannelRangeInputStream extends InputStream {
 
 	/** Underlying file channel */
 	private final FileChannel channel;
+	/** Current position */
+	private long position;
 	/** End of range */
 	private final long maxPosition;
+	/** Ranges to seek past, null if none */
+	private final SkippedRanges skippedRanges;
+	/** Index of the next range to seek past */
+	private int nextSkippedRange;
+
+	/**
+	 * Calls this(channel, rangeStart, rangeEnd, null).
+	 * 
+	 * @see #FileChannelRangeInputStream(FileChannel, long, long, SkippedRanges)
+	 */
+	public FileChannelRangeInputStream(final FileChannel channel, final long rangeStart, final long rangeEnd)
+			throws IOException {
+		this(channel, rangeStart, rangeEnd, null);
+	}
 
 	/**
 	 * Default constructor.
@@ -32,10 +52,11 @@ public class FileChannelRangeInputStream extends InputStream {
 	 * @param channel the file channel.
 	 * @param rangeStart the offset of the first byte of the first character.
 	 * @param rangeEnd the offset of the last byte of the last character.
+	 * @param skippedRanges ranges within the range which are seeked past instead of being read, may be null.
 	 * @throws IOException If some I/O error occurs.
 	 */
-	public FileChannelRangeInputStream(final FileChannel channel, final long rangeStart, final long rangeEnd)
-			throws IOException {
+	public FileChannelRangeInputStream(final FileChannel channel, final long rangeStart, final long rangeEnd,
+			final SkippedRanges skippedRanges) throws IOException {
 		checkNotNull(channel, "Expected channel to be not null.");
 		final long fileSize = channel.size();
 		checkArgument(rangeStart >= 0 && rangeStart <= fileSize,
@@ -46,13 +67,15 @@ public class FileChannelRangeInputStream extends InputStream {
 				rangeStart, rangeEnd);
 
 		this.channel = channel;
+		this.position = rangeStart;
 		this.maxPosition = rangeEnd;
-
-		channel.position(rangeStart);
+		this.skippedRanges = skippedRanges;
+		this.nextSkippedRange = 0;
 	}
 
 	@Override
 	public int read() throws IOException {
+		seekPastSkippedRanges();
 		if (getRemainingBytes() == 0) {
 			return -1;
 		}
@@ -61,41 +84,65 @@ public class FileChannelRangeInputStream extends InputStream {
 
 		// Read a single byte from the channel
 		final ByteBuffer bb = ByteBuffer.allocate(1);
-		channel.read(bb);
-		return bb.get();
+		if (channel.read(bb, position) != 1) {
+			return -1;
+		}
+		++position;
+		return bb.get(0) & 0xFF;
 	}
 
 	@Override
 	public int read(final byte[] b, final int off, final int len) throws IOException {
+		seekPastSkippedRanges();
 		final int remainingBytes = getRemainingBytes();
 		if (remainingBytes == 0) {
 			return -1;
 		}
 
-		// Load either len bytes or until the end of the range
-		final int bytesToRead = Math.min(len, remainingBytes);
+		// Load either len bytes or until the end of the range or the next skipped range
+		int bytesToRead = Math.min(len, remainingBytes);
+		if (skippedRanges != null && nextSkippedRange < skippedRanges.size()) {
+			bytesToRead = (int) Math.min(bytesToRead, skippedRanges.getStart(nextSkippedRange) - position);
+		}
 
 		// Wrap b and read bytesToRead bytes from the file
-		final long oldChanPos = channel.position();
 		final ByteBuffer bb = ByteBuffer.wrap(b);
 		bb.position(off);
 		bb.limit(off + bytesToRead);
-		final int read = channel.read(bb);
-
-		final byte[] debugBytesRead = new byte[read];
-		System.arraycopy(b, off, debugBytesRead, 0, read);
-		log.debug("Read (len=" + bytesToRead + " from fileoff=" + oldChanPos + "): "
-				+ new String(debugBytesRead, "UTF-8"));
+		final int read = channel.read(bb, position);
+		if (read == -1) {
+			return -1;
+		}
+		if (log.isTraceEnabled()) {
+			log.trace("Read (len=" + bytesToRead + " from fileoff=" + position + "): "
+					+ new String(b, off, read, "UTF-8"));
+		}
+		position += read;
 		return read;
 	}
 
+	/**
+	 * Moves the position past all skipped ranges starting at the current position.
+	 */
+	private void seekPastSkippedRanges() {
+		if (skippedRanges == null) {
+			return;
+		}
+
+		while (nextSkippedRange < skippedRanges.size() && skippedRanges.getStart(nextSkippedRange) <= position) {
+			final long end = skippedRanges.getEnd(nextSkippedRange++);
+			if (end > position) {
+				position = Math.min(end, maxPosition);
+			}
+		}
+	}
+
 	/**
 	 * Returns the number of remaining bytes until the end of the channel part has been reached.
 	 * 
 	 * @return number of remaining bytes.
-	 * @throws IOException If some I/O error occurs.
 	 */
-	private int getRemainingBytes() throws IOException {
-		return (int) (maxPosition - channel.position());
+	private int getRemainingBytes() {
+		return (int) Math.min(maxPosition - position, Integer.MAX_VALUE);
 	}
 }
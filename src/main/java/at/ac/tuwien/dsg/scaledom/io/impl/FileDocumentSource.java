@@ -18,6 +18,7 @@ public class FileDocumentSource extends ScaleDomDocumentSource {
 		return file;
 	}
 
+	@Override
 	public String getEncoding() {
 		return encoding;
 	}
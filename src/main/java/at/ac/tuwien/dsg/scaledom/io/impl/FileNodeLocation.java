@@ -12,7 +12,7 @@ public class FileNodeLocation extends NodeLocation {
 	private long startOffset;
 	private long endOffset;
 
-	FileNodeLocation(final long startOffset, final long endOffset) {
+	public FileNodeLocation(final long startOffset, final long endOffset) {
 		this.startOffset = startOffset;
 		this.endOffset = endOffset;
 	}
@@ -4,19 +4,24 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.ac.tuwien.dsg.scaledom.io.BlockCache;
 import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
 import at.ac.tuwien.dsg.scaledom.io.ReaderFactory;
 import at.ac.tuwien.dsg.scaledom.io.ReaderWithSystemID;
+import at.ac.tuwien.dsg.scaledom.io.SkippedRanges;
 import at.ac.tuwien.dsg.scaledom.parser.XmlEventCharLocation;
 import at.ac.tuwien.dsg.scaledom.parser.XmlEventLocation;
 import at.ac.tuwien.dsg.scaledom.util.Utils;
@@ -24,7 +29,8 @@ import at.ac.tuwien.dsg.scaledom.util.Utils;
 /**
  * <code>FileReaderFactory</code> implementation.<br/>
  * This implementation provides a <code>Reader</code> based upon <code>FileInputStream</code> for full file reading and
- * one based upon <code>RandomAccessFile</code> for file range reading.
+ * one based upon <code>RandomAccessFile</code> for file range reading. File ranges are read through the document
+ * source's <code>BlockCache</code>, if any.
  * 
  * @author Dominik Rauch
  */
@@ -41,6 +47,8 @@ public class FileReaderFactory extends ReaderFactory {
 	private final int numberOfBytesPerCharacter;
 	/** Start offset of the currently obtained reader. */
 	private long readerOffset;
+	/** Ranges skipped by the currently obtained reader, null if none. */
+	private SkippedRanges skippedRanges;
 
 	/**
 	 * Default constructor.
@@ -52,6 +60,7 @@ public class FileReaderFactory extends ReaderFactory {
 		super(source);
 		numberOfBytesPerCharacter = Utils.getNumberOfBytesPerCharacter(source.getEncoding());
 		readerOffset = 0;
+		skippedRanges = null;
 
 		log.debug("Encoding " + source.getEncoding() + " is used for the document. Number of bytes per character: "
 				+ numberOfBytesPerCharacter);
@@ -60,13 +69,25 @@ public class FileReaderFactory extends ReaderFactory {
 	@Override
 	public Reader newReader() throws IOException {
 		final FileDocumentSource source = (FileDocumentSource) getDocumentSource();
-		readerOffset = 0;
-		Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(source.getFile()), source.getEncoding()));
-		return new ReaderWithSystemID(source.getFile().toURI().toString(), reader);
+		setReaderOffset(0);
+		Reader reader = new BufferedReader(new InputStreamReader(countBytes(new FileInputStream(source.getFile())),
+				source.getEncoding()));
+		return new ReaderWithSystemID(source.getFile().toURI().toString(), reader, source.getEncoding());
 	}
 
 	@Override
 	public Reader newReaderForLocation(final NodeLocation location) throws IOException {
+		return newReaderForLocation(location, null);
+	}
+
+	@Override
+	public boolean isSkippingSupported() {
+		return true;
+	}
+
+	@Override
+	public Reader newReaderForLocation(final NodeLocation location, final SkippedRanges skippedRanges)
+			throws IOException {
 		checkNotNull(location, "Argument location must not be null");
 		checkArgument(location instanceof FileNodeLocation, "Argument location must be of type FileNodeLocation");
 
@@ -79,11 +100,52 @@ public class FileReaderFactory extends ReaderFactory {
 		}
 
 		final FileNodeLocation fileLocation = (FileNodeLocation) location;
-		readerOffset = fileLocation.getStartOffset();
+		setReaderOffset(fileLocation.getStartOffset(), skippedRanges);
+
+		final long rangeStart = fileLocation.getStartOffset();
+		final long rangeEnd = fileLocation.getEndOffset();
+		final BlockCache blockCache = source.getBlockCache();
+		final InputStream in;
+		if (blockCache != null && blockCache.isCacheable(rangeEnd - rangeStart)) {
+			in = new BlockCacheInputStream(blockCache, new BlockCache.Loader() {
+				@Override
+				public void load(final long offset, final byte[] b, final int off, final int len) throws IOException {
+					final ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+					while (bb.hasRemaining()) {
+						if (channel.read(bb, offset + bb.position() - off) == -1) {
+							throw new EOFException("Unexpected end of file at offset " + (offset + bb.position() - off)
+									+ ".");
+						}
+					}
+				}
+			}, channel.size(), rangeStart, rangeEnd, skippedRanges);
+		} else {
+			in = new FileChannelRangeInputStream(channel, rangeStart, rangeEnd, skippedRanges);
+		}
 
-		Reader reader = new BufferedReader(new InputStreamReader(new FileChannelRangeInputStream(channel,
-				fileLocation.getStartOffset(), fileLocation.getEndOffset()), source.getEncoding()));
-		return new ReaderWithSystemID(source.getFile().toURI().toString(), reader);
+		Reader reader = new BufferedReader(new InputStreamReader(countBytes(in), source.getEncoding()));
+		return new ReaderWithSystemID(source.getFile().toURI().toString(), reader, source.getEncoding());
+	}
+
+	/**
+	 * Calls setReaderOffset(readerOffset, null).
+	 * 
+	 * @see #setReaderOffset(long, SkippedRanges)
+	 */
+	protected void setReaderOffset(final long readerOffset) {
+		setReaderOffset(readerOffset, null);
+	}
+
+	/**
+	 * Sets the start offset and the skipped ranges of the currently obtained reader, required by subclasses which
+	 * create readers on their own.
+	 * 
+	 * @param readerOffset the start offset (in bytes) of the currently obtained reader.
+	 * @param skippedRanges the ranges skipped by the currently obtained reader, may be null.
+	 */
+	protected void setReaderOffset(final long readerOffset, final SkippedRanges skippedRanges) {
+		this.readerOffset = readerOffset;
+		this.skippedRanges = skippedRanges;
 	}
 
 	@Override
@@ -103,7 +165,11 @@ public class FileReaderFactory extends ReaderFactory {
 					+ "), you must use an XmlParser implementation which is able to output byte locations.");
 		}
 
-		final long startingOffset = (location.getStartingOffset() + readerOffset - additionalOffset) * sizefac;
+		// readerOffset is a byte offset already, only the parser's relative offset has to be converted
+		long startingOffset = (location.getStartingOffset() - additionalOffset) * sizefac + readerOffset;
+		if (skippedRanges != null) {
+			startingOffset = skippedRanges.toSourceOffset(startingOffset);
+		}
 		return new FileNodeLocation(startingOffset, FileNodeLocation.OFFSET_UNKNOWN);
 	}
 }
@@ -79,12 +79,14 @@ public class HttpChannelRangeInputStream extends InputStream {
 
 		// Read from the URL connection
 		final int read = urlConnection.getInputStream().read(b, off, bytesToRead);
+		if (read == -1) {
+			return -1;
+		}
+		if (log.isTraceEnabled()) {
+			log.trace("Read (len=" + bytesToRead + " from fileoff=" + currentPosition + "): "
+					+ new String(b, off, read, "UTF-8"));
+		}
 		currentPosition += read;
-
-		final byte[] debugBytesRead = new byte[read];
-		System.arraycopy(b, off, debugBytesRead, 0, read);
-		log.debug("Read (len=" + bytesToRead + " from fileoff=" + currentPosition + "): "
-				+ new String(debugBytesRead, "UTF-8"));
 		return read;
 	}
 
@@ -8,6 +8,7 @@ public class HttpDocumentSource extends ScaleDomDocumentSource {
 
 	private final URL url;
 	private final String encoding;
+	private HttpRangeClient rangeClient;
 
 	public HttpDocumentSource(final URL url, final String encoding) {
 		this.url = url;
@@ -18,7 +19,34 @@ public class HttpDocumentSource extends ScaleDomDocumentSource {
 		return url;
 	}
 
+	@Override
 	public String getEncoding() {
 		return encoding;
 	}
+
+	/**
+	 * Returns the client requesting the document, shared by all <code>HttpReaderFactory</code> objects. A client with
+	 * default settings is created on first demand.
+	 * 
+	 * @return the client.
+	 */
+	public synchronized HttpRangeClient getRangeClient() {
+		if (rangeClient == null) {
+			rangeClient = new HttpRangeClient(url);
+		}
+		return rangeClient;
+	}
+
+	/**
+	 * Sets the client requesting the document, e.g. one with a different part size. Has to be set before the source is
+	 * parsed.
+	 * 
+	 * @param rangeClient the client for the URL of this source.
+	 */
+	public synchronized void setRangeClient(final HttpRangeClient rangeClient) {
+		if (!url.equals(rangeClient.getUrl())) {
+			throw new IllegalArgumentException("Client requests " + rangeClient.getUrl() + " instead of " + url + ".");
+		}
+		this.rangeClient = rangeClient;
+	}
 }
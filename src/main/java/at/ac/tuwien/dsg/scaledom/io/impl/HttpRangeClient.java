@@ -0,0 +1,642 @@
+package at.ac.tuwien.dsg.scaledom.io.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Client reading ranges of an HTTP document by Range requests, shared by all <code>HttpReaderFactory</code> objects
+ * reading the document.<br/>
+ * <ul>
+ * <li>Content length, ETag and support of range requests are requested once by a HEAD request, or by a request of the
+ * first byte if the server rejects HEAD requests. Range requests carry the ETag in an If-Range header, a document
+ * changed meanwhile fails the request instead of mixing two versions.</li>
+ * <li>Response bodies are read to their end and closed, so that the keep-alive cache of <code>HttpURLConnection</code>
+ * reuses the connections (see the <code>http.maxConnections</code> system property). Range requests answered by the
+ * whole document are disconnected instead once the range has been read, rather than reading the rest of the
+ * document.</li>
+ * <li>Ranges larger than a part are split into parts, which are requested concurrently and read in order.</li>
+ * <li>Failed requests are retried after a growing delay, unless the server answered with a client error. A stream
+ * failing in the middle of a range continues with a new request from its current position.</li>
+ * </ul>
+ * This class is thread-safe.
+ */
+public class HttpRangeClient {
+
+	/** Logger. */
+	private final static Logger log = LoggerFactory.getLogger(HttpRangeClient.class);
+
+	/** Default number of concurrent part requests per range. */
+	public final static int DEFAULT_PARALLELISM = 4;
+	/** Default part size in bytes. */
+	public final static int DEFAULT_PART_SIZE = 1024 * 1024;
+	/** Default number of retries of a failed request. */
+	public final static int DEFAULT_MAX_RETRIES = 3;
+
+	/** Delay before the first retry, doubled for every further retry. */
+	private final static long RETRY_DELAY_MILLIS = 100;
+	/** Seconds after which idle threads requesting parts terminate. */
+	private final static long KEEP_ALIVE_SECONDS = 60;
+	/** Status of a rate-limited request, missing in <code>HttpURLConnection</code>. */
+	private final static int HTTP_TOO_MANY_REQUESTS = 429;
+	/** Size of the buffer used to drain response bodies. */
+	private final static int DRAIN_BUFFER_SIZE = 8192;
+
+	private final URL url;
+	private final int parallelism;
+	private final int partSize;
+	private final int maxRetries;
+	private final ThreadPoolExecutor executor;
+
+	/** Flag whether the document's metadata have been requested. */
+	private boolean probed;
+	/** Content length of the document, -1 if unknown. */
+	private long contentLength;
+	/** ETag of the document, null if unknown. */
+	private String etag;
+	/** Flag whether the server supports range requests. */
+	private boolean rangesSupported;
+
+	/**
+	 * Calls this(url, DEFAULT_PARALLELISM, DEFAULT_PART_SIZE, DEFAULT_MAX_RETRIES).
+	 *
+	 * @see #HttpRangeClient(URL, int, int, int)
+	 */
+	public HttpRangeClient(final URL url) {
+		this(url, DEFAULT_PARALLELISM, DEFAULT_PART_SIZE, DEFAULT_MAX_RETRIES);
+	}
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param url the URL of the document.
+	 * @param parallelism the maximum number of concurrent part requests per range, 1 disables splitting ranges.
+	 * @param partSize the part size in bytes, ranges larger than that are split into parts.
+	 * @param maxRetries the maximum number of retries of a failed request.
+	 */
+	public HttpRangeClient(final URL url, final int parallelism, final int partSize, final int maxRetries) {
+		checkNotNull(url, "Argument url must not be null.");
+		checkArgument(parallelism > 0, "Expected parallelism to be positive, but %s is not.", parallelism);
+		checkArgument(partSize > 0, "Expected partSize to be positive, but %s is not.", partSize);
+		checkArgument(maxRetries >= 0, "Expected maxRetries to be non-negative, but %s is not.", maxRetries);
+
+		this.url = url;
+		this.parallelism = parallelism;
+		this.partSize = partSize;
+		this.maxRetries = maxRetries;
+		executor = new ThreadPoolExecutor(parallelism, parallelism, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder().setDaemon(true)
+						.setNameFormat("ScaleDOM-HttpRange-%d").build());
+		executor.allowCoreThreadTimeOut(true);
+		probed = false;
+		contentLength = -1;
+		etag = null;
+		rangesSupported = false;
+	}
+
+	/**
+	 * Returns the URL of the document.
+	 *
+	 * @return the URL.
+	 */
+	public URL getUrl() {
+		return url;
+	}
+
+	/**
+	 * Returns the content length of the document, requests it on first demand.
+	 *
+	 * @return the content length in bytes, -1 if unknown.
+	 * @throws IOException If the request fails.
+	 */
+	public synchronized long getContentLength() throws IOException {
+		probe();
+		return contentLength;
+	}
+
+	/**
+	 * Returns the ETag of the document, requests it on first demand.
+	 *
+	 * @return the ETag, null if the server does not send one.
+	 * @throws IOException If the request fails.
+	 */
+	public synchronized String getETag() throws IOException {
+		probe();
+		return etag;
+	}
+
+	/**
+	 * Returns a new <code>InputStream</code> for the whole document.
+	 *
+	 * @return a stream of the document.
+	 * @throws IOException If the request fails.
+	 */
+	public InputStream newInputStream() throws IOException {
+		final boolean ranges;
+		final long length;
+		synchronized (this) {
+			probe();
+			ranges = rangesSupported;
+			length = contentLength;
+		}
+
+		if (ranges && length > 0) {
+			return newInputStream(0, length);
+		}
+		return withRetries(new Request<InputStream>() {
+			@Override
+			public InputStream run() throws IOException {
+				final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+				checkStatus(connection);
+				return connection.getInputStream();
+			}
+		});
+	}
+
+	/**
+	 * Returns a new <code>InputStream</code> for a range of the document.
+	 *
+	 * @param rangeStart the offset of the first byte.
+	 * @param rangeEnd the offset after the last byte.
+	 * @return a stream of the range.
+	 */
+	public InputStream newInputStream(final long rangeStart, final long rangeEnd) {
+		checkArgument(rangeStart >= 0 && rangeStart < rangeEnd,
+				"Expected a valid range, but [%s/%s] is not.", rangeStart, rangeEnd);
+
+		if (parallelism > 1 && rangeEnd - rangeStart > partSize) {
+			return new PartsInputStream(rangeStart, rangeEnd);
+		}
+		return new ResumingInputStream(rangeStart, rangeEnd);
+	}
+
+	/**
+	 * Reads a range of the document completely by a single request.
+	 *
+	 * @param offset the offset of the first byte.
+	 * @param b the destination array.
+	 * @param off the offset within the destination array.
+	 * @param len the number of bytes to read.
+	 * @throws IOException If the request fails, or the document ends before len bytes have been read.
+	 */
+	public void read(final long offset, final byte[] b, final int off, final int len) throws IOException {
+		withRetries(new Request<Void>() {
+			@Override
+			public Void run() throws IOException {
+				final InputStream is = openRange(offset, offset + len);
+				try {
+					int read = 0;
+					while (read < len) {
+						final int n = is.read(b, off + read, len - read);
+						if (n == -1) {
+							throw new EOFException("Unexpected end of document at offset " + (offset + read) + ".");
+						}
+						read += n;
+					}
+					// Reuses the connection of a partial response, a whole document is disconnected by close()
+					drain(is);
+				} finally {
+					is.close();
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Requests the document's metadata by a HEAD request, if not done before. If the server rejects the HEAD request,
+	 * e.g. by 405 Method Not Allowed, the metadata are requested by a range request of the first byte.
+	 */
+	private void probe() throws IOException {
+		if (probed) {
+			return;
+		}
+
+		try {
+			withRetries(new Request<Void>() {
+				@Override
+				public Void run() throws IOException {
+					final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+					connection.setRequestMethod("HEAD");
+					checkStatus(connection);
+					contentLength = parseContentLength(connection.getHeaderField("Content-Length"));
+					etag = connection.getHeaderField("ETag");
+					rangesSupported = "bytes".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges"));
+					drain(connection.getInputStream());
+					return null;
+				}
+			});
+		} catch (final HttpStatusException ex) {
+			if (isTransient(ex)) {
+				throw ex;
+			}
+			log.debug("HEAD request for " + url + " failed with status " + ex.getStatus()
+					+ ", requesting the first byte instead.");
+			withRetries(new Request<Void>() {
+				@Override
+				public Void run() throws IOException {
+					final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+					connection.setRequestProperty("Range", "bytes=0-0");
+					checkStatus(connection);
+					etag = connection.getHeaderField("ETag");
+					if (connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL) {
+						// Content-Range: bytes 0-0/length, the length may be unknown ("*")
+						final String range = connection.getHeaderField("Content-Range");
+						contentLength = parseContentLength(range != null ? range.substring(range.indexOf('/') + 1)
+								: null);
+						rangesSupported = true;
+						drain(connection.getInputStream());
+					} else {
+						// The server sends the whole document
+						contentLength = parseContentLength(connection.getHeaderField("Content-Length"));
+						rangesSupported = false;
+						connection.disconnect();
+					}
+					return null;
+				}
+			});
+		}
+		probed = true;
+		log.debug("Document " + url + ": content length " + contentLength + ", ETag " + etag + ", ranges "
+				+ (rangesSupported ? "supported." : "not supported."));
+	}
+
+	/**
+	 * Sends a single range request.
+	 *
+	 * @return the response body, positioned at rangeStart.
+	 */
+	private InputStream openRange(final long rangeStart, final long rangeEnd) throws IOException {
+		final String expectedETag = getETag();
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestProperty("Range", "bytes=" + rangeStart + "-" + (rangeEnd - 1));
+		if (expectedETag != null) {
+			connection.setRequestProperty("If-Range", expectedETag);
+		}
+		checkStatus(connection);
+
+		final InputStream is = connection.getInputStream();
+		if (connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL) {
+			return is;
+		}
+
+		// The server sends the whole document, either it ignores ranges or the document has changed
+		if (expectedETag != null && !expectedETag.equals(connection.getHeaderField("ETag"))) {
+			connection.disconnect();
+			throw new HttpStatusException(HttpURLConnection.HTTP_PRECON_FAILED, "Document " + url
+					+ " has changed since it has been parsed.");
+		}
+		long skipped = 0;
+		while (skipped < rangeStart) {
+			final long n = is.skip(rangeStart - skipped);
+			if (n <= 0) {
+				connection.disconnect();
+				throw new EOFException("Unexpected end of document before offset " + rangeStart + ".");
+			}
+			skipped += n;
+		}
+		return new DisconnectingInputStream(connection, ByteStreams.limit(is, rangeEnd - rangeStart));
+	}
+
+	/**
+	 * Throws an <code>HttpStatusException</code> if the response status is not successful, after draining the error
+	 * body so that the connection can be reused.
+	 */
+	private void checkStatus(final HttpURLConnection connection) throws IOException {
+		final int status = connection.getResponseCode();
+		if (status >= 200 && status < 300) {
+			return;
+		}
+
+		final InputStream error = connection.getErrorStream();
+		if (error != null) {
+			drain(error);
+			error.close();
+		}
+		throw new HttpStatusException(status, "Request for " + url + " failed with status " + status + ".");
+	}
+
+	/**
+	 * Reads a response body to its end, as required for reusing the connection.
+	 */
+	private static void drain(final InputStream is) throws IOException {
+		final byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+		while (is.read(buffer) != -1) {
+			// Discard
+		}
+	}
+
+	/**
+	 * Parses the value of a Content-Length header.
+	 *
+	 * @return the content length, or -1 if the header is missing or invalid.
+	 */
+	private static long parseContentLength(final String value) {
+		if (value == null) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (final NumberFormatException ex) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Runs a request, retries it on transient failures.
+	 */
+	private <T> T withRetries(final Request<T> request) throws IOException {
+		int retries = 0;
+		while (true) {
+			try {
+				return request.run();
+			} catch (final IOException ex) {
+				if (!isTransient(ex) || retries >= maxRetries) {
+					throw ex;
+				}
+				backOff(retries++, ex);
+			}
+		}
+	}
+
+	/**
+	 * Waits before a retry.
+	 */
+	private void backOff(final int retries, final IOException cause) throws IOException {
+		final long delay = RETRY_DELAY_MILLIS << retries;
+		log.warn("Request for " + url + " failed (" + cause + "), retrying in " + delay + " ms.");
+		try {
+			Thread.sleep(delay);
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a retry.");
+		}
+	}
+
+	/**
+	 * Returns whether a failed request may succeed if retried, i.e. unless the server answered with a client error.
+	 */
+	private static boolean isTransient(final IOException ex) {
+		if (ex instanceof InterruptedIOException && !(ex instanceof SocketTimeoutException)) {
+			return false;
+		}
+		if (ex instanceof HttpStatusException) {
+			final int status = ((HttpStatusException) ex).getStatus();
+			return status >= 500 || status == HttpURLConnection.HTTP_CLIENT_TIMEOUT || status == HTTP_TOO_MANY_REQUESTS;
+		}
+		return true;
+	}
+
+	/**
+	 * A request which may be retried.
+	 */
+	private interface Request<T> {
+
+		T run() throws IOException;
+	}
+
+	/**
+	 * Thrown if the server answers with an unsuccessful status.
+	 */
+	public static class HttpStatusException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int status;
+
+		/**
+		 * Default constructor.
+		 *
+		 * @param status the HTTP status.
+		 * @param message the detail message.
+		 */
+		public HttpStatusException(final int status, final String message) {
+			super(message);
+			this.status = status;
+		}
+
+		/**
+		 * Returns the HTTP status.
+		 *
+		 * @return the HTTP status.
+		 */
+		public int getStatus() {
+			return status;
+		}
+	}
+
+	/**
+	 * Response body of a range request answered by the whole document, limited to the range. Closing the stream
+	 * disconnects the connection, draining it would read the rest of the document.
+	 */
+	private static class DisconnectingInputStream extends FilterInputStream {
+
+		private final HttpURLConnection connection;
+
+		private DisconnectingInputStream(final HttpURLConnection connection, final InputStream in) {
+			super(in);
+			this.connection = connection;
+		}
+
+		@Override
+		public void close() {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Stream of a range by a single request, which continues with a new request from its current position if reading
+	 * fails.
+	 */
+	private class ResumingInputStream extends InputStream {
+
+		private long position;
+		private final long maxPosition;
+		/** Response body of the current request, null if none is open. */
+		private InputStream in;
+
+		private ResumingInputStream(final long rangeStart, final long rangeEnd) {
+			this.position = rangeStart;
+			this.maxPosition = rangeEnd;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (position >= maxPosition) {
+				return -1;
+			}
+			if (len == 0) {
+				return 0;
+			}
+
+			final int bytesToRead = (int) Math.min(len, maxPosition - position);
+			int retries = 0;
+			while (true) {
+				try {
+					if (in == null) {
+						in = openRange(position, maxPosition);
+					}
+					final int read = in.read(b, off, bytesToRead);
+					if (read == -1) {
+						throw new EOFException("Unexpected end of response at offset " + position + ".");
+					}
+					position += read;
+					if (position == maxPosition) {
+						close();
+					}
+					return read;
+				} catch (final IOException ex) {
+					closeQuietly();
+					if (!isTransient(ex) || retries >= maxRetries) {
+						throw ex;
+					}
+					backOff(retries++, ex);
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (in != null) {
+				try {
+					// Reuses the connection of a partial response, a whole document is disconnected by close()
+					if (position == maxPosition) {
+						drain(in);
+					}
+					in.close();
+				} finally {
+					in = null;
+				}
+			}
+		}
+
+		private void closeQuietly() {
+			try {
+				if (in != null) {
+					in.close();
+				}
+			} catch (final IOException ex) {
+				// Ignore, the request is retried anyway
+			} finally {
+				in = null;
+			}
+		}
+	}
+
+	/**
+	 * Stream of a range split into parts, which are requested concurrently and read in order. At most
+	 * <code>parallelism</code> parts are requested ahead of the one being read.
+	 */
+	private class PartsInputStream extends InputStream {
+
+		private final long maxPosition;
+		/** Start of the next part to be requested. */
+		private long nextPartStart;
+		/** Requested parts, in order. */
+		private final Deque<Future<byte[]>> pendingParts;
+		/** Part currently read, null if none. */
+		private byte[] part;
+		/** Position within the current part. */
+		private int partPosition;
+
+		private PartsInputStream(final long rangeStart, final long rangeEnd) {
+			this.maxPosition = rangeEnd;
+			this.nextPartStart = rangeStart;
+			this.pendingParts = new ArrayDeque<Future<byte[]>>(parallelism);
+			requestParts();
+		}
+
+		@Override
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (part == null || partPosition == part.length) {
+				if (pendingParts.isEmpty()) {
+					return -1;
+				}
+				part = awaitPart(pendingParts.poll());
+				partPosition = 0;
+				requestParts();
+			}
+
+			final int read = Math.min(len, part.length - partPosition);
+			System.arraycopy(part, partPosition, b, off, read);
+			partPosition += read;
+			return read;
+		}
+
+		@Override
+		public void close() {
+			for (final Future<byte[]> pendingPart : pendingParts) {
+				pendingPart.cancel(true);
+			}
+			pendingParts.clear();
+			part = null;
+		}
+
+		/**
+		 * Requests parts until parallelism parts are pending.
+		 */
+		private void requestParts() {
+			while (pendingParts.size() < parallelism && nextPartStart < maxPosition) {
+				final long partStart = nextPartStart;
+				final int length = (int) Math.min(partSize, maxPosition - partStart);
+				nextPartStart += length;
+				pendingParts.add(executor.submit(new Callable<byte[]>() {
+					@Override
+					public byte[] call() throws Exception {
+						final byte[] part = new byte[length];
+						HttpRangeClient.this.read(partStart, part, 0, length);
+						return part;
+					}
+				}));
+			}
+		}
+
+		private byte[] awaitPart(final Future<byte[]> pendingPart) throws IOException {
+			try {
+				return pendingPart.get();
+			} catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a part.");
+			} catch (final ExecutionException ex) {
+				if (ex.getCause() instanceof IOException) {
+					throw (IOException) ex.getCause();
+				}
+				throw new IOException("Requesting a part failed.", ex.getCause());
+			}
+		}
+	}
+}
@@ -8,11 +8,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.net.HttpURLConnection;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.ac.tuwien.dsg.scaledom.io.BlockCache;
 import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
 import at.ac.tuwien.dsg.scaledom.io.ReaderFactory;
 import at.ac.tuwien.dsg.scaledom.io.ReaderWithSystemID;
@@ -22,8 +22,9 @@ import at.ac.tuwien.dsg.scaledom.util.Utils;
 
 /**
  * <code>HttpReaderFactory</code> implementation.<br/>
- * This implementation provides a <code>Reader</code> based upon URL <code>InputStream</code> for 
- * full file reading and one based upon <code>RandomAccessFile</code> for file range reading.
+ * This implementation provides <code>Reader</code> objects based upon the <code>HttpRangeClient</code> of the document
+ * source, which reuses connections, requests large ranges by concurrent parts and retries failed requests. File ranges
+ * are read through the document source's <code>BlockCache</code>, if any, which requests runs of missing blocks only.
  * 
  * @author Waldemar Hummer
  */
@@ -32,14 +33,10 @@ public class HttpReaderFactory extends ReaderFactory {
 	/** Logger. */
 	private final static Logger log = LoggerFactory.getLogger(HttpReaderFactory.class);
 
-	/** Underlying URL as connection. */
-	private HttpURLConnection urlConnection;
 	/** Number of bytes per character. */
 	private final int numberOfBytesPerCharacter;
 	/** Start offset of the currently obtained reader. */
 	private long readerOffset;
-	/** Content length of the HTTP document. */
-	private Long contentLength = null;
 
 	/**
 	 * Default constructor.
@@ -60,9 +57,9 @@ public class HttpReaderFactory extends ReaderFactory {
 	public Reader newReader() throws IOException {
 		final HttpDocumentSource source = (HttpDocumentSource) getDocumentSource();
 		readerOffset = 0;
-		InputStream is = source.getUrl().openConnection().getInputStream();
-		Reader reader = new BufferedReader(new InputStreamReader(is, source.getEncoding()));
-		return new ReaderWithSystemID(source.getUrl().toExternalForm(), reader);
+		final InputStream is = source.getRangeClient().newInputStream();
+		Reader reader = new BufferedReader(new InputStreamReader(countBytes(is), source.getEncoding()));
+		return new ReaderWithSystemID(source.getUrl().toExternalForm(), reader, source.getEncoding());
 	}
 
 	@Override
@@ -71,32 +68,37 @@ public class HttpReaderFactory extends ReaderFactory {
 		checkArgument(location instanceof FileNodeLocation, "Argument location must be of type FileNodeLocation");
 
 		final HttpDocumentSource source = (HttpDocumentSource) getDocumentSource();
-
-		if(contentLength == null) {
-			urlConnection = (HttpURLConnection)source.getUrl().openConnection();
-			contentLength = urlConnection.getContentLengthLong();
-		}
-		// Close and re-open URL connection
-		if (urlConnection != null) {
-			urlConnection.disconnect();
-		}
-		urlConnection = (HttpURLConnection)source.getUrl().openConnection();
+		final HttpRangeClient client = source.getRangeClient();
+		final long contentLength = client.getContentLength();
 
 		final FileNodeLocation fileLocation = (FileNodeLocation) location;
 		readerOffset = fileLocation.getStartOffset();
 
-		Reader reader = new BufferedReader(new InputStreamReader(
-				new HttpChannelRangeInputStream(urlConnection, contentLength,
-				fileLocation.getStartOffset(), fileLocation.getEndOffset()), 
-				source.getEncoding()));
-		return new ReaderWithSystemID(source.getUrl().toExternalForm(), reader);
+		final long rangeStart = fileLocation.getStartOffset();
+		final long rangeEnd = fileLocation.getEndOffset();
+		checkArgument(rangeStart >= 0 && rangeStart < rangeEnd && rangeEnd <= contentLength,
+				"Expected a valid range within the document, but %s is not. Content length is %s.", fileLocation,
+				contentLength);
+		final BlockCache blockCache = source.getBlockCache();
+		final InputStream in;
+		if (blockCache != null && blockCache.isCacheable(rangeEnd - rangeStart)) {
+			in = new BlockCacheInputStream(blockCache, new BlockCache.Loader() {
+				@Override
+				public void load(final long offset, final byte[] b, final int off, final int len) throws IOException {
+					client.read(offset, b, off, len);
+				}
+			}, contentLength, rangeStart, rangeEnd, null);
+		} else {
+			in = client.newInputStream(rangeStart, rangeEnd);
+		}
+
+		Reader reader = new BufferedReader(new InputStreamReader(countBytes(in), source.getEncoding()));
+		return new ReaderWithSystemID(source.getUrl().toExternalForm(), reader, source.getEncoding());
 	}
 
 	@Override
 	public void close() throws IOException {
-		if (urlConnection != null) {
-			urlConnection.disconnect();
-		}
+		// Connections are kept alive by the range client of the document source, readers close their responses
 	}
 
 	@Override
@@ -109,7 +111,8 @@ public class HttpReaderFactory extends ReaderFactory {
 					+ "), you must use an XmlParser implementation which is able to output byte locations.");
 		}
 
-		final long startingOffset = (location.getStartingOffset() + readerOffset - additionalOffset) * sizefac;
+		// readerOffset is a byte offset already, only the parser's relative offset has to be converted
+		final long startingOffset = (location.getStartingOffset() - additionalOffset) * sizefac + readerOffset;
 		return new FileNodeLocation(startingOffset, FileNodeLocation.OFFSET_UNKNOWN);
 	}
 }
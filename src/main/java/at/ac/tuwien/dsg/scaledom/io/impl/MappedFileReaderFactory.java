@@ -0,0 +1,167 @@
+package at.ac.tuwien.dsg.scaledom.io.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
+import at.ac.tuwien.dsg.scaledom.io.ReaderWithSystemID;
+import at.ac.tuwien.dsg.scaledom.io.SkippedRanges;
+
+/**
+ * <code>FileReaderFactory</code> implementation based upon memory mapping.<br/>
+ * The file is mapped read-only in segments (1 GiB by default, therefore supporting files beyond 2 GB), which are mapped
+ * on first demand and kept until the factory is closed. Returned <code>Reader</code> objects decode directly from the
+ * mapped buffers, i.e. reloading a node requires neither system calls nor copying bytes to the heap.<br/>
+ * Note: Mapped buffers are released by the garbage collector only, closing the factory merely drops the references.
+ */
+public class MappedFileReaderFactory extends FileReaderFactory {
+
+	/** Logger. */
+	private final static Logger log = LoggerFactory.getLogger(MappedFileReaderFactory.class);
+
+	/** Default segment size in bytes. */
+	public final static int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+	/**
+	 * Number of bytes each segment additionally maps of its successor. Has to be at least the maximum number of bytes
+	 * per character, so that no character has to be decoded across segments.
+	 */
+	final static int SEGMENT_OVERLAP = 16;
+
+	/** Segment size in bytes. */
+	private final int segmentSize;
+	/** Charset of the underlying file. */
+	private final Charset charset;
+
+	/** Underlying file as RandomAccessFile. */
+	private RandomAccessFile randomAccessFile;
+	/** File size in bytes. */
+	private long fileSize;
+	/** Mapped segments, null entries have not been mapped yet. */
+	private MappedByteBuffer[] segments;
+
+	/**
+	 * Calls this(source, DEFAULT_SEGMENT_SIZE).
+	 *
+	 * @see #MappedFileReaderFactory(FileDocumentSource, int)
+	 */
+	public MappedFileReaderFactory(final FileDocumentSource source) throws IOException {
+		this(source, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param source the underlying document source.
+	 * @param segmentSize the size of a single mapped segment in bytes.
+	 * @throws IOException If some I/O error occurs.
+	 */
+	public MappedFileReaderFactory(final FileDocumentSource source, final int segmentSize) throws IOException {
+		super(source);
+		checkArgument(segmentSize > 0 && segmentSize <= Integer.MAX_VALUE - SEGMENT_OVERLAP,
+				"Expected segmentSize to be a valid mapping size, but %s is not.", segmentSize);
+
+		this.segmentSize = segmentSize;
+		this.charset = Charset.forName(source.getEncoding());
+	}
+
+	@Override
+	public Reader newReader() throws IOException {
+		open();
+		setReaderOffset(0);
+
+		final FileDocumentSource source = (FileDocumentSource) getDocumentSource();
+		final Reader reader = new MappedRangeReader(this, 0, fileSize, charset.newDecoder(), null);
+		return new ReaderWithSystemID(source.getFile().toURI().toString(), reader, source.getEncoding());
+	}
+
+	@Override
+	public Reader newReaderForLocation(final NodeLocation location, final SkippedRanges skippedRanges)
+			throws IOException {
+		checkNotNull(location, "Argument location must not be null");
+		checkArgument(location instanceof FileNodeLocation, "Argument location must be of type FileNodeLocation");
+		open();
+
+		final FileNodeLocation fileLocation = (FileNodeLocation) location;
+		final long rangeStart = fileLocation.getStartOffset();
+		final long rangeEnd = fileLocation.getEndOffset();
+		checkArgument(rangeStart >= 0 && rangeStart < rangeEnd && rangeEnd <= fileSize,
+				"Expected a valid range within the file, but %s is not. File size is %s.", fileLocation, fileSize);
+		setReaderOffset(rangeStart, skippedRanges);
+
+		final FileDocumentSource source = (FileDocumentSource) getDocumentSource();
+		final Reader reader = new MappedRangeReader(this, rangeStart, rangeEnd, charset.newDecoder(), skippedRanges);
+		return new ReaderWithSystemID(source.getFile().toURI().toString(), reader, source.getEncoding());
+	}
+
+	@Override
+	public void close() throws IOException {
+		segments = null;
+		if (randomAccessFile != null) {
+			randomAccessFile.close();
+			randomAccessFile = null;
+		}
+		super.close();
+	}
+
+	/**
+	 * Called by <code>MappedRangeReader</code> for the bytes it has decoded.
+	 *
+	 * @param numberOfBytes the number of decoded bytes.
+	 */
+	void bytesDecoded(final long numberOfBytes) {
+		addBytesRead(numberOfBytes);
+	}
+
+	/**
+	 * Returns the segment size in bytes.
+	 *
+	 * @return the segment size in bytes.
+	 */
+	int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Returns a segment, maps it if not done before. The returned buffer is shared and must not be modified, use
+	 * {@link ByteBuffer#duplicate()} for reading.
+	 *
+	 * @param index the segment index.
+	 * @return the mapped segment, including the overlap into the next segment.
+	 * @throws IOException If the segment could not be mapped.
+	 */
+	synchronized ByteBuffer getSegment(final int index) throws IOException {
+		checkArgument(segments != null, "Factory has been closed.");
+
+		if (segments[index] == null) {
+			final long segmentStart = (long) index * segmentSize;
+			final long segmentLength = Math.min((long) segmentSize + SEGMENT_OVERLAP, fileSize - segmentStart);
+			segments[index] = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, segmentStart,
+					segmentLength);
+			log.debug("Mapped segment " + index + " [" + segmentStart + "/" + (segmentStart + segmentLength) + "].");
+		}
+
+		return segments[index];
+	}
+
+	private synchronized void open() throws IOException {
+		if (randomAccessFile == null) {
+			// Open file only on first demand, however, keep it open until factory is closed
+			final FileDocumentSource source = (FileDocumentSource) getDocumentSource();
+			randomAccessFile = new RandomAccessFile(source.getFile(), "r");
+			fileSize = randomAccessFile.length();
+			segments = new MappedByteBuffer[(int) ((fileSize + segmentSize - 1) / segmentSize)];
+		}
+	}
+}
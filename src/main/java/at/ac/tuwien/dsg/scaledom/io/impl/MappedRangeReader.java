@@ -0,0 +1,169 @@
+package at.ac.tuwien.dsg.scaledom.io.impl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import at.ac.tuwien.dsg.scaledom.io.SkippedRanges;
+import at.ac.tuwien.dsg.scaledom.util.jfr.FlightRecorderEvents;
+
+/**
+ * <code>Reader</code> implementation which decodes a specific range of a file directly from the segments mapped by a
+ * <code>MappedFileReaderFactory</code>.
+ */
+class MappedRangeReader extends Reader {
+
+	/** Factory holding the mapped segments. */
+	private final MappedFileReaderFactory factory;
+	/** End of range (exclusive). */
+	private final long rangeEnd;
+	/** Decoder for the file's charset. */
+	private final CharsetDecoder decoder;
+	/** Ranges to seek past, null if none. */
+	private final SkippedRanges skippedRanges;
+	/** Index of the next range to seek past. */
+	private int nextSkippedRange;
+
+	/** Current position within the file. */
+	private long position;
+	/** Index of the current segment, -1 if none. */
+	private int segmentIndex;
+	/** Reader-private view of the current segment. */
+	private ByteBuffer segment;
+	/** Flag whether the decoder has been flushed at the end of the range. */
+	private boolean flushed;
+	/** Decoded but not yet returned characters, required if a surrogate pair does not fit into the caller's buffer. */
+	private final CharBuffer pending;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param factory the factory holding the mapped segments.
+	 * @param rangeStart the offset of the first byte of the first character.
+	 * @param rangeEnd the offset after the last byte of the last character.
+	 * @param decoder a fresh decoder for the file's charset.
+	 * @param skippedRanges ranges within the range which are seeked past instead of being decoded, may be null.
+	 */
+	MappedRangeReader(final MappedFileReaderFactory factory, final long rangeStart, final long rangeEnd,
+			final CharsetDecoder decoder, final SkippedRanges skippedRanges) {
+		this.factory = factory;
+		this.rangeEnd = rangeEnd;
+		this.skippedRanges = skippedRanges;
+		this.nextSkippedRange = 0;
+		this.decoder = decoder.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(
+				CodingErrorAction.REPLACE);
+
+		position = rangeStart;
+		segmentIndex = -1;
+		flushed = false;
+		pending = CharBuffer.allocate(2);
+		pending.flip();
+	}
+
+	@Override
+	public int read(final char[] cbuf, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+
+		if (pending.hasRemaining()) {
+			cbuf[off] = pending.get();
+			return 1;
+		}
+		if (len == 1) {
+			// A supplementary character decodes to two chars, hence decode into pending first
+			pending.clear();
+			decode(pending);
+			pending.flip();
+			if (!pending.hasRemaining()) {
+				return -1;
+			}
+			cbuf[off] = pending.get();
+			return 1;
+		}
+
+		final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+		decode(out);
+
+		final int read = out.position() - off;
+		return read == 0 ? -1 : read;
+	}
+
+	@Override
+	public void close() throws IOException {
+		// Segments are owned by the factory
+		segment = null;
+	}
+
+	/**
+	 * Decodes as many characters as possible into the given buffer, without exceeding the end of the range. Recorded
+	 * as Flight Recorder read event, since the mapped pages are read from the file on first access.
+	 */
+	private void decode(final CharBuffer out) throws IOException {
+		final FlightRecorderEvents.Read event = FlightRecorderEvents.beginRead();
+		long bytesDecoded = 0;
+		while (out.hasRemaining() && seekPastSkippedRanges() < rangeEnd) {
+			final ByteBuffer in = window();
+			final boolean endOfInput = position + in.remaining() == rangeEnd;
+
+			final int before = in.position();
+			final CoderResult result = decoder.decode(in, out, endOfInput);
+			position += in.position() - before;
+			bytesDecoded += in.position() - before;
+			factory.bytesDecoded(in.position() - before);
+
+			if (result.isOverflow()) {
+				break;
+			}
+			if (in.position() == before && !endOfInput) {
+				throw new IOException("Could not decode character at offset " + position + ".");
+			}
+		}
+
+		if (position == rangeEnd && !flushed && out.hasRemaining()) {
+			decoder.flush(out);
+			flushed = true;
+		}
+		event.end(bytesDecoded);
+	}
+
+	/**
+	 * Moves the current position past all skipped ranges starting at it.
+	 *
+	 * @return the new position.
+	 */
+	private long seekPastSkippedRanges() {
+		if (skippedRanges != null) {
+			while (nextSkippedRange < skippedRanges.size() && skippedRanges.getStart(nextSkippedRange) <= position) {
+				position = Math.max(position, Math.min(skippedRanges.getEnd(nextSkippedRange++), rangeEnd));
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the current segment, positioned at the current position and limited to the end of the range, the start
+	 * of the next skipped range or the end of the mapped segment (including its overlap), whichever comes first.
+	 */
+	private ByteBuffer window() throws IOException {
+		final int segmentSize = factory.getSegmentSize();
+		final int index = (int) (position / segmentSize);
+		if (index != segmentIndex) {
+			segment = factory.getSegment(index).duplicate();
+			segmentIndex = index;
+		}
+
+		final long segmentStart = (long) index * segmentSize;
+		long windowEnd = Math.min(rangeEnd, segmentStart + segment.capacity());
+		if (skippedRanges != null && nextSkippedRange < skippedRanges.size()) {
+			windowEnd = Math.min(windowEnd, skippedRanges.getStart(nextSkippedRange));
+		}
+		segment.limit((int) (windowEnd - segmentStart));
+		segment.position((int) (position - segmentStart));
+		return segment;
+	}
+}
@@ -1,8 +1,6 @@
 package at.ac.tuwien.dsg.scaledom.lazy;
 
-import javax.xml.stream.events.XMLEvent;
-
-import at.ac.tuwien.dsg.scaledom.parser.XmlEventLocation;
+import javax.xml.stream.XMLStreamReader;
 
 public abstract class LazyLoadingStrategy {
 
@@ -27,11 +25,33 @@ public abstract class LazyLoadingStrategy {
 	 * <li>Load either all or none direct children of a parent node.</li>
 	 * </ul>
 	 * 
-	 * @param event the occurred event.
-	 * @param location the event's location in the document source.
+	 * @param eventType the type of the occurred event, one of the <code>XMLStreamConstants</code>.
+	 * @param cursor the parser's cursor positioned on the event, providing e.g. the name of a StartElement event. It
+	 *            must not be moved.
 	 * @return true if the LoadProcess should process the event, false otherwise.
 	 */
-	public abstract boolean shouldLoad(final XMLEvent event, final XmlEventLocation location);
+	public abstract boolean shouldLoad(final int eventType, final XMLStreamReader cursor);
+
+	/**
+	 * Returns the number of levels below the load process' root element which are loaded, if the strategy decides on
+	 * the level alone. The content of elements on the deepest loaded level is then skipped without asking the
+	 * strategy, as soon as its ranges are known from a previous load of the same root element.
+	 * 
+	 * @return the load depth, or -1 if the strategy does not decide on the level alone (default).
+	 */
+	public int getLoadDepth() {
+		return -1;
+	}
+
+	/**
+	 * Returns the configuration of the strategy, which is part of the offset index key: offset indexes stored with
+	 * another configuration are rebuilt.
+	 * 
+	 * @return the configuration, the implementation's class name by default.
+	 */
+	public String getConfiguration() {
+		return getClass().getName();
+	}
 
 	/**
 	 * Returns the absolute level of the current load process.
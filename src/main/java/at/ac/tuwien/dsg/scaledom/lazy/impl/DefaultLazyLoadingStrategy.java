@@ -1,10 +1,9 @@
 package at.ac.tuwien.dsg.scaledom.lazy.impl;
 
 import javax.xml.stream.XMLStreamConstants;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
 
 import at.ac.tuwien.dsg.scaledom.lazy.LazyLoadingStrategy;
-import at.ac.tuwien.dsg.scaledom.parser.XmlEventLocation;
 
 /**
  * The default strategy loads the requested children only.
@@ -29,17 +28,22 @@ public class DefaultLazyLoadingStrategy extends LazyLoadingStrategy {
 	}
 
 	@Override
-	public boolean shouldLoad(final XMLEvent event, final XmlEventLocation eventLocation) {
-		if (event.getEventType() == XMLStreamConstants.END_ELEMENT) {
+	public boolean shouldLoad(final int eventType, final XMLStreamReader cursor) {
+		if (eventType == XMLStreamConstants.END_ELEMENT) {
 			--level;
 		}
 
 		final boolean shouldLoad = level < DEPTH;
 
-		if (event.getEventType() == XMLStreamConstants.START_ELEMENT) {
+		if (eventType == XMLStreamConstants.START_ELEMENT) {
 			++level;
 		}
 
 		return shouldLoad;
 	}
+
+	@Override
+	public int getLoadDepth() {
+		return DEPTH;
+	}
 }
@@ -1,13 +1,12 @@
 package at.ac.tuwien.dsg.scaledom.lazy.impl;
 
 import javax.xml.stream.XMLStreamConstants;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.ac.tuwien.dsg.scaledom.lazy.LazyLoadingStrategy;
-import at.ac.tuwien.dsg.scaledom.parser.XmlEventLocation;
 
 /**
  * This LLS
@@ -46,17 +45,22 @@ public class StepLazyLoadingStrategy extends LazyLoadingStrategy {
 	}
 
 	@Override
-	public boolean shouldLoad(final XMLEvent event, final XmlEventLocation eventLocation) {
-		if (event.getEventType() == XMLStreamConstants.END_ELEMENT) {
+	public boolean shouldLoad(final int eventType, final XMLStreamReader cursor) {
+		if (eventType == XMLStreamConstants.END_ELEMENT) {
 			--level;
 		}
 
 		final boolean shouldLoad = level < depth;
 
-		if (event.getEventType() == XMLStreamConstants.START_ELEMENT) {
+		if (eventType == XMLStreamConstants.START_ELEMENT) {
 			++level;
 		}
 
 		return shouldLoad;
 	}
+
+	@Override
+	public int getLoadDepth() {
+		return depth;
+	}
 }
@@ -0,0 +1,358 @@
+package at.ac.tuwien.dsg.scaledom.parser;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Read-only <code>XMLStreamReader</code> view of a single <code>XMLEvent</code>. Lets <code>XmlParser</code>
+ * implementations which only provide events serve an <code>XmlParserCursorListener</code>, and allows to pass a
+ * previously recorded event to a <code>LazyLoadingStrategy</code>.<br/>
+ * The cursor is positioned by {@link #setEvent(XMLEvent)}, all methods moving the cursor are unsupported.
+ */
+public class XmlEventCursor implements XMLStreamReader {
+
+	/** The current event. */
+	private XMLEvent event;
+	/** Attributes of the current StartElement event. */
+	private final List<Attribute> attributes;
+	/** Namespace declarations of the current StartElement or EndElement event. */
+	private final List<Namespace> namespaces;
+
+	/**
+	 * Default constructor, the cursor has to be positioned before use.
+	 */
+	public XmlEventCursor() {
+		attributes = new ArrayList<Attribute>();
+		namespaces = new ArrayList<Namespace>();
+	}
+
+	/**
+	 * Creates a cursor positioned on the given event.
+	 *
+	 * @param event the event.
+	 */
+	public XmlEventCursor(final XMLEvent event) {
+		this();
+		setEvent(event);
+	}
+
+	/**
+	 * Positions the cursor on an event.
+	 *
+	 * @param event the event.
+	 */
+	public void setEvent(final XMLEvent event) {
+		checkNotNull(event, "Argument event must not be null.");
+		this.event = event;
+
+		attributes.clear();
+		namespaces.clear();
+		if (event.isStartElement()) {
+			final Iterator<?> attributeIterator = event.asStartElement().getAttributes();
+			while (attributeIterator.hasNext()) {
+				attributes.add((Attribute) attributeIterator.next());
+			}
+			addNamespaces(event.asStartElement().getNamespaces());
+		} else if (event.isEndElement()) {
+			addNamespaces(event.asEndElement().getNamespaces());
+		}
+	}
+
+	/**
+	 * Returns the current event.
+	 *
+	 * @return the current event.
+	 */
+	public XMLEvent getEvent() {
+		return event;
+	}
+
+	private void addNamespaces(final Iterator<?> namespaceIterator) {
+		while (namespaceIterator.hasNext()) {
+			namespaces.add((Namespace) namespaceIterator.next());
+		}
+	}
+
+	@Override
+	public Object getProperty(final String name) {
+		return null;
+	}
+
+	@Override
+	public int next() throws XMLStreamException {
+		throw new UnsupportedOperationException("The cursor is positioned by setEvent().");
+	}
+
+	@Override
+	public void require(final int type, final String namespaceURI, final String localName) throws XMLStreamException {
+		if (type != getEventType() || (namespaceURI != null && !namespaceURI.equals(getNamespaceURI()))
+				|| (localName != null && !localName.equals(getLocalName()))) {
+			throw new XMLStreamException("Current event does not match the required event.");
+		}
+	}
+
+	@Override
+	public String getElementText() throws XMLStreamException {
+		throw new UnsupportedOperationException("The cursor is positioned by setEvent().");
+	}
+
+	@Override
+	public int nextTag() throws XMLStreamException {
+		throw new UnsupportedOperationException("The cursor is positioned by setEvent().");
+	}
+
+	@Override
+	public boolean hasNext() throws XMLStreamException {
+		return false;
+	}
+
+	@Override
+	public void close() throws XMLStreamException {
+	}
+
+	@Override
+	public String getNamespaceURI(final String prefix) {
+		if (event.isStartElement()) {
+			return event.asStartElement().getNamespaceContext().getNamespaceURI(prefix);
+		}
+		for (final Namespace namespace : namespaces) {
+			if (namespace.getPrefix().equals(prefix)) {
+				return namespace.getNamespaceURI();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public boolean isStartElement() {
+		return event.isStartElement();
+	}
+
+	@Override
+	public boolean isEndElement() {
+		return event.isEndElement();
+	}
+
+	@Override
+	public boolean isCharacters() {
+		return event.isCharacters();
+	}
+
+	@Override
+	public boolean isWhiteSpace() {
+		return event.isCharacters() && event.asCharacters().isWhiteSpace();
+	}
+
+	@Override
+	public String getAttributeValue(final String namespaceURI, final String localName) {
+		for (final Attribute attribute : attributes) {
+			final QName name = attribute.getName();
+			if (name.getLocalPart().equals(localName)
+					&& (namespaceURI == null || namespaceURI.equals(name.getNamespaceURI()))) {
+				return attribute.getValue();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public int getAttributeCount() {
+		checkState(event.isStartElement(), "Current event is no StartElement event.");
+		return attributes.size();
+	}
+
+	@Override
+	public QName getAttributeName(final int index) {
+		return attributes.get(index).getName();
+	}
+
+	@Override
+	public String getAttributeNamespace(final int index) {
+		return attributes.get(index).getName().getNamespaceURI();
+	}
+
+	@Override
+	public String getAttributeLocalName(final int index) {
+		return attributes.get(index).getName().getLocalPart();
+	}
+
+	@Override
+	public String getAttributePrefix(final int index) {
+		return attributes.get(index).getName().getPrefix();
+	}
+
+	@Override
+	public String getAttributeType(final int index) {
+		return attributes.get(index).getDTDType();
+	}
+
+	@Override
+	public String getAttributeValue(final int index) {
+		return attributes.get(index).getValue();
+	}
+
+	@Override
+	public boolean isAttributeSpecified(final int index) {
+		return attributes.get(index).isSpecified();
+	}
+
+	@Override
+	public int getNamespaceCount() {
+		checkState(event.isStartElement() || event.isEndElement(),
+				"Current event is no StartElement or EndElement event.");
+		return namespaces.size();
+	}
+
+	@Override
+	public String getNamespacePrefix(final int index) {
+		return namespaces.get(index).getPrefix();
+	}
+
+	@Override
+	public String getNamespaceURI(final int index) {
+		return namespaces.get(index).getNamespaceURI();
+	}
+
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return event.isStartElement() ? event.asStartElement().getNamespaceContext() : null;
+	}
+
+	@Override
+	public int getEventType() {
+		return event.getEventType();
+	}
+
+	@Override
+	public String getText() {
+		switch (event.getEventType()) {
+		case XMLStreamConstants.CHARACTERS:
+		case XMLStreamConstants.CDATA:
+		case XMLStreamConstants.SPACE:
+			return event.asCharacters().getData();
+		case XMLStreamConstants.COMMENT:
+			return ((Comment) event).getText();
+		default:
+			throw new IllegalStateException("Current event of type '" + event.getEventType() + "' has no text.");
+		}
+	}
+
+	@Override
+	public char[] getTextCharacters() {
+		return getText().toCharArray();
+	}
+
+	@Override
+	public int getTextCharacters(final int sourceStart, final char[] target, final int targetStart, final int length)
+			throws XMLStreamException {
+		final String text = getText();
+		final int copied = Math.max(Math.min(length, text.length() - sourceStart), 0);
+		text.getChars(sourceStart, sourceStart + copied, target, targetStart);
+		return copied;
+	}
+
+	@Override
+	public int getTextStart() {
+		return 0;
+	}
+
+	@Override
+	public int getTextLength() {
+		return getText().length();
+	}
+
+	@Override
+	public String getEncoding() {
+		return event.getEventType() == XMLStreamConstants.START_DOCUMENT ? ((StartDocument) event)
+				.getCharacterEncodingScheme() : null;
+	}
+
+	@Override
+	public boolean hasText() {
+		final int eventType = event.getEventType();
+		return eventType == XMLStreamConstants.CHARACTERS || eventType == XMLStreamConstants.CDATA
+				|| eventType == XMLStreamConstants.SPACE || eventType == XMLStreamConstants.COMMENT;
+	}
+
+	@Override
+	public Location getLocation() {
+		return event.getLocation();
+	}
+
+	@Override
+	public QName getName() {
+		if (event.isStartElement()) {
+			return event.asStartElement().getName();
+		} else if (event.isEndElement()) {
+			return event.asEndElement().getName();
+		}
+		throw new IllegalStateException("Current event of type '" + event.getEventType() + "' has no name.");
+	}
+
+	@Override
+	public String getLocalName() {
+		return getName().getLocalPart();
+	}
+
+	@Override
+	public boolean hasName() {
+		return event.isStartElement() || event.isEndElement();
+	}
+
+	@Override
+	public String getNamespaceURI() {
+		return hasName() ? getName().getNamespaceURI() : null;
+	}
+
+	@Override
+	public String getPrefix() {
+		return hasName() ? getName().getPrefix() : null;
+	}
+
+	@Override
+	public String getVersion() {
+		return event.getEventType() == XMLStreamConstants.START_DOCUMENT ? ((StartDocument) event).getVersion() : null;
+	}
+
+	@Override
+	public boolean isStandalone() {
+		return event.getEventType() == XMLStreamConstants.START_DOCUMENT && ((StartDocument) event).isStandalone();
+	}
+
+	@Override
+	public boolean standaloneSet() {
+		return event.getEventType() == XMLStreamConstants.START_DOCUMENT && ((StartDocument) event).standaloneSet();
+	}
+
+	@Override
+	public String getCharacterEncodingScheme() {
+		return getEncoding();
+	}
+
+	@Override
+	public String getPITarget() {
+		return event.isProcessingInstruction() ? ((ProcessingInstruction) event).getTarget() : null;
+	}
+
+	@Override
+	public String getPIData() {
+		return event.isProcessingInstruction() ? ((ProcessingInstruction) event).getData() : null;
+	}
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.io.Reader;
 
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.events.XMLEvent;
 import javax.xml.validation.Schema;
 
 import org.xml.sax.EntityResolver;
@@ -15,7 +16,9 @@ import org.xml.sax.SAXException;
 /**
  * Base class for all <code>XmlParser</code> implementations.<br/>
  * <code>ScaleDomDocument</code> uses the smae XmlParser for initial loading as well as node reloading. Therefore
- * consecutive calls to parse() must be possible, however, implementations do not have to be thread-safe. Furthermore
+ * consecutive calls to parse() must be possible, however, implementations only have to be thread-safe if a document is
+ * loaded by multiple threads (<code>ScaleDom.ATTRIBUTE_INITIALLOAD_THREADS</code>,
+ * <code>ScaleDom.ATTRIBUTE_CONCURRENT_READS</code>), i.e. all state of a single parse() call has to be local. Furthermore
  * <code>ScaleDomDocumentBuilder</code> also uses the very same XmlParser instance to answer configuration queries from
  * the user.
  * 
@@ -50,6 +53,43 @@ public abstract class XmlParser {
 	public abstract boolean parse(final Reader reader, final XmlParserEventListener eventListener) throws SAXException,
 			IOException;
 
+	/**
+	 * Parses the <code>source</code> in cursor mode and calls the <code>cursorListener</code> accordingly on each event.
+	 * Implementations should avoid creating objects per event, the default implementation adapts the events reported
+	 * by {@link #parse(Reader, XmlParserEventListener)}.
+	 * 
+	 * @param reader the XML source.
+	 * @param cursorListener the observer, called for each occurring event.
+	 * @return true if the cursor listener processed all events, false if the cursor listener demanded an abortion.
+	 * @throws SAXException If any parse error occurs.
+	 * @throws IOException If any I/O error occurs.
+	 */
+	public boolean parse(final Reader reader, final XmlParserCursorListener cursorListener) throws SAXException,
+			IOException {
+		checkNotNull(cursorListener, "Argument cursorListener must not be null.");
+
+		final XmlEventCursor cursor = new XmlEventCursor();
+		return parse(reader, new XmlParserEventListener() {
+			@Override
+			public boolean process(final XMLEvent event, final XmlEventLocation location) {
+				cursor.setEvent(event);
+				return cursorListener.process(event.getEventType(), location.getStartingOffset(), cursor);
+			}
+		});
+	}
+
+	/**
+	 * Returns whether the parser reports event locations as byte offsets (<code>XmlEventByteLocation</code>) rather
+	 * than as character offsets (<code>XmlEventCharLocation</code>). Byte offsets are relative to the parsed
+	 * <code>Reader</code>'s characters encoded in the document source's encoding, which is required to reload nodes
+	 * from documents with a variable-width encoding.
+	 * 
+	 * @return true if the parser provides byte locations, false otherwise.
+	 */
+	public boolean isProvidingByteLocations() {
+		return false;
+	}
+
 	/**
 	 * @see javax.xml.parsers.DocumentBuilder#getSchema()
 	 * @see javax.xml.parsers.DocumentBuilderFactory#getSchema()
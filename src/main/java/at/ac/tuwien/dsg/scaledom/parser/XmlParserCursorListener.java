@@ -0,0 +1,27 @@
+package at.ac.tuwien.dsg.scaledom.parser;
+
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Called by an <code>XmlParser</code> implementation for each occurring event, in cursor mode. Unlike
+ * <code>XmlParserEventListener</code>, no event or location object is created per event: the listener reads names,
+ * attributes and text of the current event straight from the parser's cursor.
+ */
+public interface XmlParserCursorListener {
+
+	public final static boolean ABORT_PARSING = true;
+	public final static boolean CONTINUE_PARSING = false;
+
+	/**
+	 * Process the occurred event, e.g. by adjusting the currently generated <code>ScaleDomDocumentImpl</code>.
+	 * 
+	 * @param eventType the type of the occurred event, one of the <code>XMLStreamConstants</code>.
+	 * @param startingOffset the relative starting offset of the event within the parser's XML source, a byte offset if
+	 *            the parser is providing byte locations (see <code>XmlParser.isProvidingByteLocations()</code>) and a
+	 *            character offset otherwise.
+	 * @param cursor the parser's cursor positioned on the event, it is only valid during this call and must not be
+	 *            moved by the listener.
+	 * @return true if the observer wants to abort the parsing, false otherwise.
+	 */
+	boolean process(final int eventType, final long startingOffset, final XMLStreamReader cursor);
+}
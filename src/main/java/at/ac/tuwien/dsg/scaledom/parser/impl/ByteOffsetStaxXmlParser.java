@@ -0,0 +1,159 @@
+package at.ac.tuwien.dsg.scaledom.parser.impl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.util.XMLEventAllocator;
+
+import org.codehaus.stax2.ri.evt.Stax2EventAllocatorImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import at.ac.tuwien.dsg.scaledom.io.ReaderWithSystemID;
+import at.ac.tuwien.dsg.scaledom.parser.XmlEventByteLocation;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParser;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParserCursorListener;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParserEventListener;
+import at.ac.tuwien.dsg.scaledom.util.ByteCountingReader;
+
+import com.google.common.base.Charsets;
+
+/**
+ * <code>XmlParser</code> implementation using StAX, which provides byte offsets (<code>XmlEventByteLocation</code>)
+ * instead of character offsets and is therefore able to handle variable-width encodings like UTF-8.<br/>
+ * The parser iterates a StAX cursor (<code>XMLStreamReader</code>), obtains 64-bit character offsets from the Stax2
+ * location info (if supported by the StAX implementation) and translates them into byte offsets using a
+ * <code>ByteCountingReader</code>. The encoding used for the translation is taken from the given
+ * <code>ReaderWithSystemID</code>, UTF-8 is assumed if the encoding is unknown. Events are only created if the
+ * parser is not used in cursor mode.<br/>
+ * Warnings: see {@link StaxXmlParser}.
+ */
+public class ByteOffsetStaxXmlParser extends StaxXmlParser {
+
+	/** Logger. */
+	private final static Logger log = LoggerFactory.getLogger(ByteOffsetStaxXmlParser.class);
+
+	/** Allocator creating events from the cursor's current state. */
+	private final XMLEventAllocator eventAllocator;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @see XmlParser#XmlParser(DocumentBuilderFactory)
+	 */
+	public ByteOffsetStaxXmlParser(final DocumentBuilderFactory factory) {
+		super(factory);
+		final XMLEventAllocator allocator = getInputFactory().getEventAllocator();
+		eventAllocator = allocator != null ? allocator : new Stax2EventAllocatorImpl();
+	}
+
+	@Override
+	public boolean parse(final Reader reader, final XmlParserEventListener eventListener) throws SAXException,
+			IOException {
+		checkNotNull(reader, "Argument reader must not be null.");
+		checkNotNull(eventListener, "Argument eventListener must not be null.");
+
+		final ByteCountingReader countingReader = newByteCountingReader(reader);
+		XMLStreamReader streamReader = null;
+		try {
+			streamReader = newStreamReader(reader, countingReader);
+
+			// Do parsing, the cursor is initially positioned on the StartDocument event
+			while (true) {
+				// Location has to be queried before the cursor is moved on
+				final long startingCharOffset = getStartingCharOffset(streamReader);
+				final XMLEvent event = eventAllocator.allocate(streamReader);
+
+				if (!isIgnoredEvent(event)) {
+					final long startingByteOffset = countingReader.toByteOffset(startingCharOffset);
+					final boolean abortParsing = eventListener.process(event, new XmlEventByteLocation(
+							startingByteOffset));
+					if (abortParsing) {
+						return false;
+					}
+				}
+
+				if (!streamReader.hasNext()) {
+					break;
+				}
+				streamReader.next();
+			}
+
+			return true;
+		} catch (final XMLStreamException ex) {
+			throw new SAXException(ex);
+		} finally {
+			if (streamReader != null) {
+				try {
+					// Close stream reader
+					streamReader.close();
+				} catch (final XMLStreamException ex) {
+					throw new IOException(ex);
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean parse(final Reader reader, final XmlParserCursorListener cursorListener) throws SAXException,
+			IOException {
+		checkNotNull(reader, "Argument reader must not be null.");
+		checkNotNull(cursorListener, "Argument cursorListener must not be null.");
+
+		final ByteCountingReader countingReader = newByteCountingReader(reader);
+		XMLStreamReader streamReader = null;
+		try {
+			streamReader = newStreamReader(reader, countingReader);
+			return parse(streamReader, countingReader, cursorListener);
+		} catch (final XMLStreamException ex) {
+			throw new SAXException(ex);
+		} finally {
+			if (streamReader != null) {
+				try {
+					// Close stream reader
+					streamReader.close();
+				} catch (final XMLStreamException ex) {
+					throw new IOException(ex);
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isProvidingByteLocations() {
+		return true;
+	}
+
+	private static ByteCountingReader newByteCountingReader(final Reader reader) {
+		String encoding = null;
+		Reader source = reader;
+		if (reader instanceof ReaderWithSystemID) {
+			final ReaderWithSystemID readerWithSystemID = (ReaderWithSystemID) reader;
+			encoding = readerWithSystemID.getEncoding();
+			source = readerWithSystemID.getReader();
+		}
+		if (encoding == null) {
+			log.debug("Encoding of the parsed source is unknown, assuming UTF-8.");
+			encoding = Charsets.UTF_8.name();
+		}
+
+		return new ByteCountingReader(source, Charset.forName(encoding));
+	}
+
+	private XMLStreamReader newStreamReader(final Reader reader, final ByteCountingReader countingReader)
+			throws XMLStreamException {
+		if (reader instanceof ReaderWithSystemID) {
+			return getInputFactory().createXMLStreamReader(((ReaderWithSystemID) reader).getSystemID(),
+					countingReader);
+		}
+		return getInputFactory().createXMLStreamReader(countingReader);
+	}
+}
@@ -13,9 +13,11 @@ import javax.xml.stream.XMLReporter;
 import javax.xml.stream.XMLResolver;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.XMLEvent;
 import javax.xml.validation.Schema;
 
+import org.codehaus.stax2.XMLStreamReader2;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
@@ -25,10 +27,15 @@ import at.ac.tuwien.dsg.scaledom.io.ReaderWithSystemID;
 import at.ac.tuwien.dsg.scaledom.parser.XmlEventCharLocation;
 import at.ac.tuwien.dsg.scaledom.parser.XmlEventLocation;
 import at.ac.tuwien.dsg.scaledom.parser.XmlParser;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParserCursorListener;
 import at.ac.tuwien.dsg.scaledom.parser.XmlParserEventListener;
+import at.ac.tuwien.dsg.scaledom.util.ByteCountingReader;
 
 /**
- * <code>XmlParser</code> implementation using StAX.<br/>
+ * <code>XmlParser</code> implementation using StAX. Parsing in cursor mode iterates an <code>XMLStreamReader</code>,
+ * hence no event objects are created.<br/>
+ * The parser is thread-safe, every parse() call creates its own stream reader from the shared (configured) StAX input
+ * factory.<br/>
  * Warnings:
  * <ul>
  * <li>DocumentBuilderFactory.isXIncludeAware is ignored</li>
@@ -40,6 +47,9 @@ import at.ac.tuwien.dsg.scaledom.parser.XmlParserEventListener;
  */
 public class StaxXmlParser extends XmlParser {
 
+	/** Woodstox property: minimum number of characters of a reported text segment. */
+	private final static String PROPERTY_MIN_TEXT_SEGMENT = "com.ctc.wstx.minTextSegment";
+
 	/** StAX input factory. */
 	private final XMLInputFactory inputFactory;
 
@@ -63,6 +73,12 @@ public class StaxXmlParser extends XmlParser {
 		inputFactory.setProperty(XMLInputFactory.IS_VALIDATING, factory.isValidating());
 		isIgnoringComments = factory.isIgnoringComments();
 		isIgnoringElementContentWhitespace = factory.isIgnoringElementContentWhitespace();
+
+		// Text must not be split at buffer boundaries by a cursor (event readers never do), otherwise the number of
+		// children differs between initial loading and reloading
+		if (inputFactory.isPropertySupported(PROPERTY_MIN_TEXT_SEGMENT)) {
+			inputFactory.setProperty(PROPERTY_MIN_TEXT_SEGMENT, Integer.MAX_VALUE);
+		}
 	}
 
 	@Override
@@ -86,12 +102,7 @@ public class StaxXmlParser extends XmlParser {
 			while (xmlEventReader.hasNext()) {
 				final XMLEvent event = xmlEventReader.nextEvent();
 
-				if (isIgnoringComments && event.getEventType() == XMLStreamConstants.COMMENT) {
-					continue;
-				}
-
-				if (isIgnoringElementContentWhitespace && event.isCharacters()
-						&& event.asCharacters().isIgnorableWhiteSpace()) {
+				if (isIgnoredEvent(event)) {
 					continue;
 				}
 
@@ -120,6 +131,126 @@ public class StaxXmlParser extends XmlParser {
 		}
 	}
 
+	@Override
+	public boolean parse(final Reader reader, final XmlParserCursorListener cursorListener) throws SAXException,
+			IOException {
+		checkNotNull(reader, "Argument reader must not be null.");
+		checkNotNull(cursorListener, "Argument cursorListener must not be null.");
+
+		XMLStreamReader streamReader = null;
+		try {
+			// Create stream reader
+			if (reader instanceof ReaderWithSystemID) {
+				final ReaderWithSystemID readerWithSystemID = (ReaderWithSystemID) reader;
+				streamReader = inputFactory.createXMLStreamReader(readerWithSystemID.getSystemID(),
+						readerWithSystemID.getReader());
+			} else {
+				streamReader = inputFactory.createXMLStreamReader(reader);
+			}
+
+			return parse(streamReader, null, cursorListener);
+		} catch (final XMLStreamException ex) {
+			throw new SAXException(ex);
+		} finally {
+			if (streamReader != null) {
+				try {
+					// Close stream reader
+					streamReader.close();
+				} catch (final XMLStreamException ex) {
+					throw new IOException(ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Iterates the given cursor and calls the <code>cursorListener</code> on each event which is not ignored.
+	 * 
+	 * @param streamReader the cursor, positioned on the StartDocument event.
+	 * @param countingReader the reader counting the bytes of the parsed characters to translate character offsets into
+	 *            byte offsets, or null if character offsets are reported.
+	 * @param cursorListener the observer, called for each occurring event.
+	 * @return true if the cursor listener processed all events, false if the cursor listener demanded an abortion.
+	 * @throws XMLStreamException If any parse error occurs.
+	 */
+	protected boolean parse(final XMLStreamReader streamReader, final ByteCountingReader countingReader,
+			final XmlParserCursorListener cursorListener) throws XMLStreamException {
+		while (true) {
+			// A cursor reports ignorable whitespace as separate event type, event readers report it as characters
+			final int eventType = streamReader.getEventType() == XMLStreamConstants.SPACE ? XMLStreamConstants.CHARACTERS
+					: streamReader.getEventType();
+			if (!isIgnoredEvent(streamReader.getEventType())) {
+				// Location has to be queried before the cursor is moved on
+				final long startingCharOffset = getStartingCharOffset(streamReader);
+				final long startingOffset = countingReader != null ? countingReader.toByteOffset(startingCharOffset)
+						: startingCharOffset;
+				final boolean abortParsing = cursorListener.process(eventType, startingOffset, streamReader);
+				if (abortParsing) {
+					return false;
+				}
+			}
+
+			if (!streamReader.hasNext()) {
+				return true;
+			}
+			streamReader.next();
+		}
+	}
+
+	/**
+	 * Returns the starting character offset of the cursor's current event.
+	 * 
+	 * @param streamReader the cursor.
+	 * @return the starting character offset.
+	 */
+	protected static long getStartingCharOffset(final XMLStreamReader streamReader) {
+		if (streamReader instanceof XMLStreamReader2) {
+			// Stax2 provides 64-bit offsets, therefore supporting documents beyond 2 GB
+			return ((XMLStreamReader2) streamReader).getLocationInfo().getStartingCharOffset();
+		}
+
+		return streamReader.getLocation().getCharacterOffset();
+	}
+
+	/**
+	 * Returns the configured StAX input factory.
+	 * 
+	 * @return the StAX input factory.
+	 */
+	protected XMLInputFactory getInputFactory() {
+		return inputFactory;
+	}
+
+	/**
+	 * Returns whether the given event should not be passed on to the event listener due to the parser configuration.
+	 * 
+	 * @param event the occurred event.
+	 * @return true if the event should be ignored, false otherwise.
+	 */
+	protected boolean isIgnoredEvent(final XMLEvent event) {
+		if (isIgnoringComments && event.getEventType() == XMLStreamConstants.COMMENT) {
+			return true;
+		}
+
+		return isIgnoringElementContentWhitespace && event.isCharacters()
+				&& event.asCharacters().isIgnorableWhiteSpace();
+	}
+
+	/**
+	 * Returns whether an event of the given type should not be passed on to the cursor listener due to the parser
+	 * configuration.
+	 * 
+	 * @param eventType the type of the occurred event.
+	 * @return true if the event should be ignored, false otherwise.
+	 */
+	protected boolean isIgnoredEvent(final int eventType) {
+		if (isIgnoringComments && eventType == XMLStreamConstants.COMMENT) {
+			return true;
+		}
+
+		return isIgnoringElementContentWhitespace && eventType == XMLStreamConstants.SPACE;
+	}
+
 	@Override
 	public Schema getSchema() {
 		return null;
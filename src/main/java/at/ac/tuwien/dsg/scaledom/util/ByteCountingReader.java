@@ -0,0 +1,174 @@
+package at.ac.tuwien.dsg.scaledom.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Utility <code>Reader</code> implementation which keeps track of the number of bytes the read characters occupied in
+ * the underlying document source. Allows a parser working on characters to translate its (monotonically increasing)
+ * character offsets into byte offsets, which is required for variable-width encodings like UTF-8.<br/>
+ * Only characters which have been read but not yet been translated are buffered, i.e. the memory footprint is bounded
+ * by the read-ahead of the consuming parser.
+ */
+public class ByteCountingReader extends Reader {
+
+	/** Initial size of the character history. */
+	private static final int INITIAL_HISTORY_SIZE = 8192;
+	/** Size of the scratch buffer used for encoding characters of non-UTF-8 charsets. */
+	private static final int SCRATCH_SIZE = 1024;
+
+	/** Underlying reader. */
+	private final Reader reader;
+	/** Encoder of the document source's charset, null if the UTF-8 fast path is used. */
+	private final CharsetEncoder encoder;
+	/** Scratch buffer for the encoder, null if the UTF-8 fast path is used. */
+	private final ByteBuffer scratch;
+
+	/** Characters which have been read but not yet been translated. */
+	private char[] history;
+	/** Index of the first untranslated character within history. */
+	private int historyStart;
+	/** Index after the last untranslated character within history. */
+	private int historyEnd;
+
+	/** Character offset up to which characters have been translated. */
+	private long translatedChars;
+	/** Byte offset corresponding to translatedChars. */
+	private long translatedBytes;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param reader the underlying reader.
+	 * @param charset the charset of the underlying document source.
+	 */
+	public ByteCountingReader(final Reader reader, final Charset charset) {
+		checkNotNull(reader, "Argument reader must not be null.");
+		checkNotNull(charset, "Argument charset must not be null.");
+
+		this.reader = reader;
+		if (Charsets.UTF_8.equals(charset)) {
+			encoder = null;
+			scratch = null;
+		} else {
+			encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			scratch = ByteBuffer.allocate(SCRATCH_SIZE);
+		}
+
+		history = new char[INITIAL_HISTORY_SIZE];
+		historyStart = 0;
+		historyEnd = 0;
+		translatedChars = 0;
+		translatedBytes = 0;
+	}
+
+	@Override
+	public int read(final char[] cbuf, final int off, final int len) throws IOException {
+		final int read = reader.read(cbuf, off, len);
+		if (read > 0) {
+			remember(cbuf, off, read);
+		}
+
+		return read;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Translates a character offset into the corresponding byte offset. Offsets must be requested in non-decreasing
+	 * order and must not exceed the number of characters read so far.
+	 *
+	 * @param charOffset the character offset, relative to the beginning of this reader.
+	 * @return the byte offset, relative to the beginning of this reader.
+	 * @throws IllegalArgumentException If charOffset is smaller than a previously requested offset or beyond the read
+	 *             characters.
+	 */
+	public long toByteOffset(final long charOffset) {
+		checkArgument(charOffset >= translatedChars,
+				"Offsets must be requested in non-decreasing order, %s is smaller than %s.", charOffset,
+				translatedChars);
+		checkArgument(charOffset - translatedChars <= historyEnd - historyStart,
+				"Offset %s has not been read yet.", charOffset);
+
+		final int count = (int) (charOffset - translatedChars);
+		if (count > 0) {
+			translatedBytes += encoder == null ? countUtf8Bytes(historyStart, count) : countEncodedBytes(historyStart,
+					count);
+			translatedChars = charOffset;
+			historyStart += count;
+		}
+
+		return translatedBytes;
+	}
+
+	private void remember(final char[] cbuf, final int off, final int len) {
+		if (historyEnd + len > history.length) {
+			final int untranslated = historyEnd - historyStart;
+			if (untranslated + len > history.length) {
+				// Grow history, e.g. for huge text nodes
+				final char[] grown = new char[Math.max(history.length * 2, untranslated + len)];
+				System.arraycopy(history, historyStart, grown, 0, untranslated);
+				history = grown;
+			} else {
+				// Compact history
+				System.arraycopy(history, historyStart, history, 0, untranslated);
+			}
+			historyStart = 0;
+			historyEnd = untranslated;
+		}
+
+		System.arraycopy(cbuf, off, history, historyEnd, len);
+		historyEnd += len;
+	}
+
+	private long countUtf8Bytes(final int start, final int count) {
+		long bytes = 0;
+		for (int i = start; i < start + count; ++i) {
+			final char c = history[i];
+			if (c < 0x80) {
+				bytes += 1;
+			} else if (c < 0x800) {
+				bytes += 2;
+			} else if (Character.isHighSurrogate(c)) {
+				// Supplementary character, the whole 4-byte sequence is accounted for on the high surrogate
+				bytes += 4;
+			} else if (!Character.isLowSurrogate(c)) {
+				bytes += 3;
+			}
+		}
+
+		return bytes;
+	}
+
+	private long countEncodedBytes(final int start, final int count) {
+		final CharBuffer in = CharBuffer.wrap(history, start, count);
+
+		long bytes = 0;
+		encoder.reset();
+		while (true) {
+			final CoderResult result = encoder.encode(in, scratch, true);
+			bytes += scratch.position();
+			scratch.clear();
+			if (result.isUnderflow()) {
+				break;
+			}
+		}
+
+		return bytes;
+	}
+}
@@ -10,6 +10,8 @@ import java.util.Map;
 
 import org.apache.commons.lang3.reflect.ConstructorUtils;
 
+import com.google.common.collect.ObjectArrays;
+
 /**
  * A simple component factory.<br/>
  * Users may either:
@@ -19,7 +21,8 @@ import org.apache.commons.lang3.reflect.ConstructorUtils;
  * </ul>
  * If instances are bound, the user may request the bound instance any time by calling {@link #getInstance(Class)}. If
  * an implementation type is bound, the user may request a new instance of that implementation type by calling
- * {@link #getNewInstance(Class, Object...)}, providing possible constructor parameters as ellipsis arguments.
+ * {@link #getNewInstance(Class, Object...)}, providing possible constructor parameters as ellipsis arguments. Constructor
+ * parameters which are the same for all instances may be bound along with the implementation type.
  * 
  * @author Dominik Rauch
  */
@@ -29,6 +32,8 @@ public class ComponentFactory {
 	private final Map<Class<?>, Object> instances;
 	/** Bound implementation classes. */
 	private final Map<Class<?>, Class<?>> bindings;
+	/** Constructor arguments bound along with implementation classes. */
+	private final Map<Class<?>, Object[]> boundArguments;
 
 	/**
 	 * Default constructor.
@@ -36,6 +41,7 @@ public class ComponentFactory {
 	public ComponentFactory() {
 		instances = new HashMap<Class<?>, Object>();
 		bindings = new HashMap<Class<?>, Class<?>>();
+		boundArguments = new HashMap<Class<?>, Object[]>();
 	}
 
 	/**
@@ -75,6 +81,32 @@ public class ComponentFactory {
 		checkNotNull(implType, "Argument implType must not be null.");
 
 		bindings.put(type, implType);
+		boundArguments.remove(type);
+	}
+
+	/**
+	 * Binds an implementation type to a type, along with constructor arguments which are appended to the ones given to
+	 * {@link #getNewInstance(Class, Object...)}.
+	 * 
+	 * @param type the type.
+	 * @param implType the implementation type.
+	 * @param args the trailing constructor arguments of each new instance.
+	 */
+	public <T> void bindWithArguments(final Class<T> type, final Class<? extends T> implType, final Object... args) {
+		bind(type, implType);
+		boundArguments.put(type, args.clone());
+	}
+
+	/**
+	 * Returns whether an implementation type is bound to a type.
+	 * 
+	 * @param type the type.
+	 * @return true if an implementation type is bound to the given type, false otherwise.
+	 */
+	public boolean isBound(final Class<?> type) {
+		checkNotNull(type, "Argument type must not be null.");
+
+		return bindings.containsKey(type);
 	}
 
 	/**
@@ -108,7 +140,9 @@ public class ComponentFactory {
 
 		@SuppressWarnings("unchecked")
 		final Class<T> implType = (Class<T>) bindings.get(type);
-		return getNewInstanceInternal(implType, args);
+		final Object[] trailingArgs = boundArguments.get(type);
+		return getNewInstanceInternal(implType, trailingArgs != null ? ObjectArrays.concat(args, trailingArgs,
+				Object.class) : args);
 	}
 
 	private <T> T getNewInstanceInternal(final Class<? extends T> implType, final Object... args)
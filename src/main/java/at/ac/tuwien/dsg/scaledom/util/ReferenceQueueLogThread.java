@@ -1,6 +1,11 @@
 package at.ac.tuwien.dsg.scaledom.util;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,9 +17,15 @@ public class ReferenceQueueLogThread extends Thread implements Runnable {
 
 	private final ReferenceQueue<?> referenceQueue;
 	private final String unloadMessage;
+	/** Weak reference to the owner of the reference queue, registered to the queue, or null if there is no owner. */
+	private final Reference<Object> ownerReference;
+	/** Task to be run once the owner has been garbage collected, or null. */
+	private final Runnable ownerCollectedTask;
+	/** Number of references removed from the queue. */
+	private final AtomicLong numberOfRemovedReferences;
 
 	/**
-	 * Default constructor.
+	 * Constructor of a thread without owner, i.e. the thread never exits.
 	 * 
 	 * @param referenceQueue the reference queue to be logged.
 	 * @param unloadMessage a message to be logged, containing one placeholder such that
@@ -23,6 +34,38 @@ public class ReferenceQueueLogThread extends Thread implements Runnable {
 	public ReferenceQueueLogThread(final ReferenceQueue<?> referenceQueue, final String unloadMessage) {
 		this.referenceQueue = referenceQueue;
 		this.unloadMessage = unloadMessage;
+		this.ownerReference = null;
+		this.ownerCollectedTask = null;
+		this.numberOfRemovedReferences = new AtomicLong();
+	}
+
+	/**
+	 * Constructor of a thread which exits once the owner of the reference queue has been garbage collected.
+	 * 
+	 * @param referenceQueue the reference queue to be logged.
+	 * @param unloadMessage a message to be logged, containing one placeholder such that
+	 *            <code>String.format(unloadMessage, unloadedObj)</code> returns the desired log message.
+	 * @param owner the owner of the reference queue.
+	 * @param ownerCollectedTask a task to be run once the owner has been garbage collected, or null. Must not
+	 *            reference the owner, otherwise the owner is never collected.
+	 */
+	public ReferenceQueueLogThread(final ReferenceQueue<Object> referenceQueue, final String unloadMessage,
+			final Object owner, final Runnable ownerCollectedTask) {
+		this.referenceQueue = referenceQueue;
+		this.unloadMessage = unloadMessage;
+		this.ownerReference = new WeakReference<Object>(checkNotNull(owner, "Argument owner must not be null."),
+				referenceQueue);
+		this.ownerCollectedTask = ownerCollectedTask;
+		this.numberOfRemovedReferences = new AtomicLong();
+	}
+
+	/**
+	 * Returns the number of references which have been removed from the reference queue so far.
+	 * 
+	 * @return the number of removed references.
+	 */
+	public long getNumberOfRemovedReferences() {
+		return numberOfRemovedReferences.get();
 	}
 
 	@Override
@@ -30,8 +73,18 @@ public class ReferenceQueueLogThread extends Thread implements Runnable {
 		while (true) {
 			try {
 				final Object unloadedObj = referenceQueue.remove();
+				if (unloadedObj == ownerReference) {
+					log.debug("Owner of the reference queue has been garbage collected, exiting.");
+					if (ownerCollectedTask != null) {
+						ownerCollectedTask.run();
+					}
+					return;
+				}
 				if (unloadedObj != null) {
-					log.debug(String.format(unloadMessage, unloadedObj));
+					numberOfRemovedReferences.incrementAndGet();
+					if (log.isDebugEnabled()) {
+						log.debug(String.format(unloadMessage, unloadedObj));
+					}
 				}
 			} catch (final InterruptedException ex) {
 				log.warn("Reference queue log thread has been unexpectedly interrupted.");
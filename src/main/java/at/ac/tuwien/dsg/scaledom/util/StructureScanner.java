@@ -0,0 +1,553 @@
+package at.ac.tuwien.dsg.scaledom.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lightweight byte-level scanner, which determines the structure of an XML file in parallel without actually parsing
+ * it. The file is split into chunks, which are scanned concurrently by a state machine tracking markup state (tags,
+ * quoted attribute values, comments, CDATA sections, processing instructions, document type declaration). The
+ * per-chunk results (depth deltas, first tags per relative depth) are stitched together afterwards.<br/>
+ * A chunk is scanned speculatively, starting at its first '&lt;' character in content state. This is wrong only if
+ * the chunk starts within a comment, CDATA section or processing instruction (attribute values and text can not
+ * contain a raw '&lt;'), such chunks are rescanned sequentially with the correct state while stitching.<br/>
+ * The scanner supports ASCII-compatible encodings only, in which no byte of a multi-byte character may be mistaken
+ * for a markup character (i.e. single-byte encodings and UTF-8).
+ */
+public class StructureScanner {
+
+	/** Logger. */
+	private final static Logger log = LoggerFactory.getLogger(StructureScanner.class);
+
+	/** Marker for unknown offsets. */
+	public final static long OFFSET_UNKNOWN = -1;
+
+	// Scanner states
+	private final static int CONTENT = 0;
+	private final static int LT = 1;
+	private final static int START_TAG = 2;
+	private final static int START_TAG_DQ = 3;
+	private final static int START_TAG_SQ = 4;
+	private final static int START_TAG_SLASH = 5;
+	private final static int END_TAG = 6;
+	private final static int LT_BANG = 7;
+	private final static int LT_BANG_DASH = 8;
+	private final static int COMMENT = 9;
+	private final static int COMMENT_DASH = 10;
+	private final static int COMMENT_DASH_DASH = 11;
+	private final static int CDATA_OPEN = 12;
+	private final static int CDATA = 13;
+	private final static int CDATA_RB = 14;
+	private final static int CDATA_RBRB = 15;
+	private final static int PI = 16;
+	private final static int PI_Q = 17;
+	private final static int DECL = 18;
+	private final static int DECL_DQ = 19;
+	private final static int DECL_SQ = 20;
+	private final static int DECL_SUBSET = 21;
+
+	/**
+	 * Structure of a scanned XML file. All offsets are byte offsets.
+	 */
+	public static class Structure {
+
+		private final long rootContentStart;
+		private final long rootEndTagStart;
+		private final long[] splitOffsets;
+
+		Structure(final long rootContentStart, final long rootEndTagStart, final long[] splitOffsets) {
+			this.rootContentStart = rootContentStart;
+			this.rootEndTagStart = rootEndTagStart;
+			this.splitOffsets = splitOffsets;
+		}
+
+		/**
+		 * Returns the offset following the start tag of the document element.
+		 *
+		 * @return the offset of the document element's content.
+		 */
+		public long getRootContentStart() {
+			return rootContentStart;
+		}
+
+		/**
+		 * Returns the offset of the end tag of the document element.
+		 *
+		 * @return the offset of the document element's end tag.
+		 */
+		public long getRootEndTagStart() {
+			return rootEndTagStart;
+		}
+
+		/**
+		 * Returns the offsets of start tags of direct children of the document element, which may be used to split the
+		 * document element's content into independently parseable ranges. The offsets are sorted and lie strictly
+		 * between {@link #getRootContentStart()} and {@link #getRootEndTagStart()}.
+		 *
+		 * @return the split offsets.
+		 */
+		public long[] getSplitOffsets() {
+			return splitOffsets;
+		}
+	}
+
+	/**
+	 * Maps relative depths to the offset of their first occurrence.
+	 */
+	private static class DepthTable {
+
+		private long[] nonNegative = newArray(8);
+		private long[] negative = newArray(8);
+
+		void setIfAbsent(final int depth, final long offset) {
+			if (depth >= 0) {
+				if (depth >= nonNegative.length) {
+					nonNegative = grow(nonNegative, depth);
+				}
+				if (nonNegative[depth] == OFFSET_UNKNOWN) {
+					nonNegative[depth] = offset;
+				}
+			} else {
+				final int index = -depth - 1;
+				if (index >= negative.length) {
+					negative = grow(negative, index);
+				}
+				if (negative[index] == OFFSET_UNKNOWN) {
+					negative[index] = offset;
+				}
+			}
+		}
+
+		long get(final int depth) {
+			if (depth >= 0) {
+				return depth < nonNegative.length ? nonNegative[depth] : OFFSET_UNKNOWN;
+			}
+
+			final int index = -depth - 1;
+			return index < negative.length ? negative[index] : OFFSET_UNKNOWN;
+		}
+
+		private static long[] newArray(final int length) {
+			final long[] array = new long[length];
+			Arrays.fill(array, OFFSET_UNKNOWN);
+			return array;
+		}
+
+		private static long[] grow(final long[] array, final int index) {
+			final long[] grown = newArray(Math.max(array.length * 2, index + 1));
+			System.arraycopy(array, 0, grown, 0, array.length);
+			return grown;
+		}
+	}
+
+	/**
+	 * Scan result of a contiguous range of bytes. Depths are relative to the depth at the beginning of the range.
+	 */
+	private static class Segment {
+
+		/** Offset of the first byte. */
+		final long start;
+		/** Offset after the last byte. */
+		final long end;
+		/** Assumed state at the beginning of the segment. */
+		final int startState;
+
+		/** State at the end of the segment. */
+		int endState;
+		/** Depth at the end of the segment. */
+		int endDepth;
+		/** Offset of the last '&lt;' which started markup, required if markup continues in the next segment. */
+		long lastMarkupStart;
+		/** Flag whether a document type declaration with internal subset occurred. */
+		boolean internalSubset;
+
+		/** Offsets of the first start tag, by depth before the tag. */
+		final DepthTable firstStartTag = new DepthTable();
+		/** Offsets following the first non-empty start tag, by depth after the tag. */
+		final DepthTable firstStartTagEnd = new DepthTable();
+		/** Offsets of the first end tag, by depth after the tag. */
+		final DepthTable firstEndTag = new DepthTable();
+
+		Segment(final long start, final long end, final int startState) {
+			this.start = start;
+			this.end = end;
+			this.startState = startState;
+		}
+	}
+
+	/**
+	 * Scans the given file in parallel.
+	 *
+	 * @param file the file to be scanned.
+	 * @param executor the executor running the chunk scans.
+	 * @param numberOfChunks the number of chunks the file is split into.
+	 * @return the scanned structure, or null if the file has no document element with content or contains a document
+	 *         type declaration with internal subset (entities declared there can not be resolved in split ranges).
+	 * @throws IOException If some I/O error occurs.
+	 */
+	public static Structure scan(final File file, final ExecutorService executor, final int numberOfChunks)
+			throws IOException {
+		checkNotNull(file, "Argument file must not be null.");
+		checkNotNull(executor, "Argument executor must not be null.");
+		checkArgument(numberOfChunks > 0, "Expected numberOfChunks to be positive, but %s is not.", numberOfChunks);
+
+		final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = randomAccessFile.getChannel();
+			final long fileSize = channel.size();
+			final long chunkSize = Math.max((fileSize + numberOfChunks - 1) / numberOfChunks, 1);
+			checkArgument(chunkSize <= Integer.MAX_VALUE, "Expected chunks to be smaller than 2 GB, but %s B are not.",
+					chunkSize);
+
+			// Scan all chunks concurrently
+			final List<Future<Segment[]>> futures = new ArrayList<Future<Segment[]>>();
+			for (long chunkStart = 0; chunkStart < fileSize; chunkStart += chunkSize) {
+				final long start = chunkStart;
+				final long end = Math.min(chunkStart + chunkSize, fileSize);
+				futures.add(executor.submit(new Callable<Segment[]>() {
+					@Override
+					public Segment[] call() throws IOException {
+						return scanChunk(channel, start, end);
+					}
+				}));
+			}
+
+			final List<Segment> segments = new ArrayList<Segment>();
+			for (final Future<Segment[]> future : futures) {
+				segments.addAll(Arrays.asList(getResult(future)));
+			}
+
+			return stitch(channel, segments);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Scans a chunk. The bytes preceding the first '&lt;' (if any) are returned as unscanned prefix segment, because
+	 * their state is not known before stitching.
+	 */
+	private static Segment[] scanChunk(final FileChannel channel, final long start, final long end)
+			throws IOException {
+		if (start == 0) {
+			return new Segment[] { scan(map(channel, start, end), start, end, CONTENT, OFFSET_UNKNOWN) };
+		}
+
+		final ByteBuffer buffer = map(channel, start, end);
+		int firstMarkup = 0;
+		while (firstMarkup < buffer.limit() && buffer.get(firstMarkup) != '<') {
+			++firstMarkup;
+		}
+
+		final Segment prefix = new Segment(start, start + firstMarkup, -1);
+		if (firstMarkup == buffer.limit()) {
+			return new Segment[] { prefix };
+		}
+
+		buffer.position(firstMarkup);
+		return new Segment[] { prefix, scan(buffer, start + firstMarkup, end, CONTENT, OFFSET_UNKNOWN) };
+	}
+
+	/**
+	 * Stitches the segments together, rescanning all segments whose assumed start state was wrong.
+	 */
+	private static Structure stitch(final FileChannel channel, final List<Segment> segments) throws IOException {
+		int state = CONTENT;
+		int depth = 0;
+		long lastMarkupStart = OFFSET_UNKNOWN;
+		long rootContentStart = OFFSET_UNKNOWN;
+		long rootEndTagStart = OFFSET_UNKNOWN;
+		int rescanned = 0;
+		final List<Long> splitOffsets = new ArrayList<Long>();
+
+		for (Segment segment : segments) {
+			if (segment.startState != state) {
+				if (segment.startState != -1) {
+					++rescanned;
+				}
+				segment = scan(map(channel, segment.start, segment.end), segment.start, segment.end, state,
+						lastMarkupStart);
+			}
+
+			if (segment.internalSubset) {
+				log.debug("Document type declaration with internal subset found, structure is not usable.");
+				return null;
+			}
+
+			final boolean rootContentStartsHere = rootContentStart == OFFSET_UNKNOWN;
+			if (rootContentStartsHere) {
+				rootContentStart = segment.firstStartTagEnd.get(1 - depth);
+			}
+			if (rootContentStart != OFFSET_UNKNOWN && rootEndTagStart == OFFSET_UNKNOWN) {
+				// Use the first child of each chunk as split offset, except within the chunk the content starts in
+				final long splitOffset = segment.firstStartTag.get(1 - depth);
+				if (!rootContentStartsHere && splitOffset != OFFSET_UNKNOWN) {
+					splitOffsets.add(splitOffset);
+				}
+				rootEndTagStart = segment.firstEndTag.get(-depth);
+			}
+
+			state = segment.endState;
+			depth += segment.endDepth;
+			if (segment.lastMarkupStart != OFFSET_UNKNOWN) {
+				lastMarkupStart = segment.lastMarkupStart;
+			}
+		}
+
+		log.debug("Stitched " + segments.size() + " segments, " + rescanned + " had to be rescanned.");
+		if (state != CONTENT || depth != 0 || rootContentStart == OFFSET_UNKNOWN
+				|| rootEndTagStart == OFFSET_UNKNOWN) {
+			log.debug("No document element with content found, structure is not usable.");
+			return null;
+		}
+
+		final long[] offsets = new long[splitOffsets.size()];
+		int numberOfOffsets = 0;
+		for (final Long splitOffset : splitOffsets) {
+			if (splitOffset > rootContentStart && splitOffset < rootEndTagStart) {
+				offsets[numberOfOffsets++] = splitOffset;
+			}
+		}
+
+		return new Structure(rootContentStart, rootEndTagStart, Arrays.copyOf(offsets, numberOfOffsets));
+	}
+
+	/**
+	 * Scans the remaining bytes of the buffer.
+	 *
+	 * @param buffer the buffer, positioned at the first byte to be scanned.
+	 * @param start the offset of the first byte to be scanned.
+	 * @param end the offset after the last byte to be scanned.
+	 * @param startState the state at the first byte.
+	 * @param pendingMarkupStart the offset of the last '&lt;' before the first byte, required if the segment starts
+	 *            within a tag.
+	 * @return the scanned segment.
+	 */
+	private static Segment scan(final ByteBuffer buffer, final long start, final long end, final int startState,
+			final long pendingMarkupStart) {
+		final Segment segment = new Segment(start, end, startState);
+		final long bufferOffset = start - buffer.position();
+
+		int state = startState;
+		int depth = 0;
+		long markupStart = pendingMarkupStart;
+
+		final int limit = buffer.limit();
+		for (int i = buffer.position(); i < limit; ++i) {
+			final byte b = buffer.get(i);
+
+			switch (state) {
+			case CONTENT:
+				if (b == '<') {
+					state = LT;
+					markupStart = bufferOffset + i;
+				}
+				break;
+
+			case LT:
+				if (b == '/') {
+					state = END_TAG;
+				} else if (b == '!') {
+					state = LT_BANG;
+				} else if (b == '?') {
+					state = PI;
+				} else {
+					state = START_TAG;
+					segment.firstStartTag.setIfAbsent(depth, markupStart);
+				}
+				break;
+
+			case START_TAG_SLASH:
+				// The current byte is part of the start tag, unless it ends an empty element
+				if (b == '>') {
+					// Empty element, depth does not change
+					state = CONTENT;
+				} else if (b == '/') {
+					state = START_TAG_SLASH;
+				} else if (b == '"') {
+					state = START_TAG_DQ;
+				} else if (b == '\'') {
+					state = START_TAG_SQ;
+				} else {
+					state = START_TAG;
+				}
+				break;
+
+			case START_TAG:
+				if (b == '>') {
+					++depth;
+					segment.firstStartTagEnd.setIfAbsent(depth, bufferOffset + i + 1);
+					state = CONTENT;
+				} else if (b == '/') {
+					state = START_TAG_SLASH;
+				} else if (b == '"') {
+					state = START_TAG_DQ;
+				} else if (b == '\'') {
+					state = START_TAG_SQ;
+				}
+				break;
+
+			case START_TAG_DQ:
+				if (b == '"') {
+					state = START_TAG;
+				}
+				break;
+
+			case START_TAG_SQ:
+				if (b == '\'') {
+					state = START_TAG;
+				}
+				break;
+
+			case END_TAG:
+				if (b == '>') {
+					--depth;
+					segment.firstEndTag.setIfAbsent(depth, markupStart);
+					state = CONTENT;
+				}
+				break;
+
+			case LT_BANG:
+				if (b == '-') {
+					state = LT_BANG_DASH;
+				} else if (b == '[') {
+					state = CDATA_OPEN;
+				} else {
+					state = DECL;
+				}
+				break;
+
+			case LT_BANG_DASH:
+				state = b == '-' ? COMMENT : DECL;
+				break;
+
+			case COMMENT:
+				if (b == '-') {
+					state = COMMENT_DASH;
+				}
+				break;
+
+			case COMMENT_DASH:
+				state = b == '-' ? COMMENT_DASH_DASH : COMMENT;
+				break;
+
+			case COMMENT_DASH_DASH:
+				if (b == '>') {
+					state = CONTENT;
+				} else if (b != '-') {
+					state = COMMENT;
+				}
+				break;
+
+			case CDATA_OPEN:
+				if (b == '[') {
+					state = CDATA;
+				}
+				break;
+
+			case CDATA:
+				if (b == ']') {
+					state = CDATA_RB;
+				}
+				break;
+
+			case CDATA_RB:
+				state = b == ']' ? CDATA_RBRB : CDATA;
+				break;
+
+			case CDATA_RBRB:
+				if (b == '>') {
+					state = CONTENT;
+				} else if (b != ']') {
+					state = CDATA;
+				}
+				break;
+
+			case PI:
+				if (b == '?') {
+					state = PI_Q;
+				}
+				break;
+
+			case PI_Q:
+				if (b == '>') {
+					state = CONTENT;
+				} else if (b != '?') {
+					state = PI;
+				}
+				break;
+
+			case DECL:
+				if (b == '>') {
+					state = CONTENT;
+				} else if (b == '"') {
+					state = DECL_DQ;
+				} else if (b == '\'') {
+					state = DECL_SQ;
+				} else if (b == '[') {
+					// The internal subset is not tracked any further, the structure is not usable anyway
+					segment.internalSubset = true;
+					state = DECL_SUBSET;
+				}
+				break;
+
+			case DECL_DQ:
+				if (b == '"') {
+					state = DECL;
+				}
+				break;
+
+			case DECL_SQ:
+				if (b == '\'') {
+					state = DECL;
+				}
+				break;
+
+			case DECL_SUBSET:
+				if (b == ']') {
+					state = DECL;
+				}
+				break;
+			}
+		}
+
+		segment.endState = state;
+		segment.endDepth = depth;
+		segment.lastMarkupStart = markupStart;
+		return segment;
+	}
+
+	private static ByteBuffer map(final FileChannel channel, final long start, final long end) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+	}
+
+	private static <T> T getResult(final Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while scanning.", ex);
+		} catch (final ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			}
+			throw new IOException("Scanning failed.", ex.getCause());
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package at.ac.tuwien.dsg.scaledom.util.jfr;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry point for the Java Flight Recorder events of the load and read paths.<br/>
+ * Each event is begun before and ended after the timed operation, it is committed only if a running recording has
+ * enabled it (all events of the category "ScaleDOM" are enabled by default, e.g. by
+ * <code>-XX:StartFlightRecording</code>). The event classes are loaded only if the JVM provides the
+ * <code>jdk.jfr</code> API (Java 8u262 or later), on other JVMs all events are discarded by a no-op implementation.
+ * The event classes reside in <code>src/main/jfr</code> and are compiled only if the build JDK provides the API
+ * (profile "jfr" of the POM), otherwise all events are discarded as well.
+ */
+public final class FlightRecorderEvents {
+
+	/** Logger. */
+	private final static Logger log = LoggerFactory.getLogger(FlightRecorderEvents.class);
+
+	/** Event factory based upon the jdk.jfr API, must not be referenced statically. */
+	private final static String JFR_EVENT_FACTORY = "at.ac.tuwien.dsg.scaledom.util.jfr.JfrEventFactory";
+
+	/** Creates the begun events. */
+	private final static EventFactory factory = newEventFactory();
+
+	private FlightRecorderEvents() {
+	}
+
+	/**
+	 * Begins the event of the initial load of a document.
+	 *
+	 * @return the begun event.
+	 */
+	public static InitialLoad beginInitialLoad() {
+		return factory.beginInitialLoad();
+	}
+
+	/**
+	 * Begins the event of a reload of child nodes (of a single parent, a page of its children or a run of siblings).
+	 *
+	 * @return the begun event.
+	 */
+	public static Load beginLoad() {
+		return factory.beginLoad();
+	}
+
+	/**
+	 * Begins the event of a load process, i.e. of creating the nodes of a parent's subtree.
+	 *
+	 * @return the begun event.
+	 */
+	public static LoadProcess beginLoadProcess() {
+		return factory.beginLoadProcess();
+	}
+
+	/**
+	 * Begins the event of a single read from a document source.
+	 *
+	 * @return the begun event.
+	 */
+	public static Read beginRead() {
+		return factory.beginRead();
+	}
+
+	/**
+	 * Returns whether events are recorded at all, i.e. whether the JVM provides the <code>jdk.jfr</code> API.
+	 *
+	 * @return true if the JVM supports Flight Recorder events, false otherwise.
+	 */
+	public static boolean isSupported() {
+		return factory != NoEvents.INSTANCE;
+	}
+
+	private static EventFactory newEventFactory() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return (EventFactory) Class.forName(JFR_EVENT_FACTORY).getDeclaredConstructor().newInstance();
+		} catch (final ClassNotFoundException ex) {
+			log.debug("Java Flight Recorder API or events are not available, events are not recorded.");
+		} catch (final NoSuchMethodException ex) {
+			log.warn("Flight Recorder events have no default constructor, events are not recorded.", ex);
+		} catch (final InvocationTargetException ex) {
+			log.warn("Could not instantiate Flight Recorder events, events are not recorded.", ex.getCause());
+		} catch (final Exception ex) {
+			log.warn("Could not instantiate Flight Recorder events, events are not recorded.", ex);
+		} catch (final LinkageError ex) {
+			log.warn("Could not load Flight Recorder events, events are not recorded.", ex);
+		}
+		return NoEvents.INSTANCE;
+	}
+
+	/**
+	 * Begun event of the initial load of a document.
+	 */
+	public interface InitialLoad {
+
+		/**
+		 * Ends the event and commits it, if enabled.
+		 *
+		 * @param nodeCount the number of created nodes.
+		 * @param bytesRead the number of bytes read from the document source.
+		 */
+		void end(long nodeCount, long bytesRead);
+	}
+
+	/**
+	 * Begun event of a reload of child nodes.
+	 */
+	public interface Load {
+
+		/**
+		 * Ends the event and commits it, if enabled.
+		 *
+		 * @param parentName the name of the node whose children have been reloaded.
+		 * @param rangeStart the start offset of the read range, -1 if unknown.
+		 * @param rangeEnd the end offset of the read range, -1 if unknown.
+		 * @param nodeCount the number of created nodes.
+		 * @param bytesRead the number of bytes read from the document source.
+		 */
+		void end(String parentName, long rangeStart, long rangeEnd, long nodeCount, long bytesRead);
+	}
+
+	/**
+	 * Begun event of a load process.
+	 */
+	public interface LoadProcess {
+
+		/**
+		 * Ends the event and commits it, if enabled.
+		 *
+		 * @param parentName the name of the node whose subtree has been created.
+		 * @param rangeStart the start offset of the parent node, -1 if unknown.
+		 * @param rangeEnd the end offset of the parent node, -1 if unknown.
+		 * @param nodeCount the number of created nodes.
+		 */
+		void end(String parentName, long rangeStart, long rangeEnd, long nodeCount);
+	}
+
+	/**
+	 * Begun event of a single read from a document source.
+	 */
+	public interface Read {
+
+		/**
+		 * Ends the event and commits it, if enabled.
+		 *
+		 * @param bytesRead the number of read bytes.
+		 */
+		void end(long bytesRead);
+	}
+
+	/**
+	 * Creates begun events.
+	 */
+	interface EventFactory {
+
+		InitialLoad beginInitialLoad();
+
+		Load beginLoad();
+
+		LoadProcess beginLoadProcess();
+
+		Read beginRead();
+	}
+
+	/**
+	 * Discards all events, used if the JVM does not support Flight Recorder events.
+	 */
+	private final static class NoEvents implements EventFactory, InitialLoad, Load, LoadProcess, Read {
+
+		private final static NoEvents INSTANCE = new NoEvents();
+
+		@Override
+		public InitialLoad beginInitialLoad() {
+			return this;
+		}
+
+		@Override
+		public Load beginLoad() {
+			return this;
+		}
+
+		@Override
+		public LoadProcess beginLoadProcess() {
+			return this;
+		}
+
+		@Override
+		public Read beginRead() {
+			return this;
+		}
+
+		@Override
+		public void end(final long nodeCount, final long bytesRead) {
+		}
+
+		@Override
+		public void end(final String parentName, final long rangeStart, final long rangeEnd, final long nodeCount,
+				final long bytesRead) {
+		}
+
+		@Override
+		public void end(final String parentName, final long rangeStart, final long rangeEnd, final long nodeCount) {
+		}
+
+		@Override
+		public void end(final long bytesRead) {
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package at.ac.tuwien.dsg.scaledom.xpath;
+
+/**
+ * Provides the attributes of the element currently matched by a <code>PathMatcher</code>, either from the parser's
+ * cursor or from a DOM element.
+ */
+interface AttributeLookup {
+
+	/**
+	 * Returns the value of an attribute of the current element.
+	 *
+	 * @param namespaceURI the attribute's namespace URI, "" if none.
+	 * @param localName the attribute's local name.
+	 * @return the attribute's value, or null if the element does not have the attribute.
+	 */
+	String getValue(final String namespaceURI, final String localName);
+}
@@ -0,0 +1,34 @@
+package at.ac.tuwien.dsg.scaledom.xpath;
+
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Provides the attributes of the StartElement event a parser's cursor is positioned on, by their namespace URIs and
+ * local names.
+ */
+final class CursorAttributes implements AttributeLookup {
+
+	private XMLStreamReader cursor;
+
+	/**
+	 * Sets the cursor, which must stay on the StartElement event while attributes are looked up.
+	 *
+	 * @param cursor the cursor.
+	 */
+	void setCursor(final XMLStreamReader cursor) {
+		this.cursor = cursor;
+	}
+
+	@Override
+	public String getValue(final String namespaceURI, final String localName) {
+		final int numberOfAttributes = cursor.getAttributeCount();
+		for (int i = 0; i < numberOfAttributes; ++i) {
+			final String attributeNamespaceURI = cursor.getAttributeNamespace(i);
+			if (localName.equals(cursor.getAttributeLocalName(i))
+					&& namespaceURI.equals(attributeNamespaceURI != null ? attributeNamespaceURI : "")) {
+				return cursor.getAttributeValue(i);
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,271 @@
+package at.ac.tuwien.dsg.scaledom.xpath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPathExpressionException;
+
+/**
+ * Parses the streamable subset of XPath 1.0 supported by <code>StreamingXPath</code> into location steps:
+ * <ul>
+ * <li>Absolute location paths of steps separated by "/" or "//", with the (abbreviated or explicit) child axis.</li>
+ * <li>Unions of such paths separated by "|", where a union is expected.</li>
+ * <li>Name tests "*", "prefix:*", "name" and "prefix:name", prefixes are resolved by the namespace context.</li>
+ * <li>Predicates "[n]", "[position()=n]", "[@name]", "[@name='value']" and "[@name!='value']".</li>
+ * </ul>
+ */
+final class ExpressionParser {
+
+	private final String expression;
+	private final NamespaceContext namespaceContext;
+	/** Position of the next character to be parsed. */
+	private int position;
+
+	private ExpressionParser(final String expression, final NamespaceContext namespaceContext) {
+		this.expression = expression;
+		this.namespaceContext = namespaceContext;
+		this.position = 0;
+	}
+
+	/**
+	 * Parses an expression.
+	 *
+	 * @param expression the expression.
+	 * @param namespaceContext the context resolving prefixes, null if the expression does not contain any prefixes.
+	 * @return the location steps.
+	 * @throws XPathExpressionException If the expression is not valid or not supported.
+	 */
+	static List<LocationStep> parse(final String expression, final NamespaceContext namespaceContext)
+			throws XPathExpressionException {
+		final ExpressionParser parser = new ExpressionParser(expression, namespaceContext);
+		final List<LocationStep> steps = parser.parsePath();
+		if (parser.position < expression.length()) {
+			throw parser.error("Expected '/' or '//'");
+		}
+		return steps;
+	}
+
+	/**
+	 * Parses a union of paths.
+	 *
+	 * @param expression the expression.
+	 * @param namespaceContext the context resolving prefixes, null if the expression does not contain any prefixes.
+	 * @return the location steps of each path.
+	 * @throws XPathExpressionException If the expression is not valid or not supported.
+	 */
+	static List<List<LocationStep>> parseUnion(final String expression, final NamespaceContext namespaceContext)
+			throws XPathExpressionException {
+		final ExpressionParser parser = new ExpressionParser(expression, namespaceContext);
+		final List<List<LocationStep>> paths = new ArrayList<List<LocationStep>>();
+		paths.add(parser.parsePath());
+		while (parser.lookingAt("|")) {
+			++parser.position;
+			paths.add(parser.parsePath());
+		}
+		return paths;
+	}
+
+	private List<LocationStep> parsePath() throws XPathExpressionException {
+		final List<LocationStep> steps = new ArrayList<LocationStep>();
+		skipWhitespace();
+		if (!lookingAt("/")) {
+			throw error("Only absolute location paths are supported");
+		}
+		while (position < expression.length() && !lookingAt("|")) {
+			final boolean descendant;
+			if (lookingAt("//")) {
+				position += 2;
+				descendant = true;
+			} else if (lookingAt("/")) {
+				++position;
+				descendant = false;
+			} else {
+				throw error("Expected '/' or '//'");
+			}
+			steps.add(parseStep(descendant));
+			skipWhitespace();
+		}
+		return steps;
+	}
+
+	private LocationStep parseStep(final boolean descendant) throws XPathExpressionException {
+		skipWhitespace();
+		final int nameStart = position;
+		if (position < expression.length() && isNameStartChar(expression.charAt(position))) {
+			final String axis = parseNCName();
+			skipWhitespace();
+			if (lookingAt("::")) {
+				if (!axis.equals("child")) {
+					throw error("Axis '" + axis + "' is not supported");
+				}
+				position += 2;
+				skipWhitespace();
+			} else {
+				position = nameStart;
+			}
+		}
+
+		String namespaceURI;
+		String localName;
+		if (lookingAt("*")) {
+			++position;
+			namespaceURI = null;
+			localName = LocationStep.WILDCARD;
+		} else {
+			final String name = parseNCName();
+			if (lookingAt(":")) {
+				++position;
+				namespaceURI = resolvePrefix(name);
+				if (lookingAt("*")) {
+					++position;
+					localName = LocationStep.WILDCARD;
+				} else {
+					localName = parseNCName();
+				}
+			} else {
+				namespaceURI = "";
+				localName = name;
+			}
+		}
+
+		final List<Predicate> predicates = new ArrayList<Predicate>();
+		skipWhitespace();
+		while (lookingAt("[")) {
+			++position;
+			skipWhitespace();
+			predicates.add(parsePredicate());
+			skipWhitespace();
+			expect("]");
+			skipWhitespace();
+		}
+		return new LocationStep(descendant, namespaceURI, localName, predicates);
+	}
+
+	private Predicate parsePredicate() throws XPathExpressionException {
+		if (lookingAt("position()")) {
+			position += "position()".length();
+			skipWhitespace();
+			expect("=");
+			skipWhitespace();
+			return Predicate.position(parsePosition());
+		}
+		if (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+			return Predicate.position(parsePosition());
+		}
+		if (!lookingAt("@")) {
+			throw error("Unsupported predicate");
+		}
+
+		++position;
+		final String name = parseNCName();
+		final String namespaceURI;
+		final String localName;
+		if (lookingAt(":")) {
+			++position;
+			namespaceURI = resolvePrefix(name);
+			localName = parseNCName();
+		} else {
+			// Unprefixed attributes are never in a namespace
+			namespaceURI = "";
+			localName = name;
+		}
+
+		skipWhitespace();
+		if (lookingAt("!=")) {
+			position += 2;
+			skipWhitespace();
+			return Predicate.attribute(Predicate.Type.ATTRIBUTE_NOT_EQUALS, namespaceURI, localName, parseLiteral());
+		}
+		if (lookingAt("=")) {
+			++position;
+			skipWhitespace();
+			return Predicate.attribute(Predicate.Type.ATTRIBUTE_EQUALS, namespaceURI, localName, parseLiteral());
+		}
+		return Predicate.attribute(Predicate.Type.ATTRIBUTE_EXISTS, namespaceURI, localName, null);
+	}
+
+	private int parsePosition() throws XPathExpressionException {
+		final int start = position;
+		while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+			++position;
+		}
+		if (start == position) {
+			throw error("Expected a position");
+		}
+		try {
+			final int value = Integer.parseInt(expression.substring(start, position));
+			if (value < 1) {
+				throw error("Positions start at 1");
+			}
+			return value;
+		} catch (final NumberFormatException ex) {
+			throw error("Position is too large");
+		}
+	}
+
+	private String parseLiteral() throws XPathExpressionException {
+		if (!lookingAt("'") && !lookingAt("\"")) {
+			throw error("Expected a string literal");
+		}
+		final char quote = expression.charAt(position);
+		final int end = expression.indexOf(quote, position + 1);
+		if (end == -1) {
+			throw error("Unterminated string literal");
+		}
+		final String literal = expression.substring(position + 1, end);
+		position = end + 1;
+		return literal;
+	}
+
+	private String parseNCName() throws XPathExpressionException {
+		final int start = position;
+		if (position < expression.length() && isNameStartChar(expression.charAt(position))) {
+			++position;
+			while (position < expression.length() && isNameChar(expression.charAt(position))) {
+				++position;
+			}
+		}
+		if (start == position) {
+			throw error("Expected a name");
+		}
+		return expression.substring(start, position);
+	}
+
+	private String resolvePrefix(final String prefix) throws XPathExpressionException {
+		final String namespaceURI = namespaceContext != null ? namespaceContext.getNamespaceURI(prefix) : null;
+		if (namespaceURI == null || namespaceURI.isEmpty()) {
+			throw error("Prefix '" + prefix + "' is not bound to a namespace");
+		}
+		return namespaceURI;
+	}
+
+	private static boolean isNameStartChar(final char c) {
+		return Character.isLetter(c) || c == '_';
+	}
+
+	private static boolean isNameChar(final char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+	}
+
+	private boolean lookingAt(final String token) {
+		return expression.startsWith(token, position);
+	}
+
+	private void expect(final String token) throws XPathExpressionException {
+		if (!lookingAt(token)) {
+			throw error("Expected '" + token + "'");
+		}
+		position += token.length();
+	}
+
+	private void skipWhitespace() {
+		while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+			++position;
+		}
+	}
+
+	private XPathExpressionException error(final String message) {
+		return new XPathExpressionException(message + " at position " + position + " of '" + expression + "'.");
+	}
+}
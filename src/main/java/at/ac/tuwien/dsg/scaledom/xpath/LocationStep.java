@@ -0,0 +1,57 @@
+package at.ac.tuwien.dsg.scaledom.xpath;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Step of a streamable location path: the child axis, optionally preceded by <code>descendant-or-self::node()</code>
+ * (i.e. <code>//</code>), a name test and predicates.
+ */
+final class LocationStep {
+
+	/** Wildcard matching all local names. */
+	final static String WILDCARD = "*";
+
+	/** Flag whether the step is preceded by "//", i.e. matches the descendants of the context node. */
+	private final boolean descendant;
+	/** Namespace URI to be matched, "" if none, null to match all namespaces. */
+	private final String namespaceURI;
+	/** Local name to be matched, "*" to match all local names. */
+	private final String localName;
+	private final List<Predicate> predicates;
+
+	LocationStep(final boolean descendant, final String namespaceURI, final String localName,
+			final List<Predicate> predicates) {
+		this.descendant = descendant;
+		this.namespaceURI = namespaceURI;
+		this.localName = localName;
+		this.predicates = Collections.unmodifiableList(predicates);
+	}
+
+	boolean isDescendant() {
+		return descendant;
+	}
+
+	String getNamespaceURI() {
+		return namespaceURI;
+	}
+
+	String getLocalName() {
+		return localName;
+	}
+
+	List<Predicate> getPredicates() {
+		return predicates;
+	}
+
+	/**
+	 * Returns whether an element passes the name test.
+	 *
+	 * @param elementNamespaceURI the element's namespace URI, "" if none.
+	 * @param elementLocalName the element's local name.
+	 */
+	boolean matchesName(final String elementNamespaceURI, final String elementLocalName) {
+		return (namespaceURI == null || namespaceURI.equals(elementNamespaceURI))
+				&& (localName.equals(WILDCARD) || localName.equals(elementLocalName));
+	}
+}
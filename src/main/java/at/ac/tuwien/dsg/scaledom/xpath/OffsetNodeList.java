@@ -0,0 +1,44 @@
+package at.ac.tuwien.dsg.scaledom.xpath;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+
+/**
+ * List of elements given by their start offsets within the document source, each element is resolved (and loaded, if
+ * necessary) only as it is requested.
+ */
+final class OffsetNodeList implements NodeList {
+
+	private final ScaleDomDocument doc;
+	private final long[] offsets;
+	private final int length;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param doc the document.
+	 * @param offsets the start offsets of the elements in document order, only the first length entries are used.
+	 * @param length the number of elements.
+	 */
+	OffsetNodeList(final ScaleDomDocument doc, final long[] offsets, final int length) {
+		this.doc = doc;
+		this.offsets = offsets;
+		this.length = length;
+	}
+
+	@Override
+	public Node item(final int index) {
+		// Invalid indices must return null
+		if (index < 0 || index >= length) {
+			return null;
+		}
+		return doc.getElementAt(offsets[index]);
+	}
+
+	@Override
+	public int getLength() {
+		return length;
+	}
+}
@@ -0,0 +1,202 @@
+package at.ac.tuwien.dsg.scaledom.xpath;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Automaton matching the elements of a document against the location steps of a path, fed with the start and end of
+ * each element in document order. Memory is bounded by the depth of the document.<br/>
+ * Each open element holds the set of steps which its children are candidates for: step k is active for an element if
+ * the element matches step k - 1 (or is the document for step 0), or if step k is a "//" step and is active for the
+ * element's parent. Positions are counted per open element and step, among the children passing the name test and the
+ * predicates preceding the positional predicate.<br/>
+ * A matcher may match a union of paths, whose steps share the bit set: the first step of each path is active for the
+ * document, an element matching the last step of any path matches the union.
+ */
+final class PathMatcher {
+
+	/** Maximum number of steps of all paths, the active steps of an element are stored as a bit set within a long. */
+	final static int MAXIMUM_STEPS = 63;
+
+	private final LocationStep[] steps;
+	/** Steps which are active for the document, i.e. the first step of each path. */
+	private final long firstSteps;
+	/** Steps which complete a path, i.e. the last step of each path. */
+	private final long lastSteps;
+	/** Index of the counter of each step's first positional predicate. */
+	private final int[] firstCounters;
+	/** Number of counters per open element. */
+	private final int numberOfCounters;
+
+	/** Active steps of each open element, index 0 is the document. */
+	private long[] activeSteps;
+	/** Position counters of each open element, null until required. */
+	private int[][] counters;
+	/** Number of open elements. */
+	private int depth;
+	/** Last steps matched by the most recently opened element. */
+	private long matchedSteps;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param steps the location steps.
+	 */
+	PathMatcher(final List<LocationStep> steps) {
+		this(Collections.singletonList(steps));
+	}
+
+	/**
+	 * Creates a matcher of a union of paths.
+	 *
+	 * @param paths the location steps of each path.
+	 * @return the matcher.
+	 */
+	static PathMatcher forUnion(final List<List<LocationStep>> paths) {
+		return new PathMatcher(paths);
+	}
+
+	private PathMatcher(final Iterable<List<LocationStep>> paths) {
+		final List<LocationStep> allSteps = new ArrayList<LocationStep>();
+		long firstSteps = 0;
+		long lastSteps = 0;
+		for (final List<LocationStep> path : paths) {
+			checkArgument(!path.isEmpty(), "Expected at least one step.");
+			checkArgument(allSteps.size() + path.size() <= MAXIMUM_STEPS, "Expected at most %s steps, but got %s.",
+					MAXIMUM_STEPS, allSteps.size() + path.size());
+			firstSteps |= 1L << allSteps.size();
+			allSteps.addAll(path);
+			lastSteps |= 1L << (allSteps.size() - 1);
+		}
+		checkArgument(!allSteps.isEmpty(), "Expected at least one path.");
+
+		this.steps = allSteps.toArray(new LocationStep[allSteps.size()]);
+		this.firstSteps = firstSteps;
+		this.lastSteps = lastSteps;
+		this.firstCounters = new int[this.steps.length];
+		int numberOfCounters = 0;
+		for (int k = 0; k < this.steps.length; ++k) {
+			firstCounters[k] = numberOfCounters;
+			for (final Predicate predicate : this.steps[k].getPredicates()) {
+				if (predicate.isPositional()) {
+					++numberOfCounters;
+				}
+			}
+		}
+		this.numberOfCounters = numberOfCounters;
+		this.activeSteps = new long[16];
+		this.counters = new int[16][];
+		reset();
+	}
+
+	/**
+	 * Resets the matcher to the start of a document.
+	 */
+	void reset() {
+		depth = 0;
+		activeSteps[0] = firstSteps;
+		clearCounters(0);
+	}
+
+	/**
+	 * Returns whether the currently open element (or the document) has any active steps, i.e. whether any of its
+	 * descendants may match the path.
+	 */
+	boolean isActive() {
+		return activeSteps[depth] != 0;
+	}
+
+	/**
+	 * Opens an element, which is a child of the currently open element.
+	 *
+	 * @param namespaceURI the element's namespace URI, "" if none.
+	 * @param localName the element's local name.
+	 * @param attributes the element's attributes.
+	 * @return true if the element matches the whole path (any of the paths).
+	 */
+	boolean startElement(final String namespaceURI, final String localName, final AttributeLookup attributes) {
+		final long parentSteps = activeSteps[depth];
+		long childSteps = 0;
+		long matchedSteps = 0;
+		for (long remaining = parentSteps; remaining != 0; remaining &= remaining - 1) {
+			final int k = Long.numberOfTrailingZeros(remaining);
+			if (steps[k].isDescendant()) {
+				childSteps |= 1L << k;
+			}
+			if (matches(k, namespaceURI, localName, attributes)) {
+				if ((lastSteps & (1L << k)) != 0) {
+					matchedSteps |= 1L << k;
+				} else {
+					childSteps |= 1L << (k + 1);
+				}
+			}
+		}
+
+		++depth;
+		if (depth == activeSteps.length) {
+			activeSteps = Arrays.copyOf(activeSteps, depth * 2);
+			counters = Arrays.copyOf(counters, depth * 2);
+		}
+		activeSteps[depth] = childSteps;
+		if (childSteps != 0) {
+			clearCounters(depth);
+		}
+		this.matchedSteps = matchedSteps;
+		return matchedSteps != 0;
+	}
+
+	/**
+	 * Returns the last steps of the paths matched by the most recently opened element, which identify the paths of a
+	 * union.
+	 *
+	 * @return the bit set of the indices of the matched last steps, among the steps of all paths.
+	 */
+	long getMatchedSteps() {
+		return matchedSteps;
+	}
+
+	/**
+	 * Closes the currently open element.
+	 */
+	void endElement() {
+		--depth;
+	}
+
+	/**
+	 * Evaluates step k for a child of the currently open element, counting its position if required.
+	 */
+	private boolean matches(final int k, final String namespaceURI, final String localName,
+			final AttributeLookup attributes) {
+		final LocationStep step = steps[k];
+		if (!step.matchesName(namespaceURI, localName)) {
+			return false;
+		}
+
+		int counter = firstCounters[k];
+		for (final Predicate predicate : step.getPredicates()) {
+			if (predicate.isPositional()) {
+				if (++counters[depth][counter++] != predicate.getPosition()) {
+					return false;
+				}
+			} else if (!predicate.matches(attributes)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void clearCounters(final int index) {
+		if (numberOfCounters == 0) {
+			return;
+		}
+		if (counters[index] == null) {
+			counters[index] = new int[numberOfCounters];
+		} else {
+			Arrays.fill(counters[index], 0);
+		}
+	}
+}
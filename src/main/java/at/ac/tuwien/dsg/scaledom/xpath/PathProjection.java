@@ -0,0 +1,81 @@
+package at.ac.tuwien.dsg.scaledom.xpath;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPathExpressionException;
+
+/**
+ * Union of location paths of the streamable subset (see <code>ExpressionParser</code>), e.g.
+ * <code>/catalog/book[@id='b1']/title | /catalog/info</code>, describing the part of a document which is needed by a
+ * known set of queries. See <code>XPathLazyLoadingStrategy</code>.
+ */
+public final class PathProjection {
+
+	private final String expression;
+	private final List<List<LocationStep>> paths;
+
+	private PathProjection(final String expression, final List<List<LocationStep>> paths) {
+		this.expression = expression;
+		this.paths = paths;
+	}
+
+	/**
+	 * Compiles an expression without prefixes.
+	 *
+	 * @param expression the union of paths.
+	 * @return the compiled projection.
+	 * @throws XPathExpressionException If the expression is not valid or not streamable.
+	 */
+	public static PathProjection compile(final String expression) throws XPathExpressionException {
+		return compile(expression, null);
+	}
+
+	/**
+	 * Compiles an expression.
+	 *
+	 * @param expression the union of paths.
+	 * @param namespaceContext the context resolving the expression's prefixes, may be null if there are none.
+	 * @return the compiled projection.
+	 * @throws XPathExpressionException If the expression is not valid or not streamable.
+	 */
+	public static PathProjection compile(final String expression, final NamespaceContext namespaceContext)
+			throws XPathExpressionException {
+		checkNotNull(expression, "Argument expression must not be null.");
+
+		final List<List<LocationStep>> paths = ExpressionParser.parseUnion(expression, namespaceContext);
+		int numberOfSteps = 0;
+		for (final List<LocationStep> path : paths) {
+			numberOfSteps += path.size();
+		}
+		if (numberOfSteps > PathMatcher.MAXIMUM_STEPS) {
+			throw new XPathExpressionException("Expression '" + expression + "' has more than "
+					+ PathMatcher.MAXIMUM_STEPS + " steps.");
+		}
+		return new PathProjection(expression, Collections.unmodifiableList(paths));
+	}
+
+	/**
+	 * Returns the expression.
+	 *
+	 * @return the expression.
+	 */
+	public String getExpression() {
+		return expression;
+	}
+
+	/**
+	 * Creates a matcher of all paths, positioned at the start of a document.
+	 */
+	PathMatcher newMatcher() {
+		return PathMatcher.forUnion(paths);
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+}
@@ -0,0 +1,69 @@
+package at.ac.tuwien.dsg.scaledom.xpath;
+
+/**
+ * Predicate of a <code>LocationStep</code>: a position among the siblings matched so far (<code>[2]</code>), the
+ * existence of an attribute (<code>[@id]</code>) or the comparison of an attribute's value (<code>[@id='b1']</code>,
+ * <code>[@id!='b1']</code>).
+ */
+final class Predicate {
+
+	enum Type {
+		POSITION, ATTRIBUTE_EXISTS, ATTRIBUTE_EQUALS, ATTRIBUTE_NOT_EQUALS
+	}
+
+	private final Type type;
+	/** Position, 1-based, if a position predicate. */
+	private final int position;
+	/** Attribute's namespace URI ("" if none) and local name, if an attribute predicate. */
+	private final String namespaceURI;
+	private final String localName;
+	/** Compared value, if a comparison. */
+	private final String value;
+
+	private Predicate(final Type type, final int position, final String namespaceURI, final String localName,
+			final String value) {
+		this.type = type;
+		this.position = position;
+		this.namespaceURI = namespaceURI;
+		this.localName = localName;
+		this.value = value;
+	}
+
+	static Predicate position(final int position) {
+		return new Predicate(Type.POSITION, position, null, null, null);
+	}
+
+	static Predicate attribute(final Type type, final String namespaceURI, final String localName, final String value) {
+		return new Predicate(type, 0, namespaceURI, localName, value);
+	}
+
+	boolean isPositional() {
+		return type == Type.POSITION;
+	}
+
+	int getPosition() {
+		return position;
+	}
+
+	String getNamespaceURI() {
+		return namespaceURI;
+	}
+
+	/**
+	 * Evaluates an attribute predicate. Like XPath's comparisons of node-sets, a comparison is false if the attribute
+	 * does not exist.
+	 */
+	boolean matches(final AttributeLookup attributes) {
+		final String actual = attributes.getValue(namespaceURI, localName);
+		switch (type) {
+		case ATTRIBUTE_EXISTS:
+			return actual != null;
+		case ATTRIBUTE_EQUALS:
+			return actual != null && actual.equals(value);
+		case ATTRIBUTE_NOT_EQUALS:
+			return actual != null && !actual.equals(value);
+		default:
+			throw new IllegalStateException("Predicate of type '" + type + "' does not test attributes.");
+		}
+	}
+}
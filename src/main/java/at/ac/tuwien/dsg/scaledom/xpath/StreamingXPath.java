@@ -0,0 +1,408 @@
+package at.ac.tuwien.dsg.scaledom.xpath;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.apache.xerces.dom.ParentNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import at.ac.tuwien.dsg.scaledom.dom.ElementNameIndex;
+import at.ac.tuwien.dsg.scaledom.dom.PostingList;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParserCursorListener;
+
+/**
+ * XPath expression of the streamable subset (see <code>ExpressionParser</code>), evaluated against the document
+ * source instead of the DOM. Unlike <code>javax.xml.xpath</code>, which walks (and thereby loads) the DOM, an
+ * expression is evaluated by a single forward pass over the document source, which creates no nodes and needs memory
+ * bounded by the document's depth. The result is a list of the matching elements' offsets, each element is loaded only
+ * as it is requested, together with its ancestors' children. <code>evaluateFirst</code> stops at the first match.<br/>
+ * If the document has an element name index (see <code>ScaleDom.ATTRIBUTE_ELEMENTNAME_INDEX</code>, it is restored
+ * from the offset index along with the DOM), expressions are evaluated without reading the document source, unless
+ * the first step has a positional predicate: the candidates of an anchor step are taken from the index and their
+ * ancestors are matched in the DOM, the steps following the anchor are matched by traversing the anchors' subtrees.
+ * The anchor is the last step with an attribute predicate, or else the last step, which is not preceded by a
+ * positional predicate. Once the document has been modified, its source is outdated and the DOM is traversed instead,
+ * loading only the subtrees which may contain matches.<br/>
+ * Like in the DOM, the attributes of an element are matched by their local names on the index and DOM paths, hence
+ * attribute predicates with prefixes are supported by the forward pass only.
+ */
+public final class StreamingXPath {
+
+	/** Logger. */
+	private final static Logger log = LoggerFactory.getLogger(StreamingXPath.class);
+
+	private final String expression;
+	private final List<LocationStep> steps;
+	/** Index of the step whose candidates are taken from the element name index, -1 if none. */
+	private final int anchor;
+
+	private StreamingXPath(final String expression, final List<LocationStep> steps) {
+		this.expression = expression;
+		this.steps = steps;
+
+		// Steps up to the anchor are matched against the ancestors of the anchor's candidates, which does not allow
+		// for positions, and the DOM's attributes are named by their local names only
+		int indexableSteps = 0;
+		while (indexableSteps < steps.size() && isIndexable(steps.get(indexableSteps))) {
+			++indexableSteps;
+		}
+		int anchor = indexableSteps - 1;
+		for (int k = indexableSteps - 1; k >= 0; --k) {
+			if (!steps.get(k).getPredicates().isEmpty()) {
+				anchor = k;
+				break;
+			}
+		}
+		this.anchor = anchor;
+	}
+
+	private static boolean isIndexable(final LocationStep step) {
+		for (final Predicate predicate : step.getPredicates()) {
+			if (predicate.isPositional() || !predicate.getNamespaceURI().isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compiles an expression without prefixes.
+	 *
+	 * @param expression the expression.
+	 * @return the compiled expression.
+	 * @throws XPathExpressionException If the expression is not valid or not streamable.
+	 */
+	public static StreamingXPath compile(final String expression) throws XPathExpressionException {
+		return compile(expression, null);
+	}
+
+	/**
+	 * Compiles an expression.
+	 *
+	 * @param expression the expression.
+	 * @param namespaceContext the context resolving the expression's prefixes, may be null if there are none.
+	 * @return the compiled expression.
+	 * @throws XPathExpressionException If the expression is not valid or not streamable.
+	 */
+	public static StreamingXPath compile(final String expression, final NamespaceContext namespaceContext)
+			throws XPathExpressionException {
+		checkNotNull(expression, "Argument expression must not be null.");
+
+		final List<LocationStep> steps = ExpressionParser.parse(expression, namespaceContext);
+		if (steps.size() > PathMatcher.MAXIMUM_STEPS) {
+			throw new XPathExpressionException("Expression '" + expression + "' has more than "
+					+ PathMatcher.MAXIMUM_STEPS + " steps.");
+		}
+		return new StreamingXPath(expression, Collections.unmodifiableList(steps));
+	}
+
+	/**
+	 * Returns the expression.
+	 *
+	 * @return the expression.
+	 */
+	public String getExpression() {
+		return expression;
+	}
+
+	/**
+	 * Evaluates the expression.
+	 *
+	 * @param doc the document.
+	 * @return the matching elements in document order.
+	 * @throws XPathExpressionException If the document source could not be read.
+	 */
+	public NodeList evaluate(final ScaleDomDocument doc) throws XPathExpressionException {
+		checkNotNull(doc, "Argument doc must not be null.");
+		return evaluate(doc, false);
+	}
+
+	/**
+	 * Evaluates the expression, stopping at the first match.
+	 *
+	 * @param doc the document.
+	 * @return the first matching element in document order, or null if none.
+	 * @throws XPathExpressionException If the document source could not be read.
+	 */
+	public Node evaluateFirst(final ScaleDomDocument doc) throws XPathExpressionException {
+		checkNotNull(doc, "Argument doc must not be null.");
+		return evaluate(doc, true).item(0);
+	}
+
+	private NodeList evaluate(final ScaleDomDocument doc, final boolean first) throws XPathExpressionException {
+		if (doc.isModified()) {
+			return evaluateDom(doc, first);
+		}
+		final ElementNameIndex index = doc.getElementNameIndex();
+		if (index != null && anchor != -1) {
+			return evaluateIndex(doc, index, first);
+		}
+		return evaluateSource(doc, first);
+	}
+
+	/**
+	 * Returns whether the expression is evaluated by a forward pass over the source of a document.
+	 */
+	boolean isEvaluatedBySource(final ScaleDomDocument doc) {
+		return !doc.isModified() && (doc.getElementNameIndex() == null || anchor == -1);
+	}
+
+	/**
+	 * Returns the location steps.
+	 */
+	List<LocationStep> getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Evaluates the expression by a forward pass over the document source.
+	 */
+	private NodeList evaluateSource(final ScaleDomDocument doc, final boolean first) throws XPathExpressionException {
+		final SourceMatcher matcher = new SourceMatcher(new PathMatcher(steps), first);
+		try {
+			doc.scanSource(matcher);
+		} catch (final IOException ex) {
+			throw new XPathExpressionException(ex);
+		} catch (final SAXException ex) {
+			throw new XPathExpressionException(ex);
+		} catch (final InstantiationException ex) {
+			throw new XPathExpressionException(ex);
+		}
+		log.debug("Evaluated '" + expression + "' by a forward pass, " + matcher.length + " elements match.");
+		return new OffsetNodeList(doc, matcher.offsets, matcher.length);
+	}
+
+	/**
+	 * Evaluates the expression by the candidates of the anchor step, taken from the element name index.
+	 */
+	private NodeList evaluateIndex(final ScaleDomDocument doc, final ElementNameIndex index, final boolean first) {
+		final LocationStep step = steps.get(anchor);
+		final PostingList candidates;
+		if (step.getNamespaceURI() == null) {
+			// Only the wildcard matches all namespaces
+			candidates = index.getElementsByTagName(LocationStep.WILDCARD);
+		} else if (step.getLocalName().equals(LocationStep.WILDCARD)) {
+			candidates = index.getElementsByTagNameNS(step.getNamespaceURI(), LocationStep.WILDCARD);
+		} else if (step.getNamespaceURI().isEmpty()) {
+			candidates = index.getElementsByTagName(step.getLocalName());
+		} else {
+			candidates = index.getElementsByTagName("{" + step.getNamespaceURI() + "}" + step.getLocalName());
+		}
+
+		// Matches below nested anchors may interleave, hence they are sorted and deduplicated by their offsets
+		final PathMatcher matcher = anchor < steps.size() - 1 ? new PathMatcher(steps.subList(anchor + 1,
+				steps.size())) : null;
+		final DomAttributes attributes = new DomAttributes();
+		final SortedSet<Long> offsets = new TreeSet<Long>();
+		final List<Node> nodes = new ArrayList<Node>();
+		for (int i = 0; i < candidates.size(); ++i) {
+			// All matches below an anchor follow the anchor
+			if (first && !offsets.isEmpty() && candidates.get(i) > offsets.first()) {
+				break;
+			}
+
+			final Element element = doc.getElementAt(candidates.get(i));
+			if (element == null || !matchesAncestors(element, anchor, attributes)) {
+				continue;
+			}
+			if (matcher == null) {
+				offsets.add(candidates.get(i));
+				continue;
+			}
+			matcher.reset();
+			nodes.clear();
+			traverse(element, matcher, attributes, nodes, first);
+			for (final Node node : nodes) {
+				offsets.add(((FileNodeLocation) ((ParentNode) node).getNodeLocation()).getStartOffset());
+			}
+		}
+
+		final int length = first ? Math.min(offsets.size(), 1) : offsets.size();
+		final long[] result = new long[length];
+		final Iterator<Long> iterator = offsets.iterator();
+		for (int i = 0; i < length; ++i) {
+			result[i] = iterator.next();
+		}
+		log.debug("Evaluated '" + expression + "' by " + candidates.size() + " candidates of the element name index, "
+				+ length + " elements match.");
+		return new OffsetNodeList(doc, result, length);
+	}
+
+	/**
+	 * Returns whether an element matches step k and its ancestors match the preceding steps. Requires an expression
+	 * without positional predicates.
+	 */
+	private boolean matchesAncestors(final Element element, final int k, final DomAttributes attributes) {
+		final LocationStep step = steps.get(k);
+		if (!step.matchesName(namespaceURI(element), element.getLocalName())) {
+			return false;
+		}
+		attributes.element = element;
+		for (final Predicate predicate : step.getPredicates()) {
+			if (!predicate.matches(attributes)) {
+				return false;
+			}
+		}
+
+		Node ancestor = element.getParentNode();
+		if (k == 0) {
+			// Every element is a descendant of the document, but only the document element is its child
+			return step.isDescendant() || (ancestor != null && ancestor.getNodeType() == Node.DOCUMENT_NODE);
+		}
+		while (ancestor != null && ancestor.getNodeType() == Node.ELEMENT_NODE) {
+			if (matchesAncestors((Element) ancestor, k - 1, attributes)) {
+				return true;
+			}
+			if (!step.isDescendant()) {
+				return false;
+			}
+			ancestor = ancestor.getParentNode();
+		}
+		return false;
+	}
+
+	/**
+	 * Evaluates the expression by traversing the DOM, skipping subtrees which cannot contain any matches.
+	 */
+	private NodeList evaluateDom(final ScaleDomDocument doc, final boolean first) {
+		final PathMatcher matcher = new PathMatcher(steps);
+		final List<Node> nodes = new ArrayList<Node>();
+		traverse(doc, matcher, new DomAttributes(), nodes, first);
+		log.debug("Evaluated '" + expression + "' by traversing the modified DOM, " + nodes.size()
+				+ " elements match.");
+		return new NodeArrayList(nodes);
+	}
+
+	/**
+	 * Matches the child elements of a node and their descendants.
+	 *
+	 * @return false if the traversal has to be stopped.
+	 */
+	private static boolean traverse(final Node parent, final PathMatcher matcher, final DomAttributes attributes,
+			final List<Node> nodes, final boolean first) {
+		for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() != Node.ELEMENT_NODE) {
+				continue;
+			}
+			attributes.element = (Element) child;
+			if (matcher.startElement(namespaceURI(child), child.getLocalName(), attributes)) {
+				nodes.add(child);
+				if (first) {
+					return false;
+				}
+			}
+			final boolean proceed = !matcher.isActive() || traverse(child, matcher, attributes, nodes, first);
+			matcher.endElement();
+			if (!proceed) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String namespaceURI(final Node node) {
+		return node.getNamespaceURI() != null ? node.getNamespaceURI() : "";
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+	/**
+	 * Matches the elements reported by the parser, records the offsets of the matching ones.
+	 */
+	private static class SourceMatcher implements XmlParserCursorListener {
+
+		private final PathMatcher matcher;
+		private final boolean first;
+		private final CursorAttributes attributes;
+		private long[] offsets;
+		private int length;
+
+		SourceMatcher(final PathMatcher matcher, final boolean first) {
+			this.matcher = matcher;
+			this.first = first;
+			this.attributes = new CursorAttributes();
+			this.offsets = new long[16];
+			this.length = 0;
+		}
+
+		@Override
+		public boolean process(final int eventType, final long startingOffset, final XMLStreamReader cursor) {
+			if (eventType == XMLStreamConstants.START_ELEMENT) {
+				attributes.setCursor(cursor);
+				final String namespaceURI = cursor.getNamespaceURI();
+				if (matcher.startElement(namespaceURI != null ? namespaceURI : "", cursor.getLocalName(), attributes)) {
+					if (length == offsets.length) {
+						offsets = Arrays.copyOf(offsets, length * 2);
+					}
+					offsets[length++] = startingOffset;
+					if (first) {
+						return ABORT_PARSING;
+					}
+				}
+			} else if (eventType == XMLStreamConstants.END_ELEMENT) {
+				matcher.endElement();
+			}
+			return CONTINUE_PARSING;
+		}
+	}
+
+	/**
+	 * Provides the attributes of a DOM element, by their local names.
+	 */
+	private static class DomAttributes implements AttributeLookup {
+
+		private Element element;
+
+		@Override
+		public String getValue(final String namespaceURI, final String localName) {
+			final Node attribute = namespaceURI.isEmpty() ? element.getAttributeNode(localName) : element
+					.getAttributeNodeNS(namespaceURI, localName);
+			return attribute != null ? attribute.getNodeValue() : null;
+		}
+	}
+
+	/**
+	 * List of nodes found in the DOM.
+	 */
+	private static class NodeArrayList implements NodeList {
+
+		private final List<Node> nodes;
+
+		NodeArrayList(final List<Node> nodes) {
+			this.nodes = nodes;
+		}
+
+		@Override
+		public Node item(final int index) {
+			return index >= 0 && index < nodes.size() ? nodes.get(index) : null;
+		}
+
+		@Override
+		public int getLength() {
+			return nodes.size();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package at.ac.tuwien.dsg.scaledom.xpath;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.xpath.XPathExpressionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParserCursorListener;
+
+/**
+ * Batch of streaming XPath expressions, which are evaluated together. All expressions which would be evaluated by a
+ * forward pass over the document source (see <code>StreamingXPath</code>) share a single pass, hence reading and
+ * parsing the document source costs the same regardless of the number of expressions. The expressions' paths are
+ * matched by automata of unions of paths, each with up to 63 steps. Expressions which are evaluated by the element
+ * name index or by traversing a modified document are evaluated one after the other, without reading the document
+ * source.
+ */
+public final class StreamingXPathBatch {
+
+	/** Logger. */
+	private final static Logger log = LoggerFactory.getLogger(StreamingXPathBatch.class);
+
+	private final List<StreamingXPath> expressions;
+
+	/**
+	 * Default constructor.
+	 *
+	 * @param expressions the compiled expressions.
+	 */
+	public StreamingXPathBatch(final Collection<StreamingXPath> expressions) {
+		checkNotNull(expressions, "Argument expressions must not be null.");
+		checkArgument(!expressions.contains(null), "Argument expressions must not contain null.");
+
+		this.expressions = Collections.unmodifiableList(new ArrayList<StreamingXPath>(expressions));
+	}
+
+	/**
+	 * Returns the expressions.
+	 *
+	 * @return the expressions, in the order given to the constructor.
+	 */
+	public List<StreamingXPath> getExpressions() {
+		return expressions;
+	}
+
+	/**
+	 * Evaluates all expressions.
+	 *
+	 * @param doc the document.
+	 * @return the matching elements of each expression in document order, in the order of the expressions.
+	 * @throws XPathExpressionException If the document source could not be read.
+	 */
+	public List<NodeList> evaluate(final ScaleDomDocument doc) throws XPathExpressionException {
+		checkNotNull(doc, "Argument doc must not be null.");
+
+		final NodeList[] results = new NodeList[expressions.size()];
+		final List<Integer> passed = new ArrayList<Integer>();
+		for (int i = 0; i < expressions.size(); ++i) {
+			if (expressions.get(i).isEvaluatedBySource(doc)) {
+				passed.add(i);
+			} else {
+				results[i] = expressions.get(i).evaluate(doc);
+			}
+		}
+
+		if (!passed.isEmpty()) {
+			final BatchMatcher matcher = new BatchMatcher(passed);
+			try {
+				doc.scanSource(matcher);
+			} catch (final IOException ex) {
+				throw new XPathExpressionException(ex);
+			} catch (final SAXException ex) {
+				throw new XPathExpressionException(ex);
+			} catch (final InstantiationException ex) {
+				throw new XPathExpressionException(ex);
+			}
+			for (int j = 0; j < passed.size(); ++j) {
+				results[passed.get(j)] = new OffsetNodeList(doc, matcher.offsets[j], matcher.lengths[j]);
+			}
+			log.debug("Evaluated " + passed.size() + " of " + expressions.size() + " expressions by a single forward "
+					+ "pass, using " + matcher.matchers.length + " automata.");
+		}
+
+		return Arrays.asList(results);
+	}
+
+	@Override
+	public String toString() {
+		return expressions.toString();
+	}
+
+	/**
+	 * Matches the expressions evaluated by the forward pass, collecting the start offsets of each expression's matches.
+	 */
+	private class BatchMatcher implements XmlParserCursorListener {
+
+		private final PathMatcher[] matchers;
+		/** Index of the expression (among the passed ones) whose path ends with a step, per matcher and step. */
+		private final int[][] expressionOfStep;
+		private final CursorAttributes attributes;
+		private final long[][] offsets;
+		private final int[] lengths;
+
+		BatchMatcher(final List<Integer> passed) {
+			// Paths are packed into unions, as long as the steps of a union fit into a matcher's bit set
+			final List<PathMatcher> matchers = new ArrayList<PathMatcher>();
+			final List<int[]> expressionOfStep = new ArrayList<int[]>();
+			List<List<LocationStep>> union = new ArrayList<List<LocationStep>>();
+			int[] unionExpressions = new int[PathMatcher.MAXIMUM_STEPS];
+			int numberOfSteps = 0;
+			for (int j = 0; j < passed.size(); ++j) {
+				final List<LocationStep> steps = expressions.get(passed.get(j)).getSteps();
+				if (numberOfSteps + steps.size() > PathMatcher.MAXIMUM_STEPS) {
+					matchers.add(PathMatcher.forUnion(union));
+					expressionOfStep.add(unionExpressions);
+					union = new ArrayList<List<LocationStep>>();
+					unionExpressions = new int[PathMatcher.MAXIMUM_STEPS];
+					numberOfSteps = 0;
+				}
+				union.add(steps);
+				numberOfSteps += steps.size();
+				unionExpressions[numberOfSteps - 1] = j;
+			}
+			matchers.add(PathMatcher.forUnion(union));
+			expressionOfStep.add(unionExpressions);
+
+			this.matchers = matchers.toArray(new PathMatcher[matchers.size()]);
+			this.expressionOfStep = expressionOfStep.toArray(new int[expressionOfStep.size()][]);
+			this.attributes = new CursorAttributes();
+			this.offsets = new long[passed.size()][16];
+			this.lengths = new int[passed.size()];
+		}
+
+		@Override
+		public boolean process(final int eventType, final long startingOffset, final XMLStreamReader cursor) {
+			if (eventType == XMLStreamConstants.START_ELEMENT) {
+				attributes.setCursor(cursor);
+				final String namespaceURI = cursor.getNamespaceURI();
+				final String localName = cursor.getLocalName();
+				for (int m = 0; m < matchers.length; ++m) {
+					if (!matchers[m].startElement(namespaceURI != null ? namespaceURI : "", localName, attributes)) {
+						continue;
+					}
+					for (long matched = matchers[m].getMatchedSteps(); matched != 0; matched &= matched - 1) {
+						add(expressionOfStep[m][Long.numberOfTrailingZeros(matched)], startingOffset);
+					}
+				}
+			} else if (eventType == XMLStreamConstants.END_ELEMENT) {
+				for (final PathMatcher matcher : matchers) {
+					matcher.endElement();
+				}
+			}
+			return CONTINUE_PARSING;
+		}
+
+		private void add(final int expression, final long offset) {
+			if (lengths[expression] == offsets[expression].length) {
+				offsets[expression] = Arrays.copyOf(offsets[expression], lengths[expression] * 2);
+			}
+			offsets[expression][lengths[expression]++] = offset;
+		}
+	}
+}
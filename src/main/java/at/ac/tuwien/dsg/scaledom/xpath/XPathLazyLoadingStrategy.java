@@ -0,0 +1,107 @@
+package at.ac.tuwien.dsg.scaledom.xpath;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import at.ac.tuwien.dsg.scaledom.lazy.LazyLoadingStrategy;
+
+/**
+ * This LLS loads the projection of a document onto a known set of queries, given as a <code>PathProjection</code>:
+ * the initial load feeds the elements into the paths' automaton and loads the children of an element only if the
+ * element may have descendants matching any of the paths. The matching elements themselves are loaded, their content
+ * is loaded on demand. The subtrees of all other elements are passed over by counting their depth, without matching
+ * them.<br/>
+ * Paths starting with "//" may match anywhere and therefore project the whole document, the projection pays off for
+ * paths of child steps, e.g. <code>/catalog/book[@id='b1']/title</code>.<br/>
+ * Reloads do not know the automaton's state of their root node and load the requested children only, like the
+ * <code>DefaultLazyLoadingStrategy</code>. Since the decisions of the initial load depend on the preceding siblings,
+ * the strategy does not support parallel initial loading. Configured by
+ * <code>ScaleDom.ATTRIBUTE_LAZYLOADING_PROJECTION</code>.
+ */
+public class XPathLazyLoadingStrategy extends LazyLoadingStrategy {
+
+	/** Depth loaded by reloads. */
+	private static final int RELOAD_DEPTH = 1;
+
+	private final PathProjection projection;
+	/** Matcher of the projection's paths, null for reloads. */
+	private final PathMatcher matcher;
+	private final CursorAttributes attributes;
+	/** Current level of a reload. */
+	private int level;
+	/** Depth within the content of an element whose children are not loaded, 0 if none is open. */
+	private int skippedDepth;
+
+	/**
+	 * Default constructor.
+	 * 
+	 * @param projection the paths to be loaded.
+	 * @see LazyLoadingStrategy#LazyLoadingStrategy(int)
+	 */
+	public XPathLazyLoadingStrategy(final int absoluteLevel, final PathProjection projection) {
+		super(absoluteLevel);
+		checkNotNull(projection, "Argument projection must not be null.");
+
+		this.projection = projection;
+		this.matcher = absoluteLevel == 0 ? projection.newMatcher() : null;
+		this.attributes = new CursorAttributes();
+		this.level = 0;
+		this.skippedDepth = 0;
+	}
+
+	@Override
+	public boolean shouldLoad(final int eventType, final XMLStreamReader cursor) {
+		if (matcher == null) {
+			return shouldReload(eventType);
+		}
+
+		if (skippedDepth > 0) {
+			if (eventType == XMLStreamConstants.START_ELEMENT) {
+				++skippedDepth;
+			} else if (eventType == XMLStreamConstants.END_ELEMENT && --skippedDepth == 0) {
+				// End of the element whose children are not loaded, which is loaded itself
+				matcher.endElement();
+				return true;
+			}
+			return false;
+		}
+
+		if (eventType == XMLStreamConstants.START_ELEMENT) {
+			attributes.setCursor(cursor);
+			final String namespaceURI = cursor.getNamespaceURI();
+			matcher.startElement(namespaceURI != null ? namespaceURI : "", cursor.getLocalName(), attributes);
+			if (!matcher.isActive()) {
+				skippedDepth = 1;
+			}
+		} else if (eventType == XMLStreamConstants.END_ELEMENT) {
+			matcher.endElement();
+		}
+		return true;
+	}
+
+	private boolean shouldReload(final int eventType) {
+		if (eventType == XMLStreamConstants.END_ELEMENT) {
+			--level;
+		}
+
+		final boolean shouldLoad = level < RELOAD_DEPTH;
+
+		if (eventType == XMLStreamConstants.START_ELEMENT) {
+			++level;
+		}
+
+		return shouldLoad;
+	}
+
+	@Override
+	public int getLoadDepth() {
+		return matcher == null ? RELOAD_DEPTH : -1;
+	}
+
+	@Override
+	public String getConfiguration() {
+		return super.getConfiguration() + "(" + projection.getExpression() + ")";
+	}
+}
@@ -28,6 +28,8 @@ import org.w3c.dom.NodeList;
 import org.w3c.dom.Text;
 import org.w3c.dom.TypeInfo;
 
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+
 /**
  * Elements represent most of the "markup" and structure of the document. They contain both the data for the element
  * itself (element name and attributes), and any contained nodes, including document text (as children).
@@ -290,6 +292,11 @@ public class ElementImpl extends ParentNode implements Element, ElementTraversal
 	 * @see DeepNodeListImpl
 	 */
 	public NodeList getElementsByTagName(String tagname) {
+		// <ScaleDOM>
+		if(isScaleDomEnabled()) {
+			return ((ScaleDomDocument) ownerDocument).getElementsByTagName(this, tagname);
+		}
+		// </ScaleDOM>
 		return new DeepNodeListImpl(this, tagname);
 	}
 
@@ -800,6 +807,11 @@ public class ElementImpl extends ParentNode implements Element, ElementTraversal
 	 * @since WD-DOM-Level-2-19990923
 	 */
 	public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
+		// <ScaleDOM>
+		if(isScaleDomEnabled()) {
+			return ((ScaleDomDocument) ownerDocument).getElementsByTagNameNS(this, namespaceURI, localName);
+		}
+		// </ScaleDOM>
 		return new DeepNodeListImpl(this, namespaceURI, localName);
 	}
 
@@ -22,8 +22,8 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 import javax.xml.stream.events.Namespace;
 
@@ -35,7 +35,11 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.w3c.dom.UserDataHandler;
 
+import at.ac.tuwien.dsg.scaledom.dom.ChildList;
 import at.ac.tuwien.dsg.scaledom.dom.ChildNodeList;
+import at.ac.tuwien.dsg.scaledom.dom.ChildPageTable;
+import at.ac.tuwien.dsg.scaledom.dom.ContentSkipIndex;
+import at.ac.tuwien.dsg.scaledom.dom.PagedChildNodeList;
 import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
 import at.ac.tuwien.dsg.scaledom.dom.WeakChildNodeList;
 import at.ac.tuwien.dsg.scaledom.io.NodeLocation;
@@ -97,9 +101,10 @@ public abstract class ParentNode extends ChildNode {
 	// <ScaleDOM>
 	/**
 	 * Weak reference to list of child nodes.<br/>
-	 * May be cleared by garbage collector if no hard reference points to at least one of the children.
+	 * May be cleared by garbage collector if no hard reference points to at least one of the children. Replaced under
+	 * the node's load lock only, but read without it.
 	 */
-	private WeakChildNodeList children;
+	private volatile WeakChildNodeList children;
 
 	/** Parent needs to know if it has any children, keep exact number for performance reasons. */
 	private int numberOfChildren;
@@ -110,6 +115,12 @@ public abstract class ParentNode extends ChildNode {
 	/** Namespace declarations on this node (as declared in underlying document source). */
 	private List<Namespace> namespaces;
 
+	/** Content ranges of the deepest reloaded elements, allows reloads to skip them. Null if not recorded yet. */
+	private ContentSkipIndex contentSkipIndex;
+
+	/** Pages of the children, each held by its own reference. Null if the children are not paged. */
+	private volatile ChildPageTable childPages;
+
 	protected boolean isScaleDomEnabled() {
 		return ownerDocument instanceof ScaleDomDocument;
 	}
@@ -177,6 +188,8 @@ public abstract class ParentNode extends ChildNode {
 			newnode.numberOfChildren = deep ? numberOfChildren : 0;
 			newnode.location = location;
 			newnode.namespaces = namespaces;
+			newnode.contentSkipIndex = contentSkipIndex;
+			newnode.childPages = null;
 		} else {
 			// Need to break the association w/ original kids
 			newnode.firstChild = null;
@@ -277,7 +290,14 @@ public abstract class ParentNode extends ChildNode {
 		}
 		// <ScaleDOM>
 		if(isScaleDomEnabled()) {
-			return new ChildNodeList(getAllChildNodes());
+			if (childPages == null) {
+				final ChildList allChildren = getAllChildNodes();
+				if (childPages == null) {
+					return new ChildNodeList(allChildren);
+				}
+				// The children have been paged by their reload
+			}
+			return new PagedChildNodeList(this, childPages);
 		} else {
 			return this;
 		}
@@ -296,7 +316,7 @@ public abstract class ParentNode extends ChildNode {
 			if (!hasChildNodes()) {
 				return null;
 			}
-			final LinkedList<ChildNode> allChildren = getAllChildNodes();
+			final ChildList allChildren = childPages != null ? getChildPage(0) : getAllChildNodes();
 			if (allChildren.isEmpty()) {
 				// Some error occurred (most probably while reloading the children)
 				return null;
@@ -320,7 +340,11 @@ public abstract class ParentNode extends ChildNode {
 			if (!hasChildNodes()) {
 				return null;
 			}
-			final LinkedList<ChildNode> allChildren = getAllChildNodes();
+			ChildList allChildren = childPages == null ? getAllChildNodes() : null;
+			if (childPages != null) {
+				// Paged before or by the reload
+				allChildren = getChildPage(childPages.size() - 1);
+			}
 			if (allChildren.isEmpty()) {
 				// Some error occurred (most probably while reloading the children)
 				return null;
@@ -482,7 +506,7 @@ public abstract class ParentNode extends ChildNode {
 		// <ScaleDOM>
 		if(isScaleDomEnabled()) {
 
-			final LinkedList<ChildNode> allChildren = getAllChildNodes();
+			final ChildList allChildren = getModifiableChildNodes();
 			if (allChildren.isEmpty()) {
 				// this our first and only child
 				allChildren.add(newInternal);
@@ -641,7 +665,7 @@ public abstract class ParentNode extends ChildNode {
 
 		if(isScaleDomEnabled()) {
 
-			final LinkedList<ChildNode> allChildren = getAllChildNodes();
+			final ChildList allChildren = getModifiableChildNodes();
 
 			final ChildNode prev = oldInternal.previousSibling;
 			final ChildNode next = oldInternal.nextSibling;
@@ -1194,6 +1218,25 @@ public abstract class ParentNode extends ChildNode {
 		this.location = location;
 	}
 
+	/**
+	 * Returns the content ranges of the deepest elements loaded by a reload of this node, recorded by a previous reload.
+	 * 
+	 * @return the content skip index, or null if not recorded yet.
+	 */
+	public ContentSkipIndex getContentSkipIndex() {
+		return contentSkipIndex;
+	}
+
+	/**
+	 * Called by <code>ScaleDomDocument</code> after a reload which recorded the content ranges of the deepest loaded
+	 * elements.
+	 * 
+	 * @param contentSkipIndex the content skip index.
+	 */
+	public void setContentSkipIndex(final ContentSkipIndex contentSkipIndex) {
+		this.contentSkipIndex = contentSkipIndex;
+	}
+
 	/**
 	 * Called by <code>LoadProcess</code> component for each parsed child (so that every parent knows if and how many
 	 * direct children belong to him).
@@ -1202,6 +1245,27 @@ public abstract class ParentNode extends ChildNode {
 		++numberOfChildren;
 	}
 
+	/**
+	 * Called by <code>OffsetIndex</code> component instead of {@link #parsedChild()}, when the number of parsed children
+	 * is already known.
+	 * 
+	 * @param numberOfChildren the number of parsed children.
+	 */
+	public void parsedChildren(final int numberOfChildren) {
+		this.numberOfChildren += numberOfChildren;
+	}
+
+	/**
+	 * Called by <code>LoadProcess</code> component after reloading the children of this node, which have been counted
+	 * by the load process. The previous number is replaced at once, hence it stays valid for concurrent readers while
+	 * the children are reloaded.
+	 * 
+	 * @param numberOfChildren the number of reparsed children.
+	 */
+	public void reparsedChildren(final int numberOfChildren) {
+		this.numberOfChildren = numberOfChildren;
+	}
+
 	/**
 	 * Called by <code>LoadProcess</code> component for each parsed namespace declaration on this node. Required for
 	 * correctly reloading a node from the document source.
@@ -1223,21 +1287,189 @@ public abstract class ParentNode extends ChildNode {
 	}
 
 	/**
-	 * Returns the currently loaded list of children.
+	 * Returns the currently loaded list of children. If the children are paged, a new list containing the children of
+	 * all loaded pages is returned. An empty list returned for unloaded children is not kept by this node.
 	 * 
 	 * @return the currently loaded list of children or an empty list if none are loaded or this node has no children.
 	 */
-	public LinkedList<ChildNode> getLoadedChildNodes() {
+	public ChildList getLoadedChildNodes() {
+		if (childPages != null) {
+			final ChildList loadedChildren = new ChildList();
+			for (int page = 0; page < childPages.size(); ++page) {
+				final ChildList pageChildren = childPages.getLoadedChildren(page);
+				if (pageChildren != null) {
+					loadedChildren.addAll(pageChildren);
+				}
+			}
+			return loadedChildren;
+		}
 		return getChildren(false);
 	}
 
+	/**
+	 * Called by the initial load, which has exclusive access to the document, to obtain the list which it fills with
+	 * the children of this node. Replaces unloaded children by an empty list, contrary to
+	 * {@link #getLoadedChildNodes()}.
+	 * 
+	 * @return the currently loaded list of children, or the new empty list.
+	 */
+	public ChildList getInitialChildNodes() {
+		ChildList loadedChildren = children.get();
+		if (loadedChildren == null) {
+			loadedChildren = new ChildList();
+			children = new WeakChildNodeList((ScaleDomDocument) ownerDocument, this, loadedChildren);
+		}
+		return loadedChildren;
+	}
+
+	/**
+	 * Returns the currently loaded list of children. Contrary to {@link #getLoadedChildNodes()} an unloaded list is not
+	 * replaced by an empty one.
+	 * 
+	 * @return the currently loaded list of children or null if none are loaded or the children are paged.
+	 */
+	public ChildList peekLoadedChildNodes() {
+		return children.get();
+	}
+
+	/**
+	 * Called by <code>ScaleDomDocument</code> before it reloads the children of multiple siblings at once, see
+	 * <code>ScaleDomDocument.loadChildren(Collection)</code>. Replaces the unloaded children by an empty list, which is
+	 * filled by the reload.
+	 * 
+	 * @return the new list of children, or null if the children are loaded or paged, or this node has no children.
+	 */
+	public ChildList prepareReload() {
+		if (childPages != null || children.get() != null || !hasChildNodes()) {
+			return null;
+		}
+
+		final ChildList loadedChildren = new ChildList();
+		children = new WeakChildNodeList((ScaleDomDocument) ownerDocument, this, loadedChildren);
+		return loadedChildren;
+	}
+
+	/**
+	 * Called by <code>ScaleDomDocument</code> on behalf of its <code>NodeCacheManager</code>, in order to unload the
+	 * children immediately instead of waiting for the Java GC. The children are reloaded on their next access.
+	 * 
+	 * @param page the index of the page to be unloaded, or -1 if the children are not paged.
+	 * @param loadedChildren the children list to be unloaded.
+	 * @return true if the children have been unloaded, false if the given list is not the currently loaded one.
+	 */
+	public boolean unloadChildNodes(final int page, final ChildList loadedChildren) {
+		final WeakChildNodeList reference;
+		if (page < 0) {
+			reference = children;
+		} else if (childPages != null && page < childPages.size()) {
+			reference = childPages.getReference(page);
+		} else {
+			return false;
+		}
+
+		if (reference == null || reference.get() != loadedChildren) {
+			return false;
+		}
+
+		reference.clear();
+		return true;
+	}
+
+	/**
+	 * Returns the pages of the children.
+	 * 
+	 * @return the child page table, or null if the children are not paged.
+	 */
+	public ChildPageTable getChildPageTable() {
+		return childPages;
+	}
+
+	/**
+	 * Called by <code>LoadProcess</code> after loading the children of this node for the first time, if they have been
+	 * split into pages. The currently loaded children become the first page, the following pages have not been loaded.
+	 * 
+	 * @param childPages the recorded child page table.
+	 */
+	public void setChildPageTable(final ChildPageTable childPages) {
+		final ScaleDomDocument doc = (ScaleDomDocument) ownerDocument;
+		childPages.setReference(0, children);
+		this.childPages = childPages;
+		children = new WeakChildNodeList(doc, this, null);
+	}
+
+	/**
+	 * Returns the children of a page. Loads them if not currently loaded.
+	 * 
+	 * @param page the page index.
+	 * @return the children of the page.
+	 */
+	public ChildList getChildPage(final int page) {
+		return getChildPage(page, true);
+	}
+
+	/**
+	 * Returns the page containing a child. Children of different pages are not linked with each other, however, every
+	 * page except the first one starts with an Element node, which knows its offset.
+	 * 
+	 * @param child a child of this node with paged children.
+	 * @return the page index.
+	 */
+	public int findChildPage(final ChildNode child) {
+		for (ChildNode node = child; node != null; node = node.previousSibling) {
+			if (node instanceof ParentNode) {
+				return childPages.findPage((ParentNode) node);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Called by <code>ChildNode</code> for the last child of a page.
+	 * 
+	 * @param child the last child of a page.
+	 * @return the first child of the next page, or null if there is none.
+	 */
+	Node getNextPagedSibling(final ChildNode child) {
+		if (childPages == null || ((ScaleDomDocument) ownerDocument).isLoading()) {
+			return null;
+		}
+
+		final int page = findChildPage(child);
+		if (page + 1 >= childPages.size()) {
+			return null;
+		}
+
+		final ChildList pageChildren = getChildPage(page + 1);
+		return pageChildren.isEmpty() ? null : pageChildren.getFirst();
+	}
+
+	/**
+	 * Called by <code>ChildNode</code> for the first child of a page.
+	 * 
+	 * @param child the first child of a page.
+	 * @return the last child of the previous page, or null if there is none.
+	 */
+	Node getPreviousPagedSibling(final ChildNode child) {
+		if (childPages == null || ((ScaleDomDocument) ownerDocument).isLoading()) {
+			return null;
+		}
+
+		final int page = findChildPage(child);
+		if (page == 0) {
+			return null;
+		}
+
+		final ChildList pageChildren = getChildPage(page - 1);
+		return pageChildren.isEmpty() ? null : pageChildren.getLast();
+	}
+
 	/**
 	 * Returns, if loaded, the first child of this node.
 	 * 
 	 * @return the first child of this node or null if the first child is not loaded or this node has no children.
 	 */
 	protected ChildNode getFirstLoadedChildNode() {
-		final LinkedList<ChildNode> loadedChildren = getLoadedChildNodes();
+		final ChildList loadedChildren = getLoadedChildNodes();
 		if (loadedChildren.isEmpty()) {
 			return null;
 		}
@@ -1249,24 +1481,102 @@ public abstract class ParentNode extends ChildNode {
 	 * 
 	 * @return all children of this node.
 	 */
-	private LinkedList<ChildNode> getAllChildNodes() {
+	private ChildList getAllChildNodes() {
 		return getChildren(true);
 	}
 
-	private LinkedList<ChildNode> getChildren(final boolean reload) {
-		LinkedList<ChildNode> loadedChildren = children.get();
+	/**
+	 * Returns the children list to be modified. While the document loads a page, children are appended to this page.
+	 * 
+	 * @return the children list to be modified.
+	 */
+	private ChildList getModifiableChildNodes() {
+		if (childPages == null) {
+			return getAllChildNodes();
+		}
+
+		if (childPages.getLoadingPage() == -1) {
+			// Pages are reloaded from the document source, modifications would be lost
+			throw new DOMException(DOMException.NOT_SUPPORTED_ERR, DOMMessageFormatter.formatMessage(
+					DOMMessageFormatter.DOM_DOMAIN, "NOT_SUPPORTED_ERR", null));
+		}
+		return getChildPage(childPages.getLoadingPage(), false);
+	}
+
+	private ChildList getChildPage(final int page, final boolean reload) {
+		final Lock loadLock = reload ? ((ScaleDomDocument) ownerDocument).getLoadLock(this) : null;
+		if (loadLock == null) {
+			return internalGetChildPage(page, reload);
+		}
+
+		// Concurrent readers of a not-loaded page wait for the first one to load it, instead of loading it again
+		loadLock.lock();
+		try {
+			return internalGetChildPage(page, reload);
+		} finally {
+			loadLock.unlock();
+		}
+	}
+
+	private ChildList internalGetChildPage(final int page, final boolean reload) {
+		final ScaleDomDocument doc = (ScaleDomDocument) ownerDocument;
+		ChildList pageChildren = childPages.getLoadedChildren(page);
+		final boolean wasLoaded = pageChildren != null;
+
+		if (pageChildren == null) {
+			pageChildren = new ChildList();
+
+			childPages.setReference(page, new WeakChildNodeList(doc, this, pageChildren));
+
+			if (reload && !doc.isLoading()) {
+				// Some outside user wants to access a not-loaded page => load it
+				doc.loadPage(this, page);
+			}
+		}
+
+		if (reload) {
+			doc.childrenAccessed(this, page, pageChildren, wasLoaded);
+		}
+		return pageChildren;
+	}
+
+	private ChildList getChildren(final boolean reload) {
+		final Lock loadLock = reload ? ((ScaleDomDocument) ownerDocument).getLoadLock(this) : null;
+		if (loadLock == null) {
+			return internalGetChildren(reload);
+		}
+
+		// Concurrent readers of not-loaded children wait for the first one to load them, instead of loading them again
+		loadLock.lock();
+		try {
+			if (childPages != null) {
+				// The first reader's reload has split the children into pages meanwhile
+				return internalGetChildPage(0, reload);
+			}
+			return internalGetChildren(reload);
+		} finally {
+			loadLock.unlock();
+		}
+	}
+
+	private ChildList internalGetChildren(final boolean reload) {
+		final ScaleDomDocument doc = (ScaleDomDocument) ownerDocument;
+		ChildList loadedChildren = children.get();
+		final boolean wasLoaded = loadedChildren != null;
 
 		if (loadedChildren == null) {
-			loadedChildren = new LinkedList<ChildNode>();
+			loadedChildren = new ChildList();
+			if (!reload) {
+				// Not published, readers do not hold the load lock and would replace a list which is being loaded
+				return loadedChildren;
+			}
 
-			final ScaleDomDocument doc = (ScaleDomDocument) ownerDocument;
 			children = new WeakChildNodeList(doc, this, loadedChildren);
 
 			if (reload && !doc.isLoading() && hasChildNodes()) {
 				// Some outside user wants to access not-loaded children => load them
 				if (this != doc) {
-					// Load an Element node
-					numberOfChildren = 0; // will be increased during the reload
+					// Load an Element node, its number of children is replaced during the reload
 					doc.load(this);
 				} else {
 					// Performance improvement for loading the Document node
@@ -1276,6 +1586,14 @@ public abstract class ParentNode extends ChildNode {
 			}
 		}
 
+		if (reload) {
+			if (childPages == null) {
+				doc.childrenAccessed(this, -1, loadedChildren, wasLoaded);
+			} else {
+				// The reload has split the children into pages, the loaded ones are the first page
+				doc.childrenAccessed(this, 0, loadedChildren, false);
+			}
+		}
 		return loadedChildren;
 	}
 	// </ScaleDOM>
@@ -0,0 +1,37 @@
+package at.ac.tuwien.dsg.scaledom.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of the initial load of a document, including restoring it from an offset index.
+ */
+@Name("at.ac.tuwien.dsg.scaledom.InitialLoad")
+@Label("Initial Load")
+@Category("ScaleDOM")
+@Description("Initial load of a document")
+class InitialLoadEvent extends Event implements FlightRecorderEvents.InitialLoad {
+
+	@Label("Node Count")
+	@Description("Number of created nodes")
+	long nodeCount;
+
+	@Label("Bytes Read")
+	@Description("Number of bytes read from the document source")
+	@DataAmount
+	long bytesRead;
+
+	@Override
+	public void end(final long nodeCount, final long bytesRead) {
+		end();
+		if (shouldCommit()) {
+			this.nodeCount = nodeCount;
+			this.bytesRead = bytesRead;
+			commit();
+		}
+	}
+}
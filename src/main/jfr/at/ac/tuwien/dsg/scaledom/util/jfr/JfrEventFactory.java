@@ -0,0 +1,36 @@
+package at.ac.tuwien.dsg.scaledom.util.jfr;
+
+/**
+ * Creates the Flight Recorder events based upon the <code>jdk.jfr</code> API. Loaded by {@link FlightRecorderEvents}
+ * only if the API is available, compiled only if the build JDK provides the API.
+ */
+class JfrEventFactory implements FlightRecorderEvents.EventFactory {
+
+	@Override
+	public FlightRecorderEvents.InitialLoad beginInitialLoad() {
+		final InitialLoadEvent event = new InitialLoadEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public FlightRecorderEvents.Load beginLoad() {
+		final LoadEvent event = new LoadEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public FlightRecorderEvents.LoadProcess beginLoadProcess() {
+		final LoadProcessEvent event = new LoadProcessEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public FlightRecorderEvents.Read beginRead() {
+		final ReadEvent event = new ReadEvent();
+		event.begin();
+		return event;
+	}
+}
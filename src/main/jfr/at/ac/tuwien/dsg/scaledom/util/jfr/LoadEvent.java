@@ -0,0 +1,54 @@
+package at.ac.tuwien.dsg.scaledom.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a reload of child nodes, i.e. of the children of a single parent, of a page of its children
+ * or of the children of a run of siblings.
+ */
+@Name("at.ac.tuwien.dsg.scaledom.Load")
+@Label("Reload")
+@Category("ScaleDOM")
+@Description("Reload of child nodes")
+class LoadEvent extends Event implements FlightRecorderEvents.Load {
+
+	@Label("Parent")
+	@Description("Name of the node whose children have been reloaded, or of the parent of the reloaded siblings")
+	String parentName;
+
+	@Label("Range Start")
+	@Description("Start offset of the read range in bytes, -1 if unknown")
+	long rangeStart;
+
+	@Label("Range End")
+	@Description("End offset of the read range in bytes, -1 if unknown")
+	long rangeEnd;
+
+	@Label("Node Count")
+	@Description("Number of created nodes")
+	long nodeCount;
+
+	@Label("Bytes Read")
+	@Description("Number of bytes read from the document source, skipped ranges are not included")
+	@DataAmount
+	long bytesRead;
+
+	@Override
+	public void end(final String parentName, final long rangeStart, final long rangeEnd, final long nodeCount,
+			final long bytesRead) {
+		end();
+		if (shouldCommit()) {
+			this.parentName = parentName;
+			this.rangeStart = rangeStart;
+			this.rangeEnd = rangeEnd;
+			this.nodeCount = nodeCount;
+			this.bytesRead = bytesRead;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package at.ac.tuwien.dsg.scaledom.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a load process, from its creation until it has been closed. A reload of a run of siblings
+ * runs a load process per sibling, a parallel initial load one per range.
+ */
+@Name("at.ac.tuwien.dsg.scaledom.LoadProcess")
+@Label("Load Process")
+@Category("ScaleDOM")
+@Description("Creation of the nodes of a subtree")
+class LoadProcessEvent extends Event implements FlightRecorderEvents.LoadProcess {
+
+	@Label("Parent")
+	@Description("Name of the node whose subtree has been created")
+	String parentName;
+
+	@Label("Range Start")
+	@Description("Start offset of the parent node in bytes, -1 if unknown")
+	long rangeStart;
+
+	@Label("Range End")
+	@Description("End offset of the parent node in bytes, -1 if unknown")
+	long rangeEnd;
+
+	@Label("Node Count")
+	@Description("Number of created nodes")
+	long nodeCount;
+
+	@Override
+	public void end(final String parentName, final long rangeStart, final long rangeEnd, final long nodeCount) {
+		end();
+		if (shouldCommit()) {
+			this.parentName = parentName;
+			this.rangeStart = rangeStart;
+			this.rangeEnd = rangeEnd;
+			this.nodeCount = nodeCount;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package at.ac.tuwien.dsg.scaledom.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a single read by a reader of a <code>ReaderFactory</code>, i.e. of filling the reader's
+ * buffer from the document source (or the block cache). Recorded without stack trace, since reads are frequent and
+ * nested in reload events.
+ */
+@Name("at.ac.tuwien.dsg.scaledom.Read")
+@Label("Document Read")
+@Category("ScaleDOM")
+@Description("Read from a document source")
+@StackTrace(false)
+class ReadEvent extends Event implements FlightRecorderEvents.Read {
+
+	@Label("Bytes Read")
+	@Description("Number of read bytes")
+	@DataAmount
+	long bytesRead;
+
+	@Override
+	public void end(final long bytesRead) {
+		end();
+		if (shouldCommit()) {
+			this.bytesRead = bytesRead;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.NodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+import at.ac.tuwien.dsg.scaledom.test.util.Records;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+
+import com.google.common.base.Charsets;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Processes the records of a document one after another, once reading each record synchronously and once in batches
+ * while the children of the next batch's records are loaded in the background. The node cache is smaller than the
+ * document, hence the children of most records have to be reloaded. Both runs have to process the same content. The
+ * batch size may be passed as first argument.
+ */
+public class AsyncLoadTest {
+
+	// <Configuration>
+	private final static int DEFAULT_BATCH_SIZE = 16;
+	private final static int NUMBER_OF_RECORDS = 20000;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static long NODE_CACHE_CAPACITY = 1000;
+	private final static int ASYNC_LOAD_THREADS = 2;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_BATCH_SIZE;
+			final File file = XmlFileGenerator.generateRecords(new File("xml/big/async-" + NUMBER_OF_RECORDS + ".xml"),
+					ENCODING, NUMBER_OF_RECORDS);
+
+			final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+			dbf.setNamespaceAware(true);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, NODE_CACHE_CAPACITY);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_CONCURRENT_READS, Boolean.TRUE);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_ASYNCLOAD_THREADS, ASYNC_LOAD_THREADS);
+			final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+
+			final ScaleDomDocument doc = new MeasuredTask<ScaleDomDocument>("Initial load of " + NUMBER_OF_RECORDS
+					+ " records") {
+				@Override
+				protected ScaleDomDocument runTask() throws Exception {
+					return (ScaleDomDocument) db.parse(new FileDocumentSource(file, ENCODING));
+				}
+			}.run();
+			final List<Element> records = Records.getRecords(doc.getDocumentElement());
+
+			final long expected = new MeasuredTask<Long>("Synchronous processing of " + records.size() + " records") {
+				@Override
+				protected Long runTask() throws Exception {
+					long sum = 0;
+					for (final Element record : records) {
+						sum += Records.sumValues(record.getChildNodes());
+					}
+					return sum;
+				}
+			}.run();
+
+			final long actual = new MeasuredTask<Long>("Processing of " + records.size() + " records in batches of "
+					+ batchSize + ", loading the next batch ahead") {
+				@Override
+				protected Long runTask() throws Exception {
+					long sum = 0;
+					ListenableFuture<List<NodeList>> nextBatch = doc.prefetch(getBatch(records, 0, batchSize));
+					for (int start = 0; start < records.size(); start += batchSize) {
+						final List<NodeList> batch = nextBatch.get();
+						if (start + batchSize < records.size()) {
+							nextBatch = doc.prefetch(getBatch(records, start + batchSize, batchSize));
+						}
+						for (final NodeList children : batch) {
+							sum += Records.sumValues(children);
+						}
+					}
+					return sum;
+				}
+			}.run();
+			System.out.println("Synchronous sum " + expected + ", asynchronous sum " + actual + ": "
+					+ (expected == actual ? "equal." : "NOT equal!"));
+
+			final NodeCacheManager nodeCacheManager = doc.getNodeCacheManager();
+			System.out.println("Node cache: " + nodeCacheManager.getWeight() + " nodes held, "
+					+ nodeCacheManager.getEvictionCount() + " evictions.");
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static List<Element> getBatch(final List<Element> records, final int start, final int batchSize) {
+		return records.subList(start, Math.min(start + batchSize, records.size()));
+	}
+}
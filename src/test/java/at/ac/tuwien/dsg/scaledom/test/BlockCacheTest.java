@@ -0,0 +1,99 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.BlockCache;
+import at.ac.tuwien.dsg.scaledom.io.impl.HttpDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+import at.ac.tuwien.dsg.scaledom.test.util.RangeHttpServer;
+import at.ac.tuwien.dsg.scaledom.test.util.Records;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Processes the records of an HTTP-backed document several times, once without and once with a block cache. The node
+ * cache is smaller than the document, hence the children of most records have to be reloaded on every pass. Without
+ * the block cache every reload requests its range from the server, with the block cache only the first pass does.
+ * Both runs have to process the same content.
+ */
+public class BlockCacheTest {
+
+	// <Configuration>
+	private final static int NUMBER_OF_RECORDS = 5000;
+	private final static int NUMBER_OF_PASSES = 3;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static long NODE_CACHE_CAPACITY = 1000;
+	private final static long BLOCK_CACHE_CAPACITY = 16 * 1024 * 1024;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final File file = XmlFileGenerator.generateRecords(new File("xml/big/blockcache-" + NUMBER_OF_RECORDS
+					+ ".xml"), ENCODING, NUMBER_OF_RECORDS);
+			final RangeHttpServer server = new RangeHttpServer(file.getParentFile());
+			try {
+				final long expected = run(server, file, 0);
+				final long actual = run(server, file, BLOCK_CACHE_CAPACITY);
+				System.out.println("Sum without block cache " + expected + ", sum with block cache " + actual + ": "
+						+ (expected == actual ? "equal." : "NOT equal!"));
+			} finally {
+				server.stop();
+			}
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static long run(final RangeHttpServer server, final File file, final long blockCacheCapacity)
+			throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, NODE_CACHE_CAPACITY);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_BLOCKCACHE_CAPACITY, blockCacheCapacity);
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+		final String description = blockCacheCapacity == 0 ? "without block cache" : "with block cache";
+
+		final HttpDocumentSource source = new HttpDocumentSource(server.getUrl(file.getName()), ENCODING);
+		final ScaleDomDocument doc = (ScaleDomDocument) db.parse(source);
+		server.resetCounters();
+
+		final long sum = new MeasuredTask<Long>(NUMBER_OF_PASSES + " passes over " + NUMBER_OF_RECORDS + " records "
+				+ description) {
+			@Override
+			protected Long runTask() throws Exception {
+				long sum = 0;
+				for (int pass = 0; pass < NUMBER_OF_PASSES; ++pass) {
+					for (Node record = doc.getDocumentElement().getFirstChild(); record != null; record = record
+							.getNextSibling()) {
+						if (record.getNodeType() == Node.ELEMENT_NODE) {
+							sum += Records.sumValues(record);
+						}
+					}
+				}
+				return sum;
+			}
+		}.run();
+
+		System.out.println("Server: " + server.getRequestCount() + " requests, " + server.getBytesSent()
+				+ " bytes sent " + description + ".");
+		final BlockCache blockCache = doc.getDocumentSource().getBlockCache();
+		if (blockCache != null) {
+			System.out.println(String.format("Block cache: hit rate %.3f, %d bytes saved, %d evictions.",
+					blockCache.getHitRate(), blockCache.getBytesSaved(), blockCache.getEvictionCount()));
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,159 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.events.XMLEvent;
+
+import org.w3c.dom.Document;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.ReaderFactory;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileReaderFactory;
+import at.ac.tuwien.dsg.scaledom.parser.XmlEventLocation;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParser;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParserEventListener;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.parser.impl.StaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.NoOpCallback;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.SignatureCallback;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.UnloadCallback;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Compares the char-offset path (<code>StaxXmlParser</code>, fixed-width encoding) with the byte-offset path (
+ * <code>ByteOffsetStaxXmlParser</code>, UTF-8) on generated files of the same structure. First checks that both paths
+ * build the same DOM as a plain Xerces parse, i.e. compares the signatures after the initial load and after forced
+ * reloads, then measures both paths. The file size in bytes may be passed as first argument.
+ */
+public class ByteLocationParserTest {
+
+	// <Configuration>
+	private final static long DEFAULT_FILE_SIZE = 4L * 1024 * 1024;
+	private final static int RELOAD_COUNT = 2;
+	private final static String UTF8 = Charsets.UTF_8.name();
+	private final static String LATIN1 = Charsets.ISO_8859_1.name();
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final long fileSize = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_FILE_SIZE;
+			final File utf8File = XmlFileGenerator.generate(new File("xml/big/varwidth-" + fileSize + "-utf8.xml"),
+					UTF8, fileSize);
+			final File latin1File = XmlFileGenerator.generate(new File("xml/big/varwidth-" + fileSize
+					+ "-latin1.xml"), LATIN1, fileSize);
+
+			// DOM equality, including the reloading of multi-byte content at byte offsets
+			int mismatches = compareSignatures("char offsets (" + LATIN1 + ")", StaxXmlParser.class, latin1File,
+					LATIN1);
+			mismatches += compareSignatures("byte offsets (" + LATIN1 + ")", ByteOffsetStaxXmlParser.class,
+					latin1File, LATIN1);
+			mismatches += compareSignatures("byte offsets (" + UTF8 + ")", ByteOffsetStaxXmlParser.class, utf8File,
+					UTF8);
+			System.out.println(mismatches + " signatures differ from the plain Xerces parse.");
+
+			// Raw parsing, i.e. without DOM construction
+			parseOnly("Parsing, char offsets (" + LATIN1 + ")", new StaxXmlParser(newFactory()), latin1File, LATIN1);
+			parseOnly("Parsing, byte offsets (" + LATIN1 + ")", new ByteOffsetStaxXmlParser(newFactory()),
+					latin1File, LATIN1);
+			parseOnly("Parsing, byte offsets (" + UTF8 + ")", new ByteOffsetStaxXmlParser(newFactory()), utf8File,
+					UTF8);
+
+			// Initial loading and full traversal (including reloading)
+			loadAndTraverse("char offsets (" + LATIN1 + ")", StaxXmlParser.class, latin1File, LATIN1);
+			loadAndTraverse("byte offsets (" + UTF8 + ")", ByteOffsetStaxXmlParser.class, utf8File, UTF8);
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static DocumentBuilderFactory newFactory() {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		return dbf;
+	}
+
+	/**
+	 * Compares the signature of the plain Xerces parse with the signatures of the ScaleDOM document after the initial
+	 * load and after forced reloads.
+	 *
+	 * @return the number of differing signatures.
+	 */
+	private static int compareSignatures(final String name, final Class<? extends XmlParser> parserType,
+			final File file, final String encoding) throws Exception {
+		final DocumentBuilderFactory xercesFactory = DocumentBuilderFactory.newInstance();
+		xercesFactory.setNamespaceAware(true);
+		final String expected = SignatureCallback.signature(xercesFactory.newDocumentBuilder().parse(file));
+		System.out.println("Plain Xerces (" + encoding + "): " + expected);
+
+		final DocumentBuilderFactory dbf = newFactory();
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, parserType);
+		final ScaleDomDocument doc = (ScaleDomDocument) ((ScaleDomDocumentBuilder) dbf.newDocumentBuilder())
+				.parse(new FileDocumentSource(file, encoding));
+		int mismatches = 0;
+		for (int i = 0; i <= RELOAD_COUNT; ++i) {
+			final String prefix = (i == 0 ? "Initial load" : "Reload #" + i) + ", " + name;
+			if (i > 0) {
+				System.out.println(prefix + ": " + UnloadCallback.unloadAll(doc) + " children lists unloaded.");
+			}
+			final String signature = SignatureCallback.signature(doc);
+			final boolean equal = expected.equals(signature);
+			System.out.println(prefix + ": signature " + (equal ? "equal" : "NOT equal: " + signature));
+			if (!equal) {
+				++mismatches;
+			}
+		}
+		return mismatches;
+	}
+
+	private static void parseOnly(final String taskName, final XmlParser parser, final File file,
+			final String encoding) throws Exception {
+		new MeasuredTask<Void>(taskName) {
+			@Override
+			protected Void runTask() throws Exception {
+				final ReaderFactory readerFactory = new FileReaderFactory(new FileDocumentSource(file, encoding));
+				try {
+					parser.parse(readerFactory.newReader(), new XmlParserEventListener() {
+						@Override
+						public boolean process(final XMLEvent event, final XmlEventLocation location) {
+							return CONTINUE_PARSING;
+						}
+					});
+				} finally {
+					readerFactory.close();
+				}
+				return null;
+			}
+		}.run();
+	}
+
+	private static void loadAndTraverse(final String taskName, final Class<? extends XmlParser> parserType,
+			final File file, final String encoding) throws Exception {
+		final DocumentBuilderFactory dbf = newFactory();
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, parserType);
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+
+		final Document doc = new MeasuredTask<Document>("Initial parsing, " + taskName) {
+			@Override
+			protected Document runTask() throws Exception {
+				return db.parse(new FileDocumentSource(file, encoding));
+			}
+		}.run();
+
+		new MeasuredTask<Void>("DOM traversal, " + taskName) {
+			@Override
+			protected Void runTask() throws Exception {
+				new DOMTraverser(new NoOpCallback()).traverse(doc);
+				return null;
+			}
+		}.run();
+	}
+}
@@ -0,0 +1,135 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Micro-benchmark of <code>NodeList.item(int)</code> on the child node list of a document element with a huge number
+ * of children, comparing forward, backward and random access. All three access patterns should take about the same
+ * time per item. The number of children may be passed as first argument.
+ */
+public class ChildNodeListTest {
+
+	// <Configuration>
+	private final static int DEFAULT_NUMBER_OF_CHILDREN = 1000000;
+	private final static String ENCODING = Charsets.ISO_8859_1.name();
+	private final static int ROUNDS = 5;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final int numberOfChildren = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NUMBER_OF_CHILDREN;
+			final File file = generate(new File("xml/big/children-" + numberOfChildren + ".xml"), numberOfChildren);
+
+			final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+			dbf.setNamespaceAware(true);
+			final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+
+			final Document doc = new MeasuredTask<Document>("Initial load of " + numberOfChildren + " children") {
+				@Override
+				protected Document runTask() throws Exception {
+					return db.parse(new FileDocumentSource(file, ENCODING));
+				}
+			}.run();
+			final NodeList children = doc.getDocumentElement().getChildNodes();
+			System.out.println(children.getLength() + " children loaded.");
+
+			// Random indices are generated in advance, so the benchmark measures item(int) only
+			final int[] randomIndices = new int[numberOfChildren];
+			final Random random = new Random(42);
+			for (int i = 0; i < numberOfChildren; ++i) {
+				randomIndices[i] = random.nextInt(numberOfChildren);
+			}
+
+			for (int round = 0; round < ROUNDS; ++round) {
+				benchmark("Forward access", children, new IndexSequence() {
+					@Override
+					public int get(final int i) {
+						return i;
+					}
+				});
+				benchmark("Backward access", children, new IndexSequence() {
+					@Override
+					public int get(final int i) {
+						return numberOfChildren - 1 - i;
+					}
+				});
+				benchmark("Random access", children, new IndexSequence() {
+					@Override
+					public int get(final int i) {
+						return randomIndices[i];
+					}
+				});
+			}
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static void benchmark(final String name, final NodeList children, final IndexSequence indices)
+			throws Exception {
+		final int length = children.getLength();
+		final long[] elapsed = new long[1];
+		final int count = new MeasuredTask<Integer>(name + " to " + length + " children") {
+			@Override
+			protected Integer runTask() throws Exception {
+				final long start = System.nanoTime();
+				int count = 0;
+				for (int i = 0; i < length; ++i) {
+					final Node child = children.item(indices.get(i));
+					if (child != null && child.getNodeType() == Node.ELEMENT_NODE) {
+						++count;
+					}
+				}
+				elapsed[0] = System.nanoTime() - start;
+				return count;
+			}
+		}.run();
+		System.out.println(count + " elements found, " + (elapsed[0] / length) + " ns per item.");
+	}
+
+	private static File generate(final File file, final int numberOfChildren) throws IOException {
+		if (file.exists()) {
+			return file;
+		}
+
+		file.getParentFile().mkdirs();
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), ENCODING));
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"" + ENCODING + "\"?>\n<children>");
+			for (int i = 0; i < numberOfChildren; ++i) {
+				writer.write("<child n=\"" + i + "\"/>");
+			}
+			writer.write("</children>\n");
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Sequence of child indices to be accessed.
+	 */
+	private interface IndexSequence {
+
+		int get(int i);
+	}
+}
@@ -0,0 +1,139 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.NodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Traverses one document from several threads at once. The node cache is much smaller than the document, hence the
+ * threads permanently unload and reload nodes read by each other. Every thread has to see the same document as a
+ * single-threaded traversal. The number of threads may be passed as first argument.
+ */
+public class ConcurrentReadTest {
+
+	// <Configuration>
+	private final static int DEFAULT_NUMBER_OF_THREADS = 4;
+	private final static int NUMBER_OF_RECORDS = 20000;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static int CHILD_PAGE_SIZE = 256;
+	private final static long NODE_CACHE_CAPACITY = 5000;
+	private final static int TRAVERSALS_PER_THREAD = 2;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final int numberOfThreads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NUMBER_OF_THREADS;
+			final File file = XmlFileGenerator.generateRecords(new File("xml/big/concurrent-" + NUMBER_OF_RECORDS
+					+ ".xml"), ENCODING, NUMBER_OF_RECORDS);
+
+			final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+			dbf.setNamespaceAware(true);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, NODE_CACHE_CAPACITY);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_CHILDPAGE_SIZE, CHILD_PAGE_SIZE);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_CONCURRENT_READS, Boolean.TRUE);
+			final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+
+			final ScaleDomDocument doc = new MeasuredTask<ScaleDomDocument>("Initial load of " + NUMBER_OF_RECORDS
+					+ " records") {
+				@Override
+				protected ScaleDomDocument runTask() throws Exception {
+					return (ScaleDomDocument) db.parse(new FileDocumentSource(file, ENCODING));
+				}
+			}.run();
+
+			final String expected = new MeasuredTask<String>("Single-threaded traversal") {
+				@Override
+				protected String runTask() throws Exception {
+					return traverse(doc);
+				}
+			}.run();
+
+			final int mismatches = new MeasuredTask<Integer>(numberOfThreads * TRAVERSALS_PER_THREAD
+					+ " traversals by " + numberOfThreads + " threads") {
+				@Override
+				protected Integer runTask() throws Exception {
+					final ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+					try {
+						final List<Future<String>> results = new ArrayList<Future<String>>();
+						for (int i = 0; i < numberOfThreads * TRAVERSALS_PER_THREAD; ++i) {
+							results.add(executor.submit(new Callable<String>() {
+								@Override
+								public String call() throws Exception {
+									return traverse(doc);
+								}
+							}));
+						}
+
+						int mismatches = 0;
+						for (final Future<String> result : results) {
+							if (!expected.equals(result.get())) {
+								++mismatches;
+							}
+						}
+						return mismatches;
+					} finally {
+						executor.shutdown();
+					}
+				}
+			}.run();
+			System.out.println(mismatches + " traversals differ from the single-threaded traversal.");
+
+			final NodeCacheManager nodeCacheManager = doc.getNodeCacheManager();
+			System.out.println("Node cache: " + nodeCacheManager.getWeight() + " nodes held, "
+					+ nodeCacheManager.getEvictionCount() + " evictions, document is "
+					+ (doc.isConsistent() ? "consistent." : "not consistent."));
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	/**
+	 * Traverses a document and returns a digest of its nodes.
+	 */
+	private static String traverse(final Document doc) {
+		final StringBuilder digest = new StringBuilder();
+		final int[] elements = new int[1];
+		new DOMTraverser(new DOMTraverserCallback() {
+			@Override
+			public void nodeTraversed(final Document doc, final Node node, final int level) {
+				if (node.getNodeType() == Node.ELEMENT_NODE) {
+					++elements[0];
+					final String id = ((Element) node).getAttribute("id");
+					if (!id.isEmpty()) {
+						digest.append(id).append(';');
+					}
+				} else if (node.getNodeType() == Node.TEXT_NODE) {
+					digest.append(node.getNodeValue().trim().length()).append(';');
+				}
+			}
+		}).traverse(doc);
+		return elements[0] + ":" + digest.toString().hashCode();
+	}
+}
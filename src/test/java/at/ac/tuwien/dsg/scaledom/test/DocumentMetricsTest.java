@@ -0,0 +1,96 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.DocumentMetrics;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.NoOpCallback;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Traverses a generated document with a small node cache, hence most children are reloaded, and prints the document
+ * metrics as read from its registered MXBean. The reload latency histogram has to account for all reloads, and the
+ * reloads have to be reflected by read bytes and unloads. Once the document has been garbage collected, the MXBean has
+ * to be unregistered.
+ */
+public class DocumentMetricsTest {
+
+	// <Configuration>
+	private final static long FILE_SIZE = 4L * 1024 * 1024;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static long NODE_CACHE_CAPACITY = 1000;
+	private final static int TRAVERSAL_COUNT = 2;
+	private final static int GC_ATTEMPTS = 10;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final File file = XmlFileGenerator.generate(new File("xml/big/metrics-" + FILE_SIZE + ".xml"), ENCODING,
+					FILE_SIZE);
+			final ObjectName name = traverseAndPrintMetrics(file);
+
+			// The document is no longer referenced, its MXBean is unregistered once it has been collected
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			for (int i = 0; i < GC_ATTEMPTS && server.isRegistered(name); ++i) {
+				System.gc();
+				Thread.sleep(100);
+			}
+			System.out.println("MXBean " + (server.isRegistered(name) ? "is still registered!" : "has been unregistered."));
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static ObjectName traverseAndPrintMetrics(final File file) throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, NODE_CACHE_CAPACITY);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_REGISTER_MXBEAN, true);
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+		final ScaleDomDocument doc = (ScaleDomDocument) db.parse(new FileDocumentSource(file, ENCODING));
+
+		for (int i = 0; i < TRAVERSAL_COUNT; ++i) {
+			new DOMTraverser(new NoOpCallback()).traverse(doc);
+		}
+
+		// Read the metrics through the MBean server, as a JMX console would
+		final DocumentMetrics metrics = doc.getMetrics();
+		final ObjectName name = metrics.getObjectName();
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		System.out.println(name);
+		for (final MBeanAttributeInfo attribute : server.getMBeanInfo(name).getAttributes()) {
+			final Object value = server.getAttribute(name, attribute.getName());
+			System.out.println("  " + attribute.getName() + " = "
+					+ (value instanceof long[] ? Arrays.toString((long[]) value) : value));
+		}
+
+		long histogramCount = 0;
+		for (final long count : metrics.getReloadLatencyHistogram()) {
+			histogramCount += count;
+		}
+		final boolean ok = metrics.getReloadCount() > 0 && histogramCount == metrics.getReloadCount()
+				&& metrics.getBytesRead() > file.length() && metrics.getUnloadedChildrenListCount() > 0
+				&& metrics.getChildrenMissCount() > 0 && metrics.getPinnedChildrenListCount() > 0;
+		System.out.println("Metrics are " + (ok ? "plausible." : "NOT plausible!"));
+
+		return name;
+	}
+}
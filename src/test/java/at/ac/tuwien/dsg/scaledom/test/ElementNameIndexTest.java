@@ -0,0 +1,244 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.xerces.dom.ParentNode;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.OffsetIndex;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Compares the results of getElementsByTagName and getElementsByTagNameNS of documents with element name index to the
+ * results of DeepNodeListImpl on the same documents without index, for all names occurring in the documents, wildcards
+ * and elements as roots. Documents with index are opened by single-threaded and parallel initial loads, with paged
+ * children, restored from the offset index and with a small node cache (and paged children, such that a page fits into
+ * the cache). Finally, counts the nodes loaded to request a few elements of a generated document with and without
+ * index.
+ */
+public class ElementNameIndexTest {
+
+	// <Configuration>
+	private final static long FILE_SIZE = 1024 * 1024;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static int NUMBER_OF_ROOTS = 8;
+	private final static int NUMBER_OF_REQUESTED_ITEMS = 10;
+	private final static int CHILD_PAGE_SIZE = 16;
+	private final static long NODE_CACHE_CAPACITY = 1000;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final File generated = XmlFileGenerator.generate(new File("xml/big/elementnames-" + FILE_SIZE + ".xml"),
+					ENCODING, FILE_SIZE);
+			final File[] files = { generated, new File("xml/booksns.xml"), new File("xml/books.xml") };
+			final String[] encodings = { ENCODING, Charsets.UTF_8.name(), Charsets.ISO_8859_1.name() };
+
+			int mismatches = 0;
+			for (int i = 0; i < files.length; ++i) {
+				new File(files[i].getPath() + OffsetIndex.FILE_EXTENSION).delete();
+				final Document expected = parse(files[i], encodings[i], false, 1, 0, false, 0);
+				mismatches += compare(files[i], "single-threaded", expected,
+						parse(files[i], encodings[i], true, 1, 0, false, 0));
+				mismatches += compare(files[i], "parallel", expected,
+						parse(files[i], encodings[i], true, 4, 0, false, 0));
+				mismatches += compare(files[i], "paged", expected,
+						parse(files[i], encodings[i], true, 1, CHILD_PAGE_SIZE, false, 0));
+				parse(files[i], encodings[i], true, 1, 0, true, 0);
+				mismatches += compare(files[i], "offset index", expected,
+						parse(files[i], encodings[i], true, 1, 0, true, 0));
+				mismatches += compare(files[i], "node cache", expected,
+						parse(files[i], encodings[i], true, 1, CHILD_PAGE_SIZE, false, NODE_CACHE_CAPACITY));
+				new File(files[i].getPath() + OffsetIndex.FILE_EXTENSION).delete();
+			}
+			System.out.println(mismatches + " lists differ from DeepNodeListImpl.");
+
+			checkModification(generated);
+			countLoadedNodes(generated, "para");
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static ScaleDomDocument parse(final File file, final String encoding, final boolean useElementNameIndex,
+			final int initialLoadThreads, final int childPageSize, final boolean useOffsetIndex,
+			final long nodeCacheCapacity) throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_ELEMENTNAME_INDEX, useElementNameIndex);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_INITIALLOAD_THREADS, initialLoadThreads);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_CHILDPAGE_SIZE, childPageSize);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_OFFSETINDEX, useOffsetIndex);
+		if (nodeCacheCapacity > 0) {
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, nodeCacheCapacity);
+		}
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+		return (ScaleDomDocument) db.parse(new FileDocumentSource(file, encoding));
+	}
+
+	/**
+	 * Compares the lists of all queries of a document with index to the lists of the expected document.
+	 *
+	 * @return the number of differing lists.
+	 */
+	private static int compare(final File file, final String configuration, final Document expected,
+			final ScaleDomDocument actual) {
+		if (actual.getElementNameIndex() == null) {
+			System.out.println(file.getName() + " (" + configuration + "): element names have NOT been indexed.");
+			return 1;
+		}
+
+		// Collect all names of the expected document
+		final Set<String> tagNames = new LinkedHashSet<String>();
+		final Set<List<String>> namespaceNames = new LinkedHashSet<List<String>>();
+		new DOMTraverser(new DOMTraverserCallback() {
+			@Override
+			public void nodeTraversed(final Document doc, final Node node, final int level) {
+				if (node.getNodeType() == Node.ELEMENT_NODE) {
+					tagNames.add(node.getNodeName());
+					namespaceNames.add(names(node.getNamespaceURI(), node.getLocalName()));
+					namespaceNames.add(names("*", node.getLocalName()));
+					namespaceNames.add(names(node.getNamespaceURI(), "*"));
+					namespaceNames.add(names("", node.getLocalName()));
+					namespaceNames.add(names(null, node.getLocalName()));
+				}
+			}
+		}).traverse(expected);
+		tagNames.add("*");
+		tagNames.add("missing");
+		namespaceNames.add(names("*", "*"));
+		namespaceNames.add(names("missing", "*"));
+
+		int mismatches = 0;
+		int numberOfLists = 0;
+		final List<Node> expectedRoots = new ArrayList<Node>();
+		final List<Node> actualRoots = new ArrayList<Node>();
+		expectedRoots.add(expected);
+		actualRoots.add(actual);
+		final NodeList expectedElements = expected.getElementsByTagName("*");
+		final NodeList actualElements = actual.getElementsByTagName("*");
+		for (int i = 0; i < NUMBER_OF_ROOTS; ++i) {
+			final int index = (int) ((long) i * expectedElements.getLength() / NUMBER_OF_ROOTS);
+			expectedRoots.add(expectedElements.item(index));
+			actualRoots.add(actualElements.item(index));
+		}
+
+		for (int i = 0; i < expectedRoots.size(); ++i) {
+			final Node expectedRoot = expectedRoots.get(i);
+			final Node actualRoot = actualRoots.get(i);
+			for (final String tagName : tagNames) {
+				mismatches += digest(getElementsByTagName(expectedRoot, tagName)).equals(
+						digest(getElementsByTagName(actualRoot, tagName))) ? 0 : 1;
+				++numberOfLists;
+			}
+			for (final List<String> names : namespaceNames) {
+				mismatches += digest(getElementsByTagNameNS(expectedRoot, names.get(0), names.get(1))).equals(
+						digest(getElementsByTagNameNS(actualRoot, names.get(0), names.get(1)))) ? 0 : 1;
+				++numberOfLists;
+			}
+		}
+
+		System.out.println(file.getName() + " (" + configuration + "): " + numberOfLists + " lists, " + mismatches
+				+ " differ.");
+		return mismatches;
+	}
+
+	/**
+	 * Modifies a document with index, lists have to reflect the modification.
+	 */
+	private static void checkModification(final File file) throws Exception {
+		final ScaleDomDocument doc = parse(file, ENCODING, true, 1, 0, false, 0);
+		final NodeList authors = doc.getElementsByTagName("author");
+		final int length = authors.getLength();
+		final Element author = doc.createElement("author");
+		doc.getDocumentElement().appendChild(author);
+
+		final boolean ok = doc.getElementNameIndex() == null && authors.getLength() == length + 1
+				&& authors.item(length) == author && doc.getElementsByTagName("author").getLength() == length + 1;
+		System.out.println("Lists " + (ok ? "reflect" : "do NOT reflect") + " modifications of the document.");
+	}
+
+	/**
+	 * Requests a few elements spread over a generated document, with and without index.
+	 */
+	private static void countLoadedNodes(final File file, final String tagName) throws Exception {
+		for (final boolean useElementNameIndex : new boolean[] { true, false }) {
+			final ScaleDomDocument doc = parse(file, ENCODING, useElementNameIndex, 1, CHILD_PAGE_SIZE, false,
+					NODE_CACHE_CAPACITY);
+			final long nodeCount = doc.getMetrics().getReloadNodeCount();
+			final NodeList elements = doc.getElementsByTagName(tagName);
+			final int length = elements.getLength();
+			for (int i = 0; i < NUMBER_OF_REQUESTED_ITEMS; ++i) {
+				elements.item((int) ((long) (i + 1) * length / NUMBER_OF_REQUESTED_ITEMS - 1));
+			}
+			System.out.println("Requesting " + NUMBER_OF_REQUESTED_ITEMS + " of " + length + " elements '" + tagName
+					+ "' " + (useElementNameIndex ? "with" : "without") + " index loaded "
+					+ (doc.getMetrics().getReloadNodeCount() - nodeCount) + " nodes.");
+		}
+	}
+
+	private static NodeList getElementsByTagName(final Node root, final String tagName) {
+		return root instanceof Document ? ((Document) root).getElementsByTagName(tagName) : ((Element) root)
+				.getElementsByTagName(tagName);
+	}
+
+	private static NodeList getElementsByTagNameNS(final Node root, final String namespaceURI, final String localName) {
+		return root instanceof Document ? ((Document) root).getElementsByTagNameNS(namespaceURI, localName)
+				: ((Element) root).getElementsByTagNameNS(namespaceURI, localName);
+	}
+
+	private static List<String> names(final String namespaceURI, final String localName) {
+		final List<String> names = new ArrayList<String>(2);
+		names.add(namespaceURI);
+		names.add(localName);
+		return names;
+	}
+
+	/**
+	 * Returns a digest of the elements of a list, which identifies each element by its name, offset and attributes.
+	 */
+	private static String digest(final NodeList list) {
+		final StringBuilder digest = new StringBuilder();
+		final int length = list.getLength();
+		for (int i = 0; i < length; ++i) {
+			final Node node = list.item(i);
+			if (node == null) {
+				digest.append("null;");
+				continue;
+			}
+			digest.append(node.getNodeName()).append('@')
+					.append(((FileNodeLocation) ((ParentNode) node).getNodeLocation()).getStartOffset());
+			final NamedNodeMap attributes = node.getAttributes();
+			for (int j = 0; j < attributes.getLength(); ++j) {
+				digest.append(' ').append(attributes.item(j).getNodeName()).append('=')
+						.append(attributes.item(j).getNodeValue());
+			}
+			digest.append(';');
+		}
+		return length + ":" + digest.length() + ":" + digest.toString().hashCode();
+	}
+}
@@ -0,0 +1,107 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.DocumentMetrics;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.NoOpCallback;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.jfr.FlightRecorderEvents;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Records the Flight Recorder events of parsing and traversing a generated document with a small node cache, and
+ * compares them to the document metrics: every reload has to be recorded by an event, and the events' node counts and
+ * read bytes have to add up to the metrics. Requires a JVM providing the jdk.jfr API.
+ */
+public class FlightRecorderEventsTest {
+
+	// <Configuration>
+	private final static long FILE_SIZE = 1024 * 1024;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static long NODE_CACHE_CAPACITY = 1000;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			if (!FlightRecorderEvents.isSupported()) {
+				System.out.println("Flight Recorder events are not supported by this JVM.");
+				return;
+			}
+			final File file = XmlFileGenerator.generate(new File("xml/big/jfr-" + FILE_SIZE + ".xml"), ENCODING,
+					FILE_SIZE);
+
+			final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+			dbf.setNamespaceAware(true);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, NODE_CACHE_CAPACITY);
+			final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+
+			final File recordingFile = new File("xml/big/scaledom.jfr");
+			final Recording recording = new Recording();
+			final ScaleDomDocument doc;
+			try {
+				recording.enable("at.ac.tuwien.dsg.scaledom.InitialLoad");
+				recording.enable("at.ac.tuwien.dsg.scaledom.Load");
+				recording.enable("at.ac.tuwien.dsg.scaledom.LoadProcess");
+				recording.enable("at.ac.tuwien.dsg.scaledom.Read");
+				recording.start();
+
+				doc = (ScaleDomDocument) db.parse(new FileDocumentSource(file, ENCODING));
+				new DOMTraverser(new NoOpCallback()).traverse(doc);
+
+				recording.stop();
+				recording.dump(recordingFile.toPath());
+			} finally {
+				recording.close();
+			}
+
+			final Map<String, long[]> sums = new TreeMap<String, long[]>();
+			for (final RecordedEvent event : RecordingFile.readAllEvents(recordingFile.toPath())) {
+				final String name = event.getEventType().getName();
+				long[] sum = sums.get(name);
+				if (sum == null) {
+					sum = new long[3];
+					sums.put(name, sum);
+				}
+				++sum[0];
+				sum[1] += event.hasField("nodeCount") ? event.getLong("nodeCount") : 0;
+				sum[2] += event.hasField("bytesRead") ? event.getLong("bytesRead") : 0;
+			}
+			for (final Map.Entry<String, long[]> entry : sums.entrySet()) {
+				System.out.println(entry.getKey() + ": " + entry.getValue()[0] + " events, " + entry.getValue()[1]
+						+ " nodes, " + entry.getValue()[2] + " bytes read.");
+			}
+
+			final DocumentMetrics metrics = doc.getMetrics();
+			final long[] initialLoad = sums.get("at.ac.tuwien.dsg.scaledom.InitialLoad");
+			final long[] load = sums.get("at.ac.tuwien.dsg.scaledom.Load");
+			final long[] read = sums.get("at.ac.tuwien.dsg.scaledom.Read");
+			final boolean ok = initialLoad != null && initialLoad[0] == 1 && load != null
+					&& load[0] == metrics.getReloadCount() && load[1] == metrics.getReloadNodeCount()
+					&& read != null && read[2] == metrics.getBytesRead()
+					&& initialLoad[2] + load[2] == metrics.getBytesRead()
+					&& sums.containsKey("at.ac.tuwien.dsg.scaledom.LoadProcess");
+			System.out.println("Events " + (ok ? "match" : "do NOT match") + " the document metrics.");
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentSource;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.io.impl.HttpDocumentSource;
+import at.ac.tuwien.dsg.scaledom.io.impl.HttpRangeClient;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.RangeHttpServer;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Traverses the documents of the xml directory once read from the file and once served by a local HTTP server. The
+ * node cache is small, hence most nodes are reloaded by range requests. The HTTP client splits ranges into small parts
+ * requested concurrently, and the server lets every few requests fail, so that the documents are only read completely
+ * if parts are reassembled in order and failed requests are retried. Both traversals have to see the same document.
+ * Finally, the documents are traversed once more served by a server rejecting HEAD requests and by a server ignoring
+ * range requests.
+ */
+public class HttpSourceTest {
+
+	// <Configuration>
+	private final static String[] FILE_NAMES = { "books.xml", "booksns.xml", "simple.xml", "varwidth.xml",
+			"deep.xml" };
+	private final static String[] ENCODINGS = { Charsets.ISO_8859_1.name(), Charsets.UTF_8.name(),
+			Charsets.ISO_8859_1.name(), Charsets.UTF_8.name(), Charsets.ISO_8859_1.name() };
+	private final static long NODE_CACHE_CAPACITY = 20;
+	private final static int PARALLELISM = 4;
+	private final static int PART_SIZE = 1024;
+	private final static int MAX_RETRIES = 3;
+	private final static int FAILURE_INTERVAL = 7;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+			dbf.setNamespaceAware(true);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, NODE_CACHE_CAPACITY);
+			final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+
+			final File directory = new File("xml");
+			final RangeHttpServer server = new RangeHttpServer(directory);
+			server.setFailureInterval(FAILURE_INTERVAL);
+			try {
+				int mismatches = 0;
+				for (int i = 0; i < FILE_NAMES.length; ++i) {
+					final String expected = traverse(db, new FileDocumentSource(new File(directory, FILE_NAMES[i]),
+							ENCODINGS[i]));
+
+					server.resetCounters();
+					final HttpDocumentSource source = new HttpDocumentSource(server.getUrl(FILE_NAMES[i]),
+							ENCODINGS[i]);
+					source.setRangeClient(new HttpRangeClient(source.getUrl(), PARALLELISM, PART_SIZE, MAX_RETRIES));
+					final String actual = traverse(db, source);
+
+					System.out.println(FILE_NAMES[i] + ": " + (expected.equals(actual) ? "equal" : "NOT equal")
+							+ ", " + server.getRequestCount() + " requests (" + server.getFailureCount()
+							+ " failed) by " + server.getConnectionCount() + " connections.");
+					if (!expected.equals(actual)) {
+						++mismatches;
+					}
+				}
+				System.out.println(mismatches + " documents served by HTTP differ from the files.");
+
+				server.setFailureInterval(0);
+				mismatches = 0;
+				for (int mode = 0; mode < 2; ++mode) {
+					server.setHeadRejected(mode == 0);
+					server.setRangesIgnored(mode == 1);
+					for (int i = 0; i < FILE_NAMES.length; ++i) {
+						final String expected = traverse(db, new FileDocumentSource(new File(directory,
+								FILE_NAMES[i]), ENCODINGS[i]));
+						final HttpDocumentSource source = new HttpDocumentSource(server.getUrl(FILE_NAMES[i]),
+								ENCODINGS[i]);
+						source.setRangeClient(new HttpRangeClient(source.getUrl(), PARALLELISM, PART_SIZE,
+								MAX_RETRIES));
+						if (!expected.equals(traverse(db, source))) {
+							System.out.println(FILE_NAMES[i] + " (" + (mode == 0 ? "HEAD rejected" : "ranges ignored")
+									+ "): NOT equal.");
+							++mismatches;
+						}
+					}
+				}
+				System.out.println(mismatches + " documents served by servers rejecting HEAD or ignoring ranges differ "
+						+ "from the files.");
+			} finally {
+				server.stop();
+			}
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	/**
+	 * Parses and traverses a document twice, returns a digest of its nodes.
+	 */
+	private static String traverse(final ScaleDomDocumentBuilder db, final ScaleDomDocumentSource source)
+			throws Exception {
+		final Document doc = db.parse(source);
+		final StringBuilder digest = new StringBuilder();
+		final DOMTraverser traverser = new DOMTraverser(new DOMTraverserCallback() {
+			@Override
+			public void nodeTraversed(final Document doc, final Node node, final int level) {
+				digest.append(level).append(node.getNodeName()).append('=').append(node.getNodeValue());
+				final NamedNodeMap attributes = node.getAttributes();
+				if (attributes != null) {
+					for (int i = 0; i < attributes.getLength(); ++i) {
+						digest.append(' ').append(attributes.item(i).getNodeName()).append('=')
+								.append(attributes.item(i).getNodeValue());
+					}
+				}
+				digest.append(';');
+			}
+		});
+		traverser.traverse(doc);
+		traverser.traverse(doc);
+		return digest.length() + ":" + digest.toString().hashCode();
+	}
+}
@@ -0,0 +1,278 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.xerces.dom.ParentNode;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.IdIndex;
+import at.ac.tuwien.dsg.scaledom.dom.OffsetIndex;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Compares the results of getElementById of documents with ID index to the elements found by traversing the same
+ * documents without index, for all IDs occurring in the documents and a few missing ones. Documents with index are
+ * opened by single-threaded and parallel initial loads, with paged children and restored from the offset index. IDs
+ * are either attributes named "id" or attributes declared as IDs by a DTD, of elements without namespace, in a default
+ * namespace and with a prefix. Checks that renamed ID attributes and
+ * candidates matching a non-ID attribute are not found. Finally, counts the nodes loaded to find a
+ * few elements of a generated document with index and by traversal.
+ */
+public class IdIndexTest {
+
+	// <Configuration>
+	private final static long FILE_SIZE = 1024 * 1024;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static int NUMBER_OF_DTD_ELEMENTS = 1000;
+	private final static int NUMBER_OF_REQUESTED_IDS = 10;
+	private final static int CHILD_PAGE_SIZE = 16;
+	private final static long NODE_CACHE_CAPACITY = 1000;
+	// </Configuration>
+
+	private final static String[] MISSING_IDS = { "", "missing", "b-1", "bk100" };
+
+	public static void main(final String[] args) {
+		try {
+			final File generated = XmlFileGenerator.generate(new File("xml/big/ids-" + FILE_SIZE + ".xml"), ENCODING,
+					FILE_SIZE);
+			final File[] files = { generated, new File("xml/books.xml"), generateDtdFile("ids-dtd.xml", "", null),
+					generateDtdFile("ids-dtd-default-ns.xml", "", "urn:x"),
+					generateDtdFile("ids-dtd-prefixed.xml", "p:", "urn:p") };
+			final String[] encodings = { ENCODING, Charsets.ISO_8859_1.name(), Charsets.UTF_8.name(),
+					Charsets.UTF_8.name(), Charsets.UTF_8.name() };
+			final String[] idAttributes = { "id", "id", "key", "key", "key" };
+
+			int mismatches = 0;
+			for (int i = 0; i < files.length; ++i) {
+				new File(files[i].getPath() + OffsetIndex.FILE_EXTENSION).delete();
+				final Map<String, String> expected = collectIds(parse(files[i], encodings[i], false, 1, 0, false, 0),
+						idAttributes[i]);
+				mismatches += compare(files[i], "single-threaded", expected,
+						parse(files[i], encodings[i], true, 1, 0, false, 0));
+				mismatches += compare(files[i], "parallel", expected,
+						parse(files[i], encodings[i], true, 4, 0, false, 0));
+				mismatches += compare(files[i], "paged", expected,
+						parse(files[i], encodings[i], true, 1, CHILD_PAGE_SIZE, false, 0));
+				parse(files[i], encodings[i], true, 1, 0, true, 0);
+				mismatches += compare(files[i], "offset index", expected,
+						parse(files[i], encodings[i], true, 1, 0, true, 0));
+				new File(files[i].getPath() + OffsetIndex.FILE_EXTENSION).delete();
+			}
+			System.out.println(mismatches + " lookups differ from traversal.");
+
+			checkModification(generated);
+			checkRename(generated);
+			checkNonIdAttribute(files[2]);
+			countLoadedNodes(generated);
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	/**
+	 * Generates a document declaring its attributes "key" as IDs, hence they are indexed although not named "id".
+	 * 
+	 * @param prefix the prefix of the element names including the colon, or an empty string.
+	 * @param namespaceURI the namespace of the elements, null if none.
+	 */
+	private static File generateDtdFile(final String name, final String prefix, final String namespaceURI)
+			throws Exception {
+		final File file = new File("xml/big/" + name);
+		file.getParentFile().mkdirs();
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charsets.UTF_8);
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			writer.write("<!DOCTYPE " + prefix + "items [\n");
+			writer.write("\t<!ELEMENT " + prefix + "items (" + prefix + "item*)>\n");
+			writer.write("\t<!ELEMENT " + prefix + "item (" + prefix + "item*)>\n");
+			writer.write("\t<!ATTLIST " + prefix + "item key ID #REQUIRED label CDATA #IMPLIED>\n");
+			writer.write("]>\n");
+			final String namespace = prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix.substring(0, prefix.length() - 1);
+			writer.write("<" + prefix + "items");
+			if (namespaceURI != null) {
+				writer.write(" " + namespace + "=\"" + namespaceURI + "\"");
+			}
+			writer.write(">\n");
+			for (int i = 0; i < NUMBER_OF_DTD_ELEMENTS; ++i) {
+				writer.write("\t<" + prefix + "item key=\"k" + i + "\" label=\"ä" + i + "\"><" + prefix
+						+ "item key=\"n" + i + "\"/></" + prefix + "item>\n");
+			}
+			writer.write("</" + prefix + "items>\n");
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private static ScaleDomDocument parse(final File file, final String encoding, final boolean useIdIndex,
+			final int initialLoadThreads, final int childPageSize, final boolean useOffsetIndex,
+			final long nodeCacheCapacity) throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_ID_INDEX, useIdIndex);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_INITIALLOAD_THREADS, initialLoadThreads);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_CHILDPAGE_SIZE, childPageSize);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_OFFSETINDEX, useOffsetIndex);
+		if (nodeCacheCapacity > 0) {
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, nodeCacheCapacity);
+		}
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+		return (ScaleDomDocument) db.parse(new FileDocumentSource(file, encoding));
+	}
+
+	/**
+	 * Collects the IDs of all elements of a document by traversal.
+	 *
+	 * @return the digests of the elements by their IDs, the first element of duplicate IDs.
+	 */
+	private static Map<String, String> collectIds(final Document doc, final String attributeName) {
+		final Map<String, String> ids = new LinkedHashMap<String, String>();
+		new DOMTraverser(new DOMTraverserCallback() {
+			@Override
+			public void nodeTraversed(final Document doc, final Node node, final int level) {
+				if (node.getNodeType() == Node.ELEMENT_NODE && ((Element) node).hasAttribute(attributeName)) {
+					final String id = ((Element) node).getAttribute(attributeName);
+					if (!ids.containsKey(id)) {
+						ids.put(id, digest(node));
+					}
+				}
+			}
+		}).traverse(doc);
+		return ids;
+	}
+
+	/**
+	 * Looks up all expected and a few missing IDs in a document with index.
+	 *
+	 * @return the number of differing lookups.
+	 */
+	private static int compare(final File file, final String configuration, final Map<String, String> expected,
+			final ScaleDomDocument actual) {
+		if (actual.getIdIndex() == null) {
+			System.out.println(file.getName() + " (" + configuration + "): IDs have NOT been indexed.");
+			return 1;
+		}
+
+		int mismatches = 0;
+		for (final Map.Entry<String, String> entry : expected.entrySet()) {
+			mismatches += entry.getValue().equals(digest(actual.getElementById(entry.getKey()))) ? 0 : 1;
+		}
+		for (final String id : MISSING_IDS) {
+			mismatches += actual.getElementById(id) == null ? 0 : 1;
+		}
+
+		System.out.println(file.getName() + " (" + configuration + "): " + (expected.size() + MISSING_IDS.length)
+				+ " lookups of " + actual.getIdIndex().size() + " indexed IDs, " + mismatches + " differ.");
+		return mismatches;
+	}
+
+	/**
+	 * Modifies a document with index, the index has to be dropped and identifiers registered by the user have to be
+	 * found.
+	 */
+	private static void checkModification(final File file) throws Exception {
+		final ScaleDomDocument doc = parse(file, ENCODING, true, 1, 0, false, 0);
+		final Element book = doc.createElement("book");
+		book.setAttribute("id", "added");
+		book.setIdAttribute("id", true);
+		doc.getDocumentElement().appendChild(book);
+
+		final boolean ok = doc.getIdIndex() == null && doc.getElementById("added") == book;
+		System.out.println("Index " + (ok ? "is" : "is NOT") + " dropped on modifications of the document.");
+	}
+
+	/**
+	 * Renames the ID attribute of an element, which must not be found by its former ID anymore.
+	 */
+	private static void checkRename(final File file) throws Exception {
+		final ScaleDomDocument doc = parse(file, ENCODING, true, 1, 0, false, 0);
+		final String id = collectIds(parse(file, ENCODING, false, 1, 0, false, 0), "id").keySet().iterator().next();
+		final Element element = doc.getElementById(id);
+		doc.renameNode(element.getAttributeNode("id"), null, "ref");
+
+		final boolean ok = element.getAttribute("ref").equals(id) && doc.getIdIndex() == null
+				&& doc.getElementById(id) == null;
+		System.out.println("Renamed ID attributes " + (ok ? "are not" : "ARE") + " found.");
+	}
+
+	/**
+	 * Records the value of a non-ID attribute as ID of its element, as if the hashes of the value and of another ID
+	 * collided. The element must not be found by the value of its non-ID attribute.
+	 */
+	private static void checkNonIdAttribute(final File file) throws Exception {
+		final ScaleDomDocument doc = parse(file, Charsets.UTF_8.name(), true, 1, 0, false, 0);
+		final Element element = doc.getElementById("k0");
+		final long offset = ((FileNodeLocation) ((ParentNode) element).getNodeLocation()).getStartOffset();
+		final Method add = IdIndex.class.getDeclaredMethod("add", String.class, long.class);
+		add.setAccessible(true);
+		add.invoke(doc.getIdIndex(), element.getAttribute("label"), offset);
+
+		final boolean ok = doc.getElementById(element.getAttribute("label")) == null;
+		System.out.println("Non-ID attributes " + (ok ? "are not" : "ARE") + " compared to IDs.");
+	}
+
+	/**
+	 * Looks up a few IDs spread over a generated document, with index and by traversal.
+	 */
+	private static void countLoadedNodes(final File file) throws Exception {
+		final ScaleDomDocument expectedDoc = parse(file, ENCODING, false, 1, 0, false, 0);
+		final List<String> ids = new ArrayList<String>(collectIds(expectedDoc, "id").keySet());
+		final List<String> requestedIds = new ArrayList<String>();
+		for (int i = 0; i < NUMBER_OF_REQUESTED_IDS; ++i) {
+			requestedIds.add(ids.get((int) ((long) (i + 1) * ids.size() / NUMBER_OF_REQUESTED_IDS - 1)));
+		}
+
+		for (final boolean useIdIndex : new boolean[] { true, false }) {
+			final ScaleDomDocument doc = parse(file, ENCODING, useIdIndex, 1, CHILD_PAGE_SIZE, false,
+					NODE_CACHE_CAPACITY);
+			final long nodeCount = doc.getMetrics().getReloadNodeCount();
+			if (useIdIndex) {
+				for (final String id : requestedIds) {
+					doc.getElementById(id);
+				}
+			} else {
+				// A single traversal finds all requested elements
+				collectIds(doc, "id");
+			}
+			System.out.println("Finding " + NUMBER_OF_REQUESTED_IDS + " of " + ids.size() + " IDs "
+					+ (useIdIndex ? "with index" : "by traversal") + " loaded "
+					+ (doc.getMetrics().getReloadNodeCount() - nodeCount) + " nodes.");
+		}
+	}
+
+	/**
+	 * Returns a digest of an element, which identifies it by its name and offset.
+	 */
+	private static String digest(final Node node) {
+		if (node == null) {
+			return "null";
+		}
+		return node.getNodeName() + "@" + ((FileNodeLocation) ((ParentNode) node).getNodeLocation()).getStartOffset();
+	}
+}
@@ -0,0 +1,229 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.LazyText;
+import at.ac.tuwien.dsg.scaledom.dom.OffsetIndex;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.XmlParser;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.parser.impl.StaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Opens documents with and without lazy text in several configurations (character and byte locations, parallel
+ * initial load, reloads of paged children, offset index, coalescing and comment-ignoring parser) and checks that both
+ * documents are equal, including documents with references, CR and CRLF line breaks, non-ASCII characters, markup
+ * within texts and entities declared by a DTD. Checks that modified lazy text nodes keep their modifications. Finally,
+ * counts the text nodes of a generated document which are not read by a traversal of its structure.
+ */
+public class LazyTextTest {
+
+	// <Configuration>
+	private final static long FILE_SIZE = 16 * 1024 * 1024;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static long NODE_CACHE_CAPACITY = 1000;
+	private final static int CHILD_PAGE_SIZE = 16;
+	// </Configuration>
+
+	private final static String TEXTS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n<root>\r\n"
+			+ "  <a>Line one\r\nLine two\rLine three\nLine four</a>\r\n"
+			+ "  <b>Fish &amp; Chips &lt;3 &#233;t&#xE9; &quot;quoted&quot; &apos;s &gt;</b>\r\n"
+			+ "  <c>Grüße, 日本語, 😀 and &#x1F600;</c>\r\n"
+			+ "  <d>before<!-- comment -->after</d>\r\n" + "  <e>text <![CDATA[<cdata> & more]]> text</e>\r\n"
+			+ "  <f>a<?pi data?>b<g>nested\r\n</g>tail &#13;&#10;</f>\r\n" + "  <h>one\rtwo</h>\r\n"
+			+ "</root>\r\n";
+	/** Entities are resolved by the initial load only, hence they are referenced by children of the root only. */
+	private final static String ENTITIES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<!DOCTYPE root [<!ENTITY me \"entity value\">]>\n"
+			+ "<root>Hello &me; and &amp;<b>plain</b>&lt;&me;&gt;</root>\n";
+
+	public static void main(final String[] args) {
+		try {
+			final File generated = XmlFileGenerator.generate(new File("xml/big/lazytext-" + FILE_SIZE + ".xml"),
+					ENCODING, FILE_SIZE);
+			final File[] files = { new File("xml/books.xml"), new File("xml/booksns.xml"), generated,
+					write(new File("xml/big/lazytext-texts.xml"), TEXTS),
+					write(new File("xml/big/lazytext-entities.xml"), ENTITIES) };
+			final String[] encodings = { Charsets.ISO_8859_1.name(), Charsets.UTF_8.name(), ENCODING,
+					ENCODING, ENCODING };
+
+			int failures = 0;
+			for (int i = 0; i < files.length; ++i) {
+				int fileFailures = 0;
+				if (encodings[i].equals(Charsets.ISO_8859_1.name())) {
+					fileFailures += check(files[i], encodings[i], "character locations", StaxXmlParser.class, 1, 0,
+							false, false, false);
+				}
+				fileFailures += check(files[i], encodings[i], "byte locations", ByteOffsetStaxXmlParser.class, 1, 0,
+						false, false, false);
+				fileFailures += check(files[i], encodings[i], "parallel", ByteOffsetStaxXmlParser.class, 4, 0, false,
+						false, false);
+				fileFailures += check(files[i], encodings[i], "paged", ByteOffsetStaxXmlParser.class, 1,
+						CHILD_PAGE_SIZE, false, false, false);
+				fileFailures += check(files[i], encodings[i], "offset index", ByteOffsetStaxXmlParser.class, 1, 0,
+						true, false, false);
+				fileFailures += check(files[i], encodings[i], "coalescing", ByteOffsetStaxXmlParser.class, 1, 0,
+						false, true, false);
+				fileFailures += check(files[i], encodings[i], "ignoring comments", ByteOffsetStaxXmlParser.class, 1,
+						0, false, false, true);
+				System.out.println(files[i].getName() + ": " + fileFailures + " failures.");
+				failures += fileFailures;
+			}
+			failures += checkModification(files[3]);
+			System.out.println(failures + " failures.");
+
+			countLoadedTexts(generated);
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static File write(final File file, final String content) throws Exception {
+		file.getParentFile().mkdirs();
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charsets.UTF_8);
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private static ScaleDomDocument parse(final File file, final String encoding,
+			final Class<? extends XmlParser> parser, final int initialLoadThreads, final int childPageSize,
+			final boolean useOffsetIndex, final boolean coalescing, final boolean ignoringComments,
+			final boolean lazyText) throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setCoalescing(coalescing);
+		dbf.setIgnoringComments(ignoringComments);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, parser);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_INITIALLOAD_THREADS, initialLoadThreads);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_CHILDPAGE_SIZE, childPageSize);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_OFFSETINDEX, useOffsetIndex);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_LAZY_TEXT, lazyText);
+		if (childPageSize > 0) {
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, NODE_CACHE_CAPACITY);
+		}
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+		return (ScaleDomDocument) db.parse(new FileDocumentSource(file, encoding));
+	}
+
+	/**
+	 * Compares the document opened with lazy text to the document opened without, traversing the former twice.
+	 */
+	private static int check(final File file, final String encoding, final String configuration,
+			final Class<? extends XmlParser> parser, final int initialLoadThreads, final int childPageSize,
+			final boolean useOffsetIndex, final boolean coalescing, final boolean ignoringComments) throws Exception {
+		final String expected = signature(parse(file, encoding, parser, initialLoadThreads, childPageSize, false,
+				coalescing, ignoringComments, false));
+
+		final File index = new File(file.getPath() + OffsetIndex.FILE_EXTENSION);
+		index.delete();
+		if (useOffsetIndex) {
+			parse(file, encoding, parser, initialLoadThreads, childPageSize, true, coalescing, ignoringComments, true);
+		}
+		final ScaleDomDocument doc = parse(file, encoding, parser, initialLoadThreads, childPageSize,
+				useOffsetIndex, coalescing, ignoringComments, true);
+		index.delete();
+
+		int failures = 0;
+		for (int i = 0; i < 2; ++i) {
+			if (!expected.equals(signature(doc))) {
+				System.out.println("  " + configuration + ": document differs (traversal " + (i + 1) + ").");
+				++failures;
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Modifies lazy text nodes, which must keep their modifications instead of reading the document source again.
+	 */
+	private static int checkModification(final File file) throws Exception {
+		final ScaleDomDocument doc = parse(file, ENCODING, ByteOffsetStaxXmlParser.class, 1, 0, false, false, false,
+				true);
+		final Node root = doc.getDocumentElement();
+		final Text a = (Text) root.getChildNodes().item(1).getFirstChild();
+		final Text b = (Text) root.getChildNodes().item(3).getFirstChild();
+		final Text c = (Text) root.getChildNodes().item(5).getFirstChild();
+
+		int failures = 0;
+		for (final Text text : new Text[] { a, b, c }) {
+			if (!(text instanceof LazyText) || ((LazyText) text).isDataLoaded()) {
+				System.out.println("  Text '" + text.getData() + "' is not lazy.");
+				++failures;
+			}
+		}
+		a.setData("modified");
+		b.appendData(" appended");
+		final Text split = c.splitText(5);
+		if (!"modified".equals(a.getData()) || !b.getData().endsWith("'s > appended") || !"Grüße".equals(
+				c.getData()) || !split.getData().startsWith(", ") || !doc.isModified()) {
+			System.out.println("  Modifications are lost: '" + a.getData() + "', '" + b.getData() + "', '"
+					+ c.getData() + "', '" + split.getData() + "'.");
+			++failures;
+		}
+		return failures;
+	}
+
+	/**
+	 * Traverses the structure of a document, i.e. the names of its nodes only, and counts the text nodes whose data
+	 * has been read.
+	 */
+	private static void countLoadedTexts(final File file) throws Exception {
+		final ScaleDomDocument doc = parse(file, ENCODING, ByteOffsetStaxXmlParser.class, 1, 0, false, false, false,
+				true);
+		final long bytesRead = doc.getMetrics().getBytesRead();
+		final int[] counts = new int[2];
+		new DOMTraverser(new DOMTraverserCallback() {
+			@Override
+			public void nodeTraversed(final Document doc, final Node node, final int level) {
+				node.getNodeName();
+				if (node instanceof Text) {
+					++counts[0];
+					if (node instanceof LazyText && !((LazyText) node).isDataLoaded()) {
+						++counts[1];
+					}
+				}
+			}
+		}).traverse(doc);
+		System.out.println("Structure traversal: " + counts[1] + " of " + counts[0] + " text nodes have not been "
+				+ "read, " + (doc.getMetrics().getBytesRead() - bytesRead) + " bytes read after the initial load.");
+	}
+
+	/**
+	 * Returns the types, names and values of all nodes of a document in document order.
+	 */
+	private static String signature(final Document doc) {
+		final StringBuilder signature = new StringBuilder();
+		new DOMTraverser(new DOMTraverserCallback() {
+			@Override
+			public void nodeTraversed(final Document doc, final Node node, final int level) {
+				signature.append(node.getNodeType()).append(node.getNodeName()).append('=')
+						.append(node.getNodeValue()).append(';');
+			}
+		}).traverse(doc);
+		return signature.toString();
+	}
+}
@@ -0,0 +1,109 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.OffsetIndex;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Traverses documents repeatedly with a small node cache, so that children are unloaded and reloaded, and checks that
+ * all names of the nodes loaded by the initial load (single-threaded, parallel and restored from the offset index)
+ * and by reloads are shared instances: there must be as many name instances as distinct names.
+ */
+public class NamePoolTest {
+
+	// <Configuration>
+	private final static long FILE_SIZE = 1024 * 1024;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static long NODE_CACHE_CAPACITY = 1000;
+	private final static int NUMBER_OF_TRAVERSALS = 3;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final File generated = XmlFileGenerator.generate(new File("xml/big/names-" + FILE_SIZE + ".xml"),
+					ENCODING, FILE_SIZE);
+			final File[] files = { generated, new File("xml/booksns.xml") };
+
+			int failures = 0;
+			for (final File file : files) {
+				new File(file.getPath() + OffsetIndex.FILE_EXTENSION).delete();
+				failures += check(file, "single-threaded", parse(file, 1, false));
+				failures += check(file, "parallel", parse(file, 4, false));
+				parse(file, 1, true);
+				failures += check(file, "offset index", parse(file, 1, true));
+				new File(file.getPath() + OffsetIndex.FILE_EXTENSION).delete();
+			}
+			System.out.println(failures + " documents have names which are not shared.");
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static ScaleDomDocument parse(final File file, final int initialLoadThreads, final boolean useOffsetIndex)
+			throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, NODE_CACHE_CAPACITY);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_INITIALLOAD_THREADS, initialLoadThreads);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_OFFSETINDEX, useOffsetIndex);
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+		return (ScaleDomDocument) db.parse(new FileDocumentSource(file, ENCODING));
+	}
+
+	private static int check(final File file, final String configuration, final ScaleDomDocument doc) {
+		final Set<String> names = new HashSet<String>();
+		final Set<String> instances = Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+		for (int i = 0; i < NUMBER_OF_TRAVERSALS; ++i) {
+			new DOMTraverser(new DOMTraverserCallback() {
+				@Override
+				public void nodeTraversed(final Document doc, final Node node, final int level) {
+					if (node.getNodeType() != Node.ELEMENT_NODE) {
+						return;
+					}
+					add(node.getNodeName());
+					add(node.getLocalName());
+					add(node.getNamespaceURI());
+					final NamedNodeMap attributes = node.getAttributes();
+					for (int j = 0; j < attributes.getLength(); ++j) {
+						add(attributes.item(j).getNodeName());
+					}
+				}
+
+				private void add(final String name) {
+					if (name != null) {
+						names.add(name);
+						instances.add(name);
+					}
+				}
+			}).traverse(doc);
+		}
+
+		System.out.println(file.getName() + " (" + configuration + "): " + names.size() + " distinct names, "
+				+ instances.size() + " instances, " + doc.getMetrics().getReloadNodeCount() + " nodes reloaded.");
+		return names.size() == instances.size() ? 0 : 1;
+	}
+}
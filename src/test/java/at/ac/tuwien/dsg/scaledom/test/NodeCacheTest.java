@@ -0,0 +1,78 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.NodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.cache.impl.EstimatedSizeNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.cache.impl.NoOpNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.NoOpCallback;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Traverses a generated document repeatedly using different <code>NodeCacheManager</code> implementations and
+ * capacities, and prints the resulting hit rates. The file size in bytes may be passed as first argument.
+ */
+public class NodeCacheTest {
+
+	// <Configuration>
+	private final static long DEFAULT_FILE_SIZE = 256L * 1024 * 1024;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static int TRAVERSAL_COUNT = 3;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final long fileSize = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_FILE_SIZE;
+			final File file = XmlFileGenerator.generate(new File("xml/big/nodecache-" + fileSize + ".xml"), ENCODING,
+					fileSize);
+
+			traverse(file, NoOpNodeCacheManager.class, 0);
+			traverse(file, WindowTinyLfuNodeCacheManager.class, 10000);
+			traverse(file, WindowTinyLfuNodeCacheManager.class, 1000000);
+			traverse(file, EstimatedSizeNodeCacheManager.class, 64L * 1024 * 1024);
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static void traverse(final File file, final Class<? extends NodeCacheManager> implType,
+			final long capacity) throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, implType);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, capacity);
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+		final ScaleDomDocument doc = (ScaleDomDocument) db.parse(new FileDocumentSource(file, ENCODING));
+
+		final String name = implType.getSimpleName() + " (capacity " + capacity + ")";
+		new MeasuredTask<Void>(TRAVERSAL_COUNT + " DOM traversals, " + name) {
+			@Override
+			protected Void runTask() throws Exception {
+				for (int i = 0; i < TRAVERSAL_COUNT; ++i) {
+					new DOMTraverser(new NoOpCallback()).traverse(doc);
+				}
+				return null;
+			}
+		}.run();
+
+		final NodeCacheManager cache = doc.getNodeCacheManager();
+		final long accesses = cache.getHitCount() + cache.getMissCount();
+		System.out.println(name + ": " + cache.getHitCount() + " hits, " + cache.getMissCount() + " misses ("
+				+ (accesses > 0 ? 100 * cache.getHitCount() / accesses : 0) + "% hit rate), "
+				+ cache.getEvictionCount() + " evictions, weight " + cache.getWeight());
+	}
+}
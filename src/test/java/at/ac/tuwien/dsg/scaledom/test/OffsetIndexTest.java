@@ -0,0 +1,108 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.dom.OffsetIndex;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.NoOpCallback;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.SignatureCallback;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.UnloadCallback;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Measures the time required to open a generated document without offset index, while building the offset index and
+ * while restoring from the offset index. Then compares the signatures of the parsed and the restored document, after
+ * opening and after forced reloads below the restored level. The file size in bytes may be passed as first argument.
+ */
+public class OffsetIndexTest {
+
+	// <Configuration>
+	private final static long DEFAULT_FILE_SIZE = 4L * 1024 * 1024;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static int REOPEN_COUNT = 5;
+	private final static int RELOAD_COUNT = 2;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final long fileSize = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_FILE_SIZE;
+			final File file = XmlFileGenerator.generate(new File("xml/big/offsetindex-" + fileSize + ".xml"),
+					ENCODING, fileSize);
+			new File(file.getPath() + OffsetIndex.FILE_EXTENSION).delete();
+
+			open("Opening without offset index", file, false);
+			open("Opening, building offset index", file, true);
+			for (int i = 0; i < REOPEN_COUNT; ++i) {
+				open("Reopening from offset index (" + (i + 1) + ")", file, true);
+			}
+
+			final Document doc = open("Reopening from offset index", file, true);
+			new MeasuredTask<Void>("DOM traversal after reopening") {
+				@Override
+				protected Void runTask() throws Exception {
+					new DOMTraverser(new NoOpCallback()).traverse(doc);
+					return null;
+				}
+			}.run();
+
+			compareSignatures(file);
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	/**
+	 * Compares the signatures of the document parsed without offset index and of the document restored from the
+	 * offset index, after opening and after each forced reload.
+	 */
+	private static void compareSignatures(final File file) throws Exception {
+		final String expected = SignatureCallback.signature(open("Opening without offset index", file, false));
+		System.out.println("Parsed: " + expected);
+
+		final ScaleDomDocument doc = (ScaleDomDocument) open("Reopening from offset index", file, true);
+		System.out.println("Restored: " + doc.getMetrics().getBytesRead() + " bytes read by the initial load.");
+		int mismatches = 0;
+		for (int i = 0; i <= RELOAD_COUNT; ++i) {
+			final String prefix = i == 0 ? "Restored" : "Reload #" + i;
+			if (i > 0) {
+				System.out.println(prefix + ": " + UnloadCallback.unloadAll(doc) + " children lists unloaded.");
+			}
+			final String signature = SignatureCallback.signature(doc);
+			final boolean equal = expected.equals(signature);
+			System.out.println(prefix + ": signature " + (equal ? "equal" : "NOT equal: " + signature));
+			if (!equal) {
+				++mismatches;
+			}
+		}
+		System.out.println(mismatches + " signatures of the restored document differ from the parsed document.");
+	}
+
+	private static Document open(final String taskName, final File file, final boolean useOffsetIndex)
+			throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_OFFSETINDEX, useOffsetIndex);
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+
+		return new MeasuredTask<Document>(taskName) {
+			@Override
+			protected Document runTask() throws Exception {
+				return db.parse(new FileDocumentSource(file, ENCODING));
+			}
+		}.run();
+	}
+}
@@ -0,0 +1,105 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+import java.util.Random;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.xerces.dom.ParentNode;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.NodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Navigates the children of a document element with a huge number of children, which are split into pages. Only the
+ * pages being accessed are loaded, the node cache manager bounds the number of held nodes. The number of children may
+ * be passed as first argument.
+ */
+public class PagedChildrenTest {
+
+	// <Configuration>
+	private final static int DEFAULT_NUMBER_OF_RECORDS = 1000000;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static int CHILD_PAGE_SIZE = 1024;
+	private final static long NODE_CACHE_CAPACITY = 100000;
+	private final static int RANDOM_ACCESS_COUNT = 10000;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final int numberOfRecords = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NUMBER_OF_RECORDS;
+			final File file = XmlFileGenerator.generateRecords(new File("xml/big/paged-" + numberOfRecords
+					+ ".xml"), ENCODING, numberOfRecords);
+
+			final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+			dbf.setNamespaceAware(true);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, NODE_CACHE_CAPACITY);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_CHILDPAGE_SIZE, CHILD_PAGE_SIZE);
+			final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+
+			final ScaleDomDocument doc = new MeasuredTask<ScaleDomDocument>("Initial load of " + numberOfRecords
+					+ " records") {
+				@Override
+				protected ScaleDomDocument runTask() throws Exception {
+					return (ScaleDomDocument) db.parse(new FileDocumentSource(file, ENCODING));
+				}
+			}.run();
+			final ParentNode root = (ParentNode) doc.getDocumentElement();
+			System.out.println(root.getLength() + " children in " + root.getChildPageTable().size() + " pages.");
+
+			final int siblings = new MeasuredTask<Integer>("Sibling navigation over " + numberOfRecords + " records") {
+				@Override
+				protected Integer runTask() throws Exception {
+					int count = 0;
+					for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+						if (child.getNodeType() == Node.ELEMENT_NODE) {
+							++count;
+						}
+					}
+					return count;
+				}
+			}.run();
+			System.out.println(siblings + " records reached by sibling navigation.");
+
+			final int matches = new MeasuredTask<Integer>(RANDOM_ACCESS_COUNT + " random accesses by index") {
+				@Override
+				protected Integer runTask() throws Exception {
+					// Records and line breaks alternate
+					final NodeList children = root.getChildNodes();
+					final Random random = new Random(42);
+					int count = 0;
+					for (int i = 0; i < RANDOM_ACCESS_COUNT; ++i) {
+						final int record = random.nextInt(numberOfRecords);
+						final Element element = (Element) children.item(record * 2);
+						if (element.getAttribute("id").equals("r" + record)) {
+							++count;
+						}
+					}
+					return count;
+				}
+			}.run();
+			System.out.println(matches + " of " + RANDOM_ACCESS_COUNT + " records found at their index.");
+
+			final NodeCacheManager nodeCacheManager = doc.getNodeCacheManager();
+			System.out.println("Node cache: " + nodeCacheManager.getWeight() + " nodes held, "
+					+ nodeCacheManager.getEvictionCount() + " evictions.");
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.NoOpCallback;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.SignatureCallback;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Measures the time required to open a generated document with a single thread and with one thread per available
+ * processor, and compares the number of children of both document elements. Then compares the signatures of the
+ * documents opened with 1, 4 and 8 threads, traversed once after opening and once more after a garbage collection.
+ * The node cache is small, hence the second traversal reloads most nodes. The file size in bytes may be passed as
+ * first argument, the number of threads as second argument.
+ */
+public class ParallelInitialLoadTest {
+
+	// <Configuration>
+	private final static long DEFAULT_FILE_SIZE = 2L * 1024 * 1024 * 1024;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static int[] COMPARED_NUMBERS_OF_THREADS = { 1, 4, 8 };
+	private final static long NODE_CACHE_CAPACITY = 10000;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final long fileSize = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_FILE_SIZE;
+			final File file = XmlFileGenerator.generate(new File("xml/big/parallel-" + fileSize + ".xml"), ENCODING,
+					fileSize);
+			final int numberOfThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime()
+					.availableProcessors();
+
+			final int sequentialChildren = open("Opening with 1 thread", file, 1, 0).getDocumentElement()
+					.getChildNodes().getLength();
+			System.gc();
+			final Document doc = open("Opening with " + numberOfThreads + " threads", file, numberOfThreads, 0);
+			final int parallelChildren = doc.getDocumentElement().getChildNodes().getLength();
+			System.out.println("Children of the document element: " + sequentialChildren + " (1 thread), "
+					+ parallelChildren + " (" + numberOfThreads + " threads)");
+
+			new MeasuredTask<Void>("DOM traversal after parallel opening") {
+				@Override
+				protected Void runTask() throws Exception {
+					new DOMTraverser(new NoOpCallback()).traverse(doc);
+					return null;
+				}
+			}.run();
+
+			compareSignatures(file);
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	/**
+	 * Compares the signatures of the document opened with different numbers of threads, before and after reloads.
+	 */
+	private static void compareSignatures(final File file) throws Exception {
+		String expected = null;
+		int mismatches = 0;
+		for (final int numberOfThreads : COMPARED_NUMBERS_OF_THREADS) {
+			final String threads = numberOfThreads + (numberOfThreads == 1 ? " thread" : " threads");
+			System.gc();
+			final ScaleDomDocument doc = open("Opening with " + threads + " and a small node cache", file,
+					numberOfThreads, NODE_CACHE_CAPACITY);
+			final String signature = SignatureCallback.signature(doc);
+			System.gc();
+			final long reloadedNodes = doc.getMetrics().getReloadNodeCount();
+			final String reloadedSignature = SignatureCallback.signature(doc);
+			if (expected == null) {
+				expected = signature;
+			}
+
+			final boolean equal = expected.equals(signature) && expected.equals(reloadedSignature);
+			System.out.println(threads + ": signature " + (equal ? "equal" : "NOT equal") + ", "
+					+ (doc.getMetrics().getReloadNodeCount() - reloadedNodes) + " nodes reloaded after GC.");
+			if (!equal) {
+				++mismatches;
+			}
+		}
+		System.out.println(mismatches + " documents differ from the document opened with 1 thread.");
+	}
+
+	private static ScaleDomDocument open(final String taskName, final File file, final int numberOfThreads,
+			final long nodeCacheCapacity) throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_INITIALLOAD_THREADS, numberOfThreads);
+		if (nodeCacheCapacity > 0) {
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, nodeCacheCapacity);
+		}
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+
+		return new MeasuredTask<ScaleDomDocument>(taskName) {
+			@Override
+			protected ScaleDomDocument runTask() throws Exception {
+				return (ScaleDomDocument) db.parse(new FileDocumentSource(file, ENCODING));
+			}
+		}.run();
+	}
+}
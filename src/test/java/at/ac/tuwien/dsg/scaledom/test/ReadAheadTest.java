@@ -0,0 +1,102 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.cache.impl.WindowTinyLfuNodeCacheManager;
+import at.ac.tuwien.dsg.scaledom.dom.ReadAheadPrefetcher;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+import at.ac.tuwien.dsg.scaledom.test.util.Records;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Processes the records of a document in document order by sibling navigation, once without and once with reading
+ * ahead. The node cache is smaller than the document, hence the children of most records have to be reloaded, either
+ * when they are accessed or ahead of that in the background. Both runs have to process the same content. The maximum
+ * read-ahead window may be passed as first argument.
+ */
+public class ReadAheadTest {
+
+	// <Configuration>
+	private final static int DEFAULT_READ_AHEAD_WINDOW = 32;
+	private final static int NUMBER_OF_RECORDS = 20000;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static long NODE_CACHE_CAPACITY = 1000;
+	private final static int ROUNDS = 3;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final int readAheadWindow = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_READ_AHEAD_WINDOW;
+			final File file = XmlFileGenerator.generateRecords(new File("xml/big/readahead-" + NUMBER_OF_RECORDS
+					+ ".xml"), ENCODING, NUMBER_OF_RECORDS);
+
+			final ScaleDomDocument doc = load(file, 0);
+			final ScaleDomDocument readAheadDoc = load(file, readAheadWindow);
+
+			for (int round = 0; round < ROUNDS; ++round) {
+				final long expected = new MeasuredTask<Long>("Processing without reading ahead") {
+					@Override
+					protected Long runTask() throws Exception {
+						return process(doc);
+					}
+				}.run();
+				final long actual = new MeasuredTask<Long>("Processing with a read-ahead window of up to "
+						+ readAheadWindow) {
+					@Override
+					protected Long runTask() throws Exception {
+						return process(readAheadDoc);
+					}
+				}.run();
+				System.out.println("Sum without reading ahead " + expected + ", with reading ahead " + actual + ": "
+						+ (expected == actual ? "equal." : "NOT equal!"));
+			}
+
+			final ReadAheadPrefetcher prefetcher = readAheadDoc.getReadAheadPrefetcher();
+			System.out.println("Read-ahead: " + prefetcher.getPrefetchCount() + " prefetches, "
+					+ prefetcher.getHitCount() + " hits, " + prefetcher.getWasteCount() + " wasted.");
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static ScaleDomDocument load(final File file, final int readAheadWindow) throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHEMANAGER_IMPLEMENTATION, WindowTinyLfuNodeCacheManager.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_NODECACHE_CAPACITY, NODE_CACHE_CAPACITY);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_CONCURRENT_READS, Boolean.TRUE);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_READAHEAD_WINDOW, readAheadWindow);
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+
+		return new MeasuredTask<ScaleDomDocument>("Initial load of " + NUMBER_OF_RECORDS + " records") {
+			@Override
+			protected ScaleDomDocument runTask() throws Exception {
+				return (ScaleDomDocument) db.parse(new FileDocumentSource(file, ENCODING));
+			}
+		}.run();
+	}
+
+	/**
+	 * Processes all records, i.e. sums up their values.
+	 */
+	private static long process(final ScaleDomDocument doc) {
+		long sum = 0;
+		for (Node record = doc.getDocumentElement().getFirstChild(); record != null; record = record.getNextSibling()) {
+			sum += Records.sumValues(record);
+		}
+		return sum;
+	}
+}
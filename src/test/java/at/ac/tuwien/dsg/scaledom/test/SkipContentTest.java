@@ -0,0 +1,84 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.xerces.dom.ParentNode;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.lazy.impl.DefaultLazyLoadingStrategy;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.test.util.dom.SignatureCallback;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Reloads the children of a parent node with many large children repeatedly. The first reload parses the children's
+ * content and records its ranges, the following reloads skip it. After each reload the signature of the document is
+ * computed, which reloads the content of the children at their locations, and the signatures of the skipping reloads
+ * are compared with the one of the parsing reload. The number of children may be passed as first argument.
+ */
+public class SkipContentTest {
+
+	// <Configuration>
+	private final static int DEFAULT_NUMBER_OF_RECORDS = 10000;
+	private final static int FIELDS_PER_RECORD = 20;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static int RELOAD_COUNT = 3;
+	// </Configuration>
+
+	public static void main(final String[] args) {
+		try {
+			final int numberOfRecords = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NUMBER_OF_RECORDS;
+			final File file = XmlFileGenerator.generateRecords(new File("xml/big/skipcontent-" + numberOfRecords
+					+ ".xml"), ENCODING, numberOfRecords, FIELDS_PER_RECORD);
+
+			final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+			dbf.setNamespaceAware(true);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_LAZYLOADINGSTRATEGY_IMPLEMENTATION, DefaultLazyLoadingStrategy.class);
+			final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+			final ScaleDomDocument doc = (ScaleDomDocument) db.parse(new FileDocumentSource(file, ENCODING));
+			final ParentNode records = (ParentNode) doc.getDocumentElement();
+
+			reload(doc, records, "Reload of " + numberOfRecords + " records, parsing their content");
+			final String expected = SignatureCallback.signature(doc);
+			System.out.println("Parsing reload: " + expected);
+			int mismatches = 0;
+			for (int i = 0; i < RELOAD_COUNT; ++i) {
+				reload(doc, records, "Reload of " + numberOfRecords + " records, skipping their content");
+				final String signature = SignatureCallback.signature(doc);
+				final boolean equal = expected.equals(signature);
+				System.out.println("Skipping reload #" + (i + 1) + ": signature "
+						+ (equal ? "equal" : "NOT equal: " + signature));
+				if (!equal) {
+					++mismatches;
+				}
+			}
+			System.out.println(mismatches + " skipping reloads differ from the parsing reload.");
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static void reload(final ScaleDomDocument doc, final ParentNode records, final String name)
+			throws Exception {
+		doc.unload(records, records.getLoadedChildNodes());
+
+		final int length = new MeasuredTask<Integer>(name) {
+			@Override
+			protected Integer runTask() throws Exception {
+				return records.getChildNodes().getLength();
+			}
+		}.run();
+		System.out.println(length + " children, the first record has "
+				+ records.getFirstChild().getChildNodes().getLength() + " children.");
+	}
+}
@@ -0,0 +1,294 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.apache.xerces.dom.ParentNode;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.dom.OffsetIndex;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileNodeLocation;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MapNamespaceContext;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+import at.ac.tuwien.dsg.scaledom.xpath.StreamingXPath;
+import at.ac.tuwien.dsg.scaledom.xpath.StreamingXPathBatch;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Compares the results of streaming XPath expressions to the results of <code>javax.xml.xpath</code> on a DOM parsed
+ * by the JDK's <code>DocumentBuilderFactory</code>, elements are identified by their positions in document order.
+ * Expressions are evaluated by forward passes over the document source, by the element name index (with and without
+ * paged children, and restored from the offset index) and by traversing a modified document. Finally, compares the
+ * nodes loaded and the bytes read to find a single element of a generated document by <code>javax.xml.xpath</code>
+ * and by streaming XPath. Batches of all expressions of a document have to yield the same results as the single
+ * expressions, and a batch has to read the document source once.
+ */
+public class StreamingXPathTest {
+
+	// <Configuration>
+	private final static long FILE_SIZE = 1024 * 1024;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static int CHILD_PAGE_SIZE = 16;
+	private final static int BATCH_REPETITIONS = 6;
+	// </Configuration>
+
+	private final static String[] BOOKS_EXPRESSIONS = { "/catalog", "/catalog/book", "//book", "//book[@id='bk105']",
+			"/catalog/book[3]", "/catalog/book[3]/title", "//book[@id!='bk101'][2]/author", "//*", "/*/*[2]",
+			"//title", "/catalog//price", "//book[2][@id='bk102']", "//book[2][@id='bk103']", "//missing", "/book",
+			"//book[@missing]", "/catalog/*[position()=5]", "//*[3]", "/ child::catalog / child::book [ 12 ] " };
+	private final static String[] BOOKSNS_EXPRESSIONS = { "/b:catalog/b:book", "//s:inner/s:innerinner", "//s:*",
+			"//d:*", "//b:book[@id='bk102']/b:title", "//*[2]", "/b:catalog/b:book[1]/*[6]", "//book", "//b:*[@id]",
+			"/b:catalog//s:innerinner" };
+	private final static String[] GENERATED_EXPRESSIONS = { "//para[2]", "//book[@id='b1000']/chapter/para[1]",
+			"/library/book[500]/author", "//chapter[@no='1']/para", "//*[@title][7]", "/library/book/chapter/para[3]",
+			"//book[@id='b5']//para" };
+
+	public static void main(final String[] args) {
+		try {
+			final File generated = XmlFileGenerator.generate(new File("xml/big/xpath-" + FILE_SIZE + ".xml"),
+					ENCODING, FILE_SIZE);
+			final File[] files = { new File("xml/books.xml"), new File("xml/booksns.xml"), generated };
+			final String[] encodings = { Charsets.ISO_8859_1.name(), Charsets.UTF_8.name(), ENCODING };
+			final String[][] expressions = { BOOKS_EXPRESSIONS, BOOKSNS_EXPRESSIONS, GENERATED_EXPRESSIONS };
+
+			final Map<String, String> namespaces = new HashMap<String, String>();
+			namespaces.put("b", "http://www.example.com/books/");
+			namespaces.put("d", "http://www.example.com/descriptions/");
+			namespaces.put("s", "http://www.example.com/descriptions/2.0/");
+			final NamespaceContext namespaceContext = new MapNamespaceContext(namespaces);
+
+			int mismatches = 0;
+			for (int i = 0; i < files.length; ++i) {
+				new File(files[i].getPath() + OffsetIndex.FILE_EXTENSION).delete();
+				final Map<Long, Integer> ordinals = elementOrdinals(parse(files[i], encodings[i], false, 0, false));
+				final Document expectedDoc = parseWithJdk(files[i], encodings[i]);
+				final Map<Node, Integer> expectedOrdinals = elementOrdinals(expectedDoc);
+				final XPath xpath = XPathFactory.newInstance().newXPath();
+				xpath.setNamespaceContext(namespaceContext);
+
+				final ScaleDomDocument source = parse(files[i], encodings[i], false, 0, false);
+				final ScaleDomDocument index = parse(files[i], encodings[i], true, 0, false);
+				final ScaleDomDocument paged = parse(files[i], encodings[i], true, CHILD_PAGE_SIZE, false);
+				parse(files[i], encodings[i], true, 0, true);
+				final ScaleDomDocument restored = parse(files[i], encodings[i], true, 0, true);
+				final ScaleDomDocument modified = parse(files[i], encodings[i], true, 0, false);
+				modified.getDocumentElement().appendChild(modified.createComment("modified"));
+				new File(files[i].getPath() + OffsetIndex.FILE_EXTENSION).delete();
+
+				int numberOfEvaluations = 0;
+				int fileMismatches = 0;
+				final List<StreamingXPath> batch = new ArrayList<StreamingXPath>();
+				final List<String> batchExpected = new ArrayList<String>();
+				for (final String expression : expressions[i]) {
+					final StringBuilder expected = new StringBuilder();
+					final NodeList expectedNodes = (NodeList) xpath.evaluate(expression, expectedDoc,
+							XPathConstants.NODESET);
+					for (int j = 0; j < expectedNodes.getLength(); ++j) {
+						expected.append(expectedOrdinals.get(expectedNodes.item(j))).append(' ');
+					}
+
+					final StreamingXPath compiled = StreamingXPath.compile(expression, namespaceContext);
+					batch.add(compiled);
+					batchExpected.add(expected.toString());
+					for (final ScaleDomDocument doc : new ScaleDomDocument[] { source, index, paged, restored,
+							modified }) {
+						final NodeList actualNodes = compiled.evaluate(doc);
+						final StringBuilder actual = new StringBuilder();
+						for (int j = 0; j < actualNodes.getLength(); ++j) {
+							actual.append(ordinals.get(offset(actualNodes.item(j)))).append(' ');
+						}
+						final Node actualFirst = compiled.evaluateFirst(doc);
+						final boolean firstOk = actualFirst == null ? expectedNodes.getLength() == 0 : ordinals.get(
+								offset(actualFirst)).equals(expectedOrdinals.get(expectedNodes.item(0)));
+						if (!expected.toString().equals(actual.toString()) || !firstOk) {
+							System.out.println("  '" + expression + "' differs: expected " + expected + "but got "
+									+ actual);
+							++fileMismatches;
+						}
+						++numberOfEvaluations;
+					}
+				}
+				for (final ScaleDomDocument doc : new ScaleDomDocument[] { source, index, paged, restored, modified }) {
+					final List<NodeList> results = new StreamingXPathBatch(batch).evaluate(doc);
+					for (int j = 0; j < results.size(); ++j) {
+						final StringBuilder actual = new StringBuilder();
+						for (int k = 0; k < results.get(j).getLength(); ++k) {
+							actual.append(ordinals.get(offset(results.get(j).item(k)))).append(' ');
+						}
+						if (!batchExpected.get(j).equals(actual.toString())) {
+							System.out.println("  '" + batch.get(j) + "' differs in batch: expected "
+									+ batchExpected.get(j) + "but got " + actual);
+							++fileMismatches;
+						}
+						++numberOfEvaluations;
+					}
+				}
+				System.out.println(files[i].getName() + ": " + numberOfEvaluations + " evaluations, " + fileMismatches
+						+ " differ.");
+				mismatches += fileMismatches;
+			}
+			System.out.println(mismatches + " evaluations differ from javax.xml.xpath.");
+
+			checkUnsupported();
+			countLoadedNodes(generated);
+			countBytesRead(generated);
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static ScaleDomDocument parse(final File file, final String encoding, final boolean useElementNameIndex,
+			final int childPageSize, final boolean useOffsetIndex) throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_ELEMENTNAME_INDEX, useElementNameIndex);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_CHILDPAGE_SIZE, childPageSize);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_OFFSETINDEX, useOffsetIndex);
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+		return (ScaleDomDocument) db.parse(new FileDocumentSource(file, encoding));
+	}
+
+	private static Document parseWithJdk(final File file, final String encoding) throws Exception {
+		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		dbf.setNamespaceAware(true);
+		final Reader reader = new InputStreamReader(new FileInputStream(file), encoding);
+		try {
+			return dbf.newDocumentBuilder().parse(new InputSource(reader));
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Expressions outside of the streamable subset have to be rejected.
+	 */
+	private static void checkUnsupported() {
+		final String[] unsupported = { "catalog/book", "//book/@id", "//book[last()]", "/descendant::book",
+				"//book[@id=1]", "//x:book", "/", "//book[0]" };
+		int rejected = 0;
+		for (final String expression : unsupported) {
+			try {
+				StreamingXPath.compile(expression);
+			} catch (final Exception ex) {
+				++rejected;
+			}
+		}
+		System.out.println(rejected + " of " + unsupported.length + " unsupported expressions have been rejected.");
+	}
+
+	/**
+	 * Finds a single element near the end of a generated document by javax.xml.xpath and by streaming XPath.
+	 */
+	private static void countLoadedNodes(final File file) throws Exception {
+		final String expression = "//book[@id='b4000']/author";
+		final ScaleDomDocument jaxp = parse(file, ENCODING, false, 0, false);
+		long nodes = jaxp.getMetrics().getReloadNodeCount();
+		long bytes = jaxp.getMetrics().getBytesRead();
+		final Node expected = (Node) XPathFactory.newInstance().newXPath()
+				.evaluate(expression, jaxp, XPathConstants.NODE);
+		System.out.println("javax.xml.xpath loaded " + (jaxp.getMetrics().getReloadNodeCount() - nodes)
+				+ " nodes and read " + (jaxp.getMetrics().getBytesRead() - bytes) + " bytes.");
+
+		for (final boolean useElementNameIndex : new boolean[] { false, true }) {
+			final ScaleDomDocument doc = parse(file, ENCODING, useElementNameIndex, 0, false);
+			nodes = doc.getMetrics().getReloadNodeCount();
+			bytes = doc.getMetrics().getBytesRead();
+			final Node actual = StreamingXPath.compile(expression).evaluateFirst(doc);
+			System.out.println("Streaming XPath " + (useElementNameIndex ? "with index" : "by forward pass")
+					+ " loaded " + (doc.getMetrics().getReloadNodeCount() - nodes) + " nodes and read "
+					+ (doc.getMetrics().getBytesRead() - bytes) + " bytes, "
+					+ (offset(actual) == offset(expected) ? "same" : "NOT the same") + " element.");
+		}
+	}
+
+	/**
+	 * Evaluates the repeated expressions of the generated document one after the other and as a batch, by forward
+	 * passes.
+	 */
+	private static void countBytesRead(final File file) throws Exception {
+		final List<StreamingXPath> batch = new ArrayList<StreamingXPath>();
+		for (int i = 0; i < BATCH_REPETITIONS; ++i) {
+			for (final String expression : GENERATED_EXPRESSIONS) {
+				batch.add(StreamingXPath.compile(expression));
+			}
+		}
+		final ScaleDomDocument doc = parse(file, ENCODING, false, 0, false);
+		long bytes = doc.getMetrics().getBytesRead();
+		int matches = 0;
+		for (final StreamingXPath expression : batch) {
+			matches += expression.evaluate(doc).getLength();
+		}
+		System.out.println(batch.size() + " expressions one after the other read "
+				+ (doc.getMetrics().getBytesRead() - bytes) + " bytes, " + matches + " matches.");
+
+		bytes = doc.getMetrics().getBytesRead();
+		matches = 0;
+		for (final NodeList result : new StreamingXPathBatch(batch).evaluate(doc)) {
+			matches += result.getLength();
+		}
+		System.out.println(batch.size() + " expressions as a batch read " + (doc.getMetrics().getBytesRead() - bytes)
+				+ " bytes, " + matches + " matches.");
+	}
+
+	private static long offset(final Node node) {
+		return ((FileNodeLocation) ((ParentNode) node).getNodeLocation()).getStartOffset();
+	}
+
+	/**
+	 * Returns the positions of all elements of a ScaleDOM document in document order, by their start offsets.
+	 */
+	private static Map<Long, Integer> elementOrdinals(final ScaleDomDocument doc) {
+		final Map<Long, Integer> ordinals = new HashMap<Long, Integer>();
+		new DOMTraverser(new DOMTraverserCallback() {
+			@Override
+			public void nodeTraversed(final Document doc, final Node node, final int level) {
+				if (node.getNodeType() == Node.ELEMENT_NODE) {
+					ordinals.put(offset(node), ordinals.size());
+				}
+			}
+		}).traverse(doc);
+		return ordinals;
+	}
+
+	/**
+	 * Returns the positions of all elements of a DOM in document order.
+	 */
+	private static Map<Node, Integer> elementOrdinals(final Document doc) {
+		final Map<Node, Integer> ordinals = new IdentityHashMap<Node, Integer>();
+		new DOMTraverser(new DOMTraverserCallback() {
+			@Override
+			public void nodeTraversed(final Document doc, final Node node, final int level) {
+				if (node.getNodeType() == Node.ELEMENT_NODE) {
+					ordinals.put(node, ordinals.size());
+				}
+			}
+		}).traverse(doc);
+		return ordinals;
+	}
+}
@@ -0,0 +1,180 @@
+package at.ac.tuwien.dsg.scaledom.test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import at.ac.tuwien.dsg.scaledom.ScaleDom;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilder;
+import at.ac.tuwien.dsg.scaledom.ScaleDomDocumentBuilderFactory;
+import at.ac.tuwien.dsg.scaledom.dom.OffsetIndex;
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.io.impl.FileDocumentSource;
+import at.ac.tuwien.dsg.scaledom.parser.impl.ByteOffsetStaxXmlParser;
+import at.ac.tuwien.dsg.scaledom.test.util.MapNamespaceContext;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+import at.ac.tuwien.dsg.scaledom.xpath.PathProjection;
+import at.ac.tuwien.dsg.scaledom.xpath.StreamingXPath;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Opens documents with the projections of single expressions and of their union, and checks that the matching
+ * elements are reachable without reloading any nodes (single-threaded initial load and restored from the offset index)
+ * and that the documents equal the documents loaded by the default strategy (also with paged children). Finally,
+ * compares the nodes loaded to reach a single element of a generated document with and without projection.
+ */
+public class XPathLazyLoadingStrategyTest {
+
+	// <Configuration>
+	private final static long FILE_SIZE = 1024 * 1024;
+	private final static String ENCODING = Charsets.UTF_8.name();
+	private final static int CHILD_PAGE_SIZE = 16;
+	// </Configuration>
+
+	private final static String[] BOOKS_EXPRESSIONS = { "/catalog/book[@id='bk105']/title", "/catalog/book[3]",
+			"/catalog/*[position()=5]/price", "//book[@id!='bk101'][2]/author", "/catalog/book[@missing]",
+			"/book/title", "/catalog/book[2][@id='bk102']/genre | /catalog/book[12]" };
+	private final static String[] BOOKSNS_EXPRESSIONS = { "/b:catalog/b:book[1]/*[6]", "//s:inner/s:innerinner",
+			"/b:catalog/b:book[@id='bk102']/b:title | /b:catalog/*/d:*" };
+	private final static String[] GENERATED_EXPRESSIONS = { "/library/book[500]/author",
+			"/library/book[@id='b1000']/chapter/para[1]", "/library/book/chapter[@no='2']",
+			"/library/book[3]/chapter/para[2] | /library/book[@id='b4000']/author" };
+
+	public static void main(final String[] args) {
+		try {
+			final File generated = XmlFileGenerator.generate(new File("xml/big/projection-" + FILE_SIZE + ".xml"),
+					ENCODING, FILE_SIZE);
+			final File[] files = { new File("xml/books.xml"), new File("xml/booksns.xml"), generated };
+			final String[] encodings = { Charsets.ISO_8859_1.name(), Charsets.UTF_8.name(), ENCODING };
+			final String[][] expressions = { BOOKS_EXPRESSIONS, BOOKSNS_EXPRESSIONS, GENERATED_EXPRESSIONS };
+
+			final Map<String, String> namespaces = new HashMap<String, String>();
+			namespaces.put("b", "http://www.example.com/books/");
+			namespaces.put("d", "http://www.example.com/descriptions/");
+			namespaces.put("s", "http://www.example.com/descriptions/2.0/");
+			final NamespaceContext namespaceContext = new MapNamespaceContext(namespaces);
+
+			int failures = 0;
+			for (int i = 0; i < files.length; ++i) {
+				new File(files[i].getPath() + OffsetIndex.FILE_EXTENSION).delete();
+				final String expected = signature(parse(files[i], encodings[i], null, 0, false));
+
+				int fileFailures = 0;
+				for (final String expression : expressions[i]) {
+					final PathProjection projection = PathProjection.compile(expression, namespaceContext);
+					fileFailures += check(expression, "single-threaded",
+							parse(files[i], encodings[i], projection, 0, false), namespaceContext, expected);
+					parse(files[i], encodings[i], projection, 0, true);
+					fileFailures += check(expression, "offset index",
+							parse(files[i], encodings[i], projection, 0, true), namespaceContext, expected);
+					new File(files[i].getPath() + OffsetIndex.FILE_EXTENSION).delete();
+
+					if (!expected.equals(signature(parse(files[i], encodings[i], projection, CHILD_PAGE_SIZE, false)))) {
+						System.out.println("  '" + expression + "' (paged): document differs.");
+						++fileFailures;
+					}
+				}
+				System.out.println(files[i].getName() + ": " + expressions[i].length + " projections, " + fileFailures
+						+ " failures.");
+				failures += fileFailures;
+			}
+			System.out.println(failures + " failures.");
+
+			countLoadedNodes(generated);
+		} catch (final Exception ex) {
+			ex.printStackTrace(System.err);
+		}
+	}
+
+	private static ScaleDomDocument parse(final File file, final String encoding, final PathProjection projection,
+			final int childPageSize, final boolean useOffsetIndex) throws Exception {
+		final DocumentBuilderFactory dbf = new ScaleDomDocumentBuilderFactory();
+		dbf.setNamespaceAware(true);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_XMLPARSER_IMPLEMENTATION, ByteOffsetStaxXmlParser.class);
+		if (projection != null) {
+			dbf.setAttribute(ScaleDom.ATTRIBUTE_LAZYLOADING_PROJECTION, projection);
+		}
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_CHILDPAGE_SIZE, childPageSize);
+		dbf.setAttribute(ScaleDom.ATTRIBUTE_OFFSETINDEX, useOffsetIndex);
+		final ScaleDomDocumentBuilder db = (ScaleDomDocumentBuilder) dbf.newDocumentBuilder();
+		return (ScaleDomDocument) db.parse(new FileDocumentSource(file, encoding));
+	}
+
+	/**
+	 * Finds the elements matching the projection's paths by a forward pass over the document source, which must not
+	 * reload any nodes to resolve them, and compares the whole document afterwards.
+	 */
+	private static int check(final String expression, final String configuration, final ScaleDomDocument doc,
+			final NamespaceContext namespaceContext, final String expected) throws Exception {
+		int failures = 0;
+		final long reloadedNodes = doc.getMetrics().getReloadNodeCount();
+		int matches = 0;
+		for (final String path : expression.split("\\|")) {
+			final NodeList nodes = StreamingXPath.compile(path.trim(), namespaceContext).evaluate(doc);
+			for (int j = 0; j < nodes.getLength(); ++j) {
+				nodes.item(j);
+				++matches;
+			}
+		}
+		if (doc.getMetrics().getReloadNodeCount() != reloadedNodes) {
+			System.out.println("  '" + expression + "' (" + configuration + "): "
+					+ (doc.getMetrics().getReloadNodeCount() - reloadedNodes) + " nodes reloaded to reach " + matches
+					+ " matches.");
+			++failures;
+		}
+		if (!expected.equals(signature(doc))) {
+			System.out.println("  '" + expression + "' (" + configuration + "): document differs.");
+			++failures;
+		}
+		return failures;
+	}
+
+	/**
+	 * Reaches a single element near the end of a generated document by walking the DOM, with and without projection.
+	 */
+	private static void countLoadedNodes(final File file) throws Exception {
+		final String expression = "/library/book[@id='b4000']/author";
+		for (final boolean useProjection : new boolean[] { false, true }) {
+			final ScaleDomDocument doc = parse(file, ENCODING, useProjection ? PathProjection.compile(expression)
+					: null, 0, false);
+			final long initialNodes = doc.getMetrics().getInitialLoadNodeCount();
+			Node book = doc.getDocumentElement().getFirstChild();
+			while (book.getNodeType() != Node.ELEMENT_NODE
+					|| !"b4000".equals(book.getAttributes().getNamedItem("id").getNodeValue())) {
+				book = book.getNextSibling();
+			}
+			Node author = book.getFirstChild();
+			while (author.getNodeType() != Node.ELEMENT_NODE) {
+				author = author.getNextSibling();
+			}
+			System.out.println((useProjection ? "With" : "Without") + " projection: initial load created "
+					+ initialNodes + " nodes, reaching " + author.getNodeName() + " '" + author.getTextContent()
+					+ "' reloaded " + doc.getMetrics().getReloadNodeCount() + " nodes.");
+		}
+	}
+
+	/**
+	 * Returns the types, names and values of all nodes of a document in document order.
+	 */
+	private static String signature(final Document doc) {
+		final StringBuilder signature = new StringBuilder();
+		new DOMTraverser(new DOMTraverserCallback() {
+			@Override
+			public void nodeTraversed(final Document doc, final Node node, final int level) {
+				signature.append(node.getNodeType()).append(node.getNodeName()).append('=')
+						.append(node.getNodeValue()).append(';');
+			}
+		}).traverse(doc);
+		return signature.toString();
+	}
+}
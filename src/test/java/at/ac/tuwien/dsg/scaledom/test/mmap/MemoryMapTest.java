@@ -4,8 +4,10 @@ import java.io.File;
 import java.io.RandomAccessFile;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 
 import at.ac.tuwien.dsg.scaledom.test.util.MeasuredTask;
+import at.ac.tuwien.dsg.scaledom.test.util.XmlFileGenerator;
 
 /**
  * Compares stream read to memory map read performance for huge files.
@@ -16,7 +18,9 @@ public class MemoryMapTest {
 
 	public static void main(String[] args) throws Exception {
 
-		final File file = new File("xml/test.xml");
+		// The file has to cover the largest position plus the read buffer
+		final File file = XmlFileGenerator.generate(new File("xml/big/mmap-40MB.xml"),
+				StandardCharsets.ISO_8859_1.name(), 40 * 1024 * 1024);
 		final int[] positions = new int[] { 1, 16 * 1024, 17 * 1024 * 1024, 34 * 1024 * 1024, 2 };
 		final char[] chars = new char[positions.length];
 
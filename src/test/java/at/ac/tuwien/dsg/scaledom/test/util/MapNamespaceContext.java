@@ -0,0 +1,42 @@
+package at.ac.tuwien.dsg.scaledom.test.util;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.xml.namespace.NamespaceContext;
+
+/**
+ * Namespace context binding the prefixes of a map.
+ */
+public class MapNamespaceContext implements NamespaceContext {
+
+	private final Map<String, String> namespaces;
+
+	public MapNamespaceContext(final Map<String, String> namespaces) {
+		this.namespaces = namespaces;
+	}
+
+	@Override
+	public String getNamespaceURI(final String prefix) {
+		final String namespaceURI = namespaces.get(prefix);
+		return namespaceURI != null ? namespaceURI : "";
+	}
+
+	@Override
+	public String getPrefix(final String namespaceURI) {
+		for (final Map.Entry<String, String> entry : namespaces.entrySet()) {
+			if (entry.getValue().equals(namespaceURI)) {
+				return entry.getKey();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Iterator<String> getPrefixes(final String namespaceURI) {
+		final String prefix = getPrefix(namespaceURI);
+		return prefix != null ? Collections.singleton(prefix).iterator() : Collections.<String> emptySet()
+				.iterator();
+	}
+}
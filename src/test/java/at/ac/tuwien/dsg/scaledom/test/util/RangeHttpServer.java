@@ -0,0 +1,245 @@
+package at.ac.tuwien.dsg.scaledom.test.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal HTTP server on localhost serving the files of a directory. Supports HEAD requests, ETags and range requests
+ * of the form <code>bytes=first-last</code>, optionally conditional by If-Range. Counts requests, connections and sent
+ * bytes, to compare the network traffic of HTTP-backed documents. Failures can be injected to test retries, HEAD and
+ * range requests can be rejected respectively ignored to test servers which do not support them.
+ */
+public class RangeHttpServer {
+
+	/** Supported Range header. */
+	private final static Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+	private final File directory;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final AtomicLong requestCount;
+	private final AtomicLong bytesSent;
+	private final Set<InetSocketAddress> connections;
+
+	/** Every failureInterval-th GET request fails, 0 if none. */
+	private volatile int failureInterval;
+	private final AtomicLong failureCount;
+	/** Flag whether HEAD requests are answered by 405 Method Not Allowed. */
+	private volatile boolean headRejected;
+	/** Flag whether range requests are answered by the whole file. */
+	private volatile boolean rangesIgnored;
+
+	/**
+	 * Default constructor, starts the server on an ephemeral port.
+	 *
+	 * @param directory the directory whose files are served.
+	 * @throws IOException If the server could not be started.
+	 */
+	public RangeHttpServer(final File directory) throws IOException {
+		this.directory = directory;
+		this.requestCount = new AtomicLong();
+		this.bytesSent = new AtomicLong();
+		this.connections = Collections.synchronizedSet(new HashSet<InetSocketAddress>());
+		this.failureInterval = 0;
+		this.failureCount = new AtomicLong();
+
+		// Headers and body are written separately, Nagle's algorithm would delay every response on a kept-alive connection
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				try {
+					serve(exchange);
+				} finally {
+					// Closes the connection if the response body has been broken off
+					exchange.close();
+				}
+			}
+		});
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	private void serve(final HttpExchange exchange) throws IOException {
+		final long requestNumber = requestCount.incrementAndGet();
+		connections.add(exchange.getRemoteAddress());
+
+		final File file = new File(directory, exchange.getRequestURI().getPath().substring(1));
+		if (!file.isFile()) {
+			exchange.sendResponseHeaders(404, -1);
+			return;
+		}
+		final long fileSize = file.length();
+		final String etag = "\"" + Long.toHexString(file.lastModified()) + "-" + Long.toHexString(fileSize) + "\"";
+		exchange.getResponseHeaders().set("ETag", etag);
+		exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+
+		if (exchange.getRequestMethod().equals("HEAD") && headRejected) {
+			exchange.sendResponseHeaders(405, -1);
+			return;
+		}
+		if (exchange.getRequestMethod().equals("HEAD")) {
+			exchange.getResponseHeaders().set("Content-Length", Long.toString(fileSize));
+			exchange.sendResponseHeaders(200, -1);
+			return;
+		}
+
+		final boolean fail = failureInterval > 0 && requestNumber % failureInterval == 0;
+		if (fail && failureCount.incrementAndGet() % 2 == 1) {
+			exchange.sendResponseHeaders(503, -1);
+			return;
+		}
+
+		long first = 0;
+		long last = fileSize - 1;
+		final String range = exchange.getRequestHeaders().getFirst("Range");
+		final String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+		final Matcher matcher = range != null ? RANGE_PATTERN.matcher(range) : null;
+		if (matcher != null && matcher.matches() && (ifRange == null || ifRange.equals(etag)) && !rangesIgnored) {
+			first = Long.parseLong(matcher.group(1));
+			if (!matcher.group(2).isEmpty()) {
+				last = Math.min(Long.parseLong(matcher.group(2)), fileSize - 1);
+			}
+			exchange.getResponseHeaders().set("Content-Range", "bytes " + first + "-" + last + "/" + fileSize);
+			exchange.sendResponseHeaders(206, last - first + 1);
+		} else {
+			exchange.sendResponseHeaders(200, fileSize);
+		}
+
+		// A failing request which is not answered by 503 breaks off in the middle of the body
+		final long length = fail ? (last - first + 1) / 2 : last - first + 1;
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final OutputStream out = exchange.getResponseBody();
+			final byte[] buffer = new byte[8192];
+			raf.seek(first);
+			long remaining = length;
+			while (remaining > 0) {
+				final int read = raf.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+				if (read == -1) {
+					break;
+				}
+				out.write(buffer, 0, read);
+				bytesSent.addAndGet(read);
+				remaining -= read;
+			}
+			if (!fail) {
+				out.close();
+			}
+		} catch (final IOException ex) {
+			// Client closed the connection before reading the whole response
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Returns the URL of a served file.
+	 *
+	 * @param fileName the name of the file within the directory.
+	 * @return the URL.
+	 * @throws IOException If the URL is malformed.
+	 */
+	public URL getUrl(final String fileName) throws IOException {
+		return new URL("http://localhost:" + server.getAddress().getPort() + "/" + fileName);
+	}
+
+	/**
+	 * Lets every n-th GET request fail, alternately by status 503 and by a response body breaking off in the middle.
+	 *
+	 * @param failureInterval n, 0 if no requests fail.
+	 */
+	public void setFailureInterval(final int failureInterval) {
+		this.failureInterval = failureInterval;
+	}
+
+	/**
+	 * Lets HEAD requests fail by status 405 Method Not Allowed.
+	 *
+	 * @param headRejected true if HEAD requests are rejected.
+	 */
+	public void setHeadRejected(final boolean headRejected) {
+		this.headRejected = headRejected;
+	}
+
+	/**
+	 * Answers range requests by the whole file, as servers which do not support ranges do.
+	 *
+	 * @param rangesIgnored true if range requests are ignored.
+	 */
+	public void setRangesIgnored(final boolean rangesIgnored) {
+		this.rangesIgnored = rangesIgnored;
+	}
+
+	/**
+	 * Returns the number of received requests.
+	 *
+	 * @return the number of requests.
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Returns the number of connections requests have been received by.
+	 *
+	 * @return the number of connections.
+	 */
+	public int getConnectionCount() {
+		return connections.size();
+	}
+
+	/**
+	 * Returns the number of failed requests.
+	 *
+	 * @return the number of failures.
+	 */
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	/**
+	 * Returns the number of sent bytes of files.
+	 *
+	 * @return the number of sent bytes.
+	 */
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	/**
+	 * Resets all counters.
+	 */
+	public void resetCounters() {
+		requestCount.set(0);
+		bytesSent.set(0);
+		connections.clear();
+		failureCount.set(0);
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,66 @@
+package at.ac.tuwien.dsg.scaledom.test.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Processing of the record documents generated by <code>XmlFileGenerator.generateRecords</code>, i.e. summing up the
+ * values of their records.
+ */
+public class Records {
+
+	/**
+	 * Returns the records, i.e. the child elements of the root element.
+	 *
+	 * @param root the root element.
+	 * @return the records.
+	 */
+	public static List<Element> getRecords(final Element root) {
+		final List<Element> records = new ArrayList<Element>();
+		for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE) {
+				records.add((Element) child);
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Processes a record by sibling navigation, i.e. sums up its values.
+	 *
+	 * @param record the record.
+	 * @return the sum of the record's values.
+	 */
+	public static long sumValues(final Node record) {
+		long sum = 0;
+		for (Node child = record.getFirstChild(); child != null; child = child.getNextSibling()) {
+			sum += getValue(child);
+		}
+		return sum;
+	}
+
+	/**
+	 * Processes the children of a record, i.e. sums up its values.
+	 *
+	 * @param children the children of the record.
+	 * @return the sum of the record's values.
+	 */
+	public static long sumValues(final NodeList children) {
+		long sum = 0;
+		for (int i = 0; i < children.getLength(); ++i) {
+			sum += getValue(children.item(i));
+		}
+		return sum;
+	}
+
+	private static long getValue(final Node child) {
+		if (child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals("value")) {
+			return Long.parseLong(child.getTextContent());
+		}
+		return 0;
+	}
+}
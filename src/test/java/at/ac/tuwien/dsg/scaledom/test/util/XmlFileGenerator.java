@@ -0,0 +1,114 @@
+package at.ac.tuwien.dsg.scaledom.test.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+
+/**
+ * Generates synthetic, record-oriented XML test files of a given size (in the style of xml/varwidth.xml). Text and
+ * attribute values contain variable-width characters, which are replaced by '?' if the requested encoding is not able
+ * to represent them. Also generates documents of a given number of flat records, each holding a name and a value (see
+ * <code>Records</code>).
+ */
+public class XmlFileGenerator {
+
+	/** Text fragments, containing 1- to 4-byte UTF-8 characters. */
+	private final static String[] FRAGMENTS = { "plain ascii text", "naïve café", "βέτα",
+			"€uro 中文", "A𐰀 old turkic", "דלת" };
+
+	/**
+	 * Generates the file, unless it already exists with at least the requested size.
+	 *
+	 * @param file the file to be generated.
+	 * @param encoding the file's encoding.
+	 * @param targetSize the approximate file size in bytes.
+	 * @return the generated file.
+	 * @throws IOException If some I/O error occurs.
+	 */
+	public static File generate(final File file, final String encoding, final long targetSize) throws IOException {
+		if (file.exists() && file.length() >= targetSize) {
+			return file;
+		}
+		file.getParentFile().mkdirs();
+
+		final CharsetEncoder encoder = Charset.forName(encoding).newEncoder();
+		final String[] fragments = new String[FRAGMENTS.length];
+		for (int i = 0; i < FRAGMENTS.length; ++i) {
+			fragments[i] = encoder.canEncode(FRAGMENTS[i]) ? FRAGMENTS[i] : FRAGMENTS[i].replaceAll("[^\\x00-\\x7f]",
+					"?");
+		}
+
+		System.out.println("INFO: Generating XML file, please be patient: " + file);
+		final FileOutputStream out = new FileOutputStream(file);
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(out, encoding), 1 << 16);
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"" + encoding + "\"?>\n<library>\n");
+			for (long i = 0; out.getChannel().position() < targetSize; ++i) {
+				final String fragment = fragments[(int) (i % fragments.length)];
+				writer.write("\t<book id=\"b" + i + "\" title=\"" + fragment + "\">\n");
+				writer.write("\t\t<author>" + fragment + " " + i + "</author>\n");
+				writer.write("\t\t<chapter no=\"1\"><para>" + fragment + "</para><para>" + fragment + " " + fragment
+						+ "</para></chapter>\n");
+				writer.write("\t\t<!-- " + fragment + " -->\n");
+				writer.write("\t</book>\n");
+			}
+			writer.write("</library>\n");
+		} finally {
+			writer.close();
+		}
+
+		return file;
+	}
+
+	/**
+	 * Calls generateRecords(file, encoding, numberOfRecords, 0).
+	 *
+	 * @see #generateRecords(File, String, int, int)
+	 */
+	public static File generateRecords(final File file, final String encoding, final int numberOfRecords)
+			throws IOException {
+		return generateRecords(file, encoding, numberOfRecords, 0);
+	}
+
+	/**
+	 * Generates a document of records, i.e. <code>&lt;record id="r<i>i</i>"&gt;</code> children of the root element,
+	 * each holding a name, a value and optionally a number of large fields. Does nothing if the file already exists.
+	 *
+	 * @param file the file to be generated.
+	 * @param encoding the file's encoding.
+	 * @param numberOfRecords the number of records.
+	 * @param fieldsPerRecord the number of fields of each record.
+	 * @return the generated file.
+	 * @throws IOException If some I/O error occurs.
+	 */
+	public static File generateRecords(final File file, final String encoding, final int numberOfRecords,
+			final int fieldsPerRecord) throws IOException {
+		if (file.exists()) {
+			return file;
+		}
+
+		file.getParentFile().mkdirs();
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), encoding));
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"" + encoding + "\"?>\n<records>");
+			for (int i = 0; i < numberOfRecords; ++i) {
+				writer.write("<record id=\"r" + i + "\"><name>Record " + i + "</name><value>" + (i * 7 % 1000)
+						+ "</value>");
+				for (int j = 0; j < fieldsPerRecord; ++j) {
+					writer.write("<field name=\"f" + j + "\" type=\"string\" checked=\"true\">Value " + j
+							+ " of record " + i + ", some more text to make it a rather large record.</field>");
+				}
+				writer.write("</record>\n");
+			}
+			writer.write("</records>\n");
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+}
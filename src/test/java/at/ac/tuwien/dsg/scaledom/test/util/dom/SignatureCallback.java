@@ -0,0 +1,55 @@
+package at.ac.tuwien.dsg.scaledom.test.util.dom;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+
+/**
+ * Computes a signature of the levels, types, names, values and attributes of the traversed nodes. The signature is a
+ * hash computed during the traversal, the document may be too large to hold a digest.
+ */
+public class SignatureCallback implements DOMTraverserCallback {
+
+	private long count;
+	private long hash;
+
+	/**
+	 * Traverses a node (including reloading) and returns the signature of it and its descendants.
+	 *
+	 * @param node the root node of the traversal, may be the document.
+	 * @return the signature.
+	 */
+	public static String signature(final Node node) {
+		final SignatureCallback callback = new SignatureCallback();
+		new DOMTraverser(callback).traverse(node);
+		return callback.getSignature();
+	}
+
+	@Override
+	public void nodeTraversed(final Document doc, final Node node, final int level) {
+		hash = 31 * hash + level;
+		hash = 31 * hash + node.getNodeType();
+		hash = 31 * hash + node.getNodeName().hashCode();
+		hash = 31 * hash + String.valueOf(node.getNodeValue()).hashCode();
+		final NamedNodeMap attributes = node.getAttributes();
+		if (attributes != null) {
+			for (int i = 0; i < attributes.getLength(); ++i) {
+				hash = 31 * hash + attributes.item(i).getNodeName().hashCode();
+				hash = 31 * hash + attributes.item(i).getNodeValue().hashCode();
+			}
+		}
+		++count;
+	}
+
+	/**
+	 * Returns the signature of the nodes traversed so far.
+	 *
+	 * @return the number of nodes and the hash.
+	 */
+	public String getSignature() {
+		return count + " nodes, hash " + Long.toHexString(hash);
+	}
+}
@@ -0,0 +1,49 @@
+package at.ac.tuwien.dsg.scaledom.test.util.dom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.xerces.dom.ParentNode;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import at.ac.tuwien.dsg.scaledom.dom.ScaleDomDocument;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverser;
+import at.ac.tuwien.dsg.scaledom.util.DOMTraverserCallback;
+
+/**
+ * Collects the traversed parent nodes with loaded children, in order to unload them and force reloads.
+ */
+public class UnloadCallback implements DOMTraverserCallback {
+
+	private final List<ParentNode> parents = new ArrayList<ParentNode>();
+
+	/**
+	 * Unloads all loaded children lists of a document, except for those which must never be unloaded (e.g. the ones
+	 * of the initial load), so that the next traversal reloads them.
+	 *
+	 * @param doc the document.
+	 * @return the number of unloaded children lists.
+	 */
+	public static int unloadAll(final ScaleDomDocument doc) {
+		final UnloadCallback callback = new UnloadCallback();
+		new DOMTraverser(true, false, callback).traverse(doc);
+
+		// Deepest first, the children of an unloaded parent are no longer reachable
+		int unloaded = 0;
+		for (int i = callback.parents.size() - 1; i >= 0; --i) {
+			final ParentNode parent = callback.parents.get(i);
+			if (doc.unload(parent, parent.getLoadedChildNodes())) {
+				++unloaded;
+			}
+		}
+		return unloaded;
+	}
+
+	@Override
+	public void nodeTraversed(final Document doc, final Node node, final int level) {
+		if (node instanceof ParentNode && !((ParentNode) node).getLoadedChildNodes().isEmpty()) {
+			parents.add((ParentNode) node);
+		}
+	}
+}